@@ -44,6 +44,10 @@ public class GraphQLProcessSubscriptionEventPublisher<T> implements GraphQLSubsc
             ProcessInstanceDataEvent piEvent = (ProcessInstanceDataEvent) event;
 
             ProcessInstance<?> instance = piEvent.getData().sourceInstance();
+            // events published again from the outbox are not connected to the instance
+            if (instance == null) {
+                return;
+            }
 
             if (instance.process().id().equals(processId)) {
 
@@ -27,6 +27,10 @@ public class GraphQLUserTaskSubscriptionEventPublisher implements GraphQLSubscri
     public void process(DataEvent<?> event) {
         if (event instanceof UserTaskInstanceDataEvent) {
             UserTaskInstanceDataEvent utEvent = (UserTaskInstanceDataEvent) event;
+            // events published again from the outbox are not connected to the task
+            if (utEvent.getData().sourceInstance() == null) {
+                return;
+            }
 
             userTasksProcessor.onNext(new UserTaskEventInput(utEvent.getData()), utEvent.getData().sourceInstance());
         }
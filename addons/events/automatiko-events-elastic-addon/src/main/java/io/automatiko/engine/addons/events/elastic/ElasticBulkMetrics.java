@@ -0,0 +1,37 @@
+package io.automatiko.engine.addons.events.elastic;
+
+import java.util.function.IntSupplier;
+
+/**
+ * Metrics of bulk publishing to elastic. Kept free of any metrics library so the add-on works without Micrometer
+ * on the class path, see {@link MicrometerElasticBulkMetrics}.
+ */
+public interface ElasticBulkMetrics {
+
+    ElasticBulkMetrics NONE = new ElasticBulkMetrics() {
+    };
+
+    /**
+     * Registers number of documents waiting to be sent
+     *
+     * @param size supplier of current queue size
+     */
+    default void queue(IntSupplier size) {
+    }
+
+    /**
+     * Records time taken by single bulk request
+     *
+     * @param nanos duration of the request in nanoseconds
+     */
+    default void flushed(long nanos) {
+    }
+
+    /**
+     * Records documents that could not be sent to elastic
+     *
+     * @param count number of failed documents
+     */
+    default void failed(int count) {
+    }
+}
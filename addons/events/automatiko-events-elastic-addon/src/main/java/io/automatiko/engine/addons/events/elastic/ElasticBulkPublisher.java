@@ -0,0 +1,227 @@
+package io.automatiko.engine.addons.events.elastic;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.elasticsearch.client.Request;
+import org.elasticsearch.client.Response;
+import org.elasticsearch.client.ResponseException;
+import org.elasticsearch.client.RestClient;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+/**
+ * Sends documents to Elastic in bulk requests from a background thread. Documents are grouped until either
+ * the bulk size is reached or the first document waits for the bulk interval. Documents rejected by Elastic with
+ * recoverable error (too many requests or server error) and complete requests that failed are resent with back off
+ * up to configured number of retries.
+ * <br/>
+ * Number of waiting documents is bounded, once reached publishing thread waits for space in the queue.
+ */
+public class ElasticBulkPublisher implements Closeable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ElasticBulkPublisher.class);
+
+    private static final long PUBLISH_TIMEOUT_SECONDS = 30;
+
+    private static final long MAX_BACKOFF_MILLIS = 30000;
+
+    private final RestClient restClient;
+
+    private final ObjectMapper mapper;
+
+    private final int bulkSize;
+
+    private final long interval;
+
+    private final int retries;
+
+    private final BlockingQueue<Document> queue;
+
+    private final Thread worker;
+
+    private volatile boolean running = true;
+
+    private final ElasticBulkMetrics metrics;
+
+    public ElasticBulkPublisher(RestClient restClient, ObjectMapper mapper, int bulkSize, long interval, int queueSize,
+            int retries, ElasticBulkMetrics metrics) {
+        this.restClient = restClient;
+        this.mapper = mapper;
+        this.bulkSize = bulkSize;
+        this.interval = interval;
+        this.retries = retries;
+        this.queue = new ArrayBlockingQueue<>(queueSize);
+        this.metrics = metrics == null ? ElasticBulkMetrics.NONE : metrics;
+        this.metrics.queue(queue::size);
+
+        this.worker = new Thread(this::run, "automatiko-elastic-bulk");
+        this.worker.setDaemon(true);
+        this.worker.start();
+    }
+
+    /**
+     * Adds document to be indexed, waits when there are too many documents waiting to be sent
+     *
+     * @param index name of the index
+     * @param id identifier of the document
+     * @param source document as JSON
+     */
+    public void index(String index, String id, String source) {
+        try {
+            if (!queue.offer(new Document(index, id, source), PUBLISH_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                LOGGER.error("Document {} in index {} dropped as too many documents are waiting to be sent to elastic", id,
+                        index);
+                failed(1);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public int queueSize() {
+        return queue.size();
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        try {
+            worker.join(TimeUnit.SECONDS.toMillis(PUBLISH_TIMEOUT_SECONDS));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    protected void run() {
+        while (running || !queue.isEmpty()) {
+            try {
+                Document first = queue.poll(interval, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                List<Document> documents = new ArrayList<>(bulkSize);
+                documents.add(first);
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(interval);
+                while (documents.size() < bulkSize) {
+                    long remaining = deadline - System.nanoTime();
+                    Document next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : queue.poll();
+                    if (next == null) {
+                        break;
+                    }
+                    documents.add(next);
+                }
+                send(documents);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                LOGGER.error("Unexpected error when publishing events to elastic", e);
+            }
+        }
+    }
+
+    protected void send(List<Document> documents) throws InterruptedException {
+        for (int attempt = 0; !documents.isEmpty(); attempt++) {
+            if (attempt > 0) {
+                Thread.sleep(Math.min(interval * (1L << Math.min(attempt, 10)), MAX_BACKOFF_MILLIS));
+            }
+            boolean last = attempt >= retries;
+            long start = System.nanoTime();
+            try {
+                Request request = new Request("POST", "/_bulk");
+                request.setJsonEntity(body(documents));
+                Response response = restClient.performRequest(request);
+
+                documents = rejected(documents, mapper.readTree(response.getEntity().getContent()), last);
+            } catch (IOException e) {
+                if (!recoverable(e) || last) {
+                    LOGGER.error("Unable to publish {} documents to elastic", documents.size(), e);
+                    failed(documents.size());
+                    return;
+                }
+                LOGGER.warn("Publishing {} documents to elastic failed, will retry", documents.size(), e);
+            } finally {
+                metrics.flushed(System.nanoTime() - start);
+            }
+        }
+    }
+
+    protected String body(List<Document> documents) throws IOException {
+        StringBuilder body = new StringBuilder();
+        for (Document document : documents) {
+            ObjectNode action = mapper.createObjectNode();
+            action.putObject("index").put("_index", document.index).put("_id", document.id);
+            body.append(mapper.writeValueAsString(action)).append('\n');
+            body.append(document.source).append('\n');
+        }
+        return body.toString();
+    }
+
+    /**
+     * Returns documents that should be resent based on the bulk response, items of the response are in the same
+     * order as documents in the request
+     */
+    protected List<Document> rejected(List<Document> documents, JsonNode response, boolean last) {
+        List<Document> rejected = new ArrayList<>();
+        if (!response.path("errors").asBoolean(false)) {
+            return rejected;
+        }
+        Iterator<JsonNode> items = response.path("items").elements();
+        for (Document document : documents) {
+            if (!items.hasNext()) {
+                break;
+            }
+            JsonNode item = items.next().path("index");
+            int status = item.path("status").asInt(200);
+            if (status < 300) {
+                continue;
+            }
+            if ((status == 429 || status >= 500) && !last) {
+                rejected.add(document);
+            } else {
+                LOGGER.error("Document {} in index {} was rejected by elastic with status {} - {}", document.id,
+                        document.index, status, item.path("error"));
+                failed(1);
+            }
+        }
+        return rejected;
+    }
+
+    protected boolean recoverable(IOException e) {
+        if (e instanceof ResponseException) {
+            int status = ((ResponseException) e).getResponse().getStatusLine().getStatusCode();
+            return status == 429 || status >= 500;
+        }
+        return true;
+    }
+
+    protected void failed(int count) {
+        metrics.failed(count);
+    }
+
+    protected static class Document {
+
+        private final String index;
+
+        private final String id;
+
+        private final String source;
+
+        Document(String index, String id, String source) {
+            this.index = index;
+            this.id = id;
+            this.source = source;
+        }
+    }
+}
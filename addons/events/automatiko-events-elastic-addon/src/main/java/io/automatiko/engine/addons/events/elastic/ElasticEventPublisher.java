@@ -8,6 +8,7 @@ import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 
+import javax.annotation.PreDestroy;
 import javax.enterprise.context.ApplicationScoped;
 import javax.inject.Inject;
 
@@ -33,6 +34,8 @@ public class ElasticEventPublisher implements EventPublisher {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(ElasticEventPublisher.class);
 
+    private static final String METER_REGISTRY_CLASS = "io.micrometer.core.instrument.MeterRegistry";
+
     private RestClient restClient;
 
     private ObjectMapper mapper;
@@ -45,18 +48,50 @@ public class ElasticEventPublisher implements EventPublisher {
 
     private Optional<String> auditIndex;
 
+    private ElasticBulkPublisher bulkPublisher;
+
     @Inject
     public ElasticEventPublisher(RestClient restClient, ObjectMapper mapper,
             @ConfigProperty(name = ElasticEventsConfig.AUDIT_KEY) Optional<Boolean> audit,
             @ConfigProperty(name = ElasticEventsConfig.INSTANCE_KEY) Optional<Boolean> instance,
             @ConfigProperty(name = ElasticEventsConfig.TASKS_KEY) Optional<Boolean> tasks,
-            @ConfigProperty(name = ElasticEventsConfig.AUDIT_INDEX_KEY) Optional<String> auditIndex) {
+            @ConfigProperty(name = ElasticEventsConfig.AUDIT_INDEX_KEY) Optional<String> auditIndex,
+            @ConfigProperty(name = ElasticEventsConfig.BULK_SIZE_KEY) Optional<Integer> bulkSize,
+            @ConfigProperty(name = ElasticEventsConfig.BULK_INTERVAL_KEY) Optional<Long> bulkInterval,
+            @ConfigProperty(name = ElasticEventsConfig.BULK_QUEUE_SIZE_KEY) Optional<Integer> bulkQueueSize,
+            @ConfigProperty(name = ElasticEventsConfig.BULK_RETRIES_KEY) Optional<Integer> bulkRetries,
+            @ConfigProperty(name = "quarkus.automatiko.metrics.enabled") Optional<Boolean> metrics) {
         this.restClient = restClient;
         this.mapper = mapper;
         this.audit = audit;
         this.instance = instance;
         this.tasks = tasks;
         this.auditIndex = auditIndex;
+
+        if (bulkSize.orElse(0) > 0) {
+            this.bulkPublisher = new ElasticBulkPublisher(restClient, mapper, bulkSize.get(), bulkInterval.orElse(1000L),
+                    bulkQueueSize.orElse(10000), bulkRetries.orElse(3),
+                    metrics.orElse(false) ? bulkMetrics() : ElasticBulkMetrics.NONE);
+        }
+    }
+
+    protected ElasticBulkMetrics bulkMetrics() {
+        try {
+            // micrometer is an optional dependency of the add-on
+            Class.forName(METER_REGISTRY_CLASS, false, getClass().getClassLoader());
+        } catch (ClassNotFoundException e) {
+            LOGGER.debug("Micrometer not found, metrics of bulk publishing to elastic are disabled");
+            return ElasticBulkMetrics.NONE;
+        }
+        return MicrometerElasticBulkMetrics.lookup();
+    }
+
+    @PreDestroy
+    public void close() {
+        if (bulkPublisher != null) {
+            // send all documents that are still waiting
+            bulkPublisher.close();
+        }
     }
 
     @Override
@@ -90,12 +125,11 @@ public class ElasticEventPublisher implements EventPublisher {
 
                     payload.put("_metadata", metadata);
 
-                    request = new Request(
-                            "PUT",
-                            "/" + pevent.getData().sourceInstance().process().id() + "/_doc/" + pevent.getData().getId());
-                    request.setJsonEntity(mapper.writeValueAsString(payload));
-
-                    sendRequest(request, event);
+                    // events published again from the outbox are not connected to the instance
+                    String processId = pevent.getData().sourceInstance() != null
+                            ? pevent.getData().sourceInstance().process().id()
+                            : pevent.getData().getProcessId();
+                    index(processId, pevent.getData().getId(), payload, event);
                 }
                 if (audit.orElse(false)) {
                     String index = auditIndex.orElse("atk_audit");
@@ -117,16 +151,22 @@ public class ElasticEventPublisher implements EventPublisher {
                         audit.put("nodeType", nevent.getNodeType());
                         audit.put("triggerTime", nevent.getTriggerTime());
                         audit.put("leaveTime", nevent.getLeaveTime());
+                        if (bulkPublisher != null) {
+                            bulkPublisher.index(index, nevent.getId(), mapper.writeValueAsString(audit));
+                            continue;
+                        }
                         bulkRequestBody.append(actionMetaData);
                         bulkRequestBody.append(mapper.writeValueAsString(audit));
                         bulkRequestBody.append("\n");
 
                     }
-                    request = new Request(
-                            "POST",
-                            "/" + index + "/_bulk");
-                    request.setJsonEntity(bulkRequestBody.toString());
-                    sendRequest(request, event);
+                    if (bulkPublisher == null) {
+                        request = new Request(
+                                "POST",
+                                "/" + index + "/_bulk");
+                        request.setJsonEntity(bulkRequestBody.toString());
+                        sendRequest(request, event);
+                    }
 
                 }
 
@@ -173,12 +213,7 @@ public class ElasticEventPublisher implements EventPublisher {
 
                 payload.put("_metadata", metadata);
 
-                request = new Request(
-                        "PUT",
-                        "/tasks/_doc/" + uevent.getData().getId());
-                request.setJsonEntity(mapper.writeValueAsString(payload));
-
-                sendRequest(request, event);
+                index("tasks", uevent.getData().getId(), payload, event);
             } else {
                 return;
             }
@@ -196,6 +231,19 @@ public class ElasticEventPublisher implements EventPublisher {
         }
     }
 
+    protected void index(String index, String id, Map<String, Object> payload, DataEvent<?> event) throws IOException {
+        if (bulkPublisher != null) {
+            bulkPublisher.index(index, id, mapper.writeValueAsString(payload));
+            return;
+        }
+        Request request = new Request(
+                "PUT",
+                "/" + index + "/_doc/" + id);
+        request.setJsonEntity(mapper.writeValueAsString(payload));
+
+        sendRequest(request, event);
+    }
+
     protected void sendRequest(Request request, DataEvent<?> event) {
 
         restClient.performRequestAsync(request, new ResponseListener() {
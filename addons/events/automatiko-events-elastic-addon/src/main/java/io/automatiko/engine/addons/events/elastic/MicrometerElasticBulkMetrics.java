@@ -0,0 +1,57 @@
+package io.automatiko.engine.addons.events.elastic;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntSupplier;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.quarkus.arc.Arc;
+
+/**
+ * Micrometer based metrics of bulk publishing, only loaded when Micrometer is available
+ */
+public class MicrometerElasticBulkMetrics implements ElasticBulkMetrics {
+
+    private final MeterRegistry registry;
+
+    private final Timer flushTimer;
+
+    private final Counter failedCounter;
+
+    public MicrometerElasticBulkMetrics(MeterRegistry registry) {
+        this.registry = registry;
+        this.flushTimer = Timer.builder("automatiko.events.elastic.flush.duration")
+                .description("Time taken to send bulk request to elastic").register(registry);
+        this.failedCounter = Counter.builder("automatiko.events.elastic.failed.count")
+                .description("Total count of documents that failed to be sent to elastic").register(registry);
+    }
+
+    @Override
+    public void queue(IntSupplier size) {
+        Gauge.builder("automatiko.events.elastic.queue.size", size, IntSupplier::getAsInt)
+                .description("Number of documents waiting to be sent to elastic").register(registry);
+    }
+
+    @Override
+    public void flushed(long nanos) {
+        flushTimer.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void failed(int count) {
+        failedCounter.increment(count);
+    }
+
+    /**
+     * Returns Micrometer based metrics when meter registry bean is available, must only be called when Micrometer is
+     * on class path
+     *
+     * @return metrics to be used, never null
+     */
+    public static ElasticBulkMetrics lookup() {
+        MeterRegistry registry = Arc.container().instance(MeterRegistry.class).orElse(null);
+        return registry == null ? NONE : new MicrometerElasticBulkMetrics(registry);
+    }
+}
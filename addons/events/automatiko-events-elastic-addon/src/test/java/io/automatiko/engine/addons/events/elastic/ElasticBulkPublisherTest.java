@@ -0,0 +1,152 @@
+package io.automatiko.engine.addons.events.elastic;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import org.apache.http.HttpHost;
+import org.elasticsearch.client.RestClient;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class ElasticBulkPublisherTest {
+
+    private HttpServer server;
+
+    private RestClient restClient;
+
+    // bodies of received bulk requests
+    private List<String> requests = new CopyOnWriteArrayList<>();
+
+    // number of requests that should reject the first document as too many requests
+    private AtomicInteger rejections = new AtomicInteger();
+
+    @BeforeEach
+    public void setup() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/_bulk", this::handle);
+        server.start();
+
+        restClient = RestClient.builder(new HttpHost("localhost", server.getAddress().getPort())).build();
+    }
+
+    @AfterEach
+    public void cleanup() throws IOException {
+        restClient.close();
+        server.stop(0);
+    }
+
+    @Test
+    public void testDocumentsGroupedBySize() throws Exception {
+        ElasticBulkPublisher publisher = new ElasticBulkPublisher(restClient, new ObjectMapper(), 2, 60000, 10, 3, null);
+
+        for (int i = 0; i < 4; i++) {
+            publisher.index("test", "id" + i, "{\"value\":" + i + "}");
+        }
+        waitFor(() -> requests.size() == 2);
+        publisher.close();
+
+        assertEquals(2, requests.size());
+        assertEquals(2, documents(requests.get(0)));
+        assertEquals(2, documents(requests.get(1)));
+        assertTrue(requests.get(0).contains("\"_id\":\"id0\""));
+        assertEquals(0, publisher.queueSize());
+    }
+
+    @Test
+    public void testDocumentsSentAfterInterval() throws Exception {
+        ElasticBulkPublisher publisher = new ElasticBulkPublisher(restClient, new ObjectMapper(), 100, 100, 10, 3, null);
+
+        publisher.index("test", "id1", "{\"value\":1}");
+        publisher.index("test", "id2", "{\"value\":2}");
+        waitFor(() -> requests.size() == 1);
+        publisher.close();
+
+        assertEquals(1, requests.size());
+        assertEquals(2, documents(requests.get(0)));
+    }
+
+    @Test
+    public void testRejectedDocumentsResent() throws Exception {
+        rejections.set(1);
+        ElasticBulkPublisher publisher = new ElasticBulkPublisher(restClient, new ObjectMapper(), 2, 10, 10, 3, null);
+
+        publisher.index("test", "id1", "{\"value\":1}");
+        publisher.index("test", "id2", "{\"value\":2}");
+        waitFor(() -> requests.size() == 2);
+        publisher.close();
+
+        assertEquals(2, requests.size());
+        assertEquals(2, documents(requests.get(0)));
+        // only rejected document is sent again
+        assertEquals(1, documents(requests.get(1)));
+        assertTrue(requests.get(1).contains("\"_id\":\"id1\""));
+    }
+
+    @Test
+    public void testFailedDocumentsReportedToMetrics() throws Exception {
+        rejections.set(1);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        ElasticBulkPublisher publisher = new ElasticBulkPublisher(restClient, new ObjectMapper(), 2, 10, 10, 0,
+                new MicrometerElasticBulkMetrics(registry));
+
+        publisher.index("test", "id1", "{\"value\":1}");
+        publisher.index("test", "id2", "{\"value\":2}");
+        waitFor(() -> registry.counter("automatiko.events.elastic.failed.count").count() > 0);
+        publisher.close();
+
+        assertEquals(1, requests.size());
+        assertEquals(1.0, registry.counter("automatiko.events.elastic.failed.count").count());
+        assertEquals(1, registry.timer("automatiko.events.elastic.flush.duration").count());
+        assertEquals(0.0, registry.get("automatiko.events.elastic.queue.size").gauge().value());
+    }
+
+    protected void handle(HttpExchange exchange) throws IOException {
+        String body = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+        requests.add(body);
+
+        StringBuilder items = new StringBuilder();
+        boolean errors = rejections.getAndUpdate(count -> Math.max(count - 1, 0)) > 0;
+        for (int i = 0; i < documents(body); i++) {
+            int status = errors && i == 0 ? 429 : 201;
+            if (i > 0) {
+                items.append(',');
+            }
+            items.append("{\"index\":{\"status\":").append(status).append("}}");
+        }
+        byte[] response = ("{\"errors\":" + errors + ",\"items\":[" + items + "]}").getBytes(StandardCharsets.UTF_8);
+
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, response.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(response);
+        }
+    }
+
+    protected int documents(String body) {
+        // every document is made of action and source line
+        return body.split("\n").length / 2;
+    }
+
+    protected void waitFor(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10000;
+        while (!condition.getAsBoolean() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+}
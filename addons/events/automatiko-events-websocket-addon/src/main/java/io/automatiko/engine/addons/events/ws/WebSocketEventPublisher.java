@@ -81,7 +81,8 @@ public class WebSocketEventPublisher implements EventPublisher {
                 } else if (event instanceof UserTaskInstanceDataEvent) {
 
                     HumanTaskWorkItem workItem = ((UserTaskInstanceDataEvent) event).getData().sourceInstance();
-                    allowed = workItem.enforce(SecurityPolicy.of(identityProvider));
+                    // events published again from the outbox are not connected to the task
+                    allowed = workItem != null && workItem.enforce(SecurityPolicy.of(identityProvider));
                 }
                 if (allowed) {
                     session.getAsyncRemote().sendText(text);
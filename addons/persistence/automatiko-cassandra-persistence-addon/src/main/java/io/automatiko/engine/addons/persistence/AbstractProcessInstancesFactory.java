@@ -5,7 +5,9 @@ import java.util.Optional;
 import com.datastax.oss.driver.api.core.CqlSession;
 
 import io.automatiko.engine.addons.persistence.cassandra.CassandraProcessInstances;
+import io.automatiko.engine.addons.persistence.common.cache.CachingProcessInstances;
 import io.automatiko.engine.api.Model;
+import io.automatiko.engine.api.workflow.MutableProcessInstances;
 import io.automatiko.engine.api.workflow.Process;
 import io.automatiko.engine.api.workflow.ProcessInstancesFactory;
 
@@ -40,4 +42,9 @@ public abstract class AbstractProcessInstancesFactory implements ProcessInstance
         return new CassandraProcessInstances((Process<? extends Model>) process, cqlSession, codec(),
                 transactionLogStore(), auditor(), createKeyspace, createTables, keyspace);
     }
+
+    @Override
+    public MutableProcessInstances<?> decorate(Process<?> process, MutableProcessInstances<?> instances) {
+        return CachingProcessInstances.decorate(process, instances);
+    }
 }
@@ -3,20 +3,28 @@ package io.automatiko.engine.addons.persistence.cassandra;
 import static com.datastax.oss.driver.api.querybuilder.QueryBuilder.bindMarker;
 import static com.datastax.oss.driver.api.querybuilder.QueryBuilder.deleteFrom;
 import static com.datastax.oss.driver.api.querybuilder.QueryBuilder.insertInto;
-import static com.datastax.oss.driver.api.querybuilder.QueryBuilder.literal;
 import static com.datastax.oss.driver.api.querybuilder.QueryBuilder.selectFrom;
 import static com.datastax.oss.driver.api.querybuilder.SchemaBuilder.createKeyspace;
 import static io.automatiko.engine.api.workflow.ProcessInstanceReadMode.MUTABLE;
 
 import java.nio.ByteBuffer;
+import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Base64;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
@@ -24,6 +32,9 @@ import java.util.stream.Stream;
 
 import com.datastax.oss.driver.api.core.ConsistencyLevel;
 import com.datastax.oss.driver.api.core.CqlSession;
+import com.datastax.oss.driver.api.core.cql.AsyncResultSet;
+import com.datastax.oss.driver.api.core.cql.BoundStatement;
+import com.datastax.oss.driver.api.core.cql.PreparedStatement;
 import com.datastax.oss.driver.api.core.cql.ResultSet;
 import com.datastax.oss.driver.api.core.cql.Row;
 import com.datastax.oss.driver.api.core.cql.SimpleStatement;
@@ -32,17 +43,15 @@ import com.datastax.oss.driver.api.core.servererrors.QueryExecutionException;
 import com.datastax.oss.driver.api.core.type.DataTypes;
 import com.datastax.oss.driver.api.querybuilder.QueryBuilder;
 import com.datastax.oss.driver.api.querybuilder.SchemaBuilder;
-import com.datastax.oss.driver.api.querybuilder.delete.Delete;
-import com.datastax.oss.driver.api.querybuilder.insert.Insert;
 import com.datastax.oss.driver.api.querybuilder.schema.CreateIndex;
 import com.datastax.oss.driver.api.querybuilder.schema.CreateKeyspace;
 import com.datastax.oss.driver.api.querybuilder.schema.CreateTable;
-import com.datastax.oss.driver.api.querybuilder.select.Select;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import io.automatiko.engine.addons.persistence.common.JacksonObjectMarshallingStrategy;
+import io.automatiko.engine.addons.persistence.common.cache.VersionedProcessInstances;
 import io.automatiko.engine.addons.persistence.common.tlog.TransactionLogImpl;
 import io.automatiko.engine.api.Model;
 import io.automatiko.engine.api.audit.AuditEntry;
@@ -56,14 +65,17 @@ import io.automatiko.engine.api.workflow.MutableProcessInstances;
 import io.automatiko.engine.api.workflow.Process;
 import io.automatiko.engine.api.workflow.ProcessInstance;
 import io.automatiko.engine.api.workflow.ProcessInstanceDuplicatedException;
+import io.automatiko.engine.api.workflow.ProcessInstancePage;
 import io.automatiko.engine.api.workflow.ProcessInstanceReadMode;
+import io.automatiko.engine.api.workflow.ProcessInstanceSummary;
 import io.automatiko.engine.api.workflow.encrypt.StoredDataCodec;
 import io.automatiko.engine.workflow.AbstractProcessInstance;
 import io.automatiko.engine.workflow.audit.BaseAuditEntry;
+import io.automatiko.engine.workflow.auth.AllowAllAccessPolicy;
 import io.automatiko.engine.workflow.marshalling.ProcessInstanceMarshaller;
 
 @SuppressWarnings({ "unchecked", "rawtypes" })
-public class CassandraProcessInstances implements MutableProcessInstances {
+public class CassandraProcessInstances implements MutableProcessInstances, VersionedProcessInstances {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(CassandraProcessInstances.class);
 
@@ -75,6 +87,18 @@ public class CassandraProcessInstances implements MutableProcessInstances {
     private static final String START_DATE_FIELD = "PIStartDate";
     private static final String END_DATE_FIELD = "PIEndDate";
     private static final String EXPIRED_AT_FIELD = "PIExpiredAtDate";
+    private static final String BUSINESS_KEY_FIELD = "PIBusinessKey";
+    private static final String DESCRIPTION_FIELD = "PIDescription";
+    private static final String PARENT_ID_FIELD = "PIParentId";
+
+    // number of rows fetched at once when scanning instances
+    private static final int SCAN_PAGE_SIZE = 1000;
+
+    // number of instances loaded with single query
+    private static final int LOAD_BATCH_SIZE = 100;
+
+    // number of remembered paging states of pages requested by page number
+    private static final int PAGING_STATES_SIZE = 1000;
 
     private final Process<? extends Model> process;
     private final ProcessInstanceMarshaller marshaller;
@@ -86,6 +110,17 @@ public class CassandraProcessInstances implements MutableProcessInstances {
 
     private Map<String, ProcessInstance> cachedInstances = new ConcurrentHashMap<>();
 
+    private final Map<String, ByteBuffer> pagingStates = Collections
+            .synchronizedMap(new LinkedHashMap<String, ByteBuffer>(16, 0.75f, true) {
+
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, ByteBuffer> eldest) {
+                    return size() > PAGING_STATES_SIZE;
+                }
+            });
+
     private TransactionLog transactionLog;
 
     private Auditor auditor;
@@ -96,6 +131,21 @@ public class CassandraProcessInstances implements MutableProcessInstances {
 
     private Optional<String> keyspace;
 
+    // statements are prepared once per process and only bound with values when executed
+    private PreparedStatement findByIdStatement;
+    private PreparedStatement idsByStatusStatement;
+    private PreparedStatement contentByStatusStatement;
+    private PreparedStatement tagsByStatusStatement;
+    private PreparedStatement summaryByStatusStatement;
+    private PreparedStatement loadStatement;
+    private PreparedStatement countStatement;
+    private PreparedStatement existsStatement;
+    private PreparedStatement versionStatement;
+    private PreparedStatement contentStatement;
+    private PreparedStatement insertStatement;
+    private PreparedStatement updateStatement;
+    private PreparedStatement deleteStatement;
+
     public CassandraProcessInstances(Process<? extends Model> process, CqlSession cqlSession,
             StoredDataCodec codec, TransactionLogStore store, Auditor auditor,
             Optional<Boolean> createKeyspace, Optional<Boolean> createTables, Optional<String> keyspace) {
@@ -112,6 +162,7 @@ public class CassandraProcessInstances implements MutableProcessInstances {
         if (this.createTables.orElse(Boolean.TRUE)) {
             createTable();
         }
+        prepareStatements();
 
         this.transactionLog = new TransactionLogImpl(store, new JacksonObjectMarshallingStrategy(process));
     }
@@ -139,17 +190,14 @@ public class CassandraProcessInstances implements MutableProcessInstances {
         }
         LOGGER.debug("findById() called for instance {}", resolvedId);
 
-        Select select = selectFrom(keyspace.orElse("automatiko"), tableName).column(CONTENT_FIELD)
-                .column(VERSION_FIELD)
-                .whereColumn(INSTANCE_ID_FIELD).isEqualTo(literal(resolvedId))
-                .whereColumn(STATUS_FIELD).isEqualTo(literal(status));
+        BoundStatement select = findByIdStatement.bind(resolvedId, status);
         if (status == ProcessInstance.STATE_RECOVERING) {
             byte[] content = this.transactionLog.readContent(process.id(), resolvedId);
 
             // transaction log found value but not in the cassandra storage so use it as it is part of recovery
             if (content != null) {
                 long versionTracker = 1;
-                ResultSet rs = cqlSession.execute(select.build());
+                ResultSet rs = cqlSession.execute(select);
                 Row row = rs.one();
                 if (row != null) {
                     versionTracker = row.getLong(VERSION_FIELD);
@@ -161,7 +209,7 @@ public class CassandraProcessInstances implements MutableProcessInstances {
             }
         }
 
-        ResultSet rs = cqlSession.execute(select.build());
+        ResultSet rs = cqlSession.execute(select);
         Row row = rs.one();
         if (row != null) {
             byte[] content = ByteUtils.getArray(row.getByteBuffer(CONTENT_FIELD));
@@ -180,108 +228,184 @@ public class CassandraProcessInstances implements MutableProcessInstances {
     @Override
     public Collection values(ProcessInstanceReadMode mode, int status, int page, int size) {
         LOGGER.debug("values() called");
-        Select select = selectFrom(keyspace.orElse("automatiko"), tableName).column(CONTENT_FIELD)
-                .column(VERSION_FIELD).whereColumn(STATUS_FIELD).isEqualTo(literal(status));
+        // page through ids only and load content just for the instances of requested page
+        List<String> ids = page(idsByStatusStatement, status, page, size).stream()
+                .map(row -> row.getString(INSTANCE_ID_FIELD))
+                .collect(Collectors.toList());
 
-        ResultSet rs = cqlSession.execute(select.build());
+        return load(mode, status, ids);
+    }
 
-        return rs.all().stream().map(item -> {
-            try {
-                byte[] content = ByteUtils.getArray(item.getByteBuffer(CONTENT_FIELD));
+    @Override
+    public Collection<ProcessInstanceSummary> summaries(int status, int page, int size) {
+        LOGGER.debug("summaries() called");
+        // access policy might depend on the content of the instance
+        boolean readable = process.accessPolicy() instanceof AllowAllAccessPolicy;
+        List<ProcessInstanceSummary> summaries = new ArrayList<>();
+        for (Row row : page(summaryByStatusStatement, status, page, size)) {
+            String id = row.getString(INSTANCE_ID_FIELD);
+            // instances stored before metadata columns were added do not have description
+            if (!readable || row.isNull(DESCRIPTION_FIELD)) {
+                load(ProcessInstanceReadMode.READ_ONLY, status, Collections.singletonList(id))
+                        .forEach(pi -> summaries.add(ProcessInstanceSummary.of(pi)));
+                continue;
+            }
+            String businessKey = row.getString(BUSINESS_KEY_FIELD);
+            String parentId = row.getString(PARENT_ID_FIELD);
+            // tags column includes id and business key of the instance
+            Set<String> tags = new LinkedHashSet<>(row.getSet(TAGS_FIELD, String.class));
+            tags.remove(id);
+            if (businessKey != null) {
+                tags.remove(businessKey);
+            }
+            Instant startDate = row.getInstant(START_DATE_FIELD);
+            Instant endDate = row.getInstant(END_DATE_FIELD);
+
+            // subprocess instances are stored under composite id
+            summaries.add(new ProcessInstanceSummary(id.substring(id.lastIndexOf(':') + 1),
+                    parentId, businessKey, row.getString(DESCRIPTION_FIELD), row.getInt(STATUS_FIELD),
+                    row.getInt(STATUS_FIELD) == ProcessInstance.STATE_ERROR, tags,
+                    startDate == null ? null : Date.from(startDate), endDate == null ? null : Date.from(endDate)));
+        }
+        return summaries;
+    }
 
-                return audit(mode == MUTABLE || mode == ProcessInstanceReadMode.MUTABLE_WITH_LOCK
-                        ? marshaller.unmarshallProcessInstance(codec.decode(content), process, item.getLong(VERSION_FIELD))
-                        : marshaller.unmarshallReadOnlyProcessInstance(codec.decode(content), process));
-            } catch (AccessDeniedException e) {
-                return null;
+    /**
+     * Returns rows of given page of instances in given status. Cassandra cannot skip rows so preceding pages are
+     * fetched as well (with the same projection), paging states of visited pages are remembered so following pages
+     * are read directly.
+     */
+    protected List<Row> page(PreparedStatement statement, int status, int page, int size) {
+        int requested = Math.max(page, 1);
+        int current = requested;
+        ByteBuffer pagingState = null;
+        // start from the closest preceding page with known paging state
+        while (current > 1 && (pagingState = pagingStates.get(pagingStateKey(statement, status, current, size))) == null) {
+            current--;
+        }
+        while (true) {
+            BoundStatement bound = statement.bind(status).setPageSize(size);
+            if (pagingState != null) {
+                bound = bound.setPagingState(pagingState);
             }
-        })
-                .filter(pi -> pi != null)
-                .skip(calculatePage(page, size))
-                .limit(size)
-                .collect(Collectors.toList());
+            ResultSet rs = cqlSession.execute(bound);
+            pagingState = rs.getExecutionInfo().getPagingState();
+            if (current == requested) {
+                List<Row> rows = new ArrayList<>();
+                // take only rows of current page, without fetching next pages
+                int available = rs.getAvailableWithoutFetching();
+                Iterator<Row> it = rs.iterator();
+                for (int i = 0; i < available; i++) {
+                    rows.add(it.next());
+                }
+                return rows;
+            }
+            if (pagingState == null) {
+                return Collections.emptyList();
+            }
+            current++;
+            pagingStates.put(pagingStateKey(statement, status, current, size), pagingState);
+        }
+    }
 
+    private String pagingStateKey(PreparedStatement statement, int status, int page, int size) {
+        return (statement == summaryByStatusStatement ? "s" : "i") + "|" + status + "|" + size + "|" + page;
+    }
+
+    @Override
+    public ProcessInstancePage values(ProcessInstanceReadMode mode, int status, String cursor, int size) {
+        LOGGER.debug("values() called with cursor {}", cursor);
+        BoundStatement statement = contentByStatusStatement.bind(status).setPageSize(size);
+        if (cursor != null) {
+            statement = statement.setPagingState(ByteBuffer.wrap(Base64.getUrlDecoder().decode(cursor)));
+        }
+        ResultSet rs = cqlSession.execute(statement);
+
+        List<ProcessInstance> collected = new ArrayList<>();
+        // take only rows of current page, without fetching next pages
+        int available = rs.getAvailableWithoutFetching();
+        Iterator<Row> rows = rs.iterator();
+        for (int i = 0; i < available; i++) {
+            ProcessInstance pi = unmarshallInstance(mode, rows.next());
+            if (pi != null) {
+                collected.add(pi);
+            }
+        }
+        ByteBuffer pagingState = rs.getExecutionInfo().getPagingState();
+
+        return new ProcessInstancePage(collected,
+                pagingState == null ? null : Base64.getUrlEncoder().encodeToString(ByteUtils.getArray(pagingState)));
     }
 
     @Override
     public Collection findByIdOrTag(ProcessInstanceReadMode mode, int status, String... values) {
         LOGGER.debug("findByIdOrTag() called for values {} and status {}", values, status);
 
-        List<Row> collected = new ArrayList<Row>();
-        Set<String> distinct = new HashSet<String>();
-
-        Select select = selectFrom(keyspace.orElse("automatiko"), tableName).column(INSTANCE_ID_FIELD)
-                .column(CONTENT_FIELD)
-                .column(VERSION_FIELD)
-                .column(TAGS_FIELD)
-                .whereColumn(STATUS_FIELD).isEqualTo(literal(status));
+        return load(mode, status, new ArrayList<>(locateByIdOrTag(status, values)));
+    }
 
-        ResultSet rs = cqlSession.execute(select.build());
-        rs.all().stream().filter(r -> !distinct.contains(r.getString(INSTANCE_ID_FIELD)))
-                .filter(r -> {
-                    if (values == null || values.length == 0) {
-                        return true;
-                    }
+    @Override
+    public Collection locateByIdOrTag(int status, String... values) {
+        LOGGER.debug("locateByIdOrTag() called for values {} and status {}", values, status);
 
-                    Set<String> tags = r.getSet(TAGS_FIELD, String.class);
-                    return Stream.of(values).anyMatch(v -> tags.contains(v));
-                })
-                .forEach(r -> {
-                    distinct.add(r.getString(INSTANCE_ID_FIELD));
-                    collected.add(r);
-                });
+        Set<String> distinct = new LinkedHashSet<String>();
 
-        return collected.stream().map(item -> {
-            try {
-                byte[] content = ByteUtils.getArray(item.getByteBuffer(CONTENT_FIELD));
+        ResultSet rs = cqlSession.execute(tagsByStatusStatement.bind(status));
+        // iterate over the result set so rows are fetched page by page instead of all at once
+        for (Row r : rs) {
+            if (values == null || values.length == 0) {
+                distinct.add(r.getString(INSTANCE_ID_FIELD));
+                continue;
+            }
 
-                return audit(mode == MUTABLE || mode == ProcessInstanceReadMode.MUTABLE_WITH_LOCK
-                        ? marshaller.unmarshallProcessInstance(codec.decode(content), process, item.getLong(VERSION_FIELD))
-                        : marshaller.unmarshallReadOnlyProcessInstance(codec.decode(content), process));
-            } catch (AccessDeniedException e) {
-                return null;
+            Set<String> tags = r.getSet(TAGS_FIELD, String.class);
+            if (Stream.of(values).anyMatch(v -> tags.contains(v))) {
+                distinct.add(r.getString(INSTANCE_ID_FIELD));
             }
-        })
-                .filter(pi -> pi != null)
-                .collect(Collectors.toList());
+        }
 
+        return distinct;
     }
 
-    @Override
-    public Collection locateByIdOrTag(int status, String... values) {
-        LOGGER.debug("locateByIdOrTag() called for values {} and status {}", values, status);
+    /**
+     * Loads instances with given ids that are still in given status, keeping the order of ids
+     */
+    protected List<ProcessInstance> load(ProcessInstanceReadMode mode, int status, List<String> ids) {
+        Map<String, ProcessInstance> loaded = new HashMap<>();
 
-        Set<String> distinct = new HashSet<String>();
+        for (int i = 0; i < ids.size(); i += LOAD_BATCH_SIZE) {
+            List<String> batch = ids.subList(i, Math.min(ids.size(), i + LOAD_BATCH_SIZE));
 
-        Select select = selectFrom(keyspace.orElse("automatiko"), tableName).column(INSTANCE_ID_FIELD)
-                .column(TAGS_FIELD)
-                .whereColumn(STATUS_FIELD).isEqualTo(literal(status));
-
-        ResultSet rs = cqlSession.execute(select.build());
-        rs.all().stream().filter(r -> !distinct.contains(r.getString(INSTANCE_ID_FIELD)))
-                .filter(r -> {
-                    if (values == null || values.length == 0) {
-                        return true;
-                    }
+            for (Row row : cqlSession.execute(loadStatement.bind(batch))) {
+                if (row.getInt(STATUS_FIELD) != status) {
+                    continue;
+                }
+                ProcessInstance pi = unmarshallInstance(mode, row);
+                if (pi != null) {
+                    loaded.put(row.getString(INSTANCE_ID_FIELD), pi);
+                }
+            }
+        }
 
-                    Set<String> tags = r.getSet(TAGS_FIELD, String.class);
-                    return Stream.of(values).anyMatch(v -> tags.contains(v));
-                })
-                .forEach(r -> {
-                    distinct.add(r.getString(INSTANCE_ID_FIELD));
+        return ids.stream().map(loaded::get).filter(pi -> pi != null).collect(Collectors.toList());
+    }
 
-                });
+    protected ProcessInstance unmarshallInstance(ProcessInstanceReadMode mode, Row row) {
+        try {
+            byte[] content = ByteUtils.getArray(row.getByteBuffer(CONTENT_FIELD));
 
-        return distinct;
+            return audit(mode == MUTABLE || mode == ProcessInstanceReadMode.MUTABLE_WITH_LOCK
+                    ? marshaller.unmarshallProcessInstance(codec.decode(content), process, row.getLong(VERSION_FIELD))
+                    : marshaller.unmarshallReadOnlyProcessInstance(codec.decode(content), process));
+        } catch (AccessDeniedException e) {
+            return null;
+        }
     }
 
     @Override
     public Long size() {
         LOGGER.debug("size() called");
-        Select select = selectFrom(keyspace.orElse("automatiko"), tableName)
-                .countAll();
-
-        ResultSet rs = cqlSession.execute(select.build().setConsistencyLevel(ConsistencyLevel.LOCAL_ONE));
+        ResultSet rs = cqlSession.execute(countStatement.bind());
         Row row = rs.one();
 
         return row.getLong(0);
@@ -294,10 +418,7 @@ public class CassandraProcessInstances implements MutableProcessInstances {
             return true;
         }
         LOGGER.debug("exists() called for instance {}", resolvedId);
-        Select select = selectFrom(keyspace.orElse("automatiko"), tableName).column(INSTANCE_ID_FIELD)
-                .whereColumn(INSTANCE_ID_FIELD).isEqualTo(literal(id));
-
-        ResultSet rs = cqlSession.execute(select.build());
+        ResultSet rs = cqlSession.execute(existsStatement.bind(id));
         Row row = rs.one();
         if (row != null) {
             return true;
@@ -307,6 +428,15 @@ public class CassandraProcessInstances implements MutableProcessInstances {
 
     }
 
+    @Override
+    public long storedVersion(String resolvedId) {
+        Row row = cqlSession.execute(versionStatement.bind(resolvedId)).one();
+        if (row == null) {
+            return -1;
+        }
+        return row.getLong(VERSION_FIELD);
+    }
+
     @Override
     public void create(String id, ProcessInstance instance) {
         String resolvedId = resolveId(id, instance);
@@ -324,22 +454,8 @@ public class CassandraProcessInstances implements MutableProcessInstances {
                 tags.add(instance.businessKey());
             }
 
-            Insert insert = insertInto(keyspace.orElse("automatiko"), tableName)
-                    .value(INSTANCE_ID_FIELD, literal(resolvedId))
-                    .value(VERSION_FIELD, literal(((AbstractProcessInstance<?>) instance).getVersionTracker()))
-                    .value(STATUS_FIELD, literal(((AbstractProcessInstance<?>) instance).status()))
-                    .value(CONTENT_FIELD, bindMarker())
-                    .value(START_DATE_FIELD, literal(instance.startDate().toInstant()))
-                    .value(END_DATE_FIELD,
-                            literal(instance.endDate() == null ? null
-                                    : instance.endDate().toInstant()))
-                    .value(EXPIRED_AT_FIELD,
-                            literal(instance.expiresAtDate() == null ? null
-                                    : instance.expiresAtDate().toInstant()))
-                    .value(TAGS_FIELD, bindMarker()).ifNotExists();
-
             try {
-                ResultSet rs = cqlSession.execute(cqlSession.prepare(insert.build()).bind(ByteBuffer.wrap(data), tags));
+                ResultSet rs = cqlSession.execute(bindInsert(resolvedId, instance, data, tags));
                 if (!rs.wasApplied()) {
                     throw new ProcessInstanceDuplicatedException(id);
                 }
@@ -367,6 +483,65 @@ public class CassandraProcessInstances implements MutableProcessInstances {
         }
     }
 
+    @Override
+    public void createAll(Map instances) {
+        // inserts are conditional (cannot be batched across partitions) so they are sent all at once and awaited
+        Map<ProcessInstance, CompletableFuture<AsyncResultSet>> inserts = new LinkedHashMap<>();
+        for (Object element : instances.entrySet()) {
+            Map.Entry<String, ProcessInstance> entry = (Map.Entry<String, ProcessInstance>) element;
+            ProcessInstance instance = entry.getValue();
+            if (!isActive(instance)) {
+                // pending and finished instances do not reach the data store
+                create(entry.getKey(), instance);
+                continue;
+            }
+            String resolvedId = resolveId(entry.getKey(), instance);
+            LOGGER.debug("createAll() called for instance {}", resolvedId);
+            byte[] data = codec.encode(marshaller.marhsallProcessInstance(instance));
+            if (data == null) {
+                continue;
+            }
+
+            Collection<String> tags = new LinkedHashSet<>(instance.tags().values());
+            tags.add(resolvedId);
+            if (instance.businessKey() != null) {
+                tags.add(instance.businessKey());
+            }
+            cachedInstances.remove(resolvedId);
+            cachedInstances.remove(entry.getKey());
+
+            inserts.put(instance,
+                    cqlSession.executeAsync(bindInsert(resolvedId, instance, data, tags)).toCompletableFuture());
+        }
+
+        RuntimeException failure = null;
+        for (Map.Entry<ProcessInstance, CompletableFuture<AsyncResultSet>> insert : inserts.entrySet()) {
+            ProcessInstance instance = insert.getKey();
+            try {
+                if (!insert.getValue().join().wasApplied()) {
+                    throw new ProcessInstanceDuplicatedException(instance.id());
+                }
+                Supplier<AuditEntry> entry = () -> BaseAuditEntry.persitenceWrite(instance)
+                        .add("message", "Workflow instance created in the Apache Cassandra based data store");
+
+                auditor.publish(entry);
+            } catch (ProcessInstanceDuplicatedException e) {
+                failure = failure == null ? e : failure;
+            } catch (CompletionException e) {
+                if (failure == null && e.getCause() instanceof QueryExecutionException) {
+                    failure = new ProcessInstanceDuplicatedException(instance.id());
+                } else if (failure == null) {
+                    failure = e;
+                }
+            } finally {
+                disconnect(instance);
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
     @Override
     public void update(String id, ProcessInstance instance) {
         String resolvedId = resolveId(id, instance);
@@ -383,40 +558,17 @@ public class CassandraProcessInstances implements MutableProcessInstances {
             tags.add(instance.businessKey());
         }
 
-        SimpleStatement statement = QueryBuilder.update(keyspace.orElse("automatiko"), tableName)
-                .setColumn(CONTENT_FIELD, bindMarker())
-                .setColumn(TAGS_FIELD, bindMarker())
-                .setColumn(VERSION_FIELD, literal(((AbstractProcessInstance<?>) instance).getVersionTracker() + 1))
-                .setColumn(STATUS_FIELD, literal(((AbstractProcessInstance<?>) instance).status()))
-                .setColumn(START_DATE_FIELD, literal(instance.startDate().toInstant()))
-                .setColumn(END_DATE_FIELD,
-                        literal(instance.endDate() == null ? null
-                                : instance.endDate().toInstant()))
-                .setColumn(EXPIRED_AT_FIELD, literal(instance.expiresAtDate() == null ? null
-                        : instance.expiresAtDate().toInstant()))
-                .whereColumn(INSTANCE_ID_FIELD).isEqualTo(literal(resolvedId))
-                .ifColumn(VERSION_FIELD).isEqualTo(literal(((AbstractProcessInstance<?>) instance).getVersionTracker()))
-                .build();
-
-        ResultSet rs = cqlSession.execute(cqlSession.prepare(statement)
-                .bind(ByteBuffer.wrap(data), tags));
+        long version = ((AbstractProcessInstance<?>) instance).getVersionTracker();
+        ResultSet rs = cqlSession.execute(updateStatement.bind(ByteBuffer.wrap(data), tags, version + 1,
+                instance.status(), instance.startDate().toInstant(),
+                instance.endDate() == null ? null : instance.endDate().toInstant(),
+                instance.expiresAtDate() == null ? null : instance.expiresAtDate().toInstant(),
+                instance.businessKey(), instance.description(), instance.parentProcessInstanceId(),
+                resolvedId, version));
         if (!rs.wasApplied()) {
             if (transactionLog.contains(process.id(), instance.id())) {
-                Insert insert = insertInto(keyspace.orElse("automatiko"), tableName)
-                        .value(INSTANCE_ID_FIELD, literal(resolvedId))
-                        .value(VERSION_FIELD, literal(((AbstractProcessInstance<?>) instance).getVersionTracker()))
-                        .value(STATUS_FIELD, literal(((AbstractProcessInstance<?>) instance).status()))
-                        .value(CONTENT_FIELD, bindMarker())
-                        .value(START_DATE_FIELD, literal(instance.startDate().toInstant()))
-                        .value(END_DATE_FIELD,
-                                literal(instance.endDate() == null ? null
-                                        : instance.endDate().toInstant()))
-                        .value(EXPIRED_AT_FIELD, literal(instance.expiresAtDate() == null ? null
-                                : instance.expiresAtDate()))
-                        .value(TAGS_FIELD, bindMarker()).ifNotExists();
-
                 try {
-                    rs = cqlSession.execute(cqlSession.prepare(insert.build()).bind(ByteBuffer.wrap(data), tags));
+                    rs = cqlSession.execute(bindInsert(resolvedId, instance, data, tags));
                     if (!rs.wasApplied()) {
                         throw new ProcessInstanceDuplicatedException(id);
                     }
@@ -446,10 +598,7 @@ public class CassandraProcessInstances implements MutableProcessInstances {
         cachedInstances.remove(resolvedId);
         cachedInstances.remove(id);
 
-        Delete deleteStatement = deleteFrom(keyspace.orElse("automatiko"), tableName).whereColumn(INSTANCE_ID_FIELD)
-                .isEqualTo(literal(resolvedId)).ifExists();
-
-        cqlSession.execute(deleteStatement.build());
+        cqlSession.execute(deleteStatement.bind(resolvedId));
         Supplier<AuditEntry> entry = () -> BaseAuditEntry.persitenceWrite(instance)
                 .add("message", "Workflow instance removed from the Apache Cassandra based data store");
 
@@ -473,27 +622,121 @@ public class CassandraProcessInstances implements MutableProcessInstances {
                 .withColumn(VERSION_FIELD, DataTypes.BIGINT)
                 .withColumn(START_DATE_FIELD, DataTypes.TIMESTAMP)
                 .withColumn(END_DATE_FIELD, DataTypes.TIMESTAMP)
-                .withColumn(EXPIRED_AT_FIELD, DataTypes.TIMESTAMP);
+                .withColumn(EXPIRED_AT_FIELD, DataTypes.TIMESTAMP)
+                .withColumn(BUSINESS_KEY_FIELD, DataTypes.TEXT)
+                .withColumn(DESCRIPTION_FIELD, DataTypes.TEXT)
+                .withColumn(PARENT_ID_FIELD, DataTypes.TEXT);
 
         cqlSession.execute(createTable.build());
+        migrateTable();
 
         CreateIndex index = SchemaBuilder.createIndex(tableName + "_STATUS_IDX").ifNotExists()
                 .onTable(keyspace.orElse("automatiko"), tableName).andColumn(STATUS_FIELD);
         cqlSession.execute(index.build());
     }
 
+    /**
+     * Adds metadata columns to the table created before they were introduced, instances stored without them are listed
+     * from their content until they are updated
+     */
+    protected void migrateTable() {
+        String ks = keyspace.orElse("automatiko");
+        boolean migrated = cqlSession.getMetadata().getKeyspace(ks).flatMap(metadata -> metadata.getTable(tableName))
+                .map(table -> table.getColumn(DESCRIPTION_FIELD).isPresent()).orElse(true);
+        if (!migrated) {
+            LOGGER.info("Adding metadata columns to {}.{}", ks, tableName);
+            cqlSession.execute(SchemaBuilder.alterTable(ks, tableName).addColumn(BUSINESS_KEY_FIELD, DataTypes.TEXT)
+                    .addColumn(DESCRIPTION_FIELD, DataTypes.TEXT).addColumn(PARENT_ID_FIELD, DataTypes.TEXT).build());
+        }
+    }
+
+    /**
+     * Prepares all statements used by this instance. Reads are marked as idempotent so the driver can retry or
+     * speculatively execute them, conditional writes (lightweight transactions) are not and use local serial
+     * consistency
+     */
+    protected void prepareStatements() {
+        String ks = keyspace.orElse("automatiko");
+
+        findByIdStatement = prepareRead(selectFrom(ks, tableName).column(CONTENT_FIELD).column(VERSION_FIELD)
+                .whereColumn(INSTANCE_ID_FIELD).isEqualTo(bindMarker())
+                .whereColumn(STATUS_FIELD).isEqualTo(bindMarker()).build());
+        idsByStatusStatement = prepareRead(selectFrom(ks, tableName).column(INSTANCE_ID_FIELD)
+                .whereColumn(STATUS_FIELD).isEqualTo(bindMarker()).build().setPageSize(SCAN_PAGE_SIZE));
+        contentByStatusStatement = prepareRead(selectFrom(ks, tableName).column(CONTENT_FIELD).column(VERSION_FIELD)
+                .whereColumn(STATUS_FIELD).isEqualTo(bindMarker()).build());
+        tagsByStatusStatement = prepareRead(selectFrom(ks, tableName).column(INSTANCE_ID_FIELD).column(TAGS_FIELD)
+                .whereColumn(STATUS_FIELD).isEqualTo(bindMarker()).build().setPageSize(SCAN_PAGE_SIZE));
+        summaryByStatusStatement = prepareRead(selectFrom(ks, tableName).column(INSTANCE_ID_FIELD).column(STATUS_FIELD)
+                .column(TAGS_FIELD).column(START_DATE_FIELD).column(END_DATE_FIELD).column(BUSINESS_KEY_FIELD)
+                .column(DESCRIPTION_FIELD).column(PARENT_ID_FIELD)
+                .whereColumn(STATUS_FIELD).isEqualTo(bindMarker()).build());
+        loadStatement = prepareRead(selectFrom(ks, tableName).column(INSTANCE_ID_FIELD).column(STATUS_FIELD)
+                .column(CONTENT_FIELD).column(VERSION_FIELD)
+                .whereColumn(INSTANCE_ID_FIELD).in(bindMarker()).build());
+        countStatement = prepareRead(selectFrom(ks, tableName).countAll().build()
+                .setConsistencyLevel(ConsistencyLevel.LOCAL_ONE));
+        existsStatement = prepareRead(selectFrom(ks, tableName).column(INSTANCE_ID_FIELD)
+                .whereColumn(INSTANCE_ID_FIELD).isEqualTo(bindMarker()).build());
+        versionStatement = prepareRead(selectFrom(ks, tableName).column(VERSION_FIELD)
+                .whereColumn(INSTANCE_ID_FIELD).isEqualTo(bindMarker()).build());
+        contentStatement = prepareRead(selectFrom(ks, tableName).column(CONTENT_FIELD)
+                .whereColumn(INSTANCE_ID_FIELD).isEqualTo(bindMarker()).build());
+
+        insertStatement = prepareConditionalWrite(insertInto(ks, tableName)
+                .value(INSTANCE_ID_FIELD, bindMarker())
+                .value(VERSION_FIELD, bindMarker())
+                .value(STATUS_FIELD, bindMarker())
+                .value(CONTENT_FIELD, bindMarker())
+                .value(START_DATE_FIELD, bindMarker())
+                .value(END_DATE_FIELD, bindMarker())
+                .value(EXPIRED_AT_FIELD, bindMarker())
+                .value(TAGS_FIELD, bindMarker())
+                .value(BUSINESS_KEY_FIELD, bindMarker())
+                .value(DESCRIPTION_FIELD, bindMarker())
+                .value(PARENT_ID_FIELD, bindMarker()).ifNotExists().build());
+        updateStatement = prepareConditionalWrite(QueryBuilder.update(ks, tableName)
+                .setColumn(CONTENT_FIELD, bindMarker())
+                .setColumn(TAGS_FIELD, bindMarker())
+                .setColumn(VERSION_FIELD, bindMarker())
+                .setColumn(STATUS_FIELD, bindMarker())
+                .setColumn(START_DATE_FIELD, bindMarker())
+                .setColumn(END_DATE_FIELD, bindMarker())
+                .setColumn(EXPIRED_AT_FIELD, bindMarker())
+                .setColumn(BUSINESS_KEY_FIELD, bindMarker())
+                .setColumn(DESCRIPTION_FIELD, bindMarker())
+                .setColumn(PARENT_ID_FIELD, bindMarker())
+                .whereColumn(INSTANCE_ID_FIELD).isEqualTo(bindMarker())
+                .ifColumn(VERSION_FIELD).isEqualTo(bindMarker()).build());
+        deleteStatement = prepareConditionalWrite(deleteFrom(ks, tableName).whereColumn(INSTANCE_ID_FIELD)
+                .isEqualTo(bindMarker()).ifExists().build());
+    }
+
+    protected PreparedStatement prepareRead(SimpleStatement statement) {
+        return cqlSession.prepare(statement.setIdempotent(true));
+    }
+
+    protected PreparedStatement prepareConditionalWrite(SimpleStatement statement) {
+        return cqlSession.prepare(statement.setIdempotent(false).setSerialConsistencyLevel(ConsistencyLevel.LOCAL_SERIAL));
+    }
+
+    protected BoundStatement bindInsert(String resolvedId, ProcessInstance instance, byte[] data, Collection<String> tags) {
+        return insertStatement.bind(resolvedId, ((AbstractProcessInstance<?>) instance).getVersionTracker(),
+                instance.status(), ByteBuffer.wrap(data), instance.startDate().toInstant(),
+                instance.endDate() == null ? null : instance.endDate().toInstant(),
+                instance.expiresAtDate() == null ? null : instance.expiresAtDate().toInstant(), tags,
+                instance.businessKey(), instance.description(), instance.parentProcessInstanceId());
+    }
+
     protected void disconnect(ProcessInstance instance) {
         ((AbstractProcessInstance<?>) instance).internalRemoveProcessInstance(() -> {
 
             try {
-                Select select = selectFrom(keyspace.orElse("automatiko"), tableName).column(CONTENT_FIELD)
-                        .whereColumn(INSTANCE_ID_FIELD).isEqualTo(literal(resolveId(instance.id(), instance)));
-
-                ResultSet rs = cqlSession.execute(select.build());
+                ResultSet rs = cqlSession.execute(contentStatement.bind(resolveId(instance.id(), instance)));
                 Row row = rs.one();
                 if (row != null) {
 
-                    byte[] reloaded = codec.decode(row.getByteBuffer(1).array());
+                    byte[] reloaded = codec.decode(ByteUtils.getArray(row.getByteBuffer(CONTENT_FIELD)));
 
                     return marshaller.unmarshallWorkflowProcessInstance(reloaded, process);
                 } else {
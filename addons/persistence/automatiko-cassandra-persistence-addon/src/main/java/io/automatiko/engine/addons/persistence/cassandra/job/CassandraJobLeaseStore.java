@@ -0,0 +1,87 @@
+package io.automatiko.engine.addons.persistence.cassandra.job;
+
+import static com.datastax.oss.driver.api.querybuilder.QueryBuilder.bindMarker;
+import static com.datastax.oss.driver.api.querybuilder.QueryBuilder.deleteFrom;
+import static com.datastax.oss.driver.api.querybuilder.QueryBuilder.insertInto;
+import static com.datastax.oss.driver.api.querybuilder.QueryBuilder.selectFrom;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import com.datastax.oss.driver.api.core.CqlSession;
+import com.datastax.oss.driver.api.core.cql.PreparedStatement;
+import com.datastax.oss.driver.api.core.cql.Row;
+import com.datastax.oss.driver.api.core.type.DataTypes;
+import com.datastax.oss.driver.api.querybuilder.SchemaBuilder;
+import com.datastax.oss.driver.api.querybuilder.schema.CreateTable;
+
+import io.automatiko.engine.addons.persistence.common.jobs.JobLeaseStore;
+
+public class CassandraJobLeaseStore implements JobLeaseStore {
+
+    private static final String NODE_ID_FIELD = "NodeId";
+    private static final String EXPIRES_AT_FIELD = "ExpiresAt";
+
+    protected final String tableName = "ATK_JOB_LEASES";
+
+    private final CqlSession cqlSession;
+
+    private final String keyspace;
+
+    private PreparedStatement renewStatement;
+    private PreparedStatement activeStatement;
+    private PreparedStatement releaseStatement;
+
+    public CassandraJobLeaseStore(CqlSession cqlSession, String keyspace) {
+        this.cqlSession = cqlSession;
+        this.keyspace = keyspace;
+    }
+
+    @Override
+    public void renew(String nodeId, long expiresAt) {
+        // rows expire on their own so leases of nodes that are gone do not pile up
+        int ttl = (int) Math.max(TimeUnit.MILLISECONDS.toSeconds(expiresAt - System.currentTimeMillis()), 1);
+        cqlSession.execute(renewStatement.bind(nodeId, expiresAt, ttl));
+    }
+
+    @Override
+    public Collection<String> active(long now) {
+        List<String> nodes = new ArrayList<>();
+        for (Row lease : cqlSession.execute(activeStatement.bind())) {
+            if (lease.getLong(EXPIRES_AT_FIELD) > now) {
+                nodes.add(lease.getString(NODE_ID_FIELD));
+            }
+        }
+        return nodes;
+    }
+
+    @Override
+    public void release(String nodeId) {
+        cqlSession.execute(releaseStatement.bind(nodeId));
+    }
+
+    /**
+     * Prepares statements used by the store, must be invoked once tables exist and before the store is used. All
+     * statements are idempotent as leases are plain upserts and deletes
+     */
+    public void prepareStatements() {
+        renewStatement = cqlSession.prepare(insertInto(keyspace, tableName)
+                .value(NODE_ID_FIELD, bindMarker())
+                .value(EXPIRES_AT_FIELD, bindMarker())
+                .usingTtl(bindMarker()).build().setIdempotent(true));
+        activeStatement = cqlSession.prepare(selectFrom(keyspace, tableName).all().build().setIdempotent(true));
+        releaseStatement = cqlSession.prepare(deleteFrom(keyspace, tableName).whereColumn(NODE_ID_FIELD)
+                .isEqualTo(bindMarker()).build().setIdempotent(true));
+    }
+
+    public void createTable() {
+        CreateTable createTable = SchemaBuilder.createTable(keyspace, tableName)
+                .ifNotExists()
+                .withPartitionKey(NODE_ID_FIELD, DataTypes.TEXT)
+                .withColumn(EXPIRES_AT_FIELD, DataTypes.BIGINT);
+
+        cqlSession.execute(createTable.build());
+    }
+}
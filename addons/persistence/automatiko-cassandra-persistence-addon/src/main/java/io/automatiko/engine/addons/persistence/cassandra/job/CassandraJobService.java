@@ -1,5 +1,6 @@
 package io.automatiko.engine.addons.persistence.cassandra.job;
 
+import static com.datastax.oss.driver.api.querybuilder.QueryBuilder.bindMarker;
 import static com.datastax.oss.driver.api.querybuilder.QueryBuilder.deleteFrom;
 import static com.datastax.oss.driver.api.querybuilder.QueryBuilder.insertInto;
 import static com.datastax.oss.driver.api.querybuilder.QueryBuilder.literal;
@@ -28,25 +29,25 @@ import javax.enterprise.event.Observes;
 import javax.inject.Inject;
 import javax.interceptor.Interceptor;
 
+import com.datastax.oss.driver.api.core.ConsistencyLevel;
 import com.datastax.oss.driver.api.core.CqlSession;
+import com.datastax.oss.driver.api.core.cql.BoundStatementBuilder;
+import com.datastax.oss.driver.api.core.cql.PreparedStatement;
 import com.datastax.oss.driver.api.core.cql.ResultSet;
 import com.datastax.oss.driver.api.core.cql.Row;
-import com.datastax.oss.driver.api.core.cql.SimpleStatement;
 import com.datastax.oss.driver.api.core.servererrors.QueryExecutionException;
 import com.datastax.oss.driver.api.core.type.DataTypes;
 import com.datastax.oss.driver.api.querybuilder.QueryBuilder;
 import com.datastax.oss.driver.api.querybuilder.SchemaBuilder;
-import com.datastax.oss.driver.api.querybuilder.delete.Delete;
-import com.datastax.oss.driver.api.querybuilder.insert.Insert;
 import com.datastax.oss.driver.api.querybuilder.schema.CreateIndex;
 import com.datastax.oss.driver.api.querybuilder.schema.CreateKeyspace;
 import com.datastax.oss.driver.api.querybuilder.schema.CreateTable;
-import com.datastax.oss.driver.api.querybuilder.select.Select;
 
 import org.eclipse.microprofile.config.inject.ConfigProperty;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import io.automatiko.engine.addons.persistence.common.jobs.JobLeaseManager;
 import io.automatiko.engine.api.Application;
 import io.automatiko.engine.api.Model;
 import io.automatiko.engine.api.audit.AuditEntry;
@@ -86,6 +87,7 @@ public class CassandraJobService implements JobsService {
     private static final String FIRE_LIMIT_FIELD = "JobFireLimit";
     private static final String REPEAT_INTERVAL_FIELD = "JobRepeatInterval";
     private static final String EXPRESSION_FIELD = "JobExpression";
+    private static final String PARTITION_FIELD = "JobPartition";
 
     protected final CqlSession cqlSession;
 
@@ -97,6 +99,10 @@ public class CassandraJobService implements JobsService {
 
     protected final ScheduledThreadPoolExecutor loadScheduler;
 
+    protected final CassandraJobLeaseStore leaseStore;
+
+    protected final JobLeaseManager leases;
+
     protected Map<String, Process<? extends Model>> mappedProcesses = new HashMap<>();
     protected ConcurrentHashMap<String, ScheduledFuture<?>> scheduledJobs = new ConcurrentHashMap<>();
 
@@ -112,13 +118,22 @@ public class CassandraJobService implements JobsService {
 
     private Optional<Integer> threads;
 
+    // statements are prepared once at start and only bound with values when executed
+    private PreparedStatement loadStatement;
+    private PreparedStatement insertStatement;
+    private PreparedStatement selectStatement;
+    private PreparedStatement takeStatement;
+    private PreparedStatement rescheduleStatement;
+    private PreparedStatement deleteStatement;
+
     @Inject
     public CassandraJobService(CqlSession cqlSession, Processes processes, Application application, Auditor auditor,
             @ConfigProperty(name = CassandraJobsConfig.CREATE_KEYSPACE_KEY) Optional<Boolean> createKeyspace,
             @ConfigProperty(name = CassandraJobsConfig.CREATE_TABLES_KEY) Optional<Boolean> createTables,
             @ConfigProperty(name = CassandraJobsConfig.KEYSPACE_KEY) Optional<String> keyspace,
             @ConfigProperty(name = CassandraJobsConfig.INTERVAL_KEY) Optional<Long> interval,
-            @ConfigProperty(name = CassandraJobsConfig.THREADS_KEY) Optional<Integer> threads) {
+            @ConfigProperty(name = CassandraJobsConfig.THREADS_KEY) Optional<Integer> threads,
+            @ConfigProperty(name = CassandraJobsConfig.LEASE_DURATION_KEY) Optional<Long> leaseDuration) {
         this.cqlSession = cqlSession;
         this.createKeyspace = createKeyspace;
         this.createTables = createTables;
@@ -128,9 +143,12 @@ public class CassandraJobService implements JobsService {
 
         processes.processIds().forEach(id -> mappedProcesses.put(id, processes.processById(id)));
 
+        this.leaseStore = new CassandraJobLeaseStore(cqlSession, keyspace.orElse("automatiko"));
         if (this.createTables.orElse(Boolean.TRUE)) {
             createTable();
         }
+        prepareStatements();
+        leaseStore.prepareStatements();
 
         this.unitOfWorkManager = application.unitOfWorkManager();
         this.auditor = auditor;
@@ -138,67 +156,86 @@ public class CassandraJobService implements JobsService {
         this.scheduler = new ScheduledThreadPoolExecutor(this.threads.orElse(1),
                 r -> new Thread(r, "automatiko-jobs-executor"));
         this.loadScheduler = new ScheduledThreadPoolExecutor(1, r -> new Thread(r, "automatiko-jobs-loader"));
+        this.leases = new JobLeaseManager(leaseStore, TimeUnit.SECONDS.toMillis(leaseDuration.orElse(30L)));
     }
 
     public void start(@Observes @Priority(Interceptor.Priority.LIBRARY_AFTER) StartupEvent event) {
-        loadScheduler.scheduleAtFixedRate(() -> {
-            try {
-                long next = LocalDateTime.now().plus(Duration.ofMinutes(interval.orElse(10L)))
-                        .atZone(ZoneId.systemDefault()).toInstant()
-                        .toEpochMilli();
-                Select select = selectFrom(keyspace.orElse("automatiko"), tableName).all()
-                        .whereColumn(FIRE_AT_FIELD).isLessThan(literal(next)).allowFiltering();
-
-                ResultSet rs = cqlSession.execute(select.build());
-                List<Row> jobs = rs.all();
-                LOGGER.debug("Loaded jobs ({}) to be executed before {}", jobs.size(), next);
-                for (Row job : jobs) {
-
-                    if (job.getString(OWNER_INSTANCE_ID_FIELD) == null) {
-                        ProcessJobDescription description = ProcessJobDescription.of(build(job.getString(EXPRESSION_FIELD)),
-                                null,
-                                job.getString(OWNER_DEF_ID_FIELD));
-
-                        scheduledJobs.computeIfAbsent(job.getString(INSTANCE_ID_FIELD), k -> {
-                            return log(job.getString(INSTANCE_ID_FIELD),
-                                    scheduler.schedule(new StartProcessOnExpiredTimer(job.getString(INSTANCE_ID_FIELD),
-                                            job.getString(OWNER_DEF_ID_FIELD), -1, description),
-                                            Duration.between(LocalDateTime.now(),
-                                                    ZonedDateTime.ofInstant(
-                                                            Instant.ofEpochMilli(job.getLong(FIRE_AT_FIELD)),
-                                                            ZoneId.systemDefault()))
-                                                    .toMillis(),
-                                            TimeUnit.MILLISECONDS));
-                        });
-                    } else {
-                        ProcessInstanceJobDescription description = ProcessInstanceJobDescription.of(
-                                job.getString(INSTANCE_ID_FIELD),
-                                job.getString(TRIGGER_TYPE_FIELD),
-                                build(job.getString(EXPRESSION_FIELD)), job.getString(OWNER_INSTANCE_ID_FIELD),
-                                job.getString(OWNER_DEF_ID_FIELD), null);
-
-                        scheduledJobs.computeIfAbsent(job.getString(INSTANCE_ID_FIELD), k -> {
-                            return log(job.getString(INSTANCE_ID_FIELD), scheduler.schedule(
-                                    new SignalProcessInstanceOnExpiredTimer(job.getString(INSTANCE_ID_FIELD),
-                                            job.getString(TRIGGER_TYPE_FIELD),
-                                            job.getString(OWNER_DEF_ID_FIELD),
-                                            job.getString(OWNER_INSTANCE_ID_FIELD),
-                                            job.getInt(FIRE_LIMIT_FIELD), description),
-                                    Duration.between(LocalDateTime.now(), ZonedDateTime.ofInstant(
-                                            Instant.ofEpochMilli(job.getLong(FIRE_AT_FIELD)),
-                                            ZoneId.systemDefault())).toMillis(),
-                                    TimeUnit.MILLISECONDS));
-                        });
-                    }
+        loadScheduler.scheduleAtFixedRate(this::renewLease, 0, leases.renewInterval(), TimeUnit.MILLISECONDS);
+        loadScheduler.scheduleAtFixedRate(this::loadJobs, 1, interval.orElse(10L) * 60, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Renews lease of this node, in case set of active nodes changed jobs are loaded right away to take over
+     * jobs of nodes that are gone
+     */
+    protected void renewLease() {
+        try {
+            if (leases.renew()) {
+                loadJobs();
+            }
+        } catch (Throwable e) {
+            LOGGER.error("Unexpected error while renewing jobs lease", e);
+        }
+    }
+
+    /**
+     * Loads jobs expiring within the configured interval that belong to partitions owned by this node
+     */
+    protected void loadJobs() {
+        try {
+            long next = LocalDateTime.now().plus(Duration.ofMinutes(interval.orElse(10L)))
+                    .atZone(ZoneId.systemDefault()).toInstant()
+                    .toEpochMilli();
+            int[] partitions = leases.ownedPartitions();
+            ResultSet rs = cqlSession.execute(loadStatement.bind(next, partitions[0], partitions[1]));
+            List<Row> jobs = rs.all();
+            LOGGER.debug("Loaded jobs ({}) to be executed before {}", jobs.size(), next);
+            for (Row job : jobs) {
+                if (job.getString(OWNER_INSTANCE_ID_FIELD) == null) {
+                    ProcessJobDescription description = ProcessJobDescription.of(build(job.getString(EXPRESSION_FIELD)),
+                            null,
+                            job.getString(OWNER_DEF_ID_FIELD));
+
+                    scheduledJobs.computeIfAbsent(job.getString(INSTANCE_ID_FIELD), k -> {
+                        return log(job.getString(INSTANCE_ID_FIELD),
+                                scheduler.schedule(new StartProcessOnExpiredTimer(job.getString(INSTANCE_ID_FIELD),
+                                        job.getString(OWNER_DEF_ID_FIELD), -1, description),
+                                        Duration.between(LocalDateTime.now(),
+                                                ZonedDateTime.ofInstant(
+                                                        Instant.ofEpochMilli(job.getLong(FIRE_AT_FIELD)),
+                                                        ZoneId.systemDefault()))
+                                                .toMillis(),
+                                        TimeUnit.MILLISECONDS));
+                    });
+                } else {
+                    ProcessInstanceJobDescription description = ProcessInstanceJobDescription.of(
+                            job.getString(INSTANCE_ID_FIELD),
+                            job.getString(TRIGGER_TYPE_FIELD),
+                            build(job.getString(EXPRESSION_FIELD)), job.getString(OWNER_INSTANCE_ID_FIELD),
+                            job.getString(OWNER_DEF_ID_FIELD), null);
+
+                    scheduledJobs.computeIfAbsent(job.getString(INSTANCE_ID_FIELD), k -> {
+                        return log(job.getString(INSTANCE_ID_FIELD), scheduler.schedule(
+                                new SignalProcessInstanceOnExpiredTimer(job.getString(INSTANCE_ID_FIELD),
+                                        job.getString(TRIGGER_TYPE_FIELD),
+                                        job.getString(OWNER_DEF_ID_FIELD),
+                                        job.getString(OWNER_INSTANCE_ID_FIELD),
+                                        job.getInt(FIRE_LIMIT_FIELD), description),
+                                Duration.between(LocalDateTime.now(), ZonedDateTime.ofInstant(
+                                        Instant.ofEpochMilli(job.getLong(FIRE_AT_FIELD)),
+                                        ZoneId.systemDefault())).toMillis(),
+                                TimeUnit.MILLISECONDS));
+                    });
                 }
-            } catch (Exception e) {
-                LOGGER.error("Error while loading jobs from cassandra", e);
             }
-        }, 1, interval.orElse(10L) * 60, TimeUnit.SECONDS);
+        } catch (Exception e) {
+            LOGGER.error("Error while loading jobs from cassandra", e);
+        }
     }
 
     public void shutdown(@Observes ShutdownEvent event) {
         this.loadScheduler.shutdownNow();
+        this.leases.release();
 
         this.scheduler.shutdown();
     }
@@ -206,41 +243,22 @@ public class CassandraJobService implements JobsService {
     @Override
     public String scheduleProcessJob(ProcessJobDescription description) {
         LOGGER.debug("ScheduleProcessJob: {}", description);
-        Insert insert;
+        BoundStatementBuilder insert = bindInsert(description.id(),
+                description.processId() + version(description.processVersion()), description.expirationTime());
         if (description.expirationTime().repeatInterval() != null) {
-            insert = insertInto(keyspace.orElse("automatiko"), tableName)
-                    .value(INSTANCE_ID_FIELD, literal(description.id()))
-                    .value(OWNER_DEF_ID_FIELD, literal(description.processId() + version(description.processVersion())))
-                    .value(STATUS_FIELD, literal("scheduled"))
-                    .value(FIRE_AT_FIELD,
-                            literal(description.expirationTime().get().toLocalDateTime().atZone(ZoneId.systemDefault())
-                                    .toInstant()
-                                    .toEpochMilli()))
-                    .value(FIRE_LIMIT_FIELD, literal(description.expirationTime().repeatLimit()))
-                    .value(REPEAT_INTERVAL_FIELD, literal(description.expirationTime().repeatInterval()))
-                    .value(EXPRESSION_FIELD, literal(description.expirationTime().expression()));
             Supplier<AuditEntry> entry = () -> BaseAuditEntry.timer(description)
                     .add("message", "Scheduled repeatable timer job that creates new workflow instances");
 
             auditor.publish(entry);
         } else {
-            insert = insertInto(keyspace.orElse("automatiko"), tableName)
-                    .value(INSTANCE_ID_FIELD, literal(description.id()))
-                    .value(OWNER_DEF_ID_FIELD, literal(description.processId() + version(description.processVersion())))
-                    .value(STATUS_FIELD, literal("scheduled"))
-                    .value(FIRE_AT_FIELD,
-                            literal(description.expirationTime().get().toLocalDateTime().atZone(ZoneId.systemDefault())
-                                    .toInstant()
-                                    .toEpochMilli()))
-                    .value(FIRE_LIMIT_FIELD, literal(description.expirationTime().repeatLimit()))
-                    .value(EXPRESSION_FIELD, literal(description.expirationTime().expression()));
             Supplier<AuditEntry> entry = () -> BaseAuditEntry.timer(description)
                     .add("message", "Scheduled one time timer job that creates new workflow instances");
 
             auditor.publish(entry);
         }
         cqlSession.execute(insert.build());
-        if (description.expirationTime().get().toLocalDateTime()
+        // all nodes register the same jobs of the processes, only the node owning its partition schedules it
+        if (leases.owns(description.id()) && description.expirationTime().get().toLocalDateTime()
                 .isBefore(LocalDateTime.now().plusMinutes(interval.orElse(10L)))) {
 
             scheduledJobs.computeIfAbsent(description.id(), k -> {
@@ -255,39 +273,16 @@ public class CassandraJobService implements JobsService {
     @Override
     public String scheduleProcessInstanceJob(ProcessInstanceJobDescription description) {
 
-        Insert insert;
+        BoundStatementBuilder insert = bindInsert(description.id(),
+                description.processId() + version(description.processVersion()), description.expirationTime())
+                .setString(TRIGGER_TYPE_FIELD, description.triggerType())
+                .setString(OWNER_INSTANCE_ID_FIELD, description.processInstanceId());
         if (description.expirationTime().repeatInterval() != null) {
-
-            insert = insertInto(keyspace.orElse("automatiko"), tableName)
-                    .value(INSTANCE_ID_FIELD, literal(description.id()))
-                    .value(TRIGGER_TYPE_FIELD, literal(description.triggerType()))
-                    .value(OWNER_DEF_ID_FIELD, literal(description.processId() + version(description.processVersion())))
-                    .value(OWNER_INSTANCE_ID_FIELD, literal(description.processInstanceId()))
-                    .value(STATUS_FIELD, literal("scheduled"))
-                    .value(FIRE_AT_FIELD,
-                            literal(description.expirationTime().get().toLocalDateTime().atZone(ZoneId.systemDefault())
-                                    .toInstant()
-                                    .toEpochMilli()))
-                    .value(FIRE_LIMIT_FIELD, literal(description.expirationTime().repeatLimit()))
-                    .value(REPEAT_INTERVAL_FIELD, literal(description.expirationTime().repeatInterval()))
-                    .value(EXPRESSION_FIELD, literal(description.expirationTime().expression()));
             Supplier<AuditEntry> entry = () -> BaseAuditEntry.timer(description)
                     .add("message", "Scheduled repeatable timer job for existing workflow instance");
 
             auditor.publish(entry);
         } else {
-            insert = insertInto(keyspace.orElse("automatiko"), tableName)
-                    .value(INSTANCE_ID_FIELD, literal(description.id()))
-                    .value(TRIGGER_TYPE_FIELD, literal(description.triggerType()))
-                    .value(OWNER_DEF_ID_FIELD, literal(description.processId() + version(description.processVersion())))
-                    .value(OWNER_INSTANCE_ID_FIELD, literal(description.processInstanceId()))
-                    .value(STATUS_FIELD, literal("scheduled"))
-                    .value(FIRE_AT_FIELD,
-                            literal(description.expirationTime().get().toLocalDateTime().atZone(ZoneId.systemDefault())
-                                    .toInstant()
-                                    .toEpochMilli()))
-                    .value(FIRE_LIMIT_FIELD, literal(description.expirationTime().repeatLimit()))
-                    .value(EXPRESSION_FIELD, literal(description.expirationTime().expression()));
             Supplier<AuditEntry> entry = () -> BaseAuditEntry.timer(description)
                     .add("message", "Scheduled one time timer job for existing workflow instance");
 
@@ -322,10 +317,7 @@ public class CassandraJobService implements JobsService {
 
     @Override
     public ZonedDateTime getScheduledTime(String id) {
-        Select select = selectFrom(keyspace.orElse("automatiko"), tableName).column(FIRE_AT_FIELD)
-                .whereColumn(INSTANCE_ID_FIELD).isEqualTo(literal(id));
-
-        ResultSet rs = cqlSession.execute(select.build());
+        ResultSet rs = cqlSession.execute(selectStatement.bind(id));
         Row row = rs.one();
         if (row != null) {
             Long fireAt = row.getLong(FIRE_AT_FIELD);
@@ -357,12 +349,7 @@ public class CassandraJobService implements JobsService {
 
     protected void removeScheduledJob(String id) {
         Supplier<AuditEntry> entry = () -> {
-            Select select = selectFrom(keyspace.orElse("automatiko"), tableName)
-                    .columns(EXPRESSION_FIELD, REPEAT_INTERVAL_FIELD, FIRE_LIMIT_FIELD, OWNER_DEF_ID_FIELD,
-                            OWNER_INSTANCE_ID_FIELD, TRIGGER_TYPE_FIELD)
-                    .whereColumn(INSTANCE_ID_FIELD).isEqualTo(literal(id));
-
-            ResultSet rs = cqlSession.execute(select.build());
+            ResultSet rs = cqlSession.execute(selectStatement.bind(id));
             Row row = rs.one();
             if (row != null) {
                 return BaseAuditEntry.timer()
@@ -383,17 +370,11 @@ public class CassandraJobService implements JobsService {
         };
 
         auditor.publish(entry);
-        Delete deleteStatement = deleteFrom(keyspace.orElse("automatiko"), tableName).whereColumn(INSTANCE_ID_FIELD)
-                .isEqualTo(literal(id)).ifExists();
-
-        cqlSession.execute(deleteStatement.build());
+        cqlSession.execute(deleteStatement.bind(id));
     }
 
     protected void updateRepeatableJob(String id) {
-        Select select = selectFrom(keyspace.orElse("automatiko"), tableName).column(FIRE_AT_FIELD)
-                .whereColumn(INSTANCE_ID_FIELD).isEqualTo(literal(id));
-
-        ResultSet rs = cqlSession.execute(select.build());
+        ResultSet rs = cqlSession.execute(selectStatement.bind(id));
         Row job = rs.one();
         if (job != null) {
 
@@ -403,14 +384,8 @@ public class CassandraJobService implements JobsService {
                     Instant.ofEpochMilli(job.getLong(FIRE_AT_FIELD)),
                     ZoneId.systemDefault());
 
-            SimpleStatement statement = QueryBuilder.update(keyspace.orElse("automatiko"), tableName)
-                    .setColumn(STATUS_FIELD, literal("scheduled"))
-                    .setColumn(FIRE_LIMIT_FIELD, literal(limit))
-                    .setColumn(FIRE_AT_FIELD, literal(fireTime.plus(repeat, ChronoUnit.MILLIS).toInstant().toEpochMilli()))
-                    .whereColumn(INSTANCE_ID_FIELD).isEqualTo(literal(id))
-                    .build();
-
-            cqlSession.execute(statement);
+            cqlSession.execute(rescheduleStatement.bind(limit,
+                    fireTime.plus(repeat, ChronoUnit.MILLIS).toInstant().toEpochMilli(), id));
 
             if (job.getString(OWNER_INSTANCE_ID_FIELD) == null) {
                 ProcessJobDescription description = ProcessJobDescription.of(build(job.getString(EXPRESSION_FIELD)), null,
@@ -473,13 +448,100 @@ public class CassandraJobService implements JobsService {
                 .withColumn(STATUS_FIELD, DataTypes.TEXT)
                 .withColumn(FIRE_LIMIT_FIELD, DataTypes.INT)
                 .withColumn(REPEAT_INTERVAL_FIELD, DataTypes.BIGINT)
-                .withColumn(EXPRESSION_FIELD, DataTypes.TEXT);
+                .withColumn(EXPRESSION_FIELD, DataTypes.TEXT)
+                .withColumn(PARTITION_FIELD, DataTypes.INT);
 
         cqlSession.execute(createTable.build());
+        migrateTable();
 
         CreateIndex index = SchemaBuilder.createIndex(tableName + "_IDX").ifNotExists()
                 .onTable(keyspace.orElse("automatiko"), tableName).andColumn(FIRE_AT_FIELD);
         cqlSession.execute(index.build());
+
+        leaseStore.createTable();
+    }
+
+    /**
+     * Adds partition column to the table created before jobs were partitioned and assigns partitions to existing jobs
+     * as rows without partition cannot be selected by the nodes
+     */
+    protected void migrateTable() {
+        String ks = keyspace.orElse("automatiko");
+        boolean partitioned = cqlSession.getMetadata().getKeyspace(ks).flatMap(metadata -> metadata.getTable(tableName))
+                .map(table -> table.getColumn(PARTITION_FIELD).isPresent()).orElse(true);
+        if (partitioned) {
+            return;
+        }
+        LOGGER.info("Adding partition to jobs stored in {}.{}", ks, tableName);
+        cqlSession.execute(SchemaBuilder.alterTable(ks, tableName).addColumn(PARTITION_FIELD, DataTypes.INT).build());
+        for (Row row : cqlSession.execute(selectFrom(ks, tableName).column(INSTANCE_ID_FIELD).build())) {
+            String id = row.getString(INSTANCE_ID_FIELD);
+            cqlSession.execute(QueryBuilder.update(ks, tableName)
+                    .setColumn(PARTITION_FIELD, literal(JobLeaseManager.partition(id)))
+                    .whereColumn(INSTANCE_ID_FIELD).isEqualTo(literal(id)).build());
+        }
+    }
+
+    /**
+     * Prepares all statements used by the service. Reads and plain writes are marked as idempotent, taking the job
+     * over and its removal are conditional (lightweight transactions) and use local serial consistency
+     */
+    protected void prepareStatements() {
+        String ks = keyspace.orElse("automatiko");
+
+        loadStatement = cqlSession.prepare(selectFrom(ks, tableName).all()
+                .whereColumn(FIRE_AT_FIELD).isLessThan(bindMarker())
+                .whereColumn(PARTITION_FIELD).isGreaterThanOrEqualTo(bindMarker())
+                .whereColumn(PARTITION_FIELD).isLessThan(bindMarker())
+                .allowFiltering().build().setIdempotent(true));
+        selectStatement = cqlSession.prepare(selectFrom(ks, tableName).all()
+                .whereColumn(INSTANCE_ID_FIELD).isEqualTo(bindMarker()).build().setIdempotent(true));
+        insertStatement = cqlSession.prepare(insertInto(ks, tableName)
+                .value(INSTANCE_ID_FIELD, bindMarker(INSTANCE_ID_FIELD))
+                .value(TRIGGER_TYPE_FIELD, bindMarker(TRIGGER_TYPE_FIELD))
+                .value(OWNER_DEF_ID_FIELD, bindMarker(OWNER_DEF_ID_FIELD))
+                .value(OWNER_INSTANCE_ID_FIELD, bindMarker(OWNER_INSTANCE_ID_FIELD))
+                .value(STATUS_FIELD, literal("scheduled"))
+                .value(FIRE_AT_FIELD, bindMarker(FIRE_AT_FIELD))
+                .value(FIRE_LIMIT_FIELD, bindMarker(FIRE_LIMIT_FIELD))
+                .value(REPEAT_INTERVAL_FIELD, bindMarker(REPEAT_INTERVAL_FIELD))
+                .value(EXPRESSION_FIELD, bindMarker(EXPRESSION_FIELD))
+                .value(PARTITION_FIELD, bindMarker(PARTITION_FIELD)).build().setIdempotent(true));
+        rescheduleStatement = cqlSession.prepare(QueryBuilder.update(ks, tableName)
+                .setColumn(STATUS_FIELD, literal("scheduled"))
+                .setColumn(FIRE_LIMIT_FIELD, bindMarker())
+                .setColumn(FIRE_AT_FIELD, bindMarker())
+                .whereColumn(INSTANCE_ID_FIELD).isEqualTo(bindMarker()).build().setIdempotent(true));
+        takeStatement = cqlSession.prepare(QueryBuilder.update(ks, tableName)
+                .setColumn(STATUS_FIELD, literal("taken"))
+                .whereColumn(INSTANCE_ID_FIELD).isEqualTo(bindMarker())
+                .ifColumn(STATUS_FIELD).isEqualTo(literal("scheduled")).build()
+                .setIdempotent(false).setSerialConsistencyLevel(ConsistencyLevel.LOCAL_SERIAL));
+        deleteStatement = cqlSession.prepare(deleteFrom(ks, tableName).whereColumn(INSTANCE_ID_FIELD)
+                .isEqualTo(bindMarker()).ifExists().build()
+                .setIdempotent(false).setSerialConsistencyLevel(ConsistencyLevel.LOCAL_SERIAL));
+    }
+
+    /**
+     * Binds values common to all jobs, values that are not set (e.g. repeat interval of one time jobs) are left unset
+     * so they are not written at all
+     */
+    protected BoundStatementBuilder bindInsert(String id, String ownerDefinitionId, ExpirationTime expirationTime) {
+        BoundStatementBuilder insert = insertStatement.boundStatementBuilder()
+                .setString(INSTANCE_ID_FIELD, id)
+                .setString(OWNER_DEF_ID_FIELD, ownerDefinitionId)
+                .setLong(FIRE_AT_FIELD, expirationTime.get().toLocalDateTime().atZone(ZoneId.systemDefault())
+                        .toInstant()
+                        .toEpochMilli())
+                .setString(EXPRESSION_FIELD, expirationTime.expression())
+                .setInt(PARTITION_FIELD, JobLeaseManager.partition(id));
+        if (expirationTime.repeatLimit() != null) {
+            insert = insert.setInt(FIRE_LIMIT_FIELD, expirationTime.repeatLimit());
+        }
+        if (expirationTime.repeatInterval() != null) {
+            insert = insert.setLong(REPEAT_INTERVAL_FIELD, expirationTime.repeatInterval());
+        }
+        return insert;
     }
 
     private class SignalProcessInstanceOnExpiredTimer implements Runnable {
@@ -508,14 +570,8 @@ public class CassandraJobService implements JobsService {
         public void run() {
             LOGGER.debug("Job {} started", id);
 
-            SimpleStatement statement = QueryBuilder.update(keyspace.orElse("automatiko"), tableName)
-                    .setColumn(STATUS_FIELD, literal("taken"))
-                    .whereColumn(INSTANCE_ID_FIELD).isEqualTo(literal(id))
-                    .ifColumn(STATUS_FIELD).isEqualTo(literal("scheduled"))
-                    .build();
-
             try {
-                boolean applied = cqlSession.execute(statement).wasApplied();
+                boolean applied = cqlSession.execute(takeStatement.bind(id)).wasApplied();
 
                 if (!applied) {
                     scheduledJobs.remove(id).cancel(true);
@@ -587,14 +643,8 @@ public class CassandraJobService implements JobsService {
         @Override
         public void run() {
             LOGGER.debug("Job {} started", id);
-            SimpleStatement statement = QueryBuilder.update(keyspace.orElse("automatiko"), tableName)
-                    .setColumn(STATUS_FIELD, literal("taken"))
-                    .whereColumn(INSTANCE_ID_FIELD).isEqualTo(literal(id))
-                    .ifColumn(STATUS_FIELD).isEqualTo(literal("scheduled"))
-                    .build();
-
             try {
-                boolean applied = cqlSession.execute(statement).wasApplied();
+                boolean applied = cqlSession.execute(takeStatement.bind(id)).wasApplied();
 
                 if (!applied) {
                     scheduledJobs.remove(id).cancel(true);
@@ -3,7 +3,11 @@ package io.automatiko.engine.addons.persistence.common;
 import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
+import java.lang.reflect.Modifier;
 import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -11,6 +15,8 @@ import org.slf4j.LoggerFactory;
 import com.fasterxml.jackson.annotation.JsonTypeInfo.As;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.ObjectMapper.DefaultTyping;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import com.fasterxml.jackson.databind.jsontype.BasicPolymorphicTypeValidator;
 import com.fasterxml.jackson.datatype.jdk8.Jdk8Module;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
@@ -19,16 +25,39 @@ import com.fasterxml.jackson.module.paramnames.ParameterNamesModule;
 import io.automatiko.engine.api.marshalling.ObjectMarshallingStrategy;
 import io.automatiko.engine.api.workflow.Process;
 import io.automatiko.engine.workflow.AbstractProcess;
+import io.automatiko.engine.workflow.base.core.context.variable.Variable;
+import io.automatiko.engine.workflow.base.core.context.variable.VariableScope;
+import io.automatiko.engine.workflow.process.core.WorkflowProcess;
 import io.automatiko.engine.workflow.process.executable.core.ServerlessExecutableProcess;
 
+/**
+ * Jackson based marshalling strategy of variables.
+ * <br/>
+ * Values of variables that are of exactly the concrete type declared in the workflow definition are stored without
+ * any type information and read back into the declared type, so properties that should keep their subclasses must
+ * declare it themselves (e.g. with <code>@JsonTypeInfo</code>). Such values are prefixed with a marker byte that cannot
+ * start a JSON document.
+ * All other values (e.g. variables declared as <code>Object</code>, abstract or generic types) are stored with complete
+ * type information. Both formats can be read at any time so already stored data remains readable.
+ */
 public class JacksonObjectMarshallingStrategy implements ObjectMarshallingStrategy {
 
     private static final Logger logger = LoggerFactory.getLogger(JacksonObjectMarshallingStrategy.class);
 
+    private static final byte SCHEMA_AWARE_MARKER = 1;
+
     protected ObjectMapper mapper;
 
+    protected ObjectMapper schemaMapper;
+
     private boolean usePolomorfic = true;
 
+    private Map<String, Class<?>> declaredTypes = new HashMap<>();
+
+    private Map<Class<?>, ObjectWriter> writers = new HashMap<>();
+
+    private Map<Class<?>, ObjectReader> readers = new ConcurrentHashMap<>();
+
     public JacksonObjectMarshallingStrategy(Process<?> process) {
         if (((AbstractProcess<?>) process).process() instanceof ServerlessExecutableProcess) {
             this.usePolomorfic = false;
@@ -43,6 +72,15 @@ public class JacksonObjectMarshallingStrategy implements ObjectMarshallingStrate
         mapper.registerModule(new ParameterNamesModule())
                 .registerModule(new Jdk8Module())
                 .registerModule(new JavaTimeModule());
+
+        if (usePolomorfic) {
+            this.schemaMapper = new ObjectMapper();
+            schemaMapper.registerModule(new ParameterNamesModule())
+                    .registerModule(new Jdk8Module())
+                    .registerModule(new JavaTimeModule());
+
+            collectDeclaredTypes(process);
+        }
     }
 
     @Override
@@ -53,6 +91,14 @@ public class JacksonObjectMarshallingStrategy implements ObjectMarshallingStrate
 
     @Override
     public byte[] marshal(Context context, ObjectOutputStream os, Object object) throws IOException {
+        ObjectWriter writer = usePolomorfic ? writers.get(object.getClass()) : null;
+        if (writer != null) {
+            byte[] json = writer.writeValueAsBytes(object);
+            byte[] data = new byte[json.length + 1];
+            data[0] = SCHEMA_AWARE_MARKER;
+            System.arraycopy(json, 0, data, 1, json.length);
+            return log(data);
+        }
         return log(mapper.writeValueAsBytes(object));
     }
 
@@ -63,6 +109,10 @@ public class JacksonObjectMarshallingStrategy implements ObjectMarshallingStrate
             return null;
         }
         if (usePolomorfic) {
+            if (isSchemaAware(object)) {
+                return readers.computeIfAbsent(declaredType(dataType, classloader), schemaMapper::readerFor)
+                        .readValue(log(object), 1, object.length - 1);
+            }
             return mapper.readValue(log(object), Object.class);
         } else {
             return mapper.readTree(log(object));
@@ -75,11 +125,49 @@ public class JacksonObjectMarshallingStrategy implements ObjectMarshallingStrate
     }
 
     protected byte[] log(byte[] data) {
-        logger.debug("Variable content:: {}", new String(data, StandardCharsets.UTF_8));
+        if (logger.isDebugEnabled()) {
+            logger.debug("Variable content:: {}", new String(data, StandardCharsets.UTF_8));
+        }
 
         return data;
     }
 
+    protected void collectDeclaredTypes(Process<?> process) {
+        io.automatiko.engine.api.definition.process.Process definition = ((AbstractProcess<?>) process).process();
+        if (!(definition instanceof WorkflowProcess)) {
+            return;
+        }
+        VariableScope variableScope = (VariableScope) ((WorkflowProcess) definition)
+                .getDefaultContext(VariableScope.VARIABLE_SCOPE);
+        if (variableScope == null) {
+            return;
+        }
+        for (Variable variable : variableScope.getVariables()) {
+            Class<?> type = variable.getType() == null ? null : variable.getType().getClassType();
+            // variables declared as Object, abstract or generic types can hold values the declared type does not
+            // describe, so they always carry type information
+            if (type != null && !Object.class.equals(type) && !Modifier.isAbstract(type.getModifiers())
+                    && !type.isInterface() && type.getTypeParameters().length == 0) {
+                declaredTypes.put(getType(type), type);
+                writers.put(type, schemaMapper.writerFor(type));
+            }
+        }
+    }
+
+    protected Class<?> declaredType(String dataType, ClassLoader classloader) throws ClassNotFoundException {
+        Class<?> type = declaredTypes.get(dataType);
+        if (type == null) {
+            // workflow definition has changed since the value was stored
+            ClassLoader cl = classloader != null ? classloader : Thread.currentThread().getContextClassLoader();
+            type = Class.forName(dataType, false, cl);
+        }
+        return type;
+    }
+
+    protected boolean isSchemaAware(byte[] data) {
+        return data.length > 0 && data[0] == SCHEMA_AWARE_MARKER;
+    }
+
     public ObjectMapper mapper() {
         return mapper;
     }
@@ -0,0 +1,324 @@
+package io.automatiko.engine.addons.persistence.common.cache;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.microprofile.config.Config;
+import org.eclipse.microprofile.config.ConfigProvider;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.automatiko.engine.api.config.ProcessInstanceCacheConfig;
+import io.automatiko.engine.api.uow.TransactionLog;
+import io.automatiko.engine.api.workflow.ExportedProcessInstance;
+import io.automatiko.engine.api.workflow.MutableProcessInstances;
+import io.automatiko.engine.api.workflow.Process;
+import io.automatiko.engine.api.workflow.ProcessInstance;
+import io.automatiko.engine.api.workflow.ProcessInstancePage;
+import io.automatiko.engine.api.workflow.ProcessInstanceReadMode;
+import io.automatiko.engine.api.workflow.ProcessInstanceSummary;
+import io.automatiko.engine.api.workflow.ProcessInstancesCache;
+
+/**
+ * Process instances decorator that keeps read only snapshots of recently used instances in memory so they don't have to
+ * be loaded and decoded from the data store on every read only look up. This is a read only cache - it only serves
+ * look ups by id in <code>READ_ONLY</code> mode, all other look ups (mutable, with lock, by tags, lists) and instances
+ * being recovered always go to the data store. Snapshots are created by the decorated process instances (with their
+ * own marshalling and codec) and are shared by all callers. Cache is bounded by number of entries (least recently used
+ * are evicted first) and by time since last access.
+ * <br/>
+ * Before cached snapshot is returned its version is compared with version of the stored instance, in case they differ
+ * (instance was modified by another node or process) the entry is discarded and the instance is loaded from the data
+ * store. Conflict detection (<code>ConflictingVersionException</code>) of writes is not affected by the cache.
+ * <br/>
+ * Writes are always performed directly against the data store and invalidate cached entry. Multiple updates of the same
+ * instance within single unit of work are already collapsed into one write by the unit of work.
+ */
+@SuppressWarnings({ "unchecked", "rawtypes" })
+public class CachingProcessInstances<T> implements MutableProcessInstances<T>, ProcessInstancesCache {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CachingProcessInstances.class);
+
+    private static final int DEFAULT_MAX_SIZE = 1000;
+
+    private static final int DEFAULT_EXPIRE_AFTER = 300;
+
+    private final Process<T> process;
+
+    private final MutableProcessInstances<T> delegate;
+
+    private final VersionedProcessInstances versions;
+
+    private final int maxSize;
+
+    private final long expireAfter;
+
+    private final LinkedHashMap<String, CachedInstance> cache;
+
+    private final AtomicLong hits = new AtomicLong();
+
+    private final AtomicLong misses = new AtomicLong();
+
+    private final AtomicLong evictions = new AtomicLong();
+
+    public CachingProcessInstances(Process<T> process, MutableProcessInstances<T> delegate, int maxSize,
+            long expireAfterMillis) {
+        if (!(delegate instanceof VersionedProcessInstances)) {
+            throw new IllegalArgumentException("Process instances " + delegate.getClass().getName()
+                    + " do not support version look up required for caching");
+        }
+        this.process = process;
+        this.delegate = delegate;
+        this.versions = (VersionedProcessInstances) delegate;
+        this.maxSize = maxSize;
+        this.expireAfter = expireAfterMillis;
+        this.cache = new LinkedHashMap<String, CachedInstance>(16, 0.75f, true) {
+
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedInstance> eldest) {
+                if (size() > CachingProcessInstances.this.maxSize) {
+                    evictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Wraps given instances with caching layer if caching is enabled via configuration and the instances support version
+     * look up, otherwise returns given instances
+     */
+    public static MutableProcessInstances<?> decorate(Process<?> process, MutableProcessInstances<?> instances) {
+        Config config = ConfigProvider.getConfig();
+        if (!config.getOptionalValue(ProcessInstanceCacheConfig.ENABLED_KEY, Boolean.class).orElse(false)) {
+            return instances;
+        }
+        if (!(instances instanceof VersionedProcessInstances)) {
+            LOGGER.warn("Process instances cache is enabled but not supported by {}, instances of process '{}' are not cached",
+                    instances.getClass().getSimpleName(), process.id());
+            return instances;
+        }
+        int maxSize = config.getOptionalValue(ProcessInstanceCacheConfig.MAX_SIZE_KEY, Integer.class)
+                .orElse(DEFAULT_MAX_SIZE);
+        int expireAfter = config.getOptionalValue(ProcessInstanceCacheConfig.EXPIRE_AFTER_KEY, Integer.class)
+                .orElse(DEFAULT_EXPIRE_AFTER);
+
+        return new CachingProcessInstances(process, instances, maxSize, TimeUnit.SECONDS.toMillis(expireAfter));
+    }
+
+    @Override
+    public TransactionLog transactionLog() {
+        return delegate.transactionLog();
+    }
+
+    @Override
+    public Optional<? extends ProcessInstance<T>> findById(String id, int status, ProcessInstanceReadMode mode) {
+        if (status == ProcessInstance.STATE_RECOVERING || mode != ProcessInstanceReadMode.READ_ONLY) {
+            return delegate.findById(id, status, mode);
+        }
+        String resolvedId = delegate.resolveId(id);
+
+        CachedInstance cached = get(resolvedId);
+        long storedVersion = versions.storedVersion(resolvedId);
+        if (cached != null && cached.status == status) {
+            if (storedVersion == cached.version) {
+                hits.incrementAndGet();
+                LOGGER.debug("Instance {} of process '{}' found in cache", resolvedId, process.id());
+                return Optional.of(cached.instance);
+            }
+            invalidate(resolvedId);
+        }
+        misses.incrementAndGet();
+
+        // version is read before the instance so the snapshot is never considered newer than it is
+        Optional<? extends ProcessInstance<T>> found = delegate.findById(id, status, mode);
+        if (found.isPresent() && storedVersion != -1) {
+            ProcessInstance<T> instance = found.get();
+            put(resolvedId, new CachedInstance(instance, storedVersion, instance.status(), currentTime()));
+        }
+        return found;
+    }
+
+    @Override
+    public Collection<? extends ProcessInstance<T>> values(ProcessInstanceReadMode mode, int status, int page, int size) {
+        return delegate.values(mode, status, page, size);
+    }
+
+    @Override
+    public Collection<? extends ProcessInstance<T>> values(ProcessInstanceReadMode mode, int status, int page, int size,
+            String sortBy, boolean sortAsc) {
+        return delegate.values(mode, status, page, size, sortBy, sortAsc);
+    }
+
+    @Override
+    public ProcessInstancePage<T> values(ProcessInstanceReadMode mode, int status, String cursor, int size) {
+        return delegate.values(mode, status, cursor, size);
+    }
+
+    @Override
+    public Collection<ProcessInstanceSummary> summaries(int status, int page, int size) {
+        return delegate.summaries(status, page, size);
+    }
+
+    @Override
+    public Collection<? extends ProcessInstance<T>> findByIdOrTag(ProcessInstanceReadMode mode, int status,
+            String... values) {
+        return delegate.findByIdOrTag(mode, status, values);
+    }
+
+    @Override
+    public Collection<? extends ProcessInstance<T>> findByIdOrTag(ProcessInstanceReadMode mode, int status, String sortBy,
+            boolean sortAsc, String... values) {
+        return delegate.findByIdOrTag(mode, status, sortBy, sortAsc, values);
+    }
+
+    @Override
+    public Collection<String> locateByIdOrTag(int status, String... values) {
+        return delegate.locateByIdOrTag(status, values);
+    }
+
+    @Override
+    public Long size() {
+        return delegate.size();
+    }
+
+    @Override
+    public boolean exists(String id) {
+        return delegate.exists(id);
+    }
+
+    @Override
+    public void create(String id, ProcessInstance<T> instance) {
+        try {
+            delegate.create(id, instance);
+        } finally {
+            invalidate(delegate.resolveId(id, instance));
+        }
+    }
+
+    @Override
+    public void createAll(Map<String, ProcessInstance<T>> instances) {
+        try {
+            delegate.createAll(instances);
+        } finally {
+            instances.forEach((id, instance) -> invalidate(delegate.resolveId(id, instance)));
+        }
+    }
+
+    @Override
+    public void update(String id, ProcessInstance<T> instance) {
+        try {
+            delegate.update(id, instance);
+        } finally {
+            invalidate(delegate.resolveId(id, instance));
+        }
+    }
+
+    @Override
+    public void remove(String id, ProcessInstance<T> instance) {
+        try {
+            delegate.remove(id, instance);
+        } finally {
+            invalidate(delegate.resolveId(id, instance));
+        }
+    }
+
+    @Override
+    public void release(String id, ProcessInstance<T> pi) {
+        delegate.release(id, pi);
+    }
+
+    @Override
+    public boolean useCompositeIdForSubprocess() {
+        return delegate.useCompositeIdForSubprocess();
+    }
+
+    @Override
+    public ExportedProcessInstance exportInstance(ProcessInstance<?> instance, boolean abort) {
+        return delegate.exportInstance(instance, abort);
+    }
+
+    @Override
+    public ProcessInstance<T> importInstance(ExportedProcessInstance instance, Process<T> process) {
+        return delegate.importInstance(instance, process);
+    }
+
+    @Override
+    public long hits() {
+        return hits.get();
+    }
+
+    @Override
+    public long misses() {
+        return misses.get();
+    }
+
+    @Override
+    public long evictions() {
+        return evictions.get();
+    }
+
+    @Override
+    public synchronized int cached() {
+        return cache.size();
+    }
+
+    protected long currentTime() {
+        return System.currentTimeMillis();
+    }
+
+    private synchronized CachedInstance get(String resolvedId) {
+        CachedInstance cached = cache.get(resolvedId);
+        if (cached == null) {
+            return null;
+        }
+        long now = currentTime();
+        if (now - cached.accessed > expireAfter) {
+            cache.remove(resolvedId);
+            evictions.incrementAndGet();
+            return null;
+        }
+        cached.accessed = now;
+        return cached;
+    }
+
+    private synchronized void put(String resolvedId, CachedInstance cached) {
+        // entries are in access order so expired ones are at the beginning
+        Iterator<CachedInstance> it = cache.values().iterator();
+        while (it.hasNext()) {
+            if (cached.accessed - it.next().accessed <= expireAfter) {
+                break;
+            }
+            it.remove();
+            evictions.incrementAndGet();
+        }
+        cache.put(resolvedId, cached);
+    }
+
+    private synchronized void invalidate(String resolvedId) {
+        cache.remove(resolvedId);
+    }
+
+    private class CachedInstance {
+
+        private final ProcessInstance<T> instance;
+        private final long version;
+        private final int status;
+        private long accessed;
+
+        CachedInstance(ProcessInstance<T> instance, long version, int status, long accessed) {
+            this.instance = instance;
+            this.version = version;
+            this.status = status;
+            this.accessed = accessed;
+        }
+    }
+}
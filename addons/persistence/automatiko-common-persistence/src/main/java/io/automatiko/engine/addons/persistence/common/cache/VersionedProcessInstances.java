@@ -0,0 +1,16 @@
+package io.automatiko.engine.addons.persistence.common.cache;
+
+/**
+ * Implemented by process instances stores that increment version of the instance on every write and can look it up
+ * without loading the instance itself. Required to validate entries of {@link CachingProcessInstances}.
+ */
+public interface VersionedProcessInstances {
+
+    /**
+     * Returns version of the stored instance
+     *
+     * @param resolvedId resolved identifier of the instance
+     * @return current version of the stored instance or -1 if instance is not stored
+     */
+    long storedVersion(String resolvedId);
+}
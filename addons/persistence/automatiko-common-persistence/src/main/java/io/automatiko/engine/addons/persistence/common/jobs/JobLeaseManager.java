@@ -0,0 +1,137 @@
+package io.automatiko.engine.addons.persistence.common.jobs;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Shares jobs among nodes based on leases. Every node periodically renews its own lease and jobs are split into
+ * fixed number of partitions (stored with the job) that are assigned to the nodes with valid lease as contiguous
+ * ranges, so data stores can select jobs of a node with a range condition. When a node stops renewing its lease
+ * its partitions are taken over by remaining nodes. Jobs stored without partition belong to the node owning the
+ * first partition.
+ */
+public class JobLeaseManager {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(JobLeaseManager.class);
+
+    public static final int PARTITIONS = 256;
+
+    private final String nodeId = UUID.randomUUID().toString();
+
+    private final JobLeaseStore store;
+
+    private final long leaseDuration;
+
+    private volatile List<String> nodes;
+
+    /**
+     * Creates new lease manager
+     *
+     * @param store storage of the leases
+     * @param leaseDuration duration of the lease in milliseconds
+     */
+    public JobLeaseManager(JobLeaseStore store, long leaseDuration) {
+        this.store = store;
+        this.leaseDuration = leaseDuration;
+        this.nodes = Collections.singletonList(nodeId);
+    }
+
+    /**
+     * Returns identifier of this node
+     */
+    public String nodeId() {
+        return nodeId;
+    }
+
+    /**
+     * Returns how often lease should be renewed in milliseconds
+     */
+    public long renewInterval() {
+        return Math.max(leaseDuration / 3, 1000);
+    }
+
+    /**
+     * Returns identifiers of nodes known to have valid lease, always includes this node
+     */
+    public List<String> nodes() {
+        return nodes;
+    }
+
+    /**
+     * Renews lease of this node and refreshes the list of active nodes
+     *
+     * @return true if assignment of partitions changed since last renewal
+     */
+    public boolean renew() {
+        long now = System.currentTimeMillis();
+        store.renew(nodeId, now + leaseDuration);
+
+        List<String> active = new ArrayList<>(store.active(now));
+        if (!active.contains(nodeId)) {
+            active.add(nodeId);
+        }
+        Collections.sort(active);
+
+        boolean changed = !active.equals(nodes);
+        if (changed) {
+            int[] owned = range(active, nodeId);
+            LOGGER.info("Jobs are now shared among {} node(s), node {} owns partitions {} to {}", active.size(), nodeId,
+                    owned[0], owned[1] - 1);
+        }
+        nodes = active;
+        return changed;
+    }
+
+    /**
+     * Determines if job with given id belongs to partition owned by this node
+     *
+     * @param jobId identifier of the job
+     * @return true if this node should schedule the job
+     */
+    public boolean owns(String jobId) {
+        int[] owned = ownedPartitions();
+        int partition = partition(jobId);
+        return partition >= owned[0] && partition < owned[1];
+    }
+
+    /**
+     * Returns range of partitions owned by this node
+     *
+     * @return two element array with first owned partition (inclusive) and last owned partition (exclusive)
+     */
+    public int[] ownedPartitions() {
+        return range(nodes, nodeId);
+    }
+
+    /**
+     * Determines if this node loads jobs stored without partition
+     */
+    public boolean ownsUnpartitioned() {
+        return ownedPartitions()[0] == 0;
+    }
+
+    /**
+     * Releases lease of this node so its partitions can be taken over right away
+     */
+    public void release() {
+        try {
+            store.release(nodeId);
+        } catch (RuntimeException e) {
+            LOGGER.warn("Unable to release jobs lease of node {}", nodeId, e);
+        }
+    }
+
+    public static int partition(String jobId) {
+        return Math.floorMod(jobId.hashCode(), PARTITIONS);
+    }
+
+    private static int[] range(List<String> active, String nodeId) {
+        int index = active.indexOf(nodeId);
+        return new int[] { index * PARTITIONS / active.size(), (index + 1) * PARTITIONS / active.size() };
+    }
+}
@@ -0,0 +1,32 @@
+package io.automatiko.engine.addons.persistence.common.jobs;
+
+import java.util.Collection;
+
+/**
+ * Storage of leases held by nodes that share jobs of the same persistent jobs service.
+ */
+public interface JobLeaseStore {
+
+    /**
+     * Creates or extends lease of given node
+     *
+     * @param nodeId identifier of the node
+     * @param expiresAt time (epoch milliseconds) until the lease is valid
+     */
+    void renew(String nodeId, long expiresAt);
+
+    /**
+     * Returns identifiers of nodes with valid lease
+     *
+     * @param now current time (epoch milliseconds)
+     * @return identifiers of nodes which lease did not expire yet
+     */
+    Collection<String> active(long now);
+
+    /**
+     * Releases lease of given node
+     *
+     * @param nodeId identifier of the node
+     */
+    void release(String nodeId);
+}
@@ -0,0 +1,74 @@
+package io.automatiko.engine.addons.persistence.common.tlog;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Progress of transaction log recovery of single process
+ */
+public class RecoveryProgress {
+
+    private final String processId;
+
+    private final long total;
+
+    private final AtomicLong recovered = new AtomicLong();
+
+    private final AtomicLong failed = new AtomicLong();
+
+    public RecoveryProgress(String processId, long total) {
+        this.processId = processId;
+        this.total = total;
+    }
+
+    public String processId() {
+        return processId;
+    }
+
+    /**
+     * Returns number of instances found in transaction log that should be recovered
+     */
+    public long total() {
+        return total;
+    }
+
+    /**
+     * Returns number of successfully recovered instances
+     */
+    public long recovered() {
+        return recovered.get();
+    }
+
+    /**
+     * Returns number of instances that could not be recovered
+     */
+    public long failed() {
+        return failed.get();
+    }
+
+    /**
+     * Returns number of instances still waiting for recovery
+     */
+    public long pending() {
+        return total - recovered.get() - failed.get();
+    }
+
+    public boolean isCompleted() {
+        return pending() <= 0;
+    }
+
+    long recordRecovered() {
+        recovered.incrementAndGet();
+        return total - pending();
+    }
+
+    long recordFailed() {
+        failed.incrementAndGet();
+        return total - pending();
+    }
+
+    @Override
+    public String toString() {
+        return "RecoveryProgress [processId=" + processId + ", total=" + total + ", recovered=" + recovered + ", failed="
+                + failed + "]";
+    }
+}
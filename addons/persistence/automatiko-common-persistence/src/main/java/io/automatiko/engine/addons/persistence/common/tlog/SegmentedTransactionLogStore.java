@@ -0,0 +1,527 @@
+package io.automatiko.engine.addons.persistence.common.tlog;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+import javax.annotation.PreDestroy;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.automatiko.engine.api.uow.TransactionLogStore;
+import io.quarkus.arc.properties.IfBuildProperty;
+
+/**
+ * Transaction log store that appends all entries to a log split into segments instead of writing a file per entry.
+ * Location of every entry that was not yet deleted is kept in memory so lookups do not touch the file system.
+ * <br/>
+ * Stored entries are flushed to disk before <code>store</code> returns, concurrent writers share single flush (group
+ * commit). Deletes are not flushed on their own as losing them only results in an extra recovery attempt. Oldest
+ * segments are removed once they contain no live entries, segments with only few live entries left are compacted by
+ * copying the live entries to the end of the log. Segments are always removed from the oldest one so that an entry
+ * cannot come back to life after restart because the record that deleted it was removed first.
+ */
+@IfBuildProperty(name = "quarkus.automatiko.persistence.transaction-log.type", stringValue = "segmented")
+@ApplicationScoped
+public class SegmentedTransactionLogStore implements TransactionLogStore {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SegmentedTransactionLogStore.class);
+
+    private static final String SEGMENT_PREFIX = "tlog-";
+    private static final String SEGMENT_SUFFIX = ".log";
+
+    private static final byte STORE = 1;
+    private static final byte DELETE_ENTRY = 2;
+    private static final byte DELETE_TRANSACTION = 3;
+
+    // record length and checksum
+    private static final int HEADER_SIZE = 8;
+
+    private static final long DEFAULT_SEGMENT_SIZE = 64 * 1024 * 1024;
+
+    private final Path storage;
+
+    private final long segmentSize;
+
+    private final List<Segment> segments = new ArrayList<>();
+
+    // process id -> instance id -> entry
+    private final Map<String, Map<String, Entry>> instances = new HashMap<>();
+    // transaction id -> entries
+    private final Map<String, Set<Entry>> transactions = new LinkedHashMap<>();
+
+    private Segment current;
+
+    // number of bytes ever appended/flushed, used to determine if given record was already flushed
+    private long appended;
+    private final AtomicLong synced = new AtomicLong();
+    private final Object syncLock = new Object();
+
+    private boolean compacting;
+
+    @Inject
+    public SegmentedTransactionLogStore(
+            @ConfigProperty(name = "quarkus.automatiko.persistence.transaction-log.folder") Optional<String> transactionLogFolder,
+            @ConfigProperty(name = "quarkus.automatiko.persistence.transaction-log.segment-size") Optional<Long> segmentSize) {
+        this(transactionLogFolder.map(Paths::get).orElse(null), segmentSize.orElse(DEFAULT_SEGMENT_SIZE));
+    }
+
+    public SegmentedTransactionLogStore(Path storage, long segmentSize) {
+        this.storage = storage;
+        this.segmentSize = segmentSize;
+        if (storage != null) {
+            open();
+        }
+    }
+
+    @Override
+    public void store(String transactionId, String processId, String instanceId, byte[] content) {
+        long position;
+        synchronized (this) {
+            Entry entry = append(STORE, transactionId, processId, instanceId, content);
+            index(entry);
+            position = appended;
+        }
+        sync(position);
+    }
+
+    @Override
+    public synchronized byte[] load(String processId, String instanceId) {
+        Entry entry = instances.getOrDefault(processId, Collections.emptyMap()).get(instanceId);
+        if (entry == null) {
+            return null;
+        }
+        return read(entry);
+    }
+
+    @Override
+    public synchronized Set<String> list(String processId) {
+        Set<String> recoverable = new LinkedHashSet<>();
+        for (Entry entry : instances.getOrDefault(processId, Collections.emptyMap()).values()) {
+            recoverable.add(entry.transactionId + "|" + entry.instanceId);
+        }
+        return recoverable;
+    }
+
+    @Override
+    public synchronized Set<String> list() {
+        return new LinkedHashSet<>(transactions.keySet());
+    }
+
+    @Override
+    public synchronized void delete(String transactionId) {
+        Set<Entry> entries = transactions.remove(transactionId);
+        if (entries == null) {
+            return;
+        }
+        append(DELETE_TRANSACTION, transactionId, "", "", null);
+        for (Entry entry : entries) {
+            unindex(entry);
+        }
+        release();
+    }
+
+    @Override
+    public synchronized void delete(String transactionId, String processId, String instanceId) {
+        Entry entry = instances.getOrDefault(processId, Collections.emptyMap()).get(instanceId);
+        if (entry == null || !entry.transactionId.equals(transactionId)) {
+            return;
+        }
+        append(DELETE_ENTRY, transactionId, processId, instanceId, null);
+        remove(entry);
+        release();
+    }
+
+    @Override
+    public synchronized boolean contains(String processId, String instanceId) {
+        return instances.getOrDefault(processId, Collections.emptyMap()).containsKey(instanceId);
+    }
+
+    /**
+     * Returns number of segments the log currently consists of
+     */
+    public synchronized int segments() {
+        return segments.size();
+    }
+
+    @PreDestroy
+    public synchronized void close() {
+        for (Segment segment : segments) {
+            try {
+                segment.channel.force(false);
+                segment.channel.close();
+            } catch (IOException e) {
+                LOGGER.warn("Unable to close transaction log segment {}", segment.path, e);
+            }
+        }
+        segments.clear();
+        current = null;
+    }
+
+    /*
+     * Helper methods
+     */
+
+    protected void open() {
+        try {
+            Files.createDirectories(storage);
+            List<Path> files;
+            try (Stream<Path> stream = Files.list(storage)) {
+                files = stream.filter(p -> p.getFileName().toString().startsWith(SEGMENT_PREFIX))
+                        .sorted()
+                        .collect(Collectors.toList());
+            }
+            for (int i = 0; i < files.size(); i++) {
+                Path path = files.get(i);
+                String name = path.getFileName().toString();
+                long id = Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+                Segment segment = new Segment(id, path,
+                        FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE));
+                segments.add(segment);
+                replay(segment, i == files.size() - 1);
+            }
+            if (segments.isEmpty()) {
+                current = newSegment(0);
+            } else {
+                current = segments.get(segments.size() - 1);
+                current.channel.position(current.size);
+            }
+            appended = segments.stream().mapToLong(s -> s.size).sum();
+            synced.set(appended);
+            release();
+            LOGGER.debug("Transaction log opened with {} segment(s) and {} transaction(s) to recover", segments.size(),
+                    transactions.size());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    protected void replay(Segment segment, boolean last) throws IOException {
+        long size = segment.channel.size();
+        long position = 0;
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        while (position + HEADER_SIZE <= size) {
+            header.clear();
+            readFully(segment.channel, header, position);
+            header.flip();
+            int length = header.getInt();
+            int checksum = header.getInt();
+            if (length <= 0 || position + HEADER_SIZE + length > size) {
+                break;
+            }
+            ByteBuffer payload = ByteBuffer.allocate(length);
+            readFully(segment.channel, payload, position + HEADER_SIZE);
+            if (checksum(payload.array(), length) != checksum) {
+                break;
+            }
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload.array()));
+            byte type = in.readByte();
+            String transactionId = in.readUTF();
+            String processId = in.readUTF();
+            String instanceId = in.readUTF();
+
+            if (type == STORE) {
+                int contentLength = in.readInt();
+                long contentOffset = position + HEADER_SIZE + length - in.available();
+                index(new Entry(transactionId, processId, instanceId, segment, contentOffset, contentLength,
+                        HEADER_SIZE + length));
+            } else if (type == DELETE_ENTRY) {
+                Entry entry = instances.getOrDefault(processId, Collections.emptyMap()).get(instanceId);
+                if (entry != null && entry.transactionId.equals(transactionId)) {
+                    remove(entry);
+                }
+            } else if (type == DELETE_TRANSACTION) {
+                Set<Entry> entries = transactions.remove(transactionId);
+                if (entries != null) {
+                    entries.forEach(this::unindex);
+                }
+            }
+            position += HEADER_SIZE + length;
+        }
+        if (position < size) {
+            if (last) {
+                // torn write of the last record before crash, drop it
+                LOGGER.warn("Truncating transaction log segment {} from {} to {} bytes", segment.path, size, position);
+                segment.channel.truncate(position);
+            } else {
+                LOGGER.error("Transaction log segment {} is corrupted at {}, remaining records are ignored", segment.path,
+                        position);
+            }
+        }
+        segment.size = position;
+    }
+
+    protected Entry append(byte type, String transactionId, String processId, String instanceId, byte[] content) {
+        if (current == null) {
+            throw new IllegalStateException("Transaction log folder is not configured");
+        }
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 + (content == null ? 0 : content.length));
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeInt(0);
+            out.writeInt(0);
+            out.writeByte(type);
+            out.writeUTF(transactionId);
+            out.writeUTF(processId);
+            out.writeUTF(instanceId);
+            int contentOffset = 0;
+            if (content != null) {
+                out.writeInt(content.length);
+                contentOffset = out.size();
+                out.write(content);
+            }
+            out.flush();
+
+            ByteBuffer record = ByteBuffer.wrap(bytes.toByteArray());
+            int length = record.limit() - HEADER_SIZE;
+            record.putInt(0, length);
+            record.putInt(4, checksum(record.array(), HEADER_SIZE, length));
+
+            if (current.size > 0 && current.size + record.limit() > segmentSize) {
+                roll();
+            }
+            long position = current.size;
+            while (record.hasRemaining()) {
+                current.channel.write(record);
+            }
+            current.size += record.limit();
+            appended += record.limit();
+
+            if (content == null) {
+                return null;
+            }
+            return new Entry(transactionId, processId, instanceId, current, position + contentOffset, content.length,
+                    record.limit());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    protected void sync(long position) {
+        if (synced.get() >= position) {
+            return;
+        }
+        synchronized (syncLock) {
+            // another writer might have flushed this record already while waiting for the lock
+            if (synced.get() >= position) {
+                return;
+            }
+            long target;
+            FileChannel channel;
+            synchronized (this) {
+                target = appended;
+                channel = current.channel;
+            }
+            try {
+                channel.force(false);
+            } catch (ClosedChannelException e) {
+                // segment was rolled over in the meantime which flushes it before closing
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            synced.accumulateAndGet(target, Math::max);
+        }
+    }
+
+    protected void roll() throws IOException {
+        // older segments must be durable before writes continue in the new one
+        current.channel.force(false);
+        synced.accumulateAndGet(appended, Math::max);
+        current = newSegment(current.id + 1);
+        if (!compacting) {
+            compact();
+        }
+    }
+
+    protected Segment newSegment(long id) throws IOException {
+        Path path = storage.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, id, SEGMENT_SUFFIX));
+        Segment segment = new Segment(id, path, FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE));
+        segments.add(segment);
+        return segment;
+    }
+
+    /**
+     * Copies live entries of sealed segments that are mostly garbage to the end of the log so the segments can be
+     * removed
+     */
+    protected void compact() throws IOException {
+        compacting = true;
+        try {
+            doCompact();
+        } finally {
+            compacting = false;
+        }
+        release();
+    }
+
+    private void doCompact() throws IOException {
+        List<Entry> live = new ArrayList<>();
+        for (Segment segment : segments) {
+            if (segment != current && segment.live > 0 && segment.liveBytes * 4 < segment.size) {
+                for (Set<Entry> entries : transactions.values()) {
+                    for (Entry entry : entries) {
+                        if (entry.segment == segment) {
+                            live.add(entry);
+                        }
+                    }
+                }
+            }
+        }
+        for (Entry entry : live) {
+            byte[] content = read(entry);
+            remove(entry);
+            index(append(STORE, entry.transactionId, entry.processId, entry.instanceId, content));
+        }
+        if (!live.isEmpty()) {
+            // copies must be durable before segments holding the originals are removed
+            current.channel.force(false);
+            synced.accumulateAndGet(appended, Math::max);
+            LOGGER.debug("Compacted {} transaction log entries", live.size());
+        }
+    }
+
+    /**
+     * Removes oldest sealed segments that do not contain any live entries
+     */
+    protected void release() {
+        while (!segments.isEmpty()) {
+            Segment segment = segments.get(0);
+            if (segment == current || segment.live > 0) {
+                break;
+            }
+            try {
+                segment.channel.close();
+                Files.deleteIfExists(segment.path);
+            } catch (IOException e) {
+                LOGGER.warn("Unable to remove transaction log segment {}", segment.path, e);
+            }
+            segments.remove(0);
+        }
+    }
+
+    protected void index(Entry entry) {
+        Entry existing = instances.computeIfAbsent(entry.processId, k -> new LinkedHashMap<>()).get(entry.instanceId);
+        if (existing != null) {
+            remove(existing);
+        }
+        instances.computeIfAbsent(entry.processId, k -> new LinkedHashMap<>()).put(entry.instanceId, entry);
+        transactions.computeIfAbsent(entry.transactionId, k -> new LinkedHashSet<>()).add(entry);
+        entry.segment.live++;
+        entry.segment.liveBytes += entry.recordSize;
+    }
+
+    protected void remove(Entry entry) {
+        Set<Entry> entries = transactions.get(entry.transactionId);
+        if (entries != null) {
+            entries.remove(entry);
+            if (entries.isEmpty()) {
+                transactions.remove(entry.transactionId);
+            }
+        }
+        unindex(entry);
+    }
+
+    protected void unindex(Entry entry) {
+        Map<String, Entry> processInstances = instances.get(entry.processId);
+        if (processInstances != null && processInstances.remove(entry.instanceId, entry) && processInstances.isEmpty()) {
+            instances.remove(entry.processId);
+        }
+        entry.segment.live--;
+        entry.segment.liveBytes -= entry.recordSize;
+    }
+
+    protected byte[] read(Entry entry) {
+        ByteBuffer content = ByteBuffer.allocate(entry.length);
+        try {
+            readFully(entry.segment.channel, content, entry.offset);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return content.array();
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + buffer.position());
+            if (read < 0) {
+                throw new IOException("Unexpected end of transaction log segment");
+            }
+        }
+    }
+
+    private static int checksum(byte[] data, int length) {
+        return checksum(data, 0, length);
+    }
+
+    private static int checksum(byte[] data, int offset, int length) {
+        CRC32 crc = new CRC32();
+        crc.update(data, offset, length);
+        return (int) crc.getValue();
+    }
+
+    protected static class Segment {
+
+        private final long id;
+        private final Path path;
+        private final FileChannel channel;
+        private long size;
+        private int live;
+        private long liveBytes;
+
+        Segment(long id, Path path, FileChannel channel) {
+            this.id = id;
+            this.path = path;
+            this.channel = channel;
+        }
+    }
+
+    protected static class Entry {
+
+        private final String transactionId;
+        private final String processId;
+        private final String instanceId;
+        private final Segment segment;
+        private final long offset;
+        private final int length;
+        private final int recordSize;
+
+        Entry(String transactionId, String processId, String instanceId, Segment segment, long offset, int length,
+                int recordSize) {
+            this.transactionId = transactionId;
+            this.processId = processId;
+            this.instanceId = instanceId;
+            this.segment = segment;
+            this.offset = offset;
+            this.length = length;
+            this.recordSize = recordSize;
+        }
+    }
+}
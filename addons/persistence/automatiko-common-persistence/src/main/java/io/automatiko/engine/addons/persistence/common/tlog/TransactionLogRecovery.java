@@ -1,7 +1,20 @@
 package io.automatiko.engine.addons.persistence.common.tlog;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 import javax.annotation.Priority;
 import javax.enterprise.context.ApplicationScoped;
@@ -10,6 +23,7 @@ import javax.enterprise.inject.Instance;
 import javax.inject.Inject;
 import javax.interceptor.Interceptor;
 
+import org.eclipse.microprofile.config.inject.ConfigProperty;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -23,23 +37,57 @@ import io.automatiko.engine.workflow.AbstractProcess;
 import io.automatiko.engine.workflow.process.core.WorkflowProcess;
 import io.quarkus.runtime.StartupEvent;
 
+/**
+ * Recovers instances found in transaction log on startup. Instances are partitioned by their id among configured
+ * number of workers so that entries of the same instance are always recovered in order by the same worker while
+ * different instances are recovered in parallel. Every worker has a bounded queue, when full the recovery waits for
+ * workers to catch up so memory used by recovery does not depend on number of instances to recover. Subprocess
+ * instances are recovered only after instances of their parent processes so they never race with their parents.
+ * <br/>
+ * Progress of the recovery is available per process, which allows to report readiness for processes that were
+ * already recovered when recovery is not blocking the startup.
+ */
 @ApplicationScoped
 public class TransactionLogRecovery {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(TransactionLogRecovery.class);
 
+    private static final int PROGRESS_LOG_INTERVAL = 100;
+
     @Inject
     private Application application;
 
     @Inject
     private Instance<Process<?>> processes;
 
+    @Inject
+    @ConfigProperty(name = "quarkus.automatiko.persistence.transaction-log.recovery-threads")
+    Optional<Integer> recoveryThreads;
+
+    @Inject
+    @ConfigProperty(name = "quarkus.automatiko.persistence.transaction-log.recovery-queue-size")
+    Optional<Integer> recoveryQueueSize;
+
+    @Inject
+    @ConfigProperty(name = "quarkus.automatiko.persistence.transaction-log.recovery-blocking")
+    Optional<Boolean> recoveryBlocking;
+
+    private final Map<String, RecoveryProgress> progress = new ConcurrentHashMap<>();
+
+    private volatile boolean scanned;
+
     public void recoverOnStart(@Observes @Priority(Interceptor.Priority.PLATFORM_AFTER) StartupEvent event) {
-        recovery();
+        if (recoveryBlocking.orElse(true)) {
+            recovery();
+        } else {
+            Thread recoveryThread = new Thread(this::recovery, "automatiko-tlog-recovery");
+            recoveryThread.setDaemon(true);
+            recoveryThread.start();
+        }
     }
 
     public void recovery() {
-
+        List<Process<?>> publicProcesses = new ArrayList<>();
         for (Process<?> process : processes) {
 
             if (!WorkflowProcess.PUBLIC_VISIBILITY
@@ -47,64 +95,205 @@ public class TransactionLogRecovery {
                 continue;
             }
 
-            recoverByProcess(process);
+            publicProcesses.add(process);
         }
+        recovery(publicProcesses);
     }
 
-    @SuppressWarnings("unchecked")
-    protected void recoverByProcess(Process<?> process) {
+    /**
+     * Recovers instances of given processes and their subprocesses. Instances are handed over to the workers directly
+     * from the sets returned by transaction log, one level of process hierarchy at a time so that instances of
+     * subprocesses are recovered only after all instances of their parent processes were recovered.
+     *
+     * @param publicProcesses top level processes to recover
+     */
+    void recovery(Collection<Process<?>> publicProcesses) {
+        List<Map<Process<?>, Set<String>>> levels = new ArrayList<>();
+        for (Process<?> process : publicProcesses) {
+            scanByProcess(process, 0, levels);
+        }
+        scanned = true;
+        long total = progress.values().stream().mapToLong(RecoveryProgress::total).sum();
+        if (total == 0) {
+            return;
+        }
+
+        int threads = (int) Math.max(1, Math.min(recoveryThreads.orElse(Runtime.getRuntime().availableProcessors()), total));
+        int queueSize = Math.max(1, recoveryQueueSize.orElse(1000) / threads);
+        LOGGER.info("Recovering {} instance(s) using {} thread(s)", total, threads);
+
+        ThreadPoolExecutor[] workers = new ThreadPoolExecutor[threads];
+        for (int i = 0; i < threads; i++) {
+            String name = "automatiko-tlog-recovery-" + i;
+            workers[i] = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(queueSize),
+                    r -> new Thread(r, name), (r, executor) -> {
+                        // back pressure, wait for the worker to catch up
+                        try {
+                            executor.getQueue().put(r);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                            throw new RejectedExecutionException(e);
+                        }
+                    });
+        }
+        try {
+            for (Map<Process<?>, Set<String>> level : levels) {
+                CountDownLatch levelRecovered = new CountDownLatch(level.values().stream().mapToInt(Set::size).sum());
+                for (Entry<Process<?>, Set<String>> entry : level.entrySet()) {
+                    Process<?> process = entry.getKey();
+                    TransactionLog transactionLog = process.instances().transactionLog();
+                    RecoveryProgress processProgress = progress.get(process.id());
+
+                    for (String instanceInfo : entry.getValue()) {
+                        String[] elements = instanceInfo.split("\\|");
+                        workers[Math.floorMod(elements[1].hashCode(), threads)].execute(new RecoveryTask(process,
+                                transactionLog, elements[0], elements[1], processProgress, levelRecovered));
+                    }
+                }
+                levelRecovered.await();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            for (ThreadPoolExecutor worker : workers) {
+                worker.shutdown();
+            }
+            try {
+                for (ThreadPoolExecutor worker : workers) {
+                    worker.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        LOGGER.info("Transaction recovery completed {}", progress.values());
+    }
+
+    /**
+     * Returns progress of recovery of all processes that required recovery
+     */
+    public Map<String, RecoveryProgress> progress() {
+        return Collections.unmodifiableMap(progress);
+    }
+
+    /**
+     * Determines if all instances of given process found in transaction log were already recovered (or failed to
+     * recover)
+     *
+     * @param processId identifier of the process
+     * @return true if process does not wait for any recovery
+     */
+    public boolean isRecovered(String processId) {
+        if (!scanned) {
+            return false;
+        }
+        RecoveryProgress processProgress = progress.get(processId);
+        return processProgress == null || processProgress.isCompleted();
+    }
+
+    /**
+     * Determines if recovery of all processes has been finished
+     */
+    public boolean isRecovered() {
+        return scanned && progress.values().stream().allMatch(RecoveryProgress::isCompleted);
+    }
+
+    /**
+     * Finds instances of given process (and its subprocesses) that require recovery and registers them at the level
+     * of process hierarchy the process belongs to
+     */
+    protected void scanByProcess(Process<?> process, int depth, List<Map<Process<?>, Set<String>>> levels) {
         TransactionLog transactionLog = process.instances().transactionLog();
         if (transactionLog != null && transactionLog.requiresRecovery()) {
             LOGGER.info("Transaction recovery required for process '{}'", process.id());
             Set<String> recoverableInstances = transactionLog.recoverable(process.id());
             LOGGER.info("Checking process '{}' for recoverable instances, found {}", process.id(), recoverableInstances);
             if (recoverableInstances != null) {
-                for (String instanceInfo : recoverableInstances) {
-                    String[] elements = instanceInfo.split("\\|");
-                    String instanceId = elements[1];
-                    try {
-
-                        boolean recovered = UnitOfWorkExecutor.executeInUnitOfWork(application.unitOfWorkManager(), () -> {
-
-                            Optional<ProcessInstance<?>> found = (Optional<ProcessInstance<?>>) process.instances()
-                                    .findById(instanceId, ProcessInstance.STATE_RECOVERING, ProcessInstanceReadMode.MUTABLE);
-                            if (found.isPresent()) {
-                                ProcessInstance<?> pi = found.get();
-                                if (pi.errors().isPresent()) {
-                                    LOGGER.debug("Recovering instance '{}' from process '{}'", instanceId, process.id());
-                                    pi.errors().get().retrigger();
-                                    LOGGER.info("Successfully recovered instance '{}' from process '{}'", instanceId,
-                                            process.id());
-
-                                    return true;
-                                } else {
-                                    LOGGER.warn(
-                                            "Recovering instance '{}' from process '{}' cannot be completed due to missing node information",
-                                            instanceId, process.id());
-                                }
-                            } else {
-                                LOGGER.warn("Recovering instance '{}' from process '{}' failed at finding process instance",
-                                        instanceId, process.id());
-                            }
-
-                            return false;
-                        });
-
-                        if (recovered) {
-                            transactionLog.complete(elements[0], process.id(), instanceId);
-                        }
-
-                    } catch (Throwable e) {
-                        LOGGER.warn("Recovery of instance '{}' resulted in exception '{}'", instanceId, e.getMessage());
+                if (!recoverableInstances.isEmpty() && !progress.containsKey(process.id())) {
+                    progress.put(process.id(), new RecoveryProgress(process.id(), recoverableInstances.size()));
+                    while (levels.size() <= depth) {
+                        levels.add(new LinkedHashMap<>());
                     }
+                    levels.get(depth).put(process, recoverableInstances);
                 }
                 if (process.subprocesses() != null) {
 
                     for (Process<?> sProcess : process.subprocesses()) {
-                        recoverByProcess(sProcess);
+                        scanByProcess(sProcess, depth + 1, levels);
                     }
                 }
             }
         }
     }
+
+    @SuppressWarnings("unchecked")
+    protected boolean recoverInstance(Process<?> process, String instanceId) {
+        return UnitOfWorkExecutor.executeInUnitOfWork(application.unitOfWorkManager(), () -> {
+
+            Optional<ProcessInstance<?>> found = (Optional<ProcessInstance<?>>) process.instances()
+                    .findById(instanceId, ProcessInstance.STATE_RECOVERING, ProcessInstanceReadMode.MUTABLE);
+            if (found.isPresent()) {
+                ProcessInstance<?> pi = found.get();
+                if (pi.errors().isPresent()) {
+                    LOGGER.debug("Recovering instance '{}' from process '{}'", instanceId, process.id());
+                    pi.errors().get().retrigger();
+                    LOGGER.info("Successfully recovered instance '{}' from process '{}'", instanceId,
+                            process.id());
+
+                    return true;
+                } else {
+                    LOGGER.warn(
+                            "Recovering instance '{}' from process '{}' cannot be completed due to missing node information",
+                            instanceId, process.id());
+                }
+            } else {
+                LOGGER.warn("Recovering instance '{}' from process '{}' failed at finding process instance",
+                        instanceId, process.id());
+            }
+
+            return false;
+        });
+    }
+
+    private class RecoveryTask implements Runnable {
+
+        private final Process<?> process;
+        private final TransactionLog transactionLog;
+        private final String transactionId;
+        private final String instanceId;
+        private final RecoveryProgress processProgress;
+        private final CountDownLatch levelRecovered;
+
+        private RecoveryTask(Process<?> process, TransactionLog transactionLog, String transactionId, String instanceId,
+                RecoveryProgress processProgress, CountDownLatch levelRecovered) {
+            this.process = process;
+            this.transactionLog = transactionLog;
+            this.transactionId = transactionId;
+            this.instanceId = instanceId;
+            this.processProgress = processProgress;
+            this.levelRecovered = levelRecovered;
+        }
+
+        @Override
+        public void run() {
+            long done;
+            try {
+                if (recoverInstance(process, instanceId)) {
+                    transactionLog.complete(transactionId, process.id(), instanceId);
+                    done = processProgress.recordRecovered();
+                } else {
+                    done = processProgress.recordFailed();
+                }
+            } catch (Throwable e) {
+                LOGGER.warn("Recovery of instance '{}' resulted in exception '{}'", instanceId, e.getMessage());
+                done = processProgress.recordFailed();
+            } finally {
+                levelRecovered.countDown();
+            }
+            if (done % PROGRESS_LOG_INTERVAL == 0 || processProgress.isCompleted()) {
+                LOGGER.info("Recovery of process '{}' processed {} of {} instance(s), {} failed", process.id(), done,
+                        processProgress.total(), processProgress.failed());
+            }
+        }
+    }
 }
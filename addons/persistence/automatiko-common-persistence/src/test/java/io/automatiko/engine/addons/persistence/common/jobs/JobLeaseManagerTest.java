@@ -0,0 +1,100 @@
+package io.automatiko.engine.addons.persistence.common.jobs;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+
+public class JobLeaseManagerTest {
+
+    @Test
+    public void testSingleNodeOwnsAllPartitions() {
+        InMemoryLeaseStore store = new InMemoryLeaseStore();
+        JobLeaseManager leases = new JobLeaseManager(store, 30000);
+
+        assertFalse(leases.renew());
+        assertArrayEquals(new int[] { 0, JobLeaseManager.PARTITIONS }, leases.ownedPartitions());
+        assertTrue(leases.ownsUnpartitioned());
+        for (int i = 0; i < 100; i++) {
+            assertTrue(leases.owns(UUID.randomUUID().toString()));
+        }
+    }
+
+    @Test
+    public void testPartitionsSharedAmongNodes() {
+        InMemoryLeaseStore store = new InMemoryLeaseStore();
+        List<JobLeaseManager> nodes = List.of(new JobLeaseManager(store, 30000), new JobLeaseManager(store, 30000),
+                new JobLeaseManager(store, 30000));
+        nodes.forEach(JobLeaseManager::renew);
+        nodes.forEach(JobLeaseManager::renew);
+
+        int unpartitioned = 0;
+        int covered = 0;
+        for (JobLeaseManager node : nodes) {
+            assertEquals(3, node.nodes().size());
+            int[] owned = node.ownedPartitions();
+            covered += owned[1] - owned[0];
+            if (node.ownsUnpartitioned()) {
+                unpartitioned++;
+            }
+        }
+        assertEquals(JobLeaseManager.PARTITIONS, covered);
+        assertEquals(1, unpartitioned);
+
+        for (int i = 0; i < 1000; i++) {
+            String jobId = UUID.randomUUID().toString();
+            int partition = JobLeaseManager.partition(jobId);
+            List<JobLeaseManager> owners = nodes.stream().filter(node -> node.owns(jobId)).collect(Collectors.toList());
+            assertEquals(1, owners.size());
+
+            int[] owned = owners.get(0).ownedPartitions();
+            assertTrue(partition >= owned[0] && partition < owned[1]);
+        }
+    }
+
+    @Test
+    public void testPartitionsTakenOverAfterRelease() {
+        InMemoryLeaseStore store = new InMemoryLeaseStore();
+        JobLeaseManager first = new JobLeaseManager(store, 30000);
+        JobLeaseManager second = new JobLeaseManager(store, 30000);
+        first.renew();
+        second.renew();
+        assertTrue(first.renew());
+        assertEquals(2, first.nodes().size());
+
+        second.release();
+        assertTrue(first.renew());
+        assertArrayEquals(new int[] { 0, JobLeaseManager.PARTITIONS }, first.ownedPartitions());
+        assertFalse(first.renew());
+    }
+
+    private static class InMemoryLeaseStore implements JobLeaseStore {
+
+        private final Map<String, Long> leases = new ConcurrentHashMap<>();
+
+        @Override
+        public void renew(String nodeId, long expiresAt) {
+            leases.put(nodeId, expiresAt);
+        }
+
+        @Override
+        public Collection<String> active(long now) {
+            return leases.entrySet().stream().filter(e -> e.getValue() > now).map(Map.Entry::getKey)
+                    .collect(Collectors.toList());
+        }
+
+        @Override
+        public void release(String nodeId) {
+            leases.remove(nodeId);
+        }
+    }
+}
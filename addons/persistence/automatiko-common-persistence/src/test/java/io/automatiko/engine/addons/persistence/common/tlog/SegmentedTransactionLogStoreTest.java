@@ -0,0 +1,132 @@
+package io.automatiko.engine.addons.persistence.common.tlog;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class SegmentedTransactionLogStoreTest {
+
+    @TempDir
+    Path storage;
+
+    @Test
+    public void testStoreAndDelete() {
+        SegmentedTransactionLogStore store = new SegmentedTransactionLogStore(storage, 1024 * 1024);
+        try {
+            store.store("tx1", "orders", "1", bytes("first"));
+            store.store("tx1", "orders", "2", bytes("second"));
+            store.store("tx2", "orders", "3", bytes("third"));
+
+            assertEquals(Set.of("tx1", "tx2"), store.list());
+            assertEquals(Set.of("tx1|1", "tx1|2", "tx2|3"), store.list("orders"));
+            assertArrayEquals(bytes("second"), store.load("orders", "2"));
+            assertTrue(store.contains("orders", "3"));
+
+            store.delete("tx1");
+            store.delete("tx2", "orders", "3");
+
+            assertTrue(store.list().isEmpty());
+            assertNull(store.load("orders", "1"));
+            assertFalse(store.contains("orders", "3"));
+        } finally {
+            store.close();
+        }
+    }
+
+    @Test
+    public void testRecoverAfterRestart() {
+        SegmentedTransactionLogStore store = new SegmentedTransactionLogStore(storage, 1024 * 1024);
+        store.store("tx1", "orders", "1", bytes("first"));
+        store.store("tx2", "orders", "2", bytes("second"));
+        store.store("tx2", "orders", "2", bytes("second updated"));
+        store.delete("tx1");
+        store.close();
+
+        store = new SegmentedTransactionLogStore(storage, 1024 * 1024);
+        try {
+            assertEquals(Collections.singleton("tx2"), store.list());
+            assertEquals(Collections.singleton("tx2|2"), store.list("orders"));
+            assertArrayEquals(bytes("second updated"), store.load("orders", "2"));
+        } finally {
+            store.close();
+        }
+    }
+
+    @Test
+    public void testTornWriteIsDropped() throws Exception {
+        SegmentedTransactionLogStore store = new SegmentedTransactionLogStore(storage, 1024 * 1024);
+        store.store("tx1", "orders", "1", bytes("first"));
+        store.close();
+
+        // simulate crash in the middle of writing next record
+        Path segment = segments().iterator().next();
+        Files.write(segment, new byte[] { 0, 0, 0, 100, 1, 2 }, StandardOpenOption.APPEND);
+
+        store = new SegmentedTransactionLogStore(storage, 1024 * 1024);
+        try {
+            assertArrayEquals(bytes("first"), store.load("orders", "1"));
+
+            store.store("tx2", "orders", "2", bytes("second"));
+        } finally {
+            store.close();
+        }
+
+        store = new SegmentedTransactionLogStore(storage, 1024 * 1024);
+        try {
+            assertEquals(Set.of("tx1", "tx2"), store.list());
+        } finally {
+            store.close();
+        }
+    }
+
+    @Test
+    public void testSegmentsRemovedAndCompacted() throws Exception {
+        SegmentedTransactionLogStore store = new SegmentedTransactionLogStore(storage, 2048);
+        try {
+            // long running transaction keeps its entry in the first segment
+            store.store("long", "orders", "long", new byte[100]);
+            for (int i = 0; i < 200; i++) {
+                store.store("tx" + i, "orders", "instance" + i, new byte[100]);
+                store.delete("tx" + i);
+            }
+
+            assertEquals(Collections.singleton("long"), store.list());
+            assertTrue(store.segments() <= 2, "Expected segments to be compacted but found " + store.segments());
+            assertEquals(store.segments(), segments().size());
+        } finally {
+            store.close();
+        }
+
+        store = new SegmentedTransactionLogStore(storage, 2048);
+        try {
+            assertEquals(Collections.singleton("long"), store.list());
+            assertArrayEquals(new byte[100], store.load("orders", "long"));
+        } finally {
+            store.close();
+        }
+    }
+
+    private Set<Path> segments() throws Exception {
+        try (Stream<Path> files = Files.list(storage)) {
+            return files.collect(Collectors.toSet());
+        }
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
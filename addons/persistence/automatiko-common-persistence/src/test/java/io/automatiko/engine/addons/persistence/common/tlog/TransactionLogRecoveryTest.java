@@ -0,0 +1,125 @@
+package io.automatiko.engine.addons.persistence.common.tlog;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.junit.jupiter.api.Test;
+
+import io.automatiko.engine.api.uow.TransactionLog;
+import io.automatiko.engine.api.workflow.Process;
+import io.automatiko.engine.api.workflow.ProcessInstances;
+
+@SuppressWarnings({ "rawtypes", "unchecked" })
+public class TransactionLogRecoveryTest {
+
+    @Test
+    public void testParentInstancesRecoveredBeforeSubprocessInstances() {
+        TransactionLog parentLog = transactionLog("parent", 50);
+        TransactionLog childLog = transactionLog("child", 50);
+        Process child = process("child", childLog, Collections.emptyList());
+        Process parent = process("parent", parentLog, List.of(child));
+
+        RecordingRecovery recovery = new RecordingRecovery(Collections.emptySet());
+        recovery.recovery(List.of(parent));
+
+        assertEquals(100, recovery.recovered.size());
+        for (int i = 0; i < 50; i++) {
+            assertTrue(recovery.recovered.get(i).startsWith("parent"), "Parent instances must be recovered first");
+        }
+        for (int i = 50; i < 100; i++) {
+            assertTrue(recovery.recovered.get(i).startsWith("child"));
+        }
+        assertEquals(50, recovery.progress().get("parent").recovered());
+        assertEquals(50, recovery.progress().get("child").recovered());
+        assertTrue(recovery.isRecovered());
+        assertTrue(recovery.isRecovered("parent"));
+        verify(parentLog).complete("tx-parent-0", "parent", "parent-0");
+        verify(childLog).complete("tx-child-49", "child", "child-49");
+    }
+
+    @Test
+    public void testFailedInstancesNotCompleted() {
+        TransactionLog log = transactionLog("orders", 10);
+        Process process = process("orders", log, Collections.emptyList());
+
+        RecordingRecovery recovery = new RecordingRecovery(Set.of("orders-3", "orders-7"));
+        recovery.recovery(List.of(process));
+
+        RecoveryProgress progress = recovery.progress().get("orders");
+        assertEquals(8, progress.recovered());
+        assertEquals(2, progress.failed());
+        assertTrue(progress.isCompleted());
+        verify(log, never()).complete("tx-orders-3", "orders", "orders-3");
+        verify(log).complete("tx-orders-4", "orders", "orders-4");
+    }
+
+    @Test
+    public void testNothingToRecover() {
+        TransactionLog log = mock(TransactionLog.class);
+        Process process = process("orders", log, Collections.emptyList());
+
+        RecordingRecovery recovery = new RecordingRecovery(Collections.emptySet());
+        assertFalse(recovery.isRecovered("orders"));
+        recovery.recovery(List.of(process));
+
+        assertTrue(recovery.progress().isEmpty());
+        assertTrue(recovery.isRecovered("orders"));
+        assertTrue(recovery.recovered.isEmpty());
+    }
+
+    private TransactionLog transactionLog(String processId, int instances) {
+        TransactionLog log = mock(TransactionLog.class);
+        Set<String> recoverable = new LinkedHashSet<>();
+        for (int i = 0; i < instances; i++) {
+            recoverable.add("tx-" + processId + "-" + i + "|" + processId + "-" + i);
+        }
+        when(log.requiresRecovery()).thenReturn(true);
+        when(log.recoverable(processId)).thenReturn(recoverable);
+        return log;
+    }
+
+    private Process process(String id, TransactionLog log, List<Process<?>> subprocesses) {
+        Process process = mock(Process.class);
+        ProcessInstances instances = mock(ProcessInstances.class);
+        when(instances.transactionLog()).thenReturn(log);
+        when(process.id()).thenReturn(id);
+        when(process.instances()).thenReturn(instances);
+        when(process.subprocesses()).thenReturn(subprocesses);
+        return process;
+    }
+
+    private static class RecordingRecovery extends TransactionLogRecovery {
+
+        private final List<String> recovered = new CopyOnWriteArrayList<>();
+
+        private final Set<String> failing;
+
+        RecordingRecovery(Set<String> failing) {
+            this.failing = failing;
+            this.recoveryThreads = Optional.of(4);
+            this.recoveryQueueSize = Optional.of(4);
+            this.recoveryBlocking = Optional.of(true);
+        }
+
+        @Override
+        protected boolean recoverInstance(Process<?> process, String instanceId) {
+            if (failing.contains(instanceId)) {
+                return false;
+            }
+            recovered.add(instanceId);
+            return true;
+        }
+    }
+}
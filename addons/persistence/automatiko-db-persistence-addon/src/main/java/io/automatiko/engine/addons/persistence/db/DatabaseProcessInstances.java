@@ -7,6 +7,7 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashSet;
 import java.util.Optional;
+import java.util.Set;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
@@ -41,6 +42,7 @@ import io.automatiko.engine.workflow.base.core.context.variable.VariableScope;
 import io.automatiko.engine.workflow.base.instance.context.variable.VariableScopeInstance;
 import io.automatiko.engine.workflow.base.instance.impl.ProcessInstanceImpl;
 import io.automatiko.engine.workflow.marshalling.ProcessInstanceMarshaller;
+import io.quarkus.hibernate.orm.panache.PanacheQuery;
 import io.quarkus.hibernate.orm.panache.runtime.JpaOperations;
 
 public class DatabaseProcessInstances implements MutableProcessInstances<ProcessInstanceEntity> {
@@ -135,20 +137,28 @@ public class DatabaseProcessInstances implements MutableProcessInstances<Process
         return null;
     }
 
+    /**
+     * Applies lock to the query itself when locking is requested so entities are locked as they are selected
+     * instead of being locked one by one after loading
+     */
+    private PanacheQuery<?> withLock(PanacheQuery<?> query, ProcessInstanceReadMode mode) {
+        if (mode == ProcessInstanceReadMode.MUTABLE_WITH_LOCK) {
+            return query.withLock(determineLockMode(mode));
+        }
+        return query;
+    }
+
     @Override
     public Collection<? extends ProcessInstance<ProcessInstanceEntity>> findByIdOrTag(ProcessInstanceReadMode mode, int status,
             String sortBy, boolean sortAsc, String... values) {
-        return JpaOperations.INSTANCE
-                .stream(type,
+        return withLock(JpaOperations.INSTANCE
+                .find(type,
                         "state = ?1 and (id in (?2) or (?2) in elements(tags)) order by " + adjustSortKey(sortBy)
                                 + (sortAsc ? " asc" : " desc"),
-                        status, Arrays.asList(values))
+                        status, Arrays.asList(values)), mode)
+                .stream()
                 .map(e -> {
                     try {
-                        if (mode == ProcessInstanceReadMode.MUTABLE_WITH_LOCK) {
-                            JpaOperations.INSTANCE.getEntityManager().lock(e, determineLockMode(mode));
-                        }
-
                         return audit(unmarshallInstance(mode, ((ProcessInstanceEntity) e)));
                     } catch (AccessDeniedException ex) {
                         return null;
@@ -161,14 +171,11 @@ public class DatabaseProcessInstances implements MutableProcessInstances<Process
     @Override
     public Collection<? extends ProcessInstance<ProcessInstanceEntity>> findByIdOrTag(ProcessInstanceReadMode mode,
             int status, String... values) {
-        return JpaOperations.INSTANCE
-                .stream(type, "state = ?1 and (id in (?2) or (?2) in elements(tags)) ", status, Arrays.asList(values))
+        return withLock(JpaOperations.INSTANCE
+                .find(type, "state = ?1 and (id in (?2) or (?2) in elements(tags)) ", status, Arrays.asList(values)), mode)
+                .stream()
                 .map(e -> {
                     try {
-                        if (mode == ProcessInstanceReadMode.MUTABLE_WITH_LOCK) {
-                            JpaOperations.INSTANCE.getEntityManager().lock(e, determineLockMode(mode));
-                        }
-
                         return audit(unmarshallInstance(mode, ((ProcessInstanceEntity) e)));
                     } catch (AccessDeniedException ex) {
                         return null;
@@ -192,13 +199,11 @@ public class DatabaseProcessInstances implements MutableProcessInstances<Process
     @Override
     public Collection<ProcessInstance<ProcessInstanceEntity>> values(ProcessInstanceReadMode mode, int status, int page,
             int size) {
-        return JpaOperations.INSTANCE.find(type, "state = ?1 ", status).page(calculatePage(page, size), size)
+        return withLock(JpaOperations.INSTANCE.find(type, "state = ?1 ", status), mode)
+                .page(calculatePage(page, size), size)
                 .stream()
                 .map(e -> {
                     try {
-                        if (mode == ProcessInstanceReadMode.MUTABLE_WITH_LOCK) {
-                            JpaOperations.INSTANCE.getEntityManager().lock(e, determineLockMode(mode));
-                        }
                         return audit(unmarshallInstance(mode, ((ProcessInstanceEntity) e)));
                     } catch (AccessDeniedException ex) {
                         return null;
@@ -211,15 +216,12 @@ public class DatabaseProcessInstances implements MutableProcessInstances<Process
     @Override
     public Collection<ProcessInstance<ProcessInstanceEntity>> values(ProcessInstanceReadMode mode, int status, int page,
             int size, String sortBy, boolean sortAsc) {
-        return JpaOperations.INSTANCE
-                .find(type, "state = ?1  order by " + adjustSortKey(sortBy) + (sortAsc ? " asc" : " desc"), status)
+        return withLock(JpaOperations.INSTANCE
+                .find(type, "state = ?1  order by " + adjustSortKey(sortBy) + (sortAsc ? " asc" : " desc"), status), mode)
                 .page(calculatePage(page, size), size)
                 .stream()
                 .map(e -> {
                     try {
-                        if (mode == ProcessInstanceReadMode.MUTABLE_WITH_LOCK) {
-                            JpaOperations.INSTANCE.getEntityManager().lock(e, determineLockMode(mode));
-                        }
                         return audit(unmarshallInstance(mode, ((ProcessInstanceEntity) e)));
                     } catch (AccessDeniedException ex) {
                         return null;
@@ -296,7 +298,14 @@ public class DatabaseProcessInstances implements MutableProcessInstances<Process
             entity.expiredAtDate = instance.expiresAtDate();
             entity.state = instance.status();
 
-            entity.tags = new HashSet<>(instance.tags().values());
+            // update tags in place so only added and removed tags are written instead of recreating all of them
+            Set<String> tags = new HashSet<>(instance.tags().values());
+            if (entity.tags == null) {
+                entity.tags = tags;
+            } else {
+                entity.tags.retainAll(tags);
+                entity.tags.addAll(tags);
+            }
             try {
                 JpaOperations.INSTANCE.persist(entity);
             } catch (OptimisticLockException | StaleObjectStateException e) {
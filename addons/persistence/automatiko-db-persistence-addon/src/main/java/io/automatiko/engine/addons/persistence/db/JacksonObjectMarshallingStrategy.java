@@ -20,7 +20,7 @@ public class JacksonObjectMarshallingStrategy
         if (object instanceof Collection) {
             return log(mapper.writeValueAsBytes(new ArrayList<>((Collection<?>) object)));
         }
-        return log(mapper.writeValueAsBytes(object));
+        return super.marshal(context, os, object);
     }
 
 }
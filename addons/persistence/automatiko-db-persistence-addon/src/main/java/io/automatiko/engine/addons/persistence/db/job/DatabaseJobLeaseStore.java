@@ -0,0 +1,48 @@
+package io.automatiko.engine.addons.persistence.db.job;
+
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+
+import io.automatiko.engine.addons.persistence.common.jobs.JobLeaseStore;
+import io.automatiko.engine.addons.persistence.db.model.JobLeaseEntity;
+import io.automatiko.engine.api.uow.UnitOfWorkManager;
+import io.automatiko.engine.services.uow.UnitOfWorkExecutor;
+
+public class DatabaseJobLeaseStore implements JobLeaseStore {
+
+    private static final long EXPIRED_LEASE_RETENTION = TimeUnit.HOURS.toMillis(1);
+
+    private final UnitOfWorkManager unitOfWorkManager;
+
+    public DatabaseJobLeaseStore(UnitOfWorkManager unitOfWorkManager) {
+        this.unitOfWorkManager = unitOfWorkManager;
+    }
+
+    @Override
+    public void renew(String nodeId, long expiresAt) {
+        UnitOfWorkExecutor.executeInUnitOfWork(unitOfWorkManager, () -> {
+            JobLeaseEntity lease = JobLeaseEntity.findById(nodeId);
+            if (lease == null) {
+                JobLeaseEntity.persist(new JobLeaseEntity(nodeId, expiresAt));
+            } else {
+                lease.expiresAt = expiresAt;
+            }
+            // clean up leases of nodes that are long gone
+            JobLeaseEntity.delete("expiresAt < ?1", System.currentTimeMillis() - EXPIRED_LEASE_RETENTION);
+            return null;
+        });
+    }
+
+    @Override
+    public Collection<String> active(long now) {
+        return UnitOfWorkExecutor.executeInUnitOfWork(unitOfWorkManager, () -> JobLeaseEntity.active(now));
+    }
+
+    @Override
+    public void release(String nodeId) {
+        UnitOfWorkExecutor.executeInUnitOfWork(unitOfWorkManager, () -> {
+            JobLeaseEntity.deleteById(nodeId);
+            return null;
+        });
+    }
+}
@@ -26,6 +26,7 @@ import org.eclipse.microprofile.context.ManagedExecutor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import io.automatiko.engine.addons.persistence.common.jobs.JobLeaseManager;
 import io.automatiko.engine.addons.persistence.db.model.JobInstanceEntity;
 import io.automatiko.engine.addons.persistence.db.model.JobInstanceEntity.JobStatus;
 import io.automatiko.engine.api.Application;
@@ -57,8 +58,14 @@ public class DatabaseJobService implements JobsService {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(DatabaseJobService.class);
 
+    private static final long MIN_LOAD_DELAY = 1000;
+
     protected final Long interval;
 
+    protected final int batchSize;
+
+    protected final int maxBacklog;
+
     protected final UnitOfWorkManager unitOfWorkManager;
 
     protected final Auditor auditor;
@@ -67,6 +74,8 @@ public class DatabaseJobService implements JobsService {
 
     protected final ScheduledThreadPoolExecutor loadScheduler;
 
+    protected final JobLeaseManager leases;
+
     protected ManagedExecutor exec;
 
     protected Map<String, Process<? extends Model>> mappedProcesses = new HashMap<>();
@@ -76,9 +85,14 @@ public class DatabaseJobService implements JobsService {
     public DatabaseJobService(ManagedExecutor exec,
             @ConfigProperty(name = "quarkus.automatiko.jobs.db.interval", defaultValue = "10") Long interval,
             @ConfigProperty(name = "quarkus.automatiko.jobs.db.threads", defaultValue = "1") int threads,
+            @ConfigProperty(name = "quarkus.automatiko.jobs.db.batch-size", defaultValue = "500") int batchSize,
+            @ConfigProperty(name = "quarkus.automatiko.jobs.db.max-backlog", defaultValue = "10000") int maxBacklog,
+            @ConfigProperty(name = "quarkus.automatiko.jobs.db.lease-duration", defaultValue = "30") long leaseDuration,
             Processes processes, Application application, Auditor auditor) {
         this.exec = exec;
         this.interval = interval;
+        this.batchSize = batchSize;
+        this.maxBacklog = maxBacklog;
         processes.processIds().forEach(id -> mappedProcesses.put(id, processes.processById(id)));
 
         this.unitOfWorkManager = application.unitOfWorkManager();
@@ -86,45 +100,120 @@ public class DatabaseJobService implements JobsService {
 
         this.scheduler = new ScheduledThreadPoolExecutor(threads, r -> new Thread(r, "automatiko-jobs-executor"));
         this.loadScheduler = new ScheduledThreadPoolExecutor(1, r -> new Thread(r, "automatiko-jobs-loader"));
+        this.leases = new JobLeaseManager(new DatabaseJobLeaseStore(unitOfWorkManager),
+                TimeUnit.SECONDS.toMillis(leaseDuration));
     }
 
     public void start(@Observes @Priority(Interceptor.Priority.LIBRARY_AFTER) StartupEvent event) {
-        loadScheduler.scheduleAtFixedRate(() -> {
-            UnitOfWorkExecutor.executeInUnitOfWork(unitOfWorkManager, () -> {
-                LocalDateTime next = LocalDateTime.now().plus(Duration.ofMinutes(interval));
-                List<JobInstanceEntity> jobs = JobInstanceEntity.loadJobs(next);
-                LOGGER.debug("Loaded jobs ({}) to be executed before {}", jobs.size(), next);
-                for (JobInstanceEntity job : jobs) {
-
-                    if (job.ownerInstanceId == null) {
-                        ProcessJobDescription description = ProcessJobDescription.of(build(job), null, job.ownerDefinitionId);
-                        scheduledJobs.computeIfAbsent(job.id, k -> {
-                            return log(job.id, scheduler.schedule(new StartProcessOnExpiredTimer(job.id,
-                                    job.ownerDefinitionId, -1, description),
-                                    Duration.between(LocalDateTime.now(), job.expirationTime).toMillis(),
-                                    TimeUnit.MILLISECONDS));
-                        });
-                    } else {
-                        ProcessInstanceJobDescription description = ProcessInstanceJobDescription.of(job.id, job.triggerType,
-                                build(job), job.ownerInstanceId, job.ownerDefinitionId, null);
-                        scheduledJobs.computeIfAbsent(job.id, k -> {
-                            return log(job.id, scheduler.schedule(
-                                    new SignalProcessInstanceOnExpiredTimer(job.id, job.triggerType,
-                                            job.ownerDefinitionId,
-                                            job.ownerInstanceId, job.limit, description),
-                                    Duration.between(LocalDateTime.now(), job.expirationTime).toMillis(),
-                                    TimeUnit.MILLISECONDS));
-                        });
+        loadScheduler.scheduleAtFixedRate(this::renewLease, 0, leases.renewInterval(), TimeUnit.MILLISECONDS);
+        scheduleLoad(TimeUnit.SECONDS.toMillis(1));
+    }
+
+    protected void scheduleLoad(long delay) {
+        if (!loadScheduler.isShutdown()) {
+            loadScheduler.schedule(() -> scheduleLoad(loadJobs()), delay, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Renews lease of this node, in case set of active nodes changed jobs are loaded right away to take over
+     * jobs loaded by nodes that are gone
+     */
+    protected void renewLease() {
+        try {
+            if (leases.renew()) {
+                loadJobs();
+            }
+        } catch (Throwable e) {
+            LOGGER.error("Unexpected error while renewing jobs lease", e);
+        }
+    }
+
+    /**
+     * Loads jobs expiring within the configured interval in pages ordered by expiration time, each page in its own
+     * unit of work. Loading stops when the number of jobs scheduled on this node reaches max backlog, in which case
+     * next load is planned based on the expiration of the last loaded job instead of the full interval.
+     * Only jobs of partitions owned by this node are loaded and claimed by it, jobs claimed by nodes without valid
+     * lease are loaded again.
+     *
+     * @return delay in milliseconds of the next load
+     */
+    protected long loadJobs() {
+        long delay = TimeUnit.MINUTES.toMillis(interval);
+        try {
+            LocalDateTime now = LocalDateTime.now();
+            LocalDateTime next = now.plus(Duration.ofMinutes(interval));
+            List<String> nodes = leases.nodes();
+            int[] partitions = leases.ownedPartitions();
+            boolean unpartitioned = leases.ownsUnpartitioned();
+
+            LocalDateTime lastExpiration = null;
+            String lastId = null;
+            int loaded = 0;
+            boolean exhausted = false;
+            while (!exhausted && scheduledJobs.size() < maxBacklog) {
+                int size = Math.min(batchSize, maxBacklog - scheduledJobs.size());
+                LocalDateTime afterExpiration = lastExpiration;
+                String afterId = lastId;
+                List<JobInstanceEntity> jobs = UnitOfWorkExecutor.executeInUnitOfWork(unitOfWorkManager, () -> {
+                    List<JobInstanceEntity> page = JobInstanceEntity.loadJobs(next, nodes, partitions, unpartitioned,
+                            afterExpiration, afterId, size);
+                    for (JobInstanceEntity job : page) {
+                        job.status = JobStatus.LOADED;
+                        job.owner = leases.nodeId();
                     }
+                    return page;
+                });
+                jobs.forEach(this::scheduleLoadedJob);
+
+                loaded += jobs.size();
+                exhausted = jobs.size() < size;
+                if (!jobs.isEmpty()) {
+                    JobInstanceEntity last = jobs.get(jobs.size() - 1);
+                    lastExpiration = last.expirationTime;
+                    lastId = last.id;
                 }
-                return null;
-            });
+            }
+            LOGGER.debug("Loaded jobs ({}) to be executed before {}", loaded, next);
 
-        }, 1, interval * 60, TimeUnit.SECONDS);
+            if (!exhausted) {
+                // backlog is full, shrink the window to what was actually loaded
+                long horizon = lastExpiration == null ? delay / 10 : Duration.between(now, lastExpiration).toMillis() / 2;
+                delay = Math.max(MIN_LOAD_DELAY, Math.min(delay, horizon));
+                LOGGER.debug("Jobs backlog ({}) reached its limit, next load in {} ms", scheduledJobs.size(), delay);
+            }
+        } catch (Throwable e) {
+            LOGGER.error("Unexpected error while loading jobs", e);
+        }
+        return delay;
+    }
+
+    protected void scheduleLoadedJob(JobInstanceEntity job) {
+        if (job.ownerInstanceId == null) {
+            ProcessJobDescription description = ProcessJobDescription.of(build(job), null, job.ownerDefinitionId);
+            scheduledJobs.computeIfAbsent(job.id, k -> {
+                return log(job.id, scheduler.schedule(new StartProcessOnExpiredTimer(job.id,
+                        job.ownerDefinitionId, -1, description),
+                        Duration.between(LocalDateTime.now(), job.expirationTime).toMillis(),
+                        TimeUnit.MILLISECONDS));
+            });
+        } else {
+            ProcessInstanceJobDescription description = ProcessInstanceJobDescription.of(job.id, job.triggerType,
+                    build(job), job.ownerInstanceId, job.ownerDefinitionId, null);
+            scheduledJobs.computeIfAbsent(job.id, k -> {
+                return log(job.id, scheduler.schedule(
+                        new SignalProcessInstanceOnExpiredTimer(job.id, job.triggerType,
+                                job.ownerDefinitionId,
+                                job.ownerInstanceId, job.limit, description),
+                        Duration.between(LocalDateTime.now(), job.expirationTime).toMillis(),
+                        TimeUnit.MILLISECONDS));
+            });
+        }
     }
 
     public void shutdown(@Observes ShutdownEvent event) {
         this.loadScheduler.shutdownNow();
+        this.leases.release();
 
         this.scheduler.shutdown();
     }
@@ -157,6 +246,13 @@ public class DatabaseJobService implements JobsService {
 
             auditor.publish(entry);
         }
+        // all nodes register the same jobs of the processes, only the node owning its partition schedules it
+        boolean scheduleNow = leases.owns(description.id()) && description.expirationTime().get().toLocalDateTime()
+                .isBefore(LocalDateTime.now().plusMinutes(interval));
+        if (scheduleNow) {
+            scheduledJob.status = JobStatus.LOADED;
+            scheduledJob.owner = leases.nodeId();
+        }
         JobInstanceEntity persist = scheduledJob;
         UnitOfWorkExecutor.executeInUnitOfWork(unitOfWorkManager, () -> {
             if (JobInstanceEntity.findById(persist.id) == null) {
@@ -165,7 +261,7 @@ public class DatabaseJobService implements JobsService {
             }
             return null;
         });
-        if (description.expirationTime().get().toLocalDateTime().isBefore(LocalDateTime.now().plusMinutes(interval))) {
+        if (scheduleNow) {
 
             scheduledJobs.computeIfAbsent(description.id(), k -> {
                 return scheduler.schedule(processJobByDescription(description),
@@ -204,9 +300,15 @@ public class DatabaseJobService implements JobsService {
 
             auditor.publish(entry);
         }
+        boolean scheduleNow = description.expirationTime().get().toLocalDateTime()
+                .isBefore(LocalDateTime.now().plusMinutes(interval));
+        if (scheduleNow) {
+            scheduledJob.status = JobStatus.LOADED;
+            scheduledJob.owner = leases.nodeId();
+        }
         JobInstanceEntity.persist(scheduledJob);
 
-        if (description.expirationTime().get().toLocalDateTime().isBefore(LocalDateTime.now().plusMinutes(interval))) {
+        if (scheduleNow) {
 
             scheduledJobs.computeIfAbsent(description.id(), k -> {
                 return log(description.id(), scheduler.schedule(
@@ -282,7 +384,8 @@ public class DatabaseJobService implements JobsService {
 
         job.limit = job.limit - 1;
         job.expirationTime = job.expirationTime.plus(job.repeatInterval, ChronoUnit.MILLIS);
-        job.status = JobStatus.SCHEDULED;
+        job.status = JobStatus.LOADED;
+        job.owner = leases.nodeId();
         JobInstanceEntity.persist(job);
 
         if (job.ownerInstanceId == null) {
@@ -351,7 +454,7 @@ public class DatabaseJobService implements JobsService {
             boolean acquired = UnitOfWorkExecutor.executeInUnitOfWork(unitOfWorkManager, () -> {
 
                 JobInstanceEntity job = JobInstanceEntity.acquireJob(id);
-                if (job == null || job.status != JobStatus.SCHEDULED) {
+                if (job == null || (job.status != JobStatus.SCHEDULED && job.status != JobStatus.LOADED)) {
                     return false;
                 }
                 job.status = JobStatus.TAKEN;
@@ -432,7 +535,7 @@ public class DatabaseJobService implements JobsService {
             boolean acquired = UnitOfWorkExecutor.executeInUnitOfWork(unitOfWorkManager, () -> {
 
                 JobInstanceEntity job = JobInstanceEntity.acquireJob(id);
-                if (job == null) {
+                if (job == null || (job.status != JobStatus.SCHEDULED && job.status != JobStatus.LOADED)) {
                     return false;
                 }
                 job.status = JobStatus.TAKEN;
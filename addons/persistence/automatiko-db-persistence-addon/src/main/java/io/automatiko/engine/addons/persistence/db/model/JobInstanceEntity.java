@@ -6,19 +6,29 @@ import java.util.List;
 import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.Id;
+import javax.persistence.Index;
 import javax.persistence.LockModeType;
 import javax.persistence.Table;
 
+import org.hibernate.LockOptions;
+
+import io.automatiko.engine.addons.persistence.common.jobs.JobLeaseManager;
 import io.quarkus.hibernate.orm.panache.PanacheEntityBase;
+import io.quarkus.hibernate.orm.panache.PanacheQuery;
+import io.quarkus.panache.common.Parameters;
 
 @Entity
-@Table(name = "ATK_JOB_INSTANCE")
+@Table(name = "ATK_JOB_INSTANCE", indexes = {
+        @Index(name = "ATK_JOB_LOAD_IDX", columnList = "ATK_JOB_PARTITION,ATK_JOB_EXPIRATION") })
 public class JobInstanceEntity extends PanacheEntityBase {
 
+    private static final String LOCK_TIMEOUT_HINT = "javax.persistence.lock.timeout";
+
     public enum JobStatus {
         SCHEDULED,
         TAKEN,
-        FAILED
+        FAILED,
+        LOADED
     }
 
     @Id
@@ -49,6 +59,12 @@ public class JobInstanceEntity extends PanacheEntityBase {
     @Column(name = "ATK_EXPRESSION")
     public String expression;
 
+    @Column(name = "ATK_JOB_OWNER")
+    public String owner;
+
+    @Column(name = "ATK_JOB_PARTITION")
+    public Integer jobPartition;
+
     public JobInstanceEntity() {
     }
 
@@ -63,6 +79,7 @@ public class JobInstanceEntity extends PanacheEntityBase {
         this.limit = limit;
         this.repeatInterval = repeatInterval;
         this.expression = expression;
+        this.jobPartition = JobLeaseManager.partition(id);
     }
 
     public JobInstanceEntity(String id, String ownerDefinitionId,
@@ -75,13 +92,49 @@ public class JobInstanceEntity extends PanacheEntityBase {
         this.limit = limit;
         this.repeatInterval = repeatInterval;
         this.expression = expression;
+        this.jobPartition = JobLeaseManager.partition(id);
     }
 
     public static JobInstanceEntity acquireJob(String id) {
         return findById(id, LockModeType.PESSIMISTIC_WRITE);
     }
 
-    public static List<JobInstanceEntity> loadJobs(LocalDateTime expirationBefore) {
-        return list("status = ?1 and expirationTime < ?2", JobStatus.SCHEDULED, expirationBefore);
+    /**
+     * Loads next page of jobs to be scheduled ordered by expiration time and id. Only jobs of given range of
+     * partitions are loaded. Jobs are locked for update and rows already locked by other nodes are skipped so
+     * multiple nodes can load jobs at the same time. Jobs that were loaded by nodes that are no longer active are
+     * included again.
+     *
+     * @param expirationBefore upper bound of the expiration time of the jobs
+     * @param nodes identifiers of active nodes
+     * @param partitions range of partitions (first inclusive, last exclusive) of the jobs to load
+     * @param unpartitioned determines if jobs stored without partition should be loaded as well
+     * @param lastExpiration expiration time of the last job of previous page or null for first page
+     * @param lastId id of the last job of previous page or null for first page
+     * @param size maximum number of jobs to load
+     * @return page of jobs
+     */
+    public static List<JobInstanceEntity> loadJobs(LocalDateTime expirationBefore, List<String> nodes, int[] partitions,
+            boolean unpartitioned, LocalDateTime lastExpiration, String lastId, int size) {
+        Parameters parameters = Parameters.with("scheduled", JobStatus.SCHEDULED)
+                .and("loaded", JobStatus.LOADED)
+                .and("before", expirationBefore)
+                .and("nodes", nodes)
+                .and("fromPartition", partitions[0])
+                .and("toPartition", partitions[1]);
+        String query = "(status = :scheduled or (status = :loaded and (owner is null or owner not in :nodes)))"
+                + " and ((jobPartition >= :fromPartition and jobPartition < :toPartition)"
+                + (unpartitioned ? " or jobPartition is null)" : ")")
+                + " and expirationTime < :before";
+        if (lastExpiration != null) {
+            query += " and (expirationTime > :lastExpiration or (expirationTime = :lastExpiration and id > :lastId))";
+            parameters.and("lastExpiration", lastExpiration).and("lastId", lastId);
+        }
+
+        PanacheQuery<JobInstanceEntity> jobs = find(query + " order by expirationTime, id", parameters);
+        return jobs.withLock(LockModeType.PESSIMISTIC_WRITE)
+                .withHint(LOCK_TIMEOUT_HINT, LockOptions.SKIP_LOCKED)
+                .page(0, size)
+                .list();
     }
 }
@@ -0,0 +1,36 @@
+package io.automatiko.engine.addons.persistence.db.model;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+
+import io.quarkus.hibernate.orm.panache.PanacheEntityBase;
+
+@Entity
+@Table(name = "ATK_JOB_LEASE")
+public class JobLeaseEntity extends PanacheEntityBase {
+
+    @Id
+    @Column(name = "ATK_NODE_ID")
+    public String nodeId;
+
+    @Column(name = "ATK_LEASE_EXPIRATION")
+    public Long expiresAt;
+
+    public JobLeaseEntity() {
+    }
+
+    public JobLeaseEntity(String nodeId, Long expiresAt) {
+        this.nodeId = nodeId;
+        this.expiresAt = expiresAt;
+    }
+
+    public static List<String> active(long now) {
+        List<JobLeaseEntity> leases = list("expiresAt > ?1", now);
+        return leases.stream().map(lease -> lease.nodeId).collect(Collectors.toList());
+    }
+}
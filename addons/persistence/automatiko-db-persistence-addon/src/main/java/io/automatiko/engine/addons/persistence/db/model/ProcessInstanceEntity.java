@@ -4,14 +4,18 @@ import java.util.Date;
 import java.util.HashSet;
 import java.util.Set;
 
+import javax.persistence.CollectionTable;
 import javax.persistence.Column;
 import javax.persistence.ElementCollection;
 import javax.persistence.FetchType;
 import javax.persistence.Id;
+import javax.persistence.Index;
 import javax.persistence.Lob;
 import javax.persistence.MappedSuperclass;
 import javax.persistence.Version;
 
+import org.hibernate.annotations.BatchSize;
+
 import com.fasterxml.jackson.annotation.JsonIgnore;
 
 import io.automatiko.engine.api.Model;
@@ -70,7 +74,10 @@ public abstract class ProcessInstanceEntity extends PanacheEntityBase implements
     @Version
     public Long version;
 
+    // tags of instances returned by a query are loaded in batches instead of one select per instance
     @ElementCollection(fetch = FetchType.EAGER)
+    @BatchSize(size = 50)
+    @CollectionTable(indexes = @Index(columnList = "tags"))
     public Set<String> tags = new HashSet<String>();
 
     @Override
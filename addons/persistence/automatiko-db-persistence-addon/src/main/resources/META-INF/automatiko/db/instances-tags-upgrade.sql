@@ -0,0 +1,5 @@
+-- Indexes tags of workflow instances stored in tables created by earlier versions,
+-- not needed when schema is generated (quarkus.hibernate-orm.database.generation=update).
+-- Run for every workflow with WORKFLOW replaced by the name of its instances table
+-- (e.g. ORDERS, or ORDERS__1 for version 1 of the workflow)
+CREATE INDEX WORKFLOW_TAGS_IDX ON WORKFLOW_TAGS (TAGS);
@@ -0,0 +1,11 @@
+-- Upgrades tables of jobs created before jobs were shared among nodes by leases,
+-- not needed when schema is generated (quarkus.hibernate-orm.database.generation=update)
+ALTER TABLE ATK_JOB_INSTANCE ADD ATK_JOB_OWNER VARCHAR(255);
+ALTER TABLE ATK_JOB_INSTANCE ADD ATK_JOB_PARTITION INTEGER;
+CREATE INDEX ATK_JOB_LOAD_IDX ON ATK_JOB_INSTANCE (ATK_JOB_PARTITION, ATK_JOB_EXPIRATION);
+
+CREATE TABLE ATK_JOB_LEASE (
+    ATK_NODE_ID VARCHAR(255) NOT NULL,
+    ATK_LEASE_EXPIRATION BIGINT,
+    PRIMARY KEY (ATK_NODE_ID)
+);
@@ -2,8 +2,10 @@ package io.automatiko.engine.addons.persistence;
 
 import java.util.Optional;
 
+import io.automatiko.engine.addons.persistence.common.cache.CachingProcessInstances;
 import io.automatiko.engine.addons.persistence.dynamodb.DynamoDBProcessInstances;
 import io.automatiko.engine.api.Model;
+import io.automatiko.engine.api.workflow.MutableProcessInstances;
 import io.automatiko.engine.api.workflow.Process;
 import io.automatiko.engine.api.workflow.ProcessInstancesFactory;
 import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
@@ -39,4 +41,9 @@ public abstract class AbstractProcessInstancesFactory implements ProcessInstance
         return new DynamoDBProcessInstances((Process<? extends Model>) process, dynamodb, codec(),
                 transactionLogStore(), auditor(), createTables, readCapacity, writeCapacity);
     }
+
+    @Override
+    public MutableProcessInstances<?> decorate(Process<?> process, MutableProcessInstances<?> instances) {
+        return CachingProcessInstances.decorate(process, instances);
+    }
 }
@@ -16,6 +16,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import io.automatiko.engine.addons.persistence.common.JacksonObjectMarshallingStrategy;
+import io.automatiko.engine.addons.persistence.common.cache.VersionedProcessInstances;
 import io.automatiko.engine.addons.persistence.common.tlog.TransactionLogImpl;
 import io.automatiko.engine.api.Model;
 import io.automatiko.engine.api.audit.AuditEntry;
@@ -61,7 +62,7 @@ import software.amazon.awssdk.services.dynamodb.model.UpdateItemRequest;
 import software.amazon.awssdk.services.dynamodb.waiters.DynamoDbWaiter;
 
 @SuppressWarnings({ "unchecked", "rawtypes" })
-public class DynamoDBProcessInstances implements MutableProcessInstances {
+public class DynamoDBProcessInstances implements MutableProcessInstances, VersionedProcessInstances {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(DynamoDBProcessInstances.class);
 
@@ -299,6 +300,26 @@ public class DynamoDBProcessInstances implements MutableProcessInstances {
 
     }
 
+    @Override
+    public long storedVersion(String resolvedId) {
+        Map<String, AttributeValue> keyToGet = new HashMap<String, AttributeValue>();
+
+        keyToGet.put(INSTANCE_ID_FIELD, AttributeValue.builder().s(resolvedId).build());
+
+        GetItemRequest request = GetItemRequest.builder()
+                .key(keyToGet)
+                .tableName(tableName)
+                .projectionExpression(VERSION_FIELD)
+                .consistentRead(true)
+                .build();
+
+        Map<String, AttributeValue> returnedItem = dynamodb.getItem(request).item();
+        if (returnedItem == null || !returnedItem.containsKey(VERSION_FIELD)) {
+            return -1;
+        }
+        return Long.parseLong(returnedItem.get(VERSION_FIELD).n());
+    }
+
     @Override
     public void create(String id, ProcessInstance instance) {
         String resolvedId = resolveId(id, instance);
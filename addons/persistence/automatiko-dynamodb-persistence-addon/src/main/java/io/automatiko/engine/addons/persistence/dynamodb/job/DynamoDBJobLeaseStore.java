@@ -0,0 +1,118 @@
+package io.automatiko.engine.addons.persistence.dynamodb.job;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.automatiko.engine.addons.persistence.common.jobs.JobLeaseStore;
+import software.amazon.awssdk.core.waiters.WaiterResponse;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeDefinition;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.CreateTableRequest;
+import software.amazon.awssdk.services.dynamodb.model.CreateTableResponse;
+import software.amazon.awssdk.services.dynamodb.model.DeleteItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.DescribeTableRequest;
+import software.amazon.awssdk.services.dynamodb.model.DescribeTableResponse;
+import software.amazon.awssdk.services.dynamodb.model.DynamoDbException;
+import software.amazon.awssdk.services.dynamodb.model.KeySchemaElement;
+import software.amazon.awssdk.services.dynamodb.model.KeyType;
+import software.amazon.awssdk.services.dynamodb.model.ProvisionedThroughput;
+import software.amazon.awssdk.services.dynamodb.model.PutItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.ResourceInUseException;
+import software.amazon.awssdk.services.dynamodb.model.ScalarAttributeType;
+import software.amazon.awssdk.services.dynamodb.model.ScanRequest;
+import software.amazon.awssdk.services.dynamodb.waiters.DynamoDbWaiter;
+
+public class DynamoDBJobLeaseStore implements JobLeaseStore {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(DynamoDBJobLeaseStore.class);
+
+    private static final String NODE_ID_FIELD = "NodeId";
+    private static final String EXPIRES_AT_FIELD = "ExpiresAt";
+
+    protected final String tableName = "ATK_JOB_LEASES";
+
+    private final DynamoDbClient dynamodb;
+
+    public DynamoDBJobLeaseStore(DynamoDbClient dynamodb) {
+        this.dynamodb = dynamodb;
+    }
+
+    @Override
+    public void renew(String nodeId, long expiresAt) {
+        Map<String, AttributeValue> item = new HashMap<String, AttributeValue>();
+        item.put(NODE_ID_FIELD, AttributeValue.builder().s(nodeId).build());
+        item.put(EXPIRES_AT_FIELD, AttributeValue.builder().n(Long.toString(expiresAt)).build());
+
+        dynamodb.putItem(PutItemRequest.builder().tableName(tableName).item(item).build());
+    }
+
+    @Override
+    public Collection<String> active(long now) {
+        Map<String, AttributeValue> attrValues = new HashMap<String, AttributeValue>();
+        attrValues.put(":value", AttributeValue.builder().n(Long.toString(now)).build());
+        ScanRequest query = ScanRequest.builder().tableName(tableName)
+                .projectionExpression(NODE_ID_FIELD)
+                .filterExpression(EXPIRES_AT_FIELD + " > :value").expressionAttributeValues(attrValues).build();
+
+        List<String> nodes = new ArrayList<>();
+        for (Map<String, AttributeValue> lease : dynamodb.scan(query).items()) {
+            nodes.add(lease.get(NODE_ID_FIELD).s());
+        }
+        return nodes;
+    }
+
+    @Override
+    public void release(String nodeId) {
+        Map<String, AttributeValue> key = new HashMap<String, AttributeValue>();
+        key.put(NODE_ID_FIELD, AttributeValue.builder().s(nodeId).build());
+
+        dynamodb.deleteItem(DeleteItemRequest.builder().tableName(tableName).key(key).build());
+    }
+
+    public void createTable(long readCapacity, long writeCapacity) {
+        DynamoDbWaiter dbWaiter = dynamodb.waiter();
+
+        CreateTableRequest request = CreateTableRequest.builder()
+                .attributeDefinitions(
+                        AttributeDefinition.builder().attributeName(NODE_ID_FIELD).attributeType(ScalarAttributeType.S)
+                                .build())
+                .keySchema(KeySchemaElement.builder()
+                        .attributeName(NODE_ID_FIELD)
+                        .keyType(KeyType.HASH)
+                        .build())
+                .provisionedThroughput(ProvisionedThroughput.builder()
+                        .readCapacityUnits(readCapacity)
+                        .writeCapacityUnits(writeCapacity)
+                        .build())
+                .tableName(tableName)
+                .build();
+
+        try {
+            CreateTableResponse response = dynamodb.createTable(request);
+            if (response.sdkHttpResponse().isSuccessful()) {
+                DescribeTableRequest tableRequest = DescribeTableRequest.builder()
+                        .tableName(tableName)
+                        .build();
+
+                // Wait until the Amazon DynamoDB table is created
+                WaiterResponse<DescribeTableResponse> waiterResponse = dbWaiter.waitUntilTableExists(tableRequest);
+                waiterResponse.matched().response()
+                        .ifPresent(r -> LOGGER.debug("Table for job leases created in DynamoDB {}", r.toString()));
+            } else {
+                throw new RuntimeException("Unable to create table for job leases reason "
+                        + response.sdkHttpResponse().statusText());
+            }
+        } catch (ResourceInUseException e) {
+            // ignore as this means table exists
+        } catch (DynamoDbException e) {
+            throw new RuntimeException("Unable to create table for job leases", e);
+        }
+    }
+}
@@ -29,6 +29,7 @@ import org.eclipse.microprofile.config.inject.ConfigProperty;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import io.automatiko.engine.addons.persistence.common.jobs.JobLeaseManager;
 import io.automatiko.engine.api.Application;
 import io.automatiko.engine.api.Model;
 import io.automatiko.engine.api.audit.AuditEntry;
@@ -96,6 +97,7 @@ public class DynamoDBJobService implements JobsService {
     private static final String FIRE_LIMIT_FIELD = "JobFireLimit";
     private static final String REPEAT_INTERVAL_FIELD = "JobRepeatInterval";
     private static final String EXPRESSION_FIELD = "JobExpression";
+    private static final String PARTITION_FIELD = "JobPartition";
 
     protected final DynamoDbClient dynamodb;
 
@@ -107,6 +109,10 @@ public class DynamoDBJobService implements JobsService {
 
     protected final ScheduledThreadPoolExecutor loadScheduler;
 
+    protected final DynamoDBJobLeaseStore leaseStore;
+
+    protected final JobLeaseManager leases;
+
     protected Map<String, Process<? extends Model>> mappedProcesses = new HashMap<>();
     protected ConcurrentHashMap<String, ScheduledFuture<?>> scheduledJobs = new ConcurrentHashMap<>();
 
@@ -129,7 +135,8 @@ public class DynamoDBJobService implements JobsService {
             @ConfigProperty(name = DynamoDBJobsConfig.READ_CAPACITY_KEY) Optional<Long> readCapacity,
             @ConfigProperty(name = DynamoDBJobsConfig.WRITE_CAPACITY_KEY) Optional<Long> writeCapacity,
             @ConfigProperty(name = DynamoDBJobsConfig.INTERVAL_KEY) Optional<Long> interval,
-            @ConfigProperty(name = DynamoDBJobsConfig.THREADS_KEY) Optional<Integer> threads) {
+            @ConfigProperty(name = DynamoDBJobsConfig.THREADS_KEY) Optional<Integer> threads,
+            @ConfigProperty(name = DynamoDBJobsConfig.LEASE_DURATION_KEY) Optional<Long> leaseDuration) {
         this.dynamodb = dynamodb;
         this.createTables = createTables;
         this.readCapacity = readCapacity;
@@ -139,8 +146,10 @@ public class DynamoDBJobService implements JobsService {
 
         processes.processIds().forEach(id -> mappedProcesses.put(id, processes.processById(id)));
 
+        this.leaseStore = new DynamoDBJobLeaseStore(dynamodb);
         if (this.createTables.orElse(Boolean.TRUE)) {
             createTable();
+            leaseStore.createTable(readCapacity.orElse(Long.valueOf(10)), writeCapacity.orElse(Long.valueOf(10)));
         }
 
         this.unitOfWorkManager = application.unitOfWorkManager();
@@ -150,70 +159,98 @@ public class DynamoDBJobService implements JobsService {
         this.scheduler = new ScheduledThreadPoolExecutor(this.threads.orElse(1),
                 r -> new Thread(r, "automatiko-jobs-executor"));
         this.loadScheduler = new ScheduledThreadPoolExecutor(1, r -> new Thread(r, "automatiko-jobs-loader"));
+        this.leases = new JobLeaseManager(leaseStore, TimeUnit.SECONDS.toMillis(leaseDuration.orElse(30L)));
     }
 
     public void start(@Observes @Priority(Interceptor.Priority.LIBRARY_AFTER) StartupEvent event) {
-        loadScheduler.scheduleAtFixedRate(() -> {
-            try {
-                long next = LocalDateTime.now().plus(Duration.ofMinutes(interval.orElse(10L)))
-                        .atZone(ZoneId.systemDefault()).toInstant()
-                        .toEpochMilli();
-                Map<String, AttributeValue> attrValues = new HashMap<String, AttributeValue>();
-                attrValues.put(":value", AttributeValue.builder().n(Long.toString(next)).build());
-                ScanRequest query = ScanRequest.builder().tableName(tableName)
-                        .projectionExpression(INSTANCE_ID_FIELD + "," + FIRE_AT_FIELD + "," + OWNER_INSTANCE_ID_FIELD + ","
-                                + OWNER_DEF_ID_FIELD + "," +
-                                TRIGGER_TYPE_FIELD + "," + FIRE_LIMIT_FIELD + "," + REPEAT_INTERVAL_FIELD)
-                        .filterExpression(FIRE_AT_FIELD + " < :value").expressionAttributeValues(attrValues).build();
-
-                List<Map<String, AttributeValue>> jobs = dynamodb.scan(query).items();
-                LOGGER.debug("Loaded jobs ({}) to be executed before {}", jobs.size(), next);
-                for (Map<String, AttributeValue> job : jobs) {
-
-                    if (job.get(OWNER_INSTANCE_ID_FIELD) == null) {
-                        ProcessJobDescription description = ProcessJobDescription.of(build(job.get(EXPRESSION_FIELD).s()), null,
-                                job.get(OWNER_DEF_ID_FIELD).s());
-
-                        scheduledJobs.computeIfAbsent(job.get(INSTANCE_ID_FIELD).s(), k -> {
-                            return log(job.get(INSTANCE_ID_FIELD).s(),
-                                    scheduler.schedule(new StartProcessOnExpiredTimer(job.get(INSTANCE_ID_FIELD).s(),
-                                            job.get(OWNER_DEF_ID_FIELD).s(), -1, description),
-                                            Duration.between(LocalDateTime.now(),
-                                                    ZonedDateTime.ofInstant(
-                                                            Instant.ofEpochMilli(Long.parseLong(job.get(FIRE_AT_FIELD).n())),
-                                                            ZoneId.systemDefault()))
-                                                    .toMillis(),
-                                            TimeUnit.MILLISECONDS));
-                        });
-                    } else {
-                        ProcessInstanceJobDescription description = ProcessInstanceJobDescription.of(
-                                job.get(INSTANCE_ID_FIELD).s(),
-                                job.get(TRIGGER_TYPE_FIELD).s(),
-                                build(job.get(EXPRESSION_FIELD).s()), job.get(OWNER_INSTANCE_ID_FIELD).s(),
-                                job.get(OWNER_DEF_ID_FIELD).s(), null);
-
-                        scheduledJobs.computeIfAbsent(job.get(INSTANCE_ID_FIELD).s(), k -> {
-                            return log(job.get(INSTANCE_ID_FIELD).s(), scheduler.schedule(
-                                    new SignalProcessInstanceOnExpiredTimer(job.get(INSTANCE_ID_FIELD).s(),
-                                            job.get(TRIGGER_TYPE_FIELD).s(),
-                                            job.get(OWNER_DEF_ID_FIELD).s(),
-                                            job.get(OWNER_INSTANCE_ID_FIELD).s(),
-                                            Integer.parseInt(job.get(FIRE_LIMIT_FIELD).n()), description),
-                                    Duration.between(LocalDateTime.now(), ZonedDateTime.ofInstant(
-                                            Instant.ofEpochMilli(Long.parseLong(job.get(FIRE_AT_FIELD).n())),
-                                            ZoneId.systemDefault())).toMillis(),
-                                    TimeUnit.MILLISECONDS));
-                        });
-                    }
+        loadScheduler.scheduleAtFixedRate(this::renewLease, 0, leases.renewInterval(), TimeUnit.MILLISECONDS);
+        loadScheduler.scheduleAtFixedRate(this::loadJobs, 1, interval.orElse(10L) * 60, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Renews lease of this node, in case set of active nodes changed jobs are loaded right away to take over
+     * jobs of nodes that are gone
+     */
+    protected void renewLease() {
+        try {
+            if (leases.renew()) {
+                loadJobs();
+            }
+        } catch (Throwable e) {
+            LOGGER.error("Unexpected error while renewing jobs lease", e);
+        }
+    }
+
+    /**
+     * Loads jobs expiring within the configured interval that belong to partitions owned by this node
+     */
+    protected void loadJobs() {
+        try {
+            long next = LocalDateTime.now().plus(Duration.ofMinutes(interval.orElse(10L)))
+                    .atZone(ZoneId.systemDefault()).toInstant()
+                    .toEpochMilli();
+            Map<String, AttributeValue> attrValues = new HashMap<String, AttributeValue>();
+            attrValues.put(":value", AttributeValue.builder().n(Long.toString(next)).build());
+            int[] partitions = leases.ownedPartitions();
+            attrValues.put(":from", AttributeValue.builder().n(Integer.toString(partitions[0])).build());
+            attrValues.put(":to", AttributeValue.builder().n(Integer.toString(partitions[1])).build());
+            String owned = "(" + PARTITION_FIELD + " >= :from AND " + PARTITION_FIELD + " < :to)";
+            if (leases.ownsUnpartitioned()) {
+                owned = "(" + owned + " OR attribute_not_exists(" + PARTITION_FIELD + "))";
+            }
+            ScanRequest query = ScanRequest.builder().tableName(tableName)
+                    .projectionExpression(INSTANCE_ID_FIELD + "," + FIRE_AT_FIELD + "," + OWNER_INSTANCE_ID_FIELD + ","
+                            + OWNER_DEF_ID_FIELD + "," +
+                            TRIGGER_TYPE_FIELD + "," + FIRE_LIMIT_FIELD + "," + REPEAT_INTERVAL_FIELD)
+                    .filterExpression(FIRE_AT_FIELD + " < :value AND " + owned).expressionAttributeValues(attrValues).build();
+
+            List<Map<String, AttributeValue>> jobs = dynamodb.scan(query).items();
+            LOGGER.debug("Loaded jobs ({}) to be executed before {}", jobs.size(), next);
+            for (Map<String, AttributeValue> job : jobs) {
+                if (job.get(OWNER_INSTANCE_ID_FIELD) == null) {
+                    ProcessJobDescription description = ProcessJobDescription.of(build(job.get(EXPRESSION_FIELD).s()), null,
+                            job.get(OWNER_DEF_ID_FIELD).s());
+
+                    scheduledJobs.computeIfAbsent(job.get(INSTANCE_ID_FIELD).s(), k -> {
+                        return log(job.get(INSTANCE_ID_FIELD).s(),
+                                scheduler.schedule(new StartProcessOnExpiredTimer(job.get(INSTANCE_ID_FIELD).s(),
+                                        job.get(OWNER_DEF_ID_FIELD).s(), -1, description),
+                                        Duration.between(LocalDateTime.now(),
+                                                ZonedDateTime.ofInstant(
+                                                        Instant.ofEpochMilli(Long.parseLong(job.get(FIRE_AT_FIELD).n())),
+                                                        ZoneId.systemDefault()))
+                                                .toMillis(),
+                                        TimeUnit.MILLISECONDS));
+                    });
+                } else {
+                    ProcessInstanceJobDescription description = ProcessInstanceJobDescription.of(
+                            job.get(INSTANCE_ID_FIELD).s(),
+                            job.get(TRIGGER_TYPE_FIELD).s(),
+                            build(job.get(EXPRESSION_FIELD).s()), job.get(OWNER_INSTANCE_ID_FIELD).s(),
+                            job.get(OWNER_DEF_ID_FIELD).s(), null);
+
+                    scheduledJobs.computeIfAbsent(job.get(INSTANCE_ID_FIELD).s(), k -> {
+                        return log(job.get(INSTANCE_ID_FIELD).s(), scheduler.schedule(
+                                new SignalProcessInstanceOnExpiredTimer(job.get(INSTANCE_ID_FIELD).s(),
+                                        job.get(TRIGGER_TYPE_FIELD).s(),
+                                        job.get(OWNER_DEF_ID_FIELD).s(),
+                                        job.get(OWNER_INSTANCE_ID_FIELD).s(),
+                                        Integer.parseInt(job.get(FIRE_LIMIT_FIELD).n()), description),
+                                Duration.between(LocalDateTime.now(), ZonedDateTime.ofInstant(
+                                        Instant.ofEpochMilli(Long.parseLong(job.get(FIRE_AT_FIELD).n())),
+                                        ZoneId.systemDefault())).toMillis(),
+                                TimeUnit.MILLISECONDS));
+                    });
                 }
-            } catch (Exception e) {
-                LOGGER.error("Error while loading jobs from dynamodb", e);
             }
-        }, 1, interval.orElse(10L) * 60, TimeUnit.SECONDS);
+        } catch (Exception e) {
+            LOGGER.error("Error while loading jobs from dynamodb", e);
+        }
     }
 
     public void shutdown(@Observes ShutdownEvent event) {
         this.loadScheduler.shutdownNow();
+        this.leases.release();
 
         this.scheduler.shutdown();
     }
@@ -265,13 +302,16 @@ public class DynamoDBJobService implements JobsService {
 
             auditor.publish(entry);
         }
+        itemValues.put(PARTITION_FIELD,
+                AttributeValue.builder().n(Integer.toString(JobLeaseManager.partition(description.id()))).build());
         PutItemRequest request = PutItemRequest.builder()
                 .tableName(tableName)
                 .item(itemValues)
                 .build();
 
         dynamodb.putItem(request);
-        if (description.expirationTime().get().toLocalDateTime()
+        // all nodes register the same jobs of the processes, only the node owning its partition schedules it
+        if (leases.owns(description.id()) && description.expirationTime().get().toLocalDateTime()
                 .isBefore(LocalDateTime.now().plusMinutes(interval.orElse(10L)))) {
 
             scheduledJobs.computeIfAbsent(description.id(), k -> {
@@ -337,6 +377,8 @@ public class DynamoDBJobService implements JobsService {
             auditor.publish(entry);
         }
 
+        itemValues.put(PARTITION_FIELD,
+                AttributeValue.builder().n(Integer.toString(JobLeaseManager.partition(description.id()))).build());
         PutItemRequest request = PutItemRequest.builder()
                 .tableName(tableName)
                 .item(itemValues)
@@ -2,9 +2,18 @@
 package io.automatiko.engine.addons.persistence;
 
 import java.nio.file.Paths;
+import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
 
+import javax.annotation.PreDestroy;
+
+import org.eclipse.microprofile.config.ConfigProvider;
+
+import io.automatiko.engine.addons.persistence.common.cache.CachingProcessInstances;
 import io.automatiko.engine.addons.persistence.filesystem.FileSystemProcessInstances;
+import io.automatiko.engine.api.config.FileSystemPersistenceConfig;
+import io.automatiko.engine.api.workflow.MutableProcessInstances;
 import io.automatiko.engine.api.workflow.Process;
 import io.automatiko.engine.api.workflow.ProcessInstancesFactory;
 
@@ -21,6 +30,8 @@ public abstract class AbstractProcessInstancesFactory implements ProcessInstance
 
     protected Optional<Integer> lockWait = Optional.empty();
 
+    private final List<FileSystemProcessInstances> created = new CopyOnWriteArrayList<>();
+
     public AbstractProcessInstancesFactory() {
     }
 
@@ -32,10 +43,27 @@ public abstract class AbstractProcessInstancesFactory implements ProcessInstance
     }
 
     public FileSystemProcessInstances createProcessInstances(Process<?> process) {
-        return new FileSystemProcessInstances(process, Paths.get(path()), codec(), transactionLogStore(), auditor(),
-                lockTimeout, lockLimit, lockWait);
+        FileSystemProcessInstances instances = new FileSystemProcessInstances(process, Paths.get(path()), codec(),
+                transactionLogStore(), auditor(), lockTimeout, lockLimit, lockWait, deltaSnapshotInterval());
+        created.add(instances);
+        return instances;
+    }
+
+    @PreDestroy
+    public void close() {
+        created.forEach(FileSystemProcessInstances::close);
+        created.clear();
     }
 
     public abstract String path();
 
+    public Optional<Integer> deltaSnapshotInterval() {
+        return ConfigProvider.getConfig().getOptionalValue(FileSystemPersistenceConfig.DELTA_SNAPSHOT_INTERVAL_KEY,
+                Integer.class);
+    }
+
+    @Override
+    public MutableProcessInstances<?> decorate(Process<?> process, MutableProcessInstances<?> instances) {
+        return CachingProcessInstances.decorate(process, instances);
+    }
 }
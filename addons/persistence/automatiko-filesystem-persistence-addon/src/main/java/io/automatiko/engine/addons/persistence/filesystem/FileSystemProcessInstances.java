@@ -3,23 +3,32 @@ package io.automatiko.engine.addons.persistence.filesystem;
 
 import static io.automatiko.engine.api.workflow.ProcessInstanceReadMode.MUTABLE;
 
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.UncheckedIOException;
 import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.Charset;
 import java.nio.file.FileAlreadyExistsException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.nio.file.attribute.UserDefinedFileAttributeView;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
 import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Properties;
@@ -33,10 +42,12 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import io.automatiko.engine.addons.persistence.common.JacksonObjectMarshallingStrategy;
+import io.automatiko.engine.addons.persistence.common.cache.VersionedProcessInstances;
 import io.automatiko.engine.addons.persistence.common.tlog.TransactionLogImpl;
 import io.automatiko.engine.api.audit.AuditEntry;
 import io.automatiko.engine.api.audit.Auditor;
 import io.automatiko.engine.api.auth.AccessDeniedException;
+import io.automatiko.engine.api.runtime.process.WorkflowProcessInstance;
 import io.automatiko.engine.api.uow.TransactionLog;
 import io.automatiko.engine.api.uow.TransactionLogStore;
 import io.automatiko.engine.api.workflow.ConflictingVersionException;
@@ -45,6 +56,7 @@ import io.automatiko.engine.api.workflow.MutableProcessInstances;
 import io.automatiko.engine.api.workflow.Process;
 import io.automatiko.engine.api.workflow.ProcessInstance;
 import io.automatiko.engine.api.workflow.ProcessInstanceDuplicatedException;
+import io.automatiko.engine.api.workflow.ProcessInstancePage;
 import io.automatiko.engine.api.workflow.ProcessInstanceReadMode;
 import io.automatiko.engine.api.workflow.encrypt.StoredDataCodec;
 import io.automatiko.engine.workflow.AbstractProcessInstance;
@@ -52,7 +64,7 @@ import io.automatiko.engine.workflow.audit.BaseAuditEntry;
 import io.automatiko.engine.workflow.marshalling.ProcessInstanceMarshaller;
 
 @SuppressWarnings({ "rawtypes" })
-public class FileSystemProcessInstances implements MutableProcessInstances {
+public class FileSystemProcessInstances implements MutableProcessInstances, VersionedProcessInstances {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(FileSystemProcessInstances.class);
 
@@ -96,13 +108,26 @@ public class FileSystemProcessInstances implements MutableProcessInstances {
 
     private int configuredLockWait = DEFAULT_LOCK_WAIT;
 
+    private int deltaSnapshotInterval = 0;
+
     public FileSystemProcessInstances(Process<?> process, Path storage, StoredDataCodec codec, TransactionLogStore store,
             Auditor auditor, Optional<Integer> lockTimeout, Optional<Integer> lockLimit, Optional<Integer> lockWait) {
+        this(process, storage, codec, store, auditor, lockTimeout, lockLimit, lockWait, Optional.empty());
+    }
+
+    public FileSystemProcessInstances(Process<?> process, Path storage, StoredDataCodec codec, TransactionLogStore store,
+            Auditor auditor, Optional<Integer> lockTimeout, Optional<Integer> lockLimit, Optional<Integer> lockWait,
+            Optional<Integer> deltaSnapshotInterval) {
         this(process, storage, new ProcessInstanceMarshaller(new JacksonObjectMarshallingStrategy(process)), codec, store,
                 auditor);
         this.configuredLockTimeout = lockTimeout.orElse(DEFAULT_LOCK_TIMEOUT);
         this.configuredLockLimit = lockLimit.orElse(DEFAULT_LOCK_LIMIT);
         this.configuredLockWait = lockWait.orElse(DEFAULT_LOCK_WAIT);
+        this.deltaSnapshotInterval = deltaSnapshotInterval.orElse(0);
+        if (this.deltaSnapshotInterval > 0) {
+            // keep track of stored variables so only changed ones are written as delta
+            this.marshaller.addToEnvironment("_track_vars_", true);
+        }
     }
 
     public FileSystemProcessInstances(Process<?> process, Path storage, boolean useCompositeIdForSubprocess,
@@ -136,18 +161,20 @@ public class FileSystemProcessInstances implements MutableProcessInstances {
         this.indexer = new Indexer(this.storage);
     }
 
+    /**
+     * Closes the index of stored instances so it does not need to be rebuilt on next start
+     */
+    public void close() {
+        indexer.close();
+    }
+
     @Override
     public TransactionLog transactionLog() {
         return this.transactionLog;
     }
 
     public Long size() {
-        try (Stream<Path> stream = Files.walk(storage)) {
-            Long count = stream.filter(file -> isValidProcessFile(file)).count();
-            return count;
-        } catch (IOException e) {
-            throw new RuntimeException("Unable to count process instances ", e);
-        }
+        return indexer.size();
     }
 
     @Override
@@ -185,29 +212,28 @@ public class FileSystemProcessInstances implements MutableProcessInstances {
                             : marshaller.unmarshallReadOnlyProcessInstance(content, process)));
         }
 
-        if (Files.notExists(processInstanceStorage)
-                || Integer.parseInt(getMetadata(processInstanceStorage, PI_STATUS)) != status) {
+        if (Files.notExists(processInstanceStorage) || storedStatus(resolvedId, processInstanceStorage) != status) {
             return Optional.empty();
         }
-        byte[] data;
+        WorkflowProcessInstance wpi;
 
         switch (mode) {
             case MUTABLE:
-                data = readBytesFromFile(processInstanceStorage);
+                wpi = readWorkflowProcessInstance(processInstanceStorage);
                 return Optional
-                        .of(marshaller.unmarshallProcessInstance(data, process, getVersionTracker(processInstanceStorage)));
+                        .of(marshaller.createProcessInstance(wpi, process, getVersionTracker(processInstanceStorage)));
             case MUTABLE_WITH_LOCK:
                 acquireLock(resolvedId);
                 try {
-                    data = readBytesFromFile(processInstanceStorage);
+                    wpi = readWorkflowProcessInstance(processInstanceStorage);
                     return Optional
-                            .of(marshaller.unmarshallProcessInstance(data, process, getVersionTracker(processInstanceStorage)));
+                            .of(marshaller.createProcessInstance(wpi, process, getVersionTracker(processInstanceStorage)));
                 } catch (Throwable e) {
                     releaseLock(resolvedId);
                 }
             default:
-                data = readBytesFromFile(processInstanceStorage);
-                return Optional.of(marshaller.unmarshallReadOnlyProcessInstance(data, process));
+                wpi = readWorkflowProcessInstance(processInstanceStorage);
+                return Optional.of(marshaller.createReadOnlyProcessInstance(wpi, process));
 
         }
 
@@ -218,8 +244,7 @@ public class FileSystemProcessInstances implements MutableProcessInstances {
     public Collection findByIdOrTag(ProcessInstanceReadMode mode, int status, String... values) {
         Set collected = new LinkedHashSet<>();
 
-        Set<String> found = indexer.instances(status, 0, Integer.MAX_VALUE).stream()
-                .filter(instance -> instance.match(values)).map(instance -> instance.id()).collect(Collectors.toSet());
+        Collection<String> found = indexer.find(status, values);
 
         for (String id : found) {
             try {
@@ -242,8 +267,12 @@ public class FileSystemProcessInstances implements MutableProcessInstances {
 
         Set collected = new LinkedHashSet<>();
 
+        Collection<String> matched = indexer.find(status, values);
+        if (matched.isEmpty()) {
+            return collected;
+        }
         Collection<String> found = indexer.instances(status, 0, Integer.MAX_VALUE, sortBy, sortAsc).stream()
-                .filter(instance -> instance.match(values)).map(instance -> instance.id()).collect(Collectors.toList());
+                .map(instance -> instance.id()).filter(matched::contains).collect(Collectors.toList());
 
         for (String id : found) {
             try {
@@ -258,9 +287,7 @@ public class FileSystemProcessInstances implements MutableProcessInstances {
 
     @Override
     public Collection locateByIdOrTag(int status, String... values) {
-        Set<String> collected = indexer.instances(status, 0, Integer.MAX_VALUE).stream()
-                .filter(instance -> instance.match(values)).map(instance -> instance.id()).collect(Collectors.toSet());
-        return collected;
+        return new LinkedHashSet<>(indexer.find(status, values));
     }
 
     @SuppressWarnings("unchecked")
@@ -281,6 +308,25 @@ public class FileSystemProcessInstances implements MutableProcessInstances {
         return collected;
     }
 
+    @SuppressWarnings("unchecked")
+    @Override
+    public ProcessInstancePage values(ProcessInstanceReadMode mode, int status, String cursor, int size) {
+        int page = cursor == null ? 1 : Integer.parseInt(cursor);
+        Set collected = new LinkedHashSet<>();
+
+        Collection<IndexedInstance> found = indexer.instances(status, page, size);
+
+        for (IndexedInstance instance : found) {
+            try {
+                findById(instance.id(), status, mode).ifPresent(pi -> collected.add(pi));
+            } catch (AccessDeniedException e) {
+
+            }
+        }
+        // instances not accessible by the caller are filtered out so end of data is determined from the index
+        return new ProcessInstancePage(collected, found.size() < size ? null : String.valueOf(page + 1));
+    }
+
     @SuppressWarnings("unchecked")
     @Override
     public Collection values(ProcessInstanceReadMode mode, int status, int page, int size, String sortBy, boolean sortAsc) {
@@ -307,6 +353,15 @@ public class FileSystemProcessInstances implements MutableProcessInstances {
         return Files.exists(Paths.get(storage.toString(), resolveId(id)));
     }
 
+    @Override
+    public long storedVersion(String resolvedId) {
+        Path processInstanceStorage = Paths.get(storage.toString(), resolvedId);
+        if (Files.notExists(processInstanceStorage)) {
+            return -1;
+        }
+        return getVersionTracker(processInstanceStorage);
+    }
+
     @SuppressWarnings("unchecked")
     @Override
     public void create(String id, ProcessInstance instance) {
@@ -376,6 +431,10 @@ public class FileSystemProcessInstances implements MutableProcessInstances {
 
             Files.deleteIfExists(processInstanceMetadataStorage);
 
+            Files.deleteIfExists(deltaStorage(processInstanceStorage));
+
+            Files.deleteIfExists(snapshotStorage(processInstanceStorage));
+
             indexer.remove(resolvedId, instance);
 
             releaseLock(resolvedId);
@@ -398,9 +457,19 @@ public class FileSystemProcessInstances implements MutableProcessInstances {
 
     protected void storeProcessInstance(String resolvedId, Path processInstanceStorage, ProcessInstance<?> instance) {
         try {
-            byte[] data = codec.encode(marshaller.marhsallProcessInstance(instance));
-            if (data == null) {
-                return;
+            Path deltaStorage = deltaStorage(processInstanceStorage);
+            byte[] data = null;
+            if (useDelta(processInstanceStorage, deltaStorage)) {
+                data = codec.encode(marshaller.marhsallProcessInstanceDelta(instance));
+            }
+            boolean delta = data != null;
+            ByteBuffer snapshot = null;
+            if (!delta) {
+                byte[] content = marshaller.marhsallProcessInstance(instance);
+                if (content == null) {
+                    return;
+                }
+                snapshot = codec.encode(ByteBuffer.wrap(content));
             }
             long storedVersion = getVersionTracker(processInstanceStorage);
             long instanceVersion = ((AbstractProcessInstance<?>) instance).getVersionTracker();
@@ -412,8 +481,14 @@ public class FileSystemProcessInstances implements MutableProcessInstances {
 
             // first store the version of the instance for conflict tracking
             setMetadata(processInstanceStorage, PI_VERSION, String.valueOf(instanceVersion + 1));
-            // then store the instance and other metadata
-            Files.write(processInstanceStorage, data);
+            // then store the instance (or its changes only) and other metadata
+            if (delta) {
+                appendDelta(deltaStorage, data);
+            } else if (Files.exists(deltaStorage)) {
+                replaceDeltas(processInstanceStorage, deltaStorage, snapshot);
+            } else {
+                writeSnapshot(processInstanceStorage, snapshot);
+            }
             setMetadata(processInstanceStorage, PI_DESCRIPTION, instance.description());
             setMetadata(processInstanceStorage, PI_BUSINESS_KEY, instance.businessKey());
             setMetadata(processInstanceStorage, PI_STATUS, String.valueOf(instance.status()));
@@ -456,13 +531,164 @@ public class FileSystemProcessInstances implements MutableProcessInstances {
     }
 
     protected byte[] readBytesFromFile(Path processInstanceStorage) {
-        try {
-            return codec.decode(Files.readAllBytes(processInstanceStorage));
+        try (InputStream in = codec.decode(Files.newInputStream(processInstanceStorage))) {
+            return in.readAllBytes();
         } catch (IOException e) {
             throw new RuntimeException("Unable to read process instance from " + processInstanceStorage, e);
         }
     }
 
+    protected WorkflowProcessInstance readWorkflowProcessInstance(Path processInstanceStorage) {
+        Path deltaStorage = deltaStorage(processInstanceStorage);
+        if (deltaSnapshotInterval > 0) {
+            recoverSnapshot(processInstanceStorage, deltaStorage);
+        }
+        byte[] data = readBytesFromFile(processInstanceStorage);
+
+        return marshaller.unmarshallWorkflowProcessInstance(data, readDeltas(deltaStorage), process);
+    }
+
+    /*
+     * Deltas are appended to hidden file next to the instance file, each prefixed with its length. Complete snapshot
+     * is taken (and deltas removed) every configured number of deltas or once deltas are bigger than the snapshot.
+     * Number of deltas is taken from the delta file itself so it cannot get out of sync with deltas, incomplete
+     * delta (interrupted append) at the end of the file is dropped when deltas are read.
+     */
+
+    protected Path deltaStorage(Path processInstanceStorage) {
+        return processInstanceStorage.resolveSibling("." + processInstanceStorage.getFileName() + ".delta");
+    }
+
+    protected Path snapshotStorage(Path processInstanceStorage) {
+        return processInstanceStorage.resolveSibling("." + processInstanceStorage.getFileName() + ".snapshot");
+    }
+
+    protected boolean useDelta(Path processInstanceStorage, Path deltaStorage) throws IOException {
+        if (deltaSnapshotInterval <= 0 || Files.notExists(processInstanceStorage) || Files.size(processInstanceStorage) == 0) {
+            return false;
+        }
+        if (Files.notExists(deltaStorage)) {
+            return true;
+        }
+        return Files.size(deltaStorage) < Files.size(processInstanceStorage)
+                && countDeltas(deltaStorage) < deltaSnapshotInterval;
+    }
+
+    protected void writeSnapshot(Path file, ByteBuffer snapshot) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (snapshot.hasRemaining()) {
+                channel.write(snapshot);
+            }
+        }
+    }
+
+    /**
+     * Replaces instance file and its deltas with complete snapshot. Snapshot is written to a side file first, deltas
+     * are removed once it is complete and then it is moved in place of the instance file, so an interrupted
+     * replacement is completed or discarded by {@link #recoverSnapshot(Path, Path)}
+     */
+    protected void replaceDeltas(Path processInstanceStorage, Path deltaStorage, ByteBuffer snapshot) throws IOException {
+        Path snapshotStorage = snapshotStorage(processInstanceStorage);
+        writeSnapshot(snapshotStorage, snapshot);
+        Files.delete(deltaStorage);
+        Files.move(snapshotStorage, processInstanceStorage, StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Completes replacement of deltas interrupted after deltas were removed or discards the snapshot when deltas
+     * are still there (instance file and deltas are then consistent)
+     */
+    protected void recoverSnapshot(Path processInstanceStorage, Path deltaStorage) {
+        Path snapshotStorage = snapshotStorage(processInstanceStorage);
+        try {
+            if (Files.notExists(snapshotStorage)) {
+                return;
+            }
+            if (Files.exists(deltaStorage)) {
+                LOGGER.warn("Discarding incomplete snapshot of process instance stored in {}", processInstanceStorage);
+                Files.deleteIfExists(snapshotStorage);
+            } else {
+                LOGGER.warn("Completing interrupted snapshot of process instance stored in {}", processInstanceStorage);
+                Files.move(snapshotStorage, processInstanceStorage, StandardCopyOption.REPLACE_EXISTING,
+                        StandardCopyOption.ATOMIC_MOVE);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    protected void appendDelta(Path deltaStorage, byte[] data) throws IOException {
+        ByteBuffer record = ByteBuffer.allocate(Integer.BYTES + data.length);
+        record.putInt(data.length).put(data).flip();
+        try (FileChannel channel = FileChannel.open(deltaStorage, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            // append right after the last complete delta, dropping incomplete one left by interrupted append
+            long position = scanDeltas(channel)[1];
+            if (channel.size() > position) {
+                LOGGER.warn("Dropping incomplete delta of process instance stored in {}", deltaStorage);
+                channel.truncate(position);
+            }
+            while (record.hasRemaining()) {
+                position += channel.write(record, position);
+            }
+        }
+    }
+
+    protected List<byte[]> readDeltas(Path deltaStorage) {
+        if (Files.notExists(deltaStorage)) {
+            return Collections.emptyList();
+        }
+        List<byte[]> deltas = new ArrayList<>();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(deltaStorage)))) {
+            while (true) {
+                byte[] delta;
+                try {
+                    delta = new byte[in.readInt()];
+                    in.readFully(delta);
+                } catch (EOFException e) {
+                    // end of deltas or incomplete delta of interrupted append that is dropped by next append
+                    break;
+                }
+                deltas.add(codec.decode(delta));
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Unable to read process instance deltas from " + deltaStorage, e);
+        }
+        return deltas;
+    }
+
+    protected int countDeltas(Path deltaStorage) throws IOException {
+        try (FileChannel channel = FileChannel.open(deltaStorage, StandardOpenOption.READ)) {
+            return (int) scanDeltas(channel)[0];
+        }
+    }
+
+    /**
+     * Scans lengths of deltas and returns number of complete deltas and position right after the last of them
+     */
+    protected long[] scanDeltas(FileChannel channel) throws IOException {
+        ByteBuffer length = ByteBuffer.allocate(Integer.BYTES);
+        long size = channel.size();
+        long count = 0;
+        long position = 0;
+        while (position + Integer.BYTES <= size) {
+            length.clear();
+            while (length.hasRemaining()) {
+                channel.read(length, position + length.position());
+            }
+            int deltaLength = length.getInt(0);
+            long next = position + Integer.BYTES + deltaLength;
+            if (deltaLength < 0 || next > size) {
+                break;
+            }
+            position = next;
+            count++;
+        }
+        return new long[] { count, position };
+    }
+
     protected boolean isValidProcessFile(Path file, int status) {
 
         try {
@@ -496,9 +722,7 @@ public class FileSystemProcessInstances implements MutableProcessInstances {
 
             try {
 
-                byte[] reloaded = readBytesFromFile(processInstanceStorage);
-
-                return marshaller.unmarshallWorkflowProcessInstance(reloaded, process);
+                return readWorkflowProcessInstance(processInstanceStorage);
             } catch (RuntimeException e) {
                 LOGGER.error("Unexpected exception thrown when reloading process instance {}", instance.id(), e);
                 return null;
@@ -638,6 +862,16 @@ public class FileSystemProcessInstances implements MutableProcessInstances {
         return imported;
     }
 
+    protected int storedStatus(String resolvedId, Path processInstanceStorage) {
+        Integer indexed = indexer.status(resolvedId);
+        if (indexed != null) {
+            return indexed;
+        }
+        // not yet indexed (e.g. written by other node), fall back to metadata of the file
+        String status = getMetadata(processInstanceStorage, PI_STATUS);
+        return status == null ? -1 : Integer.parseInt(status);
+    }
+
     protected long getVersionTracker(Path file) {
         String version = getMetadata(file, PI_VERSION);
         if (version == null) {
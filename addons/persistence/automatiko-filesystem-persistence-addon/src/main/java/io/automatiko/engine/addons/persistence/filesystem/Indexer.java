@@ -1,18 +1,22 @@
 package io.automatiko.engine.addons.persistence.filesystem;
 
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.UncheckedIOException;
 import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.nio.file.attribute.UserDefinedFileAttributeView;
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
+import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
@@ -20,74 +24,92 @@ import java.util.Collections;
 import java.util.Comparator;
 import java.util.Date;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.NavigableSet;
 import java.util.Properties;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import io.automatiko.engine.api.workflow.ProcessInstance;
 import io.automatiko.engine.api.workflow.ProcessInstances;
-
+import io.automatiko.engine.workflow.AbstractProcessInstance;
+
+/**
+ * Index of process instances stored on file system. All indexed information (id, status, business key, description,
+ * tags, dates and version) is kept in memory and persisted into single memory mapped file as append only log of
+ * changes. Appended changes are left to the operating system to write out, the file is only forced to the disk when
+ * it grows, is compacted into new generation (once most of its records are outdated) and when the index is closed.
+ * Closing the index appends a close record that marks the file as complete.
+ * <br/>
+ * Counts, paging and lookups by id, business key or tags are served from memory without accessing individual process
+ * instance files. In case the index file does not exist, cannot be read or was not closed (e.g. after a crash, when
+ * changes written after the last force might have been lost) it is rebuilt from metadata of the process instance files.
+ */
 public class Indexer {
 
-    private Path indexFolder;
+    private static final Logger LOGGER = LoggerFactory.getLogger(Indexer.class);
 
-    private Set<SortableItem> activeInstance = ConcurrentHashMap.newKeySet();
-    private Set<SortableItem> completedInstance = ConcurrentHashMap.newKeySet();
-    private Set<SortableItem> abortedInstance = ConcurrentHashMap.newKeySet();
-    private Set<SortableItem> inErrorInstance = ConcurrentHashMap.newKeySet();
+    private static final String INDEX_FILE_PREFIX = "index-";
+    private static final String INDEX_FILE_SUFFIX = ".log";
 
-    public Indexer(Path persistenceFolder) {
+    private static final byte PUT = 1;
+    private static final byte REMOVE = 2;
+    private static final byte CLOSE = 3;
 
-        this.indexFolder = Paths.get(persistenceFolder.toString(), ".index");
-        try {
-            boolean indexExists = Files.exists(indexFolder);
-            Path activeDir = Files
-                    .createDirectories(Paths.get(indexFolder.toString(), String.valueOf(ProcessInstance.STATE_ACTIVE)));
-            Path inErrorDir = Files
-                    .createDirectories(Paths.get(indexFolder.toString(), String.valueOf(ProcessInstance.STATE_ERROR)));
-            Path abortedDir = Files
-                    .createDirectories(Paths.get(indexFolder.toString(), String.valueOf(ProcessInstance.STATE_ABORTED)));
-            Path completedDir = Files
-                    .createDirectories(Paths.get(indexFolder.toString(), String.valueOf(ProcessInstance.STATE_COMPLETED)));
-
-            if (!indexExists) {
-                reindex();
-            }
+    // record length and checksum
+    private static final int HEADER_SIZE = 8;
 
-            // load sortable collections
-            Files.list(activeDir).filter(path -> isValidFile(path)).forEach(path -> {
-                SortableItem sortableItem = buildSortableItem(persistenceFolder, path);
-                if (sortableItem != null) {
-                    activeInstance.add(sortableItem);
-                }
+    private static final int INITIAL_MAPPED_SIZE = 1024 * 1024;
+    private static final long MIN_COMPACTION_SIZE = 1024 * 1024;
 
-            });
-            Files.list(inErrorDir).filter(path -> isValidFile(path)).forEach(path -> {
-                SortableItem sortableItem = buildSortableItem(persistenceFolder, path);
-                if (sortableItem != null) {
-                    inErrorInstance.add(sortableItem);
-                }
+    private static final Comparator<IndexEntry> BY_ID = Comparator.comparing(entry -> entry.id);
 
-            });
-            Files.list(abortedDir).filter(path -> isValidFile(path)).forEach(path -> {
-                SortableItem sortableItem = buildSortableItem(persistenceFolder, path);
-                if (sortableItem != null) {
-                    abortedInstance.add(sortableItem);
-                }
+    private final Path persistenceFolder;
 
-            });
-            Files.list(completedDir).filter(path -> isValidFile(path)).forEach(path -> {
-                SortableItem sortableItem = buildSortableItem(persistenceFolder, path);
-                if (sortableItem != null) {
-                    completedInstance.add(sortableItem);
-                }
+    private final Path indexFolder;
 
-            });
+    private final Map<String, IndexEntry> entries = new ConcurrentHashMap<>();
+    private final Map<Integer, NavigableSet<IndexEntry>> byStatus = new ConcurrentHashMap<>();
+    private final Map<Integer, AtomicLong> counts = new ConcurrentHashMap<>();
+    private final Map<String, Set<String>> byTag = new ConcurrentHashMap<>();
+
+    private long generation;
+    private FileChannel channel;
+    private MappedByteBuffer mapped;
+    private long liveBytes;
+
+    public Indexer(Path persistenceFolder) {
+        this.persistenceFolder = persistenceFolder;
+        this.indexFolder = Paths.get(persistenceFolder.toString(), ".index");
+        try {
+            Files.createDirectories(indexFolder);
+
+            List<Path> indexFiles = indexFiles();
+            boolean loaded = false;
+            if (!indexFiles.isEmpty()) {
+                Path latest = indexFiles.get(indexFiles.size() - 1);
+                generation = generation(latest);
+                loaded = load(latest);
+                // older generations are left behind by compaction that could not remove them
+                for (Path older : indexFiles.subList(0, indexFiles.size() - 1)) {
+                    Files.deleteIfExists(older);
+                }
+            }
+            if (!loaded) {
+                reindex();
+            }
         } catch (IOException e) {
             throw new UncheckedIOException(e);
         }
@@ -98,149 +120,473 @@ public class Indexer {
     }
 
     public void index(String id, int status, String businessKey, Collection<String> tags, ProcessInstance<?> instance) {
-        Path currentStatePath = Paths.get(indexFolder.toString(), String.valueOf(status), id);
+        IndexEntry entry;
+        if (instance != null) {
+            entry = new IndexEntry(id, status, businessKey, instance.description(), time(instance.startDate()),
+                    time(instance.endDate()), ((AbstractProcessInstance<?>) instance).getVersionTracker() + 1, tags);
+        } else {
+            entry = new IndexEntry(id, status, businessKey, null, -1, -1, -1, tags);
+        }
+        synchronized (this) {
+            append(entry);
+            put(entry);
+            compactIfNeeded();
+        }
+    }
 
-        Set<String> info = new LinkedHashSet<>();
-        info.add(id);
-        if (businessKey != null) {
-            info.add(businessKey);
+    public void remove(String id, ProcessInstance<?> instance) {
+        synchronized (this) {
+            if (!entries.containsKey(id)) {
+                return;
+            }
+            append(removal(id));
+            removeEntry(id);
+            compactIfNeeded();
         }
-        info.addAll(tags);
-        byte[] data = info.stream().map(value -> value + System.lineSeparator()).collect(Collectors.joining())
-                .getBytes(StandardCharsets.UTF_8);
-        try {
+    }
 
-            Files.deleteIfExists(
-                    Paths.get(indexFolder.toString(), String.valueOf(ProcessInstance.STATE_ACTIVE), id));
-            Files.deleteIfExists(Paths.get(indexFolder.toString(), String.valueOf(ProcessInstance.STATE_ERROR), id));
+    /**
+     * Returns number of indexed instances regardless of their status
+     */
+    public long size() {
+        return entries.size();
+    }
 
-            Files.write(currentStatePath, data);
+    /**
+     * Returns number of indexed instances in given status
+     */
+    public long count(int status) {
+        AtomicLong count = counts.get(status);
+        return count == null ? 0 : count.get();
+    }
 
-        } catch (IOException e) {
-            e.printStackTrace();
-        }
-        if (instance != null) {
-            // update sortable instances collections
-            SortableItem sortableInstance = new SortableItem(id, instance.description(), businessKey, instance.startDate(),
-                    instance.endDate(), tags);
-            // always remove from in error
-            inErrorInstance.remove(sortableInstance);
-            switch (status) {
-                case ProcessInstance.STATE_ACTIVE:
-                    activeInstance.remove(sortableInstance);
-                    activeInstance.add(sortableInstance);
-                    break;
-                case ProcessInstance.STATE_COMPLETED:
-                    activeInstance.remove(sortableInstance);
-                    completedInstance.add(sortableInstance);
-                    break;
-                case ProcessInstance.STATE_ABORTED:
-                    activeInstance.remove(sortableInstance);
-                    abortedInstance.add(sortableInstance);
-                    break;
-                case ProcessInstance.STATE_ERROR:
-                    activeInstance.remove(sortableInstance);
-                    inErrorInstance.add(sortableInstance);
-                    break;
-                default:
-                    break;
+    /**
+     * Returns indexed status of instance with given id or null if the instance is not indexed
+     */
+    public Integer status(String id) {
+        IndexEntry entry = entries.get(id);
+        return entry == null ? null : entry.status;
+    }
+
+    /**
+     * Finds ids of instances in given status that match any of given values by id, business key or tag
+     */
+    public Collection<String> find(int status, String... values) {
+        Set<String> found = new LinkedHashSet<>();
+        for (String value : values) {
+            IndexEntry entry = entries.get(value);
+            if (entry != null && entry.status == status) {
+                found.add(entry.id);
+            }
+            for (String id : byTag.getOrDefault(value, Collections.emptySet())) {
+                entry = entries.get(id);
+                if (entry != null && entry.status == status) {
+                    found.add(id);
+                }
             }
         }
+        return found;
     }
 
-    public void remove(String id, ProcessInstance<?> instance) {
-        try {
-            Files.deleteIfExists(
-                    Paths.get(indexFolder.toString(), String.valueOf(ProcessInstance.STATE_ACTIVE), id));
-            Files.deleteIfExists(Paths.get(indexFolder.toString(), String.valueOf(ProcessInstance.STATE_ERROR), id));
-        } catch (IOException e) {
-            e.printStackTrace();
+    public Collection<IndexedInstance> instances(int status, int page, int pageSize) {
+        return byStatus.getOrDefault(status, Collections.emptyNavigableSet()).stream()
+                .skip(calculatePage(page, pageSize)).limit(pageSize)
+                .map(IndexEntry::toIndexedInstance).collect(Collectors.toList());
+    }
+
+    public Collection<IndexedInstance> instances(int status, int page, int pageSize, String sortBy, boolean sortAsc) {
+        NavigableSet<IndexEntry> instances = byStatus.getOrDefault(status, Collections.emptyNavigableSet());
+        Stream<IndexEntry> sorted;
+        if (ProcessInstances.ID_SORT_KEY.equals(sortBy)) {
+            // status sets are already sorted by id
+            sorted = (sortAsc ? instances : instances.descendingSet()).stream();
+        } else {
+            sorted = instances.stream().sorted(determineComparator(sortBy, sortAsc));
         }
+        return sorted.skip(calculatePage(page, pageSize)).limit(pageSize)
+                .map(IndexEntry::toIndexedInstance).collect(Collectors.toList());
     }
 
-    public Collection<IndexedInstance> instances(int status, int page, int pageSize) {
-        Path currentStatePath = Paths.get(indexFolder.toString(), String.valueOf(status));
+    /**
+     * Marks the index file as closed, forces written changes to the disk and releases the file
+     */
+    public synchronized void close() {
+        if (mapped != null) {
+            append(closing());
+        }
+        release();
+    }
 
+    protected void release() {
         try {
-            return Files.walk(currentStatePath, 1).skip(calculatePage(page, pageSize)).limit(pageSize)
-                    .filter(file -> !Files.isDirectory(file))
-                    .map(file -> new IndexedInstance(file.toFile().getName(), lines(file))).collect(Collectors.toList());
+            if (mapped != null) {
+                mapped.force();
+            }
+            if (channel != null) {
+                channel.close();
+            }
         } catch (IOException e) {
-            e.printStackTrace();
-            return Collections.emptySet();
+            LOGGER.warn("Unable to close index file", e);
+        }
+        mapped = null;
+        channel = null;
+    }
 
+    protected int calculatePage(int page, int size) {
+        if (page <= 1) {
+            return 0;
         }
+
+        return (page - 1) * size;
     }
 
-    public Collection<IndexedInstance> instances(int status, int page, int pageSize, String sortBy, boolean sortAsc) {
+    /*
+     * Index file handling
+     */
 
-        List<SortableItem> instances;
+    protected List<Path> indexFiles() throws IOException {
+        try (Stream<Path> files = Files.list(indexFolder)) {
+            return files.filter(file -> {
+                String name = file.getFileName().toString();
+                return name.startsWith(INDEX_FILE_PREFIX) && name.endsWith(INDEX_FILE_SUFFIX);
+            }).sorted(Comparator.comparingLong(this::generation)).collect(Collectors.toList());
+        }
+    }
 
-        switch (status) {
-            case ProcessInstance.STATE_ABORTED:
-                instances = new ArrayList<>(abortedInstance);
-                break;
-            case ProcessInstance.STATE_COMPLETED:
-                instances = new ArrayList<>(completedInstance);
-                break;
-            case ProcessInstance.STATE_ERROR:
-                instances = new ArrayList<>(inErrorInstance);
-                break;
-            default:
-                instances = new ArrayList<>(activeInstance);
-                break;
+    protected long generation(Path file) {
+        String name = file.getFileName().toString();
+        return Long.parseLong(name.substring(INDEX_FILE_PREFIX.length(), name.length() - INDEX_FILE_SUFFIX.length()));
+    }
+
+    protected Path indexFile(long generation) {
+        return indexFolder.resolve(INDEX_FILE_PREFIX + generation + INDEX_FILE_SUFFIX);
+    }
+
+    protected boolean load(Path file) throws IOException {
+        open(file, Math.max(Files.size(file), INITIAL_MAPPED_SIZE));
+        try {
+            int closedAt = -1;
+            while (mapped.remaining() >= HEADER_SIZE) {
+                int start = mapped.position();
+                int length = mapped.getInt();
+                int checksum = mapped.getInt();
+                if (length == 0) {
+                    // end of written records
+                    mapped.position(start);
+                    break;
+                }
+                if (length < 0 || length > mapped.remaining()) {
+                    throw new IllegalStateException("Invalid record length " + length + " at " + start);
+                }
+                byte[] payload = new byte[length];
+                mapped.get(payload);
+                if (checksum(payload) != checksum) {
+                    throw new IllegalStateException("Invalid record checksum at " + start);
+                }
+                ByteBuffer record = ByteBuffer.wrap(payload);
+                byte type = record.get();
+                closedAt = -1;
+                if (type == PUT) {
+                    put(read(record));
+                } else if (type == REMOVE) {
+                    removeEntry(readString(record));
+                } else if (type == CLOSE) {
+                    closedAt = start;
+                }
+            }
+            if (closedAt < 0) {
+                throw new IllegalStateException("file was not closed");
+            }
+            // overwrite the close record so the file is not considered complete until it is closed again
+            int end = mapped.position();
+            for (int i = closedAt; i < end; i++) {
+                mapped.put(i, (byte) 0);
+            }
+            mapped.position(closedAt);
+            mapped.force();
+            return true;
+        } catch (RuntimeException e) {
+            LOGGER.warn("Index file {} cannot be used ({}), rebuilding index from stored instances", file, e.getMessage());
+            release();
+            entries.clear();
+            byStatus.clear();
+            counts.clear();
+            byTag.clear();
+            liveBytes = 0;
+            return false;
         }
+    }
 
-        instances.sort(determineComparator(sortBy, sortAsc));
+    protected void open(Path file, long size) throws IOException {
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        mapped = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+    }
 
-        return instances.stream().skip(calculatePage(page, pageSize)).limit(pageSize)
-                .map(file -> new IndexedInstance(file.id, file.tags)).collect(Collectors.toList());
+    protected void append(byte[] record) {
+        if (mapped.remaining() < record.length + HEADER_SIZE) {
+            grow(record.length);
+        }
+        mapped.put(record);
+    }
 
+    protected void append(IndexEntry entry) {
+        append(record(entry));
     }
 
-    protected Collection<String> lines(Path file) {
+    protected void grow(int needed) {
         try {
-            return Files.readAllLines(file);
+            int position = mapped.position();
+            long size = Math.max((long) mapped.capacity() * 2, (long) position + needed + HEADER_SIZE);
+            if (size > Integer.MAX_VALUE) {
+                throw new IllegalStateException("Index file exceeded maximum size");
+            }
+            mapped.force();
+            mapped = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            mapped.position(position);
+            // mapped buffer does not flush metadata of the file, make the new size durable
+            channel.force(true);
         } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
 
-            e.printStackTrace();
+    /**
+     * Writes all live entries into new generation of the index file once outdated records take more than half of
+     * the current one
+     */
+    protected void compactIfNeeded() {
+        int position = mapped.position();
+        if (position < MIN_COMPACTION_SIZE || liveBytes * 2 > position) {
+            return;
+        }
+        Path previous = indexFile(generation);
+        release();
+        try {
+            writeGeneration(generation + 1);
+            try {
+                Files.deleteIfExists(previous);
+            } catch (IOException e) {
+                // will be removed on next start
+                LOGGER.debug("Unable to remove compacted index file {}", previous, e);
+            }
+            LOGGER.debug("Index compacted from {} to {} bytes", position, liveBytes);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    protected void writeGeneration(long newGeneration) throws IOException {
+        List<byte[]> records = new ArrayList<>(entries.size());
+        long size = 0;
+        for (IndexEntry entry : entries.values()) {
+            byte[] record = record(entry);
+            records.add(record);
+            size += record.length;
+        }
+        Path file = indexFile(newGeneration);
+        Files.deleteIfExists(file);
+        open(file, Math.max(size * 2, INITIAL_MAPPED_SIZE));
+        for (byte[] record : records) {
+            mapped.put(record);
+        }
+        mapped.force();
+        channel.force(true);
+        generation = newGeneration;
+    }
 
-            return Collections.emptySet();
+    private void reindex() throws IOException {
+        try (Stream<Path> files = Files.list(persistenceFolder)) {
+            files.filter(file -> isValidFile(file)).forEach(file -> {
+                IndexEntry entry = buildEntry(file);
+                if (entry != null) {
+                    put(entry);
+                }
+            });
+        }
+        writeGeneration(generation + 1);
+        // remove index file that could not be read
+        for (Path file : indexFiles()) {
+            if (generation(file) != generation) {
+                Files.deleteIfExists(file);
+            }
+        }
+        // remove per status folders used by previous versions of the index
+        for (int status : new int[] { ProcessInstance.STATE_ACTIVE, ProcessInstance.STATE_ERROR,
+                ProcessInstance.STATE_ABORTED, ProcessInstance.STATE_COMPLETED }) {
+            Path legacy = Paths.get(indexFolder.toString(), String.valueOf(status));
+            if (Files.isDirectory(legacy)) {
+                try (Stream<Path> files = Files.walk(legacy)) {
+                    files.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+                }
+            }
         }
+        LOGGER.debug("Index of {} rebuilt with {} instances", persistenceFolder, entries.size());
     }
 
-    protected int calculatePage(int page, int size) {
-        if (page <= 1) {
-            return 0;
+    /*
+     * In memory structures
+     */
+
+    private void put(IndexEntry entry) {
+        IndexEntry existing = entries.put(entry.id, entry);
+        if (existing != null) {
+            unlink(existing);
         }
+        byStatus.computeIfAbsent(entry.status, k -> new ConcurrentSkipListSet<>(BY_ID)).add(entry);
+        counts.computeIfAbsent(entry.status, k -> new AtomicLong()).incrementAndGet();
+        if (entry.businessKey != null) {
+            byTag.computeIfAbsent(entry.businessKey, k -> ConcurrentHashMap.newKeySet()).add(entry.id);
+        }
+        for (String tag : entry.tags) {
+            byTag.computeIfAbsent(tag, k -> ConcurrentHashMap.newKeySet()).add(entry.id);
+        }
+        liveBytes += entry.recordSize;
+    }
 
-        return (page - 1) * size;
+    private void removeEntry(String id) {
+        IndexEntry existing = entries.remove(id);
+        if (existing != null) {
+            unlink(existing);
+        }
     }
 
-    private void reindex() {
-        Path folder = this.indexFolder.getParent();
-        try {
-            Files.walk(folder, 2).filter(file -> isValidFile(file)).forEach(file -> {
+    private void unlink(IndexEntry entry) {
+        NavigableSet<IndexEntry> statusEntries = byStatus.get(entry.status);
+        if (statusEntries != null) {
+            statusEntries.remove(entry);
+        }
+        AtomicLong count = counts.get(entry.status);
+        if (count != null) {
+            count.decrementAndGet();
+        }
+        if (entry.businessKey != null) {
+            untag(entry.businessKey, entry.id);
+        }
+        for (String tag : entry.tags) {
+            untag(tag, entry.id);
+        }
+        liveBytes -= entry.recordSize;
+    }
 
-                String id = file.toFile().getName();
-                int status = Integer
-                        .valueOf(getMetadata(file, FileSystemProcessInstances.PI_STATUS));
-                Collection<String> piTags = new HashSet<>();
-                String tags = getMetadata(file, FileSystemProcessInstances.PI_TAGS);
+    private void untag(String tag, String id) {
+        byTag.computeIfPresent(tag, (k, ids) -> {
+            ids.remove(id);
+            return ids.isEmpty() ? null : ids;
+        });
+    }
 
-                if (tags != null) {
-                    piTags.addAll(Arrays.asList(tags.split(",")));
-                }
+    /*
+     * Record serialization
+     */
 
-                index(id, status, null, piTags, null);
+    private byte[] record(IndexEntry entry) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeInt(0);
+            out.writeInt(0);
+            out.writeByte(PUT);
+            writeString(out, entry.id);
+            out.writeInt(entry.status);
+            writeString(out, entry.businessKey);
+            writeString(out, entry.description);
+            out.writeLong(entry.startDate);
+            out.writeLong(entry.endDate);
+            out.writeLong(entry.version);
+            out.writeInt(entry.tags.size());
+            for (String tag : entry.tags) {
+                writeString(out, tag);
+            }
+            return seal(bytes.toByteArray(), entry);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
 
-            });
+    private byte[] removal(String id) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeInt(0);
+            out.writeInt(0);
+            out.writeByte(REMOVE);
+            writeString(out, id);
+            return seal(bytes.toByteArray(), null);
         } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
 
-            e.printStackTrace();
+    private byte[] closing() {
+        byte[] record = new byte[HEADER_SIZE + 1];
+        record[HEADER_SIZE] = CLOSE;
+        return seal(record, null);
+    }
+
+    private byte[] seal(byte[] record, IndexEntry entry) {
+        ByteBuffer buffer = ByteBuffer.wrap(record);
+        buffer.putInt(0, record.length - HEADER_SIZE);
+        CRC32 crc = new CRC32();
+        crc.update(record, HEADER_SIZE, record.length - HEADER_SIZE);
+        buffer.putInt(4, (int) crc.getValue());
+        if (entry != null) {
+            entry.recordSize = record.length;
         }
+        return record;
+    }
+
+    private IndexEntry read(ByteBuffer record) {
+        String id = readString(record);
+        int status = record.getInt();
+        String businessKey = readString(record);
+        String description = readString(record);
+        long startDate = record.getLong();
+        long endDate = record.getLong();
+        long version = record.getLong();
+        int tagCount = record.getInt();
+        List<String> tags = new ArrayList<>(tagCount);
+        for (int i = 0; i < tagCount; i++) {
+            tags.add(readString(record));
+        }
+        IndexEntry entry = new IndexEntry(id, status, businessKey, description, startDate, endDate, version, tags);
+        entry.recordSize = HEADER_SIZE + record.limit();
+        return entry;
     }
 
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+        } else {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static int checksum(byte[] payload) {
+        CRC32 crc = new CRC32();
+        crc.update(payload, 0, payload.length);
+        return (int) crc.getValue();
+    }
+
+    private static long time(Date date) {
+        return date == null ? -1 : date.getTime();
+    }
+
+    /*
+     * Rebuilding index from metadata of process instance files
+     */
+
     protected boolean isValidFile(Path file) {
         try {
             return !Files.isDirectory(file) && !Files.isHidden(file);
@@ -250,6 +596,37 @@ public class Indexer {
         }
     }
 
+    private IndexEntry buildEntry(Path instancePath) {
+        String id = instancePath.getFileName().toString();
+        Map<String, String> metadata = getAllMetadata(instancePath);
+        try {
+            String status = metadata.get(FileSystemProcessInstances.PI_STATUS);
+            if (status == null) {
+                return null;
+            }
+            String tags = metadata.get(FileSystemProcessInstances.PI_TAGS);
+            String version = metadata.get(FileSystemProcessInstances.PI_VERSION);
+
+            return new IndexEntry(id, Integer.parseInt(status),
+                    metadata.get(FileSystemProcessInstances.PI_BUSINESS_KEY),
+                    metadata.get(FileSystemProcessInstances.PI_DESCRIPTION),
+                    parseDate(metadata.get(FileSystemProcessInstances.PI_START_DATE)),
+                    parseDate(metadata.get(FileSystemProcessInstances.PI_END_DATE)),
+                    version != null ? Long.parseLong(version) : -1,
+                    tags != null && !tags.isEmpty() ? Arrays.asList(tags.split(",")) : Collections.emptyList());
+        } catch (RuntimeException e) {
+            LOGGER.warn("Unable to index process instance {} due to invalid metadata", id, e);
+            return null;
+        }
+    }
+
+    private long parseDate(String value) {
+        if (value == null) {
+            return -1;
+        }
+        return Instant.parse(value).toEpochMilli();
+    }
+
     protected String getMetadata(Path file, String key) {
 
         if (supportsUserDefinedAttributes(file) && !dotFileMetadataExists(file)) {
@@ -284,7 +661,7 @@ public class Indexer {
             Map<String, String> attributes = new HashMap<String, String>();
             try {
                 for (String key : view.list()) {
-                    java.nio.ByteBuffer bb = java.nio.ByteBuffer.allocate(view.size(key));
+                    ByteBuffer bb = ByteBuffer.allocate(view.size(key));
                     view.read(key, bb);
                     bb.flip();
                     attributes.put(key, Charset.defaultCharset().decode(bb).toString());
@@ -324,219 +701,78 @@ public class Indexer {
         }
     }
 
-    private SortableItem buildSortableItem(Path persistenceFolder, Path path) {
-        String id = path.getName(path.getNameCount() - 1).toString();
-        Path instancePath = Paths.get(persistenceFolder.toString(), id);
-        try {
-            SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'");
-
-            Map<String, String> metadata = getAllMetadata(instancePath);
-
-            String strStartDate = metadata.get(FileSystemProcessInstances.PI_START_DATE);
-            String strEndDate = metadata.get(FileSystemProcessInstances.PI_END_DATE);
-
-            Date startDate = strStartDate != null ? sdf.parse(strStartDate.toString()) : null;
-
-            Date endDate = strEndDate != null ? sdf.parse(strEndDate.toString()) : null;
-
-            String tags = metadata.get(FileSystemProcessInstances.PI_TAGS);
-
-            SortableItem sortableItem = new SortableItem(id,
-                    metadata.get(FileSystemProcessInstances.PI_DESCRIPTION),
-                    metadata.get(FileSystemProcessInstances.PI_BUSINESS_KEY), startDate, endDate,
-                    tags != null ? Arrays.asList(tags.split(",")) : new ArrayList<>());
-            return sortableItem;
-
-        } catch (ParseException e) {
-        }
-
-        return null;
-    }
-
-    private class SortableItem {
+    private static class IndexEntry {
 
-        private String id;
-        private String description;
-        private String businessKey;
-        private Date startDate;
-        private Date endDate;
-        private Collection<String> tags;
+        private final String id;
+        private final int status;
+        private final String businessKey;
+        private final String description;
+        private final long startDate;
+        private final long endDate;
+        private final long version;
+        private final Collection<String> tags;
+        private int recordSize;
 
-        public SortableItem(String id, String description, String businessKey, Date startDate, Date endDate,
-                Collection<String> tags) {
+        IndexEntry(String id, int status, String businessKey, String description, long startDate, long endDate,
+                long version, Collection<String> tags) {
             this.id = id;
-            this.description = description;
+            this.status = status;
             this.businessKey = businessKey;
+            this.description = description;
             this.startDate = startDate;
             this.endDate = endDate;
-            this.tags = tags;
+            this.version = version;
+            this.tags = new ArrayList<>(tags);
         }
 
-        @Override
-        public String toString() {
-            return "SortableItem [id=" + id + ", description=" + description + ", businessKey=" + businessKey + ", startDate="
-                    + startDate + ", endDate=" + endDate + ", tags=" + tags + "]";
-        }
-
-        @Override
-        public int hashCode() {
-            final int prime = 31;
-            int result = 1;
-            result = prime * result + getEnclosingInstance().hashCode();
-            result = prime * result + ((id == null) ? 0 : id.hashCode());
-            return result;
+        IndexedInstance toIndexedInstance() {
+            Set<String> values = new LinkedHashSet<>();
+            values.add(id);
+            if (businessKey != null) {
+                values.add(businessKey);
+            }
+            values.addAll(tags);
+            return new IndexedInstance(id, values);
         }
 
         @Override
-        public boolean equals(Object obj) {
-            if (this == obj)
-                return true;
-            if (obj == null)
-                return false;
-            if (getClass() != obj.getClass())
-                return false;
-            SortableItem other = (SortableItem) obj;
-            if (!getEnclosingInstance().equals(other.getEnclosingInstance()))
-                return false;
-            if (id == null) {
-                if (other.id != null)
-                    return false;
-            } else if (!id.equals(other.id))
-                return false;
-            return true;
-        }
-
-        private Indexer getEnclosingInstance() {
-            return Indexer.this;
+        public String toString() {
+            return "IndexEntry [id=" + id + ", status=" + status + ", businessKey=" + businessKey + ", version="
+                    + version + ", tags=" + tags + "]";
         }
     }
 
-    protected Comparator<SortableItem> determineComparator(String sortBy, boolean sortAsc) {
+    protected Comparator<IndexEntry> determineComparator(String sortBy, boolean sortAsc) {
+        Comparator<IndexEntry> comparator;
         switch (sortBy) {
-            case ProcessInstances.ID_SORT_KEY:
-                return sortAsc ? BY_ID_ASC : BY_ID_DESC;
             case ProcessInstances.DESC_SORT_KEY:
-                return sortAsc ? BY_DESCRIPTION_ASC : BY_DESCRIPTION_DESC;
-            case ProcessInstances.START_DATE_SORT_KEY:
-                return sortAsc ? BY_START_DATE_ASC : BY_START_DATE_DESC;
+                comparator = nullsLast(entry -> entry.description);
+                break;
             case ProcessInstances.END_DATE_SORT_KEY:
-                return sortAsc ? BY_START_END_ASC : BY_START_END_DESC;
+                comparator = datesLast(entry -> entry.endDate);
+                break;
             case ProcessInstances.BUSINESS_KEY_SORT_KEY:
-                return sortAsc ? BY_BUSINESS_KEY_ASC : BY_BUSINESS_KEY_DESC;
+                comparator = nullsLast(entry -> entry.businessKey);
+                break;
+            case ProcessInstances.START_DATE_SORT_KEY:
             default:
-                return BY_START_DATE_ASC;
-        }
-    }
-
-    private static Comparator<SortableItem> BY_START_DATE_ASC = (one, two) -> {
-        if (one.startDate != null && two.startDate != null) {
-            return one.startDate.compareTo(two.startDate);
-        } else if (one.startDate != null && two.startDate == null) {
-            return -1;
-        } else if (one.startDate == null && two.startDate != null) {
-            return 1;
-        } else {
-            return -1;
-        }
-    };
-
-    private static Comparator<SortableItem> BY_START_DATE_DESC = (one, two) -> {
-        if (one.startDate != null && two.startDate != null) {
-            return two.startDate.compareTo(one.startDate);
-        } else if (one.startDate != null && two.startDate == null) {
-            return -1;
-        } else if (one.startDate == null && two.startDate != null) {
-            return 1;
-        } else {
-            return -1;
-        }
-    };
-
-    private static Comparator<SortableItem> BY_START_END_ASC = (one, two) -> {
-        if (one.endDate != null && two.endDate != null) {
-            return one.endDate.compareTo(two.endDate);
-        } else if (one.endDate != null && two.endDate == null) {
-            return -1;
-        } else if (one.endDate == null && two.endDate != null) {
-            return 1;
-        } else {
-            return -1;
-        }
-    };
-
-    private static Comparator<SortableItem> BY_START_END_DESC = (one, two) -> {
-        if (one.endDate != null && two.endDate != null) {
-            return two.endDate.compareTo(one.endDate);
-        } else if (one.endDate != null && two.endDate == null) {
-            return -1;
-        } else if (one.endDate == null && two.endDate != null) {
-            return 1;
-        } else {
-            return -1;
-        }
-    };
-
-    private static Comparator<SortableItem> BY_ID_ASC = (one, two) -> {
-        if (one.id != null && two.id != null) {
-            return one.id.compareTo(two.id);
-        } else {
-            return -1;
-        }
-    };
-
-    private static Comparator<SortableItem> BY_ID_DESC = (one, two) -> {
-        if (one.id != null && two.id != null) {
-            return two.id.compareTo(one.id);
-        } else {
-            return -1;
-        }
-    };
-
-    private static Comparator<SortableItem> BY_DESCRIPTION_ASC = (one, two) -> {
-        if (one.description != null && two.description != null) {
-            return one.description.compareTo(two.description);
-        } else if (one.description != null && two.description == null) {
-            return -1;
-        } else if (one.description == null && two.description != null) {
-            return 1;
-        } else {
-            return -1;
+                comparator = datesLast(entry -> entry.startDate);
+                break;
         }
-    };
-
-    private static Comparator<SortableItem> BY_DESCRIPTION_DESC = (one, two) -> {
-        if (one.description != null && two.description != null) {
-            return two.description.compareTo(one.description);
-        } else if (one.description != null && two.description == null) {
-            return -1;
-        } else if (one.description == null && two.description != null) {
-            return 1;
-        } else {
-            return -1;
+        if (!sortAsc) {
+            comparator = comparator.reversed();
         }
-    };
+        return comparator.thenComparing(BY_ID);
+    }
 
-    private static Comparator<SortableItem> BY_BUSINESS_KEY_ASC = (one, two) -> {
-        if (one.businessKey != null && two.businessKey != null) {
-            return one.businessKey.compareTo(two.businessKey);
-        } else if (one.businessKey != null && two.businessKey == null) {
-            return -1;
-        } else if (one.businessKey == null && two.businessKey != null) {
-            return 1;
-        } else {
-            return -1;
-        }
-    };
+    private static Comparator<IndexEntry> nullsLast(Function<IndexEntry, String> key) {
+        return Comparator.comparing(key, Comparator.nullsLast(Comparator.naturalOrder()));
+    }
 
-    private static Comparator<SortableItem> BY_BUSINESS_KEY_DESC = (one, two) -> {
-        if (one.businessKey != null && two.businessKey != null) {
-            return two.businessKey.compareTo(one.businessKey);
-        } else if (one.businessKey != null && two.businessKey == null) {
-            return -1;
-        } else if (one.businessKey == null && two.businessKey != null) {
-            return 1;
-        } else {
-            return -1;
-        }
-    };
+    private static Comparator<IndexEntry> datesLast(ToLongFunction<IndexEntry> key) {
+        return Comparator.comparing(entry -> {
+            long value = key.applyAsLong(entry);
+            return value < 0 ? null : value;
+        }, Comparator.nullsLast(Comparator.naturalOrder()));
+    }
 }
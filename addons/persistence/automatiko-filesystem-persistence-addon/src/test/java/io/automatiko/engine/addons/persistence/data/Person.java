@@ -3,13 +3,19 @@ package io.automatiko.engine.addons.persistence.data;
 import java.util.ArrayList;
 import java.util.List;
 
+import com.fasterxml.jackson.annotation.JsonTypeInfo;
+
 public class Person {
 
 	private String name;
 	private int age;
 
+	@JsonTypeInfo(use = JsonTypeInfo.Id.CLASS)
 	private List<Address> addresses;
 
+	@JsonTypeInfo(use = JsonTypeInfo.Id.CLASS)
+	private Address primaryAddress;
+
 	public Person() {
 
 	}
@@ -44,6 +50,14 @@ public class Person {
 		this.addresses = addresses;
 	}
 
+	public Address getPrimaryAddress() {
+		return primaryAddress;
+	}
+
+	public void setPrimaryAddress(Address primaryAddress) {
+		this.primaryAddress = primaryAddress;
+	}
+
 	public void addAddress(Address address) {
 		if (this.addresses == null) {
 			this.addresses = new ArrayList<Address>();
@@ -63,6 +77,7 @@ public class Person {
 		result = prime * result + ((addresses == null) ? 0 : addresses.hashCode());
 		result = prime * result + age;
 		result = prime * result + ((name == null) ? 0 : name.hashCode());
+		result = prime * result + ((primaryAddress == null) ? 0 : primaryAddress.hashCode());
 		return result;
 	}
 
@@ -87,6 +102,11 @@ public class Person {
 				return false;
 		} else if (!name.equals(other.name))
 			return false;
+		if (primaryAddress == null) {
+			if (other.primaryAddress != null)
+				return false;
+		} else if (!primaryAddress.equals(other.primaryAddress))
+			return false;
 		return true;
 	}
 
@@ -0,0 +1,52 @@
+package io.automatiko.engine.addons.persistence.data;
+
+public class PostalAddress extends Address {
+
+	private String poBox;
+
+	public PostalAddress() {
+
+	}
+
+	public PostalAddress(String poBox, String city, String zipCode, String country) {
+		super(null, city, zipCode, country, false);
+		this.poBox = poBox;
+	}
+
+	public String getPoBox() {
+		return poBox;
+	}
+
+	public void setPoBox(String poBox) {
+		this.poBox = poBox;
+	}
+
+	@Override
+	public String toString() {
+		return "PostalAddress [poBox=" + poBox + ", " + super.toString() + "]";
+	}
+
+	@Override
+	public int hashCode() {
+		final int prime = 31;
+		int result = super.hashCode();
+		result = prime * result + ((poBox == null) ? 0 : poBox.hashCode());
+		return result;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (!super.equals(obj))
+			return false;
+		PostalAddress other = (PostalAddress) obj;
+		if (poBox == null) {
+			if (other.poBox != null)
+				return false;
+		} else if (!poBox.equals(other.poBox))
+			return false;
+		return true;
+	}
+
+}
@@ -0,0 +1,162 @@
+
+package io.automatiko.engine.addons.persistence.filesystem;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import io.automatiko.engine.addons.persistence.AbstractProcessInstancesFactory;
+import io.automatiko.engine.addons.persistence.common.cache.CachingProcessInstances;
+import io.automatiko.engine.api.audit.Auditor;
+import io.automatiko.engine.api.workflow.ProcessInstance;
+import io.automatiko.engine.api.workflow.ProcessInstanceReadMode;
+import io.automatiko.engine.services.io.ClassPathResource;
+import io.automatiko.engine.workflow.bpmn2.BpmnProcess;
+import io.automatiko.engine.workflow.bpmn2.BpmnVariables;
+
+public class CachingProcessInstancesTest {
+
+    private static final String PERSISTENCE_FOLDER = "target" + File.separator + "persistence-cache-test";
+
+    private BpmnProcess process;
+
+    private FileSystemProcessInstances storage;
+
+    private AtomicLong time = new AtomicLong(1000);
+
+    @BeforeEach
+    public void setup() throws IOException {
+        Path path = Paths.get(PERSISTENCE_FOLDER);
+
+        if (Files.exists(path)) {
+            Files.walk(path).sorted((a, b) -> b.compareTo(a)).map(Path::toFile).forEach(File::delete);
+        }
+        process = BpmnProcess.from(new ClassPathResource("BPMN2-UserTask.bpmn2")).get(0);
+        process.setProcessInstancesFactory(new AbstractProcessInstancesFactory() {
+
+            @Override
+            public String path() {
+                return PERSISTENCE_FOLDER;
+            }
+
+            @Override
+            public Auditor auditor() {
+                return entry -> {
+                };
+            }
+        });
+        process.configure();
+
+        storage = (FileSystemProcessInstances) process.instances();
+    }
+
+    @Test
+    public void testCachedInstanceValidatedByVersion() {
+        ProcessInstance<BpmnVariables> processInstance = start();
+        CachingProcessInstances<BpmnVariables> instances = cache(10, 60000);
+
+        ProcessInstance<BpmnVariables> loaded = readOnly(instances, processInstance.id());
+        assertThat(instances.misses()).isEqualTo(1);
+        assertThat(instances.cached()).isEqualTo(1);
+
+        ProcessInstance<BpmnVariables> cached = readOnly(instances, processInstance.id());
+        assertThat(cached).isSameAs(loaded);
+        assertThat(cached.variables().toMap()).containsEntry("test", "test");
+        assertThat(readOnly(instances, processInstance.id())).isSameAs(loaded);
+        assertThat(instances.hits()).isEqualTo(2);
+
+        // instance was modified outside of the cache
+        Path instancePath = Paths.get(PERSISTENCE_FOLDER, process.id(), storage.resolveId(processInstance.id()));
+        storage.setMetadata(instancePath, FileSystemProcessInstances.PI_VERSION, "99");
+
+        assertThat(readOnly(instances, processInstance.id())).isNotSameAs(loaded);
+        assertThat(instances.hits()).isEqualTo(2);
+        assertThat(instances.misses()).isEqualTo(2);
+
+        // wrong status is never served from cache
+        assertThat(instances.findById(processInstance.id(), ProcessInstance.STATE_COMPLETED,
+                ProcessInstanceReadMode.READ_ONLY)).isEmpty();
+        assertThat(instances.hits()).isEqualTo(2);
+    }
+
+    @Test
+    public void testMutableLookupsNotCached() {
+        ProcessInstance<BpmnVariables> processInstance = start();
+        CachingProcessInstances<BpmnVariables> instances = cache(10, 60000);
+
+        ProcessInstance<BpmnVariables> first = instances.findById(processInstance.id()).get();
+        ProcessInstance<BpmnVariables> second = instances.findById(processInstance.id()).get();
+        assertThat(first).isNotSameAs(second);
+        assertThat(instances.cached()).isZero();
+        assertThat(instances.hits()).isZero();
+        assertThat(instances.misses()).isZero();
+
+        readOnly(instances, processInstance.id());
+        assertThat(instances.cached()).isEqualTo(1);
+        // update of the instance invalidates its snapshot
+        instances.update(first.id(), first);
+        assertThat(instances.cached()).isZero();
+    }
+
+    @Test
+    public void testEvictedBySizeAndTime() {
+        ProcessInstance<BpmnVariables> first = start();
+        ProcessInstance<BpmnVariables> second = start();
+        CachingProcessInstances<BpmnVariables> instances = cache(1, 60000);
+
+        readOnly(instances, first.id());
+        readOnly(instances, second.id());
+        assertThat(instances.cached()).isEqualTo(1);
+        assertThat(instances.evictions()).isEqualTo(1);
+
+        time.addAndGet(60001);
+        readOnly(instances, second.id());
+        assertThat(instances.hits()).isZero();
+        assertThat(instances.evictions()).isEqualTo(2);
+    }
+
+    @Test
+    public void testRemoveInvalidates() {
+        ProcessInstance<BpmnVariables> processInstance = start();
+        CachingProcessInstances<BpmnVariables> instances = cache(10, 60000);
+
+        readOnly(instances, processInstance.id());
+        assertThat(instances.cached()).isEqualTo(1);
+        ProcessInstance<BpmnVariables> found = instances.findById(processInstance.id()).get();
+        instances.remove(found.id(), found);
+
+        assertThat(instances.cached()).isZero();
+        assertThat(instances.findById(processInstance.id(), ProcessInstanceReadMode.READ_ONLY)).isEmpty();
+    }
+
+    private ProcessInstance<BpmnVariables> start() {
+        ProcessInstance<BpmnVariables> processInstance = process
+                .createInstance(BpmnVariables.create(Collections.singletonMap("test", "test")));
+        processInstance.start();
+        return processInstance;
+    }
+
+    private ProcessInstance<BpmnVariables> readOnly(CachingProcessInstances<BpmnVariables> instances, String id) {
+        return instances.findById(id, ProcessInstanceReadMode.READ_ONLY).get();
+    }
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private CachingProcessInstances<BpmnVariables> cache(int maxSize, long expireAfter) {
+        return new CachingProcessInstances(process, storage, maxSize, expireAfter) {
+
+            @Override
+            protected long currentTime() {
+                return time.get();
+            }
+        };
+    }
+}
@@ -6,6 +6,7 @@ import static io.automatiko.engine.api.runtime.process.ProcessInstance.STATE_COM
 import static io.automatiko.engine.api.runtime.process.ProcessInstance.STATE_ERROR;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.assertj.core.api.Assertions.catchThrowableOfType;
 import static org.assertj.core.api.Assertions.entry;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
@@ -20,11 +21,17 @@ import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.nio.file.attribute.UserDefinedFileAttributeView;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.function.Supplier;
+import java.util.stream.IntStream;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -39,18 +46,24 @@ import io.automatiko.engine.api.definition.process.WorkflowProcess;
 import io.automatiko.engine.api.runtime.process.ProcessContext;
 import io.automatiko.engine.api.uow.UnitOfWork;
 import io.automatiko.engine.api.uow.UnitOfWorkManager;
+import io.automatiko.engine.api.workflow.BulkOperationException;
 import io.automatiko.engine.api.workflow.Process;
 import io.automatiko.engine.api.workflow.ProcessConfig;
 import io.automatiko.engine.api.workflow.ProcessInstance;
 import io.automatiko.engine.api.workflow.ProcessInstanceReadMode;
 import io.automatiko.engine.api.workflow.ProcessInstances;
 import io.automatiko.engine.api.workflow.WorkItem;
+import io.automatiko.engine.api.workflow.encrypt.AESGCMStoredDataCodec;
+import io.automatiko.engine.api.workflow.encrypt.CompressingStoredDataCodec;
+import io.automatiko.engine.api.workflow.encrypt.StoredDataCodec;
 import io.automatiko.engine.services.identity.StaticIdentityProvider;
 import io.automatiko.engine.services.io.ClassPathResource;
 import io.automatiko.engine.services.uow.CollectingUnitOfWorkFactory;
 import io.automatiko.engine.services.uow.DefaultUnitOfWorkManager;
+import io.automatiko.engine.workflow.AbstractProcessInstance;
 import io.automatiko.engine.workflow.DefaultProcessEventListenerConfig;
 import io.automatiko.engine.workflow.DefaultWorkItemHandlerConfig;
+import io.automatiko.engine.workflow.Sig;
 import io.automatiko.engine.workflow.StaticProcessConfig;
 import io.automatiko.engine.workflow.base.instance.context.variable.DefaultVariableInitializer;
 import io.automatiko.engine.workflow.base.instance.impl.Action;
@@ -273,6 +286,67 @@ public class FileSystemProcessInstancesTest {
         assertThat(fileSystemBasedStorage.size()).isZero();
     }
 
+    @Test
+    void testBulkCreateAndSignal() {
+
+        UnitOfWorkManager uowManager = new DefaultUnitOfWorkManager(new CollectingUnitOfWorkFactory());
+        ProcessConfig config = new StaticProcessConfig(new DefaultWorkItemHandlerConfig(),
+                new DefaultProcessEventListenerConfig(), uowManager, null, new DefaultVariableInitializer(),
+                new FileSystemProcessInstancesFactory());
+        BpmnProcess process = createProcess(config, "BPMN2-UserTask.bpmn2");
+
+        List<String> ids = process.createInstances(IntStream.range(0, 5)
+                .mapToObj(i -> BpmnVariables.create(Collections.singletonMap("test", "test" + i))), 2);
+
+        assertThat(ids).hasSize(5).doesNotHaveDuplicates();
+        assertThat(process.instances().values(1, 10)).hasSize(5);
+        for (int i = 0; i < 5; i++) {
+            ProcessInstance<BpmnVariables> processInstance = process.instances().findById(ids.get(i)).get();
+            assertThat(processInstance.status()).isEqualTo(STATE_ACTIVE);
+            assertThat(processInstance.variables().get("test")).isEqualTo("test" + i);
+        }
+
+        // instances of every chunk (of two instances) are stored together, the last chunk has single instance
+        FileSystemProcessInstances fileSystemBasedStorage = (FileSystemProcessInstances) process.instances();
+        verify(fileSystemBasedStorage, times(2)).createAll(any());
+
+        int signaled = process.signalAll(Sig.of("unknown", null), ids.get(0), ids.get(3));
+        assertThat(signaled).isEqualTo(2);
+        assertThat(process.signalAll(Sig.of("unknown", null), "not existing")).isZero();
+    }
+
+    @Test
+    void testBulkCreateReportsFailedChunks() {
+
+        UnitOfWorkManager uowManager = new DefaultUnitOfWorkManager(new CollectingUnitOfWorkFactory());
+        ProcessConfig config = new StaticProcessConfig(new DefaultWorkItemHandlerConfig(),
+                new DefaultProcessEventListenerConfig(), uowManager, null, new DefaultVariableInitializer(),
+                new FileSystemProcessInstancesFactory());
+        BpmnProcess process = createProcess(config, "BPMN2-UserTask.bpmn2");
+        // chunk with the third instance cannot be started
+        BulkOperationException error = catchThrowableOfType(() -> process.createInstances(IntStream.range(0, 5)
+                .mapToObj(i -> i == 2 ? new BpmnVariables(Collections.singletonMap("test", "test" + i)) {
+                    @Override
+                    public Map<String, Object> toMap() {
+                        throw new IllegalStateException("invalid input");
+                    }
+                } : BpmnVariables.create(Collections.singletonMap("test", "test" + i))), 2),
+                BulkOperationException.class);
+
+        assertThat(error.getChunks()).hasSize(3);
+        assertThat(error.getChunks().get(0).isFailed()).isFalse();
+        assertThat(error.getChunks().get(0).getResults()).hasSize(2);
+        assertThat(error.getChunks().get(1).isFailed()).isTrue();
+        assertThat(error.getChunks().get(1).getOffset()).isEqualTo(2);
+        assertThat(error.getChunks().get(1).getSize()).isEqualTo(2);
+        assertThat(error.getChunks().get(1).getError()).hasMessage("invalid input");
+        assertThat(error.getChunks().get(2).isFailed()).isFalse();
+        assertThat(error.getChunks().get(2).getResults()).hasSize(1);
+        // other chunks are stored regardless of the failed one
+        assertThat(process.instances().values(1, 10)).hasSize(3);
+        assertThat(DefaultUnitOfWorkManager.getUnitOfWork()).isNull();
+    }
+
     @Test
     public void testComplexVariableFlow() {
 
@@ -319,6 +393,218 @@ public class FileSystemProcessInstancesTest {
         verify(fileSystemBasedStorage, times(2)).remove(any(), any());
     }
 
+    @Test
+    void testBasicFlowWithDeltas() throws IOException {
+        UnitOfWorkManager uowManager = new DefaultUnitOfWorkManager(new CollectingUnitOfWorkFactory());
+        ProcessConfig config = new StaticProcessConfig(new DefaultWorkItemHandlerConfig(),
+                new DefaultProcessEventListenerConfig(), uowManager, null, new DefaultVariableInitializer(),
+                new FileSystemProcessInstancesFactory(2));
+        BpmnProcess process = BpmnProcess.from(config, new ClassPathResource("BPMN2-UserTask.bpmn2")).get(0);
+        process.setProcessInstancesFactory(new FileSystemProcessInstancesFactory(2));
+        process.configure();
+
+        // large variable that is not changed makes the snapshot bigger than deltas
+        Map<String, Object> variables = new HashMap<>();
+        variables.put("s", String.join("", Collections.nCopies(4096, "s")));
+        variables.put("test", "test");
+        ProcessInstance<BpmnVariables> processInstance = process.createInstance(BpmnVariables.create(variables));
+        UnitOfWork uow = uowManager.newUnitOfWork();
+        uow.start();
+        processInstance.start();
+        uow.end();
+        assertThat(processInstance.status()).isEqualTo(STATE_ACTIVE);
+        String id = processInstance.id();
+
+        FileSystemProcessInstances fileSystemBasedStorage = (FileSystemProcessInstances) process.instances();
+        Path instancePath = Paths.get(PERSISTENCE_FOLDER, process.id(), id);
+        Path deltaPath = fileSystemBasedStorage.deltaStorage(instancePath);
+        assertThat(deltaPath).doesNotExist();
+
+        // first changes are written as deltas
+        updateVariable(uowManager, process, id, "first");
+        assertThat(deltaPath).exists();
+        assertThat(fileSystemBasedStorage.countDeltas(deltaPath)).isEqualTo(1);
+
+        updateVariable(uowManager, process, id, "second");
+        assertThat(fileSystemBasedStorage.countDeltas(deltaPath)).isEqualTo(2);
+
+        ProcessInstance<BpmnVariables> loaded = process.instances().findById(id, ProcessInstanceReadMode.READ_ONLY)
+                .get();
+        assertThat(loaded.variables().get("test")).isEqualTo("second");
+        assertThat(loaded.workItems(securityPolicy)).hasSize(1);
+
+        // once interval is reached complete snapshot is taken
+        updateVariable(uowManager, process, id, "third");
+        assertThat(deltaPath).doesNotExist();
+        assertThat(fileSystemBasedStorage.snapshotStorage(instancePath)).doesNotExist();
+
+        updateVariable(uowManager, process, id, "fourth");
+        assertThat(deltaPath).exists();
+
+        processInstance = process.instances().findById(id).get();
+        assertThat(processInstance.variables().get("test")).isEqualTo("fourth");
+        assertThat(processInstance.variables().get("s")).isEqualTo(variables.get("s"));
+
+        WorkItem workItem = processInstance.workItems(securityPolicy).get(0);
+        uow = uowManager.newUnitOfWork();
+        uow.start();
+        processInstance.completeWorkItem(workItem.getId(), null, securityPolicy);
+        uow.end();
+        assertThat(processInstance.status()).isEqualTo(STATE_COMPLETED);
+        assertThat(fileSystemBasedStorage.size()).isZero();
+        assertThat(deltaPath).doesNotExist();
+    }
+
+    @Test
+    void testBasicFlowWithCompression() throws IOException {
+        BpmnProcess process = BpmnProcess.from(new ClassPathResource("BPMN2-UserTask.bpmn2")).get(0);
+        process.setProcessInstancesFactory(
+                new FileSystemProcessInstancesFactory().withCodec(new CompressingStoredDataCodec(StoredDataCodec.NO_OP_CODEC)));
+        process.configure();
+
+        String value = String.join("", Collections.nCopies(4096, "s"));
+        ProcessInstance<BpmnVariables> processInstance = process
+                .createInstance(BpmnVariables.create(Collections.singletonMap("s", value)));
+        processInstance.start();
+        assertThat(processInstance.status()).isEqualTo(STATE_ACTIVE);
+
+        byte[] stored = Files.readAllBytes(Paths.get(PERSISTENCE_FOLDER, process.id(), processInstance.id()));
+        assertThat(stored.length).isLessThan(value.length());
+        assertThat(stored[0]).isEqualTo((byte) 0xA7);
+
+        ProcessInstance<BpmnVariables> loaded = process.instances()
+                .findById(processInstance.id(), ProcessInstanceReadMode.READ_ONLY).get();
+        assertThat(loaded.variables().get("s")).isEqualTo(value);
+        assertThat(loaded.workItems(securityPolicy)).hasSize(1);
+
+        processInstance.abort();
+        assertThat(process.instances().size()).isZero();
+    }
+
+    @Test
+    void testBasicFlowWithEncryption() throws IOException {
+        Map<String, byte[]> keys = new HashMap<>();
+        keys.put("old", "0123456789abcdef".getBytes());
+        keys.put("new", "fedcba9876543210".getBytes());
+
+        BpmnProcess process = BpmnProcess.from(new ClassPathResource("BPMN2-UserTask.bpmn2")).get(0);
+        process.setProcessInstancesFactory(new FileSystemProcessInstancesFactory().withCodec(
+                new CompressingStoredDataCodec(new AESGCMStoredDataCodec("old", keys, "old"))));
+        process.configure();
+
+        String value = String.join("", Collections.nCopies(4096, "s"));
+        ProcessInstance<BpmnVariables> processInstance = process
+                .createInstance(BpmnVariables.create(Collections.singletonMap("s", value)));
+        processInstance.start();
+        assertThat(processInstance.status()).isEqualTo(STATE_ACTIVE);
+
+        byte[] stored = Files.readAllBytes(Paths.get(PERSISTENCE_FOLDER, process.id(), processInstance.id()));
+        assertThat(stored.length).isLessThan(value.length());
+        assertThat(new String(stored, 0, 3)).isEqualTo("AGC");
+
+        // key rotated, data stored with previous key remains readable
+        process.setProcessInstancesFactory(new FileSystemProcessInstancesFactory().withCodec(
+                new CompressingStoredDataCodec(new AESGCMStoredDataCodec("new", keys, "old"))));
+        process.configure();
+
+        ProcessInstance<BpmnVariables> loaded = process.instances()
+                .findById(processInstance.id(), ProcessInstanceReadMode.READ_ONLY).get();
+        assertThat(loaded.variables().get("s")).isEqualTo(value);
+        assertThat(loaded.workItems(securityPolicy)).hasSize(1);
+    }
+
+    @Test
+    void testDeltasOfRevertedVariable() throws IOException {
+        UnitOfWorkManager uowManager = new DefaultUnitOfWorkManager(new CollectingUnitOfWorkFactory());
+        ProcessConfig config = new StaticProcessConfig(new DefaultWorkItemHandlerConfig(),
+                new DefaultProcessEventListenerConfig(), uowManager, null, new DefaultVariableInitializer(),
+                new FileSystemProcessInstancesFactory(10));
+        BpmnProcess process = BpmnProcess.from(config, new ClassPathResource("BPMN2-UserTask.bpmn2")).get(0);
+        process.setProcessInstancesFactory(new FileSystemProcessInstancesFactory(10));
+        process.configure();
+
+        Map<String, Object> variables = new HashMap<>();
+        variables.put("s", String.join("", Collections.nCopies(4096, "s")));
+        variables.put("test", "A");
+        ProcessInstance<BpmnVariables> processInstance = process.createInstance(BpmnVariables.create(variables));
+        UnitOfWork uow = uowManager.newUnitOfWork();
+        uow.start();
+        processInstance.start();
+        uow.end();
+        String id = processInstance.id();
+
+        FileSystemProcessInstances fileSystemBasedStorage = (FileSystemProcessInstances) process.instances();
+        Path instancePath = Paths.get(PERSISTENCE_FOLDER, process.id(), id);
+        Path deltaPath = fileSystemBasedStorage.deltaStorage(instancePath);
+
+        // second change reverts the first one so it must be written even though it matches the snapshot
+        updateVariable(uowManager, process, id, "B");
+        updateVariable(uowManager, process, id, "A");
+        assertThat(fileSystemBasedStorage.countDeltas(deltaPath)).isEqualTo(2);
+
+        ProcessInstance<BpmnVariables> loaded = process.instances().findById(id, ProcessInstanceReadMode.READ_ONLY)
+                .get();
+        assertThat(loaded.variables().get("test")).isEqualTo("A");
+
+        // interrupted append leaves incomplete delta at the end that is ignored and then dropped
+        Files.write(deltaPath, new byte[] { 0, 0, 0, 100, 1, 2 }, StandardOpenOption.APPEND);
+        assertThat(fileSystemBasedStorage.countDeltas(deltaPath)).isEqualTo(2);
+        loaded = process.instances().findById(id, ProcessInstanceReadMode.READ_ONLY).get();
+        assertThat(loaded.variables().get("test")).isEqualTo("A");
+
+        updateVariable(uowManager, process, id, "C");
+        assertThat(fileSystemBasedStorage.countDeltas(deltaPath)).isEqualTo(3);
+        loaded = process.instances().findById(id, ProcessInstanceReadMode.READ_ONLY).get();
+        assertThat(loaded.variables().get("test")).isEqualTo("C");
+        assertThat(loaded.variables().get("s")).isEqualTo(variables.get("s"));
+    }
+
+    @Test
+    void testInterruptedSnapshotRecovered() throws IOException {
+        BpmnProcess process = BpmnProcess.from(new ClassPathResource("BPMN2-UserTask.bpmn2")).get(0);
+        process.setProcessInstancesFactory(new FileSystemProcessInstancesFactory(10));
+        process.configure();
+
+        Map<String, Object> variables = new HashMap<>();
+        variables.put("s", String.join("", Collections.nCopies(4096, "s")));
+        variables.put("test", "A");
+        ProcessInstance<BpmnVariables> processInstance = process.createInstance(BpmnVariables.create(variables));
+        processInstance.start();
+        String id = processInstance.id();
+
+        FileSystemProcessInstances fileSystemBasedStorage = (FileSystemProcessInstances) process.instances();
+        Path instancePath = Paths.get(PERSISTENCE_FOLDER, process.id(), id);
+        Path deltaPath = fileSystemBasedStorage.deltaStorage(instancePath);
+        Path snapshotPath = fileSystemBasedStorage.snapshotStorage(instancePath);
+        byte[] snapshot = Files.readAllBytes(instancePath);
+
+        updateVariable(new DefaultUnitOfWorkManager(new CollectingUnitOfWorkFactory()), process, id, "B");
+        assertThat(deltaPath).exists();
+
+        // snapshot written but deltas not yet removed - snapshot is discarded
+        Files.write(snapshotPath, new byte[] { 1, 2, 3 });
+        assertThat(process.instances().findById(id, ProcessInstanceReadMode.READ_ONLY).get().variables().get("test"))
+                .isEqualTo("B");
+        assertThat(snapshotPath).doesNotExist();
+
+        // deltas removed but snapshot not yet moved - replacement is completed
+        Files.write(snapshotPath, snapshot);
+        Files.delete(deltaPath);
+        Files.write(instancePath, new byte[] { 1, 2, 3 });
+        assertThat(process.instances().findById(id, ProcessInstanceReadMode.READ_ONLY).get().variables().get("test"))
+                .isEqualTo("A");
+        assertThat(snapshotPath).doesNotExist();
+        assertThat(Files.readAllBytes(instancePath)).isEqualTo(snapshot);
+    }
+
+    private void updateVariable(UnitOfWorkManager uowManager, BpmnProcess process, String id, String value) {
+        UnitOfWork uow = uowManager.newUnitOfWork();
+        uow.start();
+        process.instances().findById(id).get()
+                .updateVariables(BpmnVariables.create(Collections.singletonMap("test", value)));
+        uow.end();
+    }
+
     @Test
     void testBasicFlowVersionedProcess() {
         BpmnProcess process = createProcess(null, "BPMN2-UserTaskVersioned.bpmn2");
@@ -438,6 +724,32 @@ public class FileSystemProcessInstancesTest {
 
     private class FileSystemProcessInstancesFactory extends AbstractProcessInstancesFactory {
 
+        private Optional<Integer> deltaSnapshotInterval = Optional.empty();
+
+        FileSystemProcessInstancesFactory() {
+        }
+
+        FileSystemProcessInstancesFactory(int deltaSnapshotInterval) {
+            this.deltaSnapshotInterval = Optional.of(deltaSnapshotInterval);
+        }
+
+        private StoredDataCodec codec = StoredDataCodec.NO_OP_CODEC;
+
+        @Override
+        public Optional<Integer> deltaSnapshotInterval() {
+            return deltaSnapshotInterval;
+        }
+
+        FileSystemProcessInstancesFactory withCodec(StoredDataCodec codec) {
+            this.codec = codec;
+            return this;
+        }
+
+        @Override
+        public StoredDataCodec codec() {
+            return codec;
+        }
+
         @Override
         public FileSystemProcessInstances createProcessInstances(Process<?> process) {
             FileSystemProcessInstances instances = spy(super.createProcessInstances(process));
@@ -0,0 +1,159 @@
+package io.automatiko.engine.addons.persistence.filesystem;
+
+import static io.automatiko.engine.api.runtime.process.ProcessInstance.STATE_ACTIVE;
+import static io.automatiko.engine.api.runtime.process.ProcessInstance.STATE_COMPLETED;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import io.automatiko.engine.api.workflow.ProcessInstances;
+
+public class IndexerTest {
+
+    @TempDir
+    Path storage;
+
+    @Test
+    public void testIndexSurvivesRestart() {
+        Indexer indexer = new Indexer(storage);
+        indexer.index("1", STATE_ACTIVE, "first", Arrays.asList("important"), null);
+        indexer.index("2", STATE_ACTIVE, null, Collections.emptyList(), null);
+        indexer.index("3", STATE_ACTIVE, null, Arrays.asList("important"), null);
+        indexer.index("3", STATE_COMPLETED, null, Arrays.asList("important"), null);
+        indexer.remove("2", null);
+        indexer.close();
+
+        indexer = new Indexer(storage);
+        try {
+            assertThat(indexer.size()).isEqualTo(2);
+            assertThat(indexer.count(STATE_ACTIVE)).isEqualTo(1);
+            assertThat(indexer.count(STATE_COMPLETED)).isEqualTo(1);
+            assertThat(indexer.status("3")).isEqualTo(STATE_COMPLETED);
+            assertThat(indexer.status("2")).isNull();
+            assertThat(indexer.find(STATE_ACTIVE, "important")).containsExactly("1");
+            assertThat(indexer.find(STATE_ACTIVE, "first")).containsExactly("1");
+            assertThat(indexer.find(STATE_COMPLETED, "important")).containsExactly("3");
+        } finally {
+            indexer.close();
+        }
+    }
+
+    @Test
+    public void testPagingAndSorting() {
+        Indexer indexer = new Indexer(storage);
+        try {
+            indexer.index("b", STATE_ACTIVE, "key2", Collections.emptyList(), null);
+            indexer.index("a", STATE_ACTIVE, null, Collections.emptyList(), null);
+            indexer.index("c", STATE_ACTIVE, "key1", Collections.emptyList(), null);
+
+            assertThat(ids(indexer.instances(STATE_ACTIVE, 1, 2))).containsExactly("a", "b");
+            assertThat(ids(indexer.instances(STATE_ACTIVE, 2, 2))).containsExactly("c");
+            assertThat(ids(indexer.instances(STATE_ACTIVE, 0, 10, ProcessInstances.ID_SORT_KEY, false)))
+                    .containsExactly("c", "b", "a");
+            // instances without business key are sorted last
+            assertThat(ids(indexer.instances(STATE_ACTIVE, 0, 10, ProcessInstances.BUSINESS_KEY_SORT_KEY, true)))
+                    .containsExactly("c", "b", "a");
+        } finally {
+            indexer.close();
+        }
+    }
+
+    @Test
+    public void testIndexCompacted() throws IOException {
+        Indexer indexer = new Indexer(storage);
+        for (int i = 0; i < 20000; i++) {
+            indexer.index("instance", STATE_ACTIVE, "key", Arrays.asList("tag" + i), null);
+        }
+        indexer.close();
+
+        assertThat(indexFiles()).hasSize(1);
+        assertThat(Files.size(indexFiles().iterator().next())).isLessThan(4 * 1024 * 1024);
+
+        indexer = new Indexer(storage);
+        try {
+            assertThat(indexer.size()).isEqualTo(1);
+            assertThat(indexer.find(STATE_ACTIVE, "tag19999")).containsExactly("instance");
+            assertThat(indexer.find(STATE_ACTIVE, "tag0")).isEmpty();
+        } finally {
+            indexer.close();
+        }
+    }
+
+    @Test
+    public void testCorruptedIndexRebuilt() throws IOException {
+        Indexer indexer = new Indexer(storage);
+        indexer.index("1", STATE_ACTIVE, null, Collections.emptyList(), null);
+        indexer.close();
+
+        Path indexFile = indexFiles().iterator().next();
+        byte[] content = Files.readAllBytes(indexFile);
+        content[10] ^= 0xFF;
+        Files.write(indexFile, content);
+
+        // no stored instances so rebuilt index is empty
+        indexer = new Indexer(storage);
+        try {
+            assertThat(indexer.size()).isEqualTo(0);
+            assertThat(indexFiles()).hasSize(1);
+        } finally {
+            indexer.close();
+        }
+    }
+
+    @Test
+    public void testUnclosedIndexRebuilt() throws IOException {
+        Files.write(storage.resolve("1"), new byte[0]);
+        Properties metadata = new Properties();
+        metadata.setProperty(FileSystemProcessInstances.PI_STATUS, String.valueOf(STATE_ACTIVE));
+        try (OutputStream out = Files.newOutputStream(storage.resolve("._metadata_1"))) {
+            metadata.store(out, null);
+        }
+
+        Indexer indexer = new Indexer(storage);
+        indexer.index("2", STATE_ACTIVE, null, Collections.emptyList(), null);
+        // released without close as after a crash
+        indexer.release();
+
+        indexer = new Indexer(storage);
+        assertThat(indexer.size()).isEqualTo(1);
+        assertThat(indexer.status("1")).isEqualTo(STATE_ACTIVE);
+        assertThat(indexer.status("2")).isNull();
+        indexer.close();
+
+        // closed index is loaded but it is not complete again until it is closed
+        indexer = new Indexer(storage);
+        indexer.index("3", STATE_ACTIVE, null, Collections.emptyList(), null);
+        indexer.release();
+
+        indexer = new Indexer(storage);
+        try {
+            assertThat(indexer.size()).isEqualTo(1);
+            assertThat(indexer.status("3")).isNull();
+        } finally {
+            indexer.close();
+        }
+    }
+
+    private Collection<String> ids(Collection<IndexedInstance> instances) {
+        return instances.stream().map(IndexedInstance::id).collect(Collectors.toList());
+    }
+
+    private List<Path> indexFiles() throws IOException {
+        try (Stream<Path> files = Files.list(storage.resolve(".index"))) {
+            return files.collect(Collectors.toList());
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package io.automatiko.engine.addons.persistence.filesystem;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import io.automatiko.engine.addons.persistence.common.JacksonObjectMarshallingStrategy;
+import io.automatiko.engine.addons.persistence.data.Address;
+import io.automatiko.engine.addons.persistence.data.Person;
+import io.automatiko.engine.addons.persistence.data.PostalAddress;
+import io.automatiko.engine.services.io.ClassPathResource;
+import io.automatiko.engine.workflow.bpmn2.BpmnProcess;
+
+public class JacksonObjectMarshallingStrategyTest {
+
+    private JacksonObjectMarshallingStrategy strategy;
+
+    @BeforeEach
+    public void setup() {
+        BpmnProcess process = BpmnProcess.from(new ClassPathResource("BPMN2-PersonUserTask.bpmn2")).get(0);
+        strategy = new JacksonObjectMarshallingStrategy(process);
+    }
+
+    @Test
+    public void testDeclaredTypeWithoutTypeInformation() throws Exception {
+        Person person = new Person("John", 30);
+        person.addAddress(new Address("first", "Brisbane", "00000", "Australia", true));
+
+        byte[] data = strategy.marshal(null, null, person);
+        assertThat(new String(data, StandardCharsets.UTF_8)).doesNotContain(Person.class.getName())
+                .doesNotContain(String.class.getName());
+
+        Object value = strategy.unmarshal(strategy.getType(Person.class), null, null, data, null);
+        assertThat(value).isEqualTo(person);
+
+        data = strategy.marshal(null, null, "test");
+        assertThat(strategy.unmarshal(strategy.getType(String.class), null, null, data, null)).isEqualTo("test");
+    }
+
+    @Test
+    public void testDeclaredTypeWithAnnotatedSubclasses() throws Exception {
+        Person person = new Person("John", 30);
+        person.setPrimaryAddress(new PostalAddress("PO 123", "Brisbane", "00000", "Australia"));
+        person.addAddress(new Address("first", "Brisbane", "00000", "Australia", true));
+        person.addAddress(new PostalAddress("PO 456", "Sydney", "11111", "Australia"));
+
+        byte[] data = strategy.marshal(null, null, person);
+        // only properties that declare type information carry it
+        assertThat(new String(data, StandardCharsets.UTF_8)).contains(PostalAddress.class.getName())
+                .doesNotContain(Person.class.getName());
+
+        Person value = (Person) strategy.unmarshal(strategy.getType(Person.class), null, null, data, null);
+        assertThat(value).isEqualTo(person);
+        assertThat(value.getPrimaryAddress()).isInstanceOf(PostalAddress.class);
+        assertThat(((PostalAddress) value.getPrimaryAddress()).getPoBox()).isEqualTo("PO 123");
+        assertThat(value.getAddresses()).hasSize(2);
+        assertThat(value.getAddresses().get(0)).isExactlyInstanceOf(Address.class);
+        assertThat(value.getAddresses().get(1)).isInstanceOf(PostalAddress.class);
+    }
+
+    @Test
+    public void testUndeclaredTypeWithTypeInformation() throws Exception {
+        Map<String, Object> map = new HashMap<>();
+        map.put("person", new Person("John", 30));
+
+        byte[] data = strategy.marshal(null, null, map);
+        assertThat(new String(data, StandardCharsets.UTF_8)).contains(Person.class.getName());
+
+        Object value = strategy.unmarshal(strategy.getType(HashMap.class), null, null, data, null);
+        assertThat(value).isEqualTo(map);
+    }
+
+    @Test
+    public void testReadPreviouslyStoredData() throws Exception {
+        Person person = new Person("John", 30);
+        // format used before types of variables were taken into account
+        byte[] data = strategy.mapper().writeValueAsBytes(person);
+
+        Object value = strategy.unmarshal(strategy.getType(Person.class), null, null, data, null);
+        assertThat(value).isEqualTo(person);
+
+        data = strategy.mapper().writeValueAsBytes(Collections.singletonList("test"));
+        value = strategy.unmarshal(null, null, null, data, null);
+        assertThat(value).isEqualTo(Collections.singletonList("test"));
+    }
+}
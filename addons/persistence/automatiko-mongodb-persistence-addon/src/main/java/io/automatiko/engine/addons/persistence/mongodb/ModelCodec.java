@@ -0,0 +1,264 @@
+package io.automatiko.engine.addons.persistence.mongodb;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Set;
+
+import org.bson.BsonBinary;
+import org.bson.BsonReader;
+import org.bson.BsonType;
+import org.bson.BsonWriter;
+import org.bson.codecs.Codec;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
+import org.bson.codecs.configuration.CodecProvider;
+import org.bson.codecs.configuration.CodecRegistry;
+import org.bson.types.Decimal128;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+
+import io.automatiko.engine.api.Model;
+
+/**
+ * BSON codec for workflow data model classes. It uses Jackson mapping of the model (so the same annotations and
+ * configuration apply as for other persistence types) but streams Jackson tokens directly to and from BSON
+ * instead of going through JSON text.
+ * <br/>
+ * Top level fields given as excluded (e.g. transient variables) are not written.
+ */
+public class ModelCodec<T extends Model> implements Codec<T>, CodecProvider {
+
+    private final ObjectMapper mapper;
+
+    private final Class<T> modelClass;
+
+    private final Set<String> excluded;
+
+    public ModelCodec(ObjectMapper mapper, Class<T> modelClass) {
+        this(mapper, modelClass, Collections.emptySet());
+    }
+
+    public ModelCodec(ObjectMapper mapper, Class<T> modelClass, Set<String> excluded) {
+        this.mapper = mapper;
+        this.modelClass = modelClass;
+        this.excluded = excluded;
+    }
+
+    @Override
+    public Class<T> getEncoderClass() {
+        return modelClass;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public <C> Codec<C> get(Class<C> clazz, CodecRegistry registry) {
+        if (modelClass.equals(clazz)) {
+            return (Codec<C>) this;
+        }
+        return null;
+    }
+
+    @Override
+    public void encode(BsonWriter writer, T value, EncoderContext encoderContext) {
+        try {
+            TokenBuffer buffer = new TokenBuffer(mapper, false);
+            mapper.writeValue(buffer, value);
+
+            try (JsonParser parser = buffer.asParser()) {
+                writeTokens(writer, parser, excluded);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public T decode(BsonReader reader, DecoderContext decoderContext) {
+        try {
+            TokenBuffer buffer = new TokenBuffer(mapper, false);
+            readValue(reader, buffer);
+
+            try (JsonParser parser = buffer.asParser()) {
+                return mapper.readValue(parser, modelClass);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Writes all tokens of given parser, top level fields with names given as excluded are skipped
+     */
+    protected void writeTokens(BsonWriter writer, JsonParser parser, Set<String> excluded) throws IOException {
+        int depth = 0;
+        JsonToken token;
+        while ((token = parser.nextToken()) != null) {
+            switch (token) {
+                case START_OBJECT:
+                    depth++;
+                    writer.writeStartDocument();
+                    break;
+                case END_OBJECT:
+                    depth--;
+                    writer.writeEndDocument();
+                    break;
+                case START_ARRAY:
+                    depth++;
+                    writer.writeStartArray();
+                    break;
+                case END_ARRAY:
+                    depth--;
+                    writer.writeEndArray();
+                    break;
+                case FIELD_NAME:
+                    if (depth == 1 && excluded.contains(parser.getCurrentName())) {
+                        parser.nextToken();
+                        parser.skipChildren();
+                    } else {
+                        writer.writeName(parser.getCurrentName());
+                    }
+                    break;
+                default:
+                    writeScalar(writer, token, parser);
+            }
+        }
+    }
+
+    protected void writeScalar(BsonWriter writer, JsonToken token, JsonParser parser) throws IOException {
+        switch (token) {
+            case VALUE_STRING:
+                writer.writeString(parser.getText());
+                break;
+            case VALUE_NUMBER_INT:
+                switch (parser.getNumberType()) {
+                    case INT:
+                        writer.writeInt32(parser.getIntValue());
+                        break;
+                    case LONG:
+                        writer.writeInt64(parser.getLongValue());
+                        break;
+                    default:
+                        writeDecimal(writer, new BigDecimal(parser.getBigIntegerValue()));
+                }
+                break;
+            case VALUE_NUMBER_FLOAT:
+                if (parser.getNumberType() == JsonParser.NumberType.BIG_DECIMAL) {
+                    writeDecimal(writer, parser.getDecimalValue());
+                } else {
+                    writer.writeDouble(parser.getDoubleValue());
+                }
+                break;
+            case VALUE_TRUE:
+                writer.writeBoolean(true);
+                break;
+            case VALUE_FALSE:
+                writer.writeBoolean(false);
+                break;
+            case VALUE_EMBEDDED_OBJECT:
+                Object embedded = parser.getEmbeddedObject();
+                if (embedded == null) {
+                    writer.writeNull();
+                } else if (embedded instanceof byte[]) {
+                    writer.writeBinaryData(new BsonBinary((byte[]) embedded));
+                } else if (embedded instanceof Date) {
+                    writer.writeDateTime(((Date) embedded).getTime());
+                } else {
+                    writeEmbedded(writer, embedded);
+                }
+                break;
+            default:
+                writer.writeNull();
+        }
+    }
+
+    /**
+     * Writes embedded object of other type by its JSON representation, JSON parser never returns embedded objects
+     * so this does not recurse. Objects that cannot be written as JSON fail the encoding.
+     */
+    protected void writeEmbedded(BsonWriter writer, Object embedded) throws IOException {
+        byte[] json = mapper.writeValueAsBytes(embedded);
+        try (JsonParser parser = mapper.getFactory().createParser(json)) {
+            writeTokens(writer, parser, Collections.emptySet());
+        }
+    }
+
+    protected void writeDecimal(BsonWriter writer, BigDecimal value) {
+        try {
+            writer.writeDecimal128(new Decimal128(value));
+        } catch (NumberFormatException e) {
+            // out of Decimal128 range, Jackson reads numeric strings back into BigDecimal/BigInteger
+            writer.writeString(value.toPlainString());
+        }
+    }
+
+    protected void readValue(BsonReader reader, TokenBuffer buffer) throws IOException {
+        BsonType type = reader.getCurrentBsonType();
+        if (type == null) {
+            type = reader.readBsonType();
+        }
+        switch (type) {
+            case DOCUMENT:
+                reader.readStartDocument();
+                buffer.writeStartObject();
+                while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+                    buffer.writeFieldName(reader.readName());
+                    readValue(reader, buffer);
+                }
+                reader.readEndDocument();
+                buffer.writeEndObject();
+                break;
+            case ARRAY:
+                reader.readStartArray();
+                buffer.writeStartArray();
+                while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+                    readValue(reader, buffer);
+                }
+                reader.readEndArray();
+                buffer.writeEndArray();
+                break;
+            case STRING:
+                buffer.writeString(reader.readString());
+                break;
+            case INT32:
+                buffer.writeNumber(reader.readInt32());
+                break;
+            case INT64:
+                buffer.writeNumber(reader.readInt64());
+                break;
+            case DOUBLE:
+                buffer.writeNumber(reader.readDouble());
+                break;
+            case DECIMAL128:
+                buffer.writeNumber(reader.readDecimal128().bigDecimalValue());
+                break;
+            case BOOLEAN:
+                buffer.writeBoolean(reader.readBoolean());
+                break;
+            case DATE_TIME:
+                buffer.writeNumber(reader.readDateTime());
+                break;
+            case TIMESTAMP:
+                buffer.writeNumber(reader.readTimestamp().getValue());
+                break;
+            case BINARY:
+                buffer.writeBinary(reader.readBinaryData().getData());
+                break;
+            case OBJECT_ID:
+                buffer.writeString(reader.readObjectId().toHexString());
+                break;
+            case NULL:
+                reader.readNull();
+                buffer.writeNull();
+                break;
+            default:
+                reader.skipValue();
+                buffer.writeNull();
+        }
+    }
+}
@@ -9,23 +9,28 @@ import static com.mongodb.client.model.Sorts.descending;
 import static io.automatiko.engine.api.workflow.ProcessInstanceReadMode.MUTABLE;
 import static io.automatiko.engine.api.workflow.ProcessInstanceReadMode.MUTABLE_WITH_LOCK;
 
-import java.io.IOException;
 import java.io.UncheckedIOException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashSet;
 import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Supplier;
 
+import com.mongodb.ErrorCategory;
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.bulk.BulkWriteError;
 import com.mongodb.client.MongoClient;
 import com.mongodb.client.MongoCollection;
 import com.mongodb.client.MongoDatabase;
 import com.mongodb.client.model.Filters;
 import com.mongodb.client.model.IndexOptions;
+import com.mongodb.client.model.InsertManyOptions;
 import com.mongodb.client.model.Indexes;
 import com.mongodb.client.model.Projections;
 import com.mongodb.client.model.Updates;
@@ -33,8 +38,10 @@ import com.mongodb.client.model.Updates;
 import org.bson.BsonDocument;
 import org.bson.BsonInt32;
 import org.bson.Document;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.configuration.CodecRegistries;
+import org.bson.codecs.configuration.CodecRegistry;
 import org.bson.conversions.Bson;
-import org.bson.types.Binary;
 import org.eclipse.microprofile.config.inject.ConfigProperty;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -99,6 +106,10 @@ public class MongodbProcessInstances implements MutableProcessInstances {
 
     private String tableName;
 
+    private ModelCodec modelCodec;
+
+    private CodecRegistry codecRegistry;
+
     private Map<String, ProcessInstance> cachedInstances = new ConcurrentHashMap<>();
 
     private TransactionLog transactionLog;
@@ -132,6 +143,11 @@ public class MongodbProcessInstances implements MutableProcessInstances {
 
         // mark the marshaller that it should not serialize variables
         this.marshaller.addToEnvironment("_ignore_vars_", true);
+        // variables are stored as sub document, encoded and decoded directly from/to the model class
+        this.modelCodec = new ModelCodec(marshallingStrategy.mapper(), process.createModel().getClass(),
+                transientVariables());
+        this.codecRegistry = CodecRegistries.fromRegistries(CodecRegistries.fromProviders(modelCodec),
+                mongoClient.getDatabase(this.database.orElse("automatiko")).getCodecRegistry());
 
         collection().createIndex(Indexes.compoundIndex(Indexes.ascending(INSTANCE_ID_FIELD), Indexes.ascending(STATUS_FIELD)),
                 new IndexOptions().unique(true));
@@ -175,11 +191,11 @@ public class MongodbProcessInstances implements MutableProcessInstances {
                                 : marshaller.unmarshallReadOnlyProcessInstance(content, process)));
             }
         }
-        Document found;
+        RawBsonDocument found;
         if (mode.equals(ProcessInstanceReadMode.MUTABLE_WITH_LOCK)) {
             found = findAndLock(resolvedId);
         } else {
-            found = collection().find(and(eq(INSTANCE_ID_FIELD, resolvedId), eq(STATUS_FIELD, status)))
+            found = rawCollection().find(and(eq(INSTANCE_ID_FIELD, resolvedId), eq(STATUS_FIELD, status)))
                     .projection(Projections
                             .fields(Projections.include(INSTANCE_ID_FIELD, CONTENT_FIELD, VERSION_FIELD, VARIABLES_FIELD)))
                     .first();
@@ -197,7 +213,7 @@ public class MongodbProcessInstances implements MutableProcessInstances {
     public Collection values(ProcessInstanceReadMode mode, int status, int page, int size, String sortBy, boolean sortAsc) {
         Collection found = new ArrayList<>();
         if (mode.equals(ProcessInstanceReadMode.MUTABLE_WITH_LOCK)) {
-            collection().find(eq(STATUS_FIELD, status))
+            rawCollection().find(eq(STATUS_FIELD, status))
                     .sort(sortAsc ? ascending(adjustSortKey(sortBy)) : descending(adjustSortKey(sortBy)))
                     .projection(Projections
                             .fields(Projections.include(INSTANCE_ID_FIELD, CONTENT_FIELD, VERSION_FIELD, VARIABLES_FIELD)))
@@ -205,13 +221,13 @@ public class MongodbProcessInstances implements MutableProcessInstances {
                     .limit(size)
                     .forEach(item -> {
                         found.add(audit(unmarshallInstance(mode, item)));
-                        Document locked = findAndLock(item.getString(INSTANCE_ID_FIELD));
+                        RawBsonDocument locked = findAndLock(item.getString(INSTANCE_ID_FIELD).getValue());
 
                         found.add(unmarshallInstance(mode, locked));
                     });
         } else {
 
-            collection().find(eq(STATUS_FIELD, status))
+            rawCollection().find(eq(STATUS_FIELD, status))
                     .sort(sortAsc ? ascending(adjustSortKey(sortBy)) : descending(adjustSortKey(sortBy)))
                     .projection(Projections
                             .fields(Projections.include(INSTANCE_ID_FIELD, CONTENT_FIELD, VERSION_FIELD, VARIABLES_FIELD)))
@@ -226,20 +242,20 @@ public class MongodbProcessInstances implements MutableProcessInstances {
     public Collection values(ProcessInstanceReadMode mode, int status, int page, int size) {
         Collection found = new ArrayList<>();
         if (mode.equals(ProcessInstanceReadMode.MUTABLE_WITH_LOCK)) {
-            collection().find(eq(STATUS_FIELD, status))
+            rawCollection().find(eq(STATUS_FIELD, status))
                     .projection(Projections
                             .fields(Projections.include(INSTANCE_ID_FIELD, CONTENT_FIELD, VERSION_FIELD, VARIABLES_FIELD)))
                     .skip(calculatePage(page, size))
                     .limit(size)
                     .forEach(item -> {
                         found.add(audit(unmarshallInstance(mode, item)));
-                        Document locked = findAndLock(item.getString(INSTANCE_ID_FIELD));
+                        RawBsonDocument locked = findAndLock(item.getString(INSTANCE_ID_FIELD).getValue());
 
                         found.add(unmarshallInstance(mode, locked));
                     });
         } else {
 
-            collection().find(eq(STATUS_FIELD, status))
+            rawCollection().find(eq(STATUS_FIELD, status))
                     .projection(Projections
                             .fields(Projections.include(INSTANCE_ID_FIELD, CONTENT_FIELD, VERSION_FIELD, VARIABLES_FIELD)))
                     .skip(calculatePage(page, size))
@@ -254,18 +270,18 @@ public class MongodbProcessInstances implements MutableProcessInstances {
             String... values) {
         Collection found = new ArrayList<>();
         if (mode.equals(ProcessInstanceReadMode.MUTABLE_WITH_LOCK)) {
-            collection().find(and(in(TAGS_FIELD, values), eq(STATUS_FIELD, status)))
+            rawCollection().find(and(in(TAGS_FIELD, values), eq(STATUS_FIELD, status)))
                     .sort(sortAsc ? ascending(adjustSortKey(sortBy)) : descending(adjustSortKey(sortBy)))
                     .projection(Projections
                             .fields(Projections.include(INSTANCE_ID_FIELD, CONTENT_FIELD, VERSION_FIELD, VARIABLES_FIELD)))
                     .forEach(item -> {
-                        Document locked = findAndLock(item.getString(INSTANCE_ID_FIELD));
+                        RawBsonDocument locked = findAndLock(item.getString(INSTANCE_ID_FIELD).getValue());
 
                         found.add(unmarshallInstance(mode, locked));
                     });
         } else {
 
-            collection().find(and(in(TAGS_FIELD, values), eq(STATUS_FIELD, status)))
+            rawCollection().find(and(in(TAGS_FIELD, values), eq(STATUS_FIELD, status)))
                     .sort(sortAsc ? ascending(adjustSortKey(sortBy)) : descending(adjustSortKey(sortBy)))
                     .projection(Projections
                             .fields(Projections.include(INSTANCE_ID_FIELD, CONTENT_FIELD, VERSION_FIELD, VARIABLES_FIELD)))
@@ -278,17 +294,17 @@ public class MongodbProcessInstances implements MutableProcessInstances {
     public Collection findByIdOrTag(ProcessInstanceReadMode mode, int status, String... values) {
         Collection found = new ArrayList<>();
         if (mode.equals(ProcessInstanceReadMode.MUTABLE_WITH_LOCK)) {
-            collection().find(and(in(TAGS_FIELD, values), eq(STATUS_FIELD, status)))
+            rawCollection().find(and(in(TAGS_FIELD, values), eq(STATUS_FIELD, status)))
                     .projection(Projections
                             .fields(Projections.include(INSTANCE_ID_FIELD, CONTENT_FIELD, VERSION_FIELD, VARIABLES_FIELD)))
                     .forEach(item -> {
-                        Document locked = findAndLock(item.getString(INSTANCE_ID_FIELD));
+                        RawBsonDocument locked = findAndLock(item.getString(INSTANCE_ID_FIELD).getValue());
 
                         found.add(unmarshallInstance(mode, locked));
                     });
         } else {
 
-            collection().find(and(in(TAGS_FIELD, values), eq(STATUS_FIELD, status)))
+            rawCollection().find(and(in(TAGS_FIELD, values), eq(STATUS_FIELD, status)))
                     .projection(Projections
                             .fields(Projections.include(INSTANCE_ID_FIELD, CONTENT_FIELD, VERSION_FIELD, VARIABLES_FIELD)))
                     .forEach(item -> found.add(audit(unmarshallInstance(mode, item))));
@@ -326,155 +342,172 @@ public class MongodbProcessInstances implements MutableProcessInstances {
     @Override
     public void create(String id, ProcessInstance instance) {
         String resolvedId = resolveId(id, instance);
-        try {
-            if (isActive(instance)) {
+        if (isActive(instance)) {
 
-                byte[] data = codec.encode(marshaller.marhsallProcessInstance(instance));
+            byte[] data = codec.encode(marshaller.marhsallProcessInstance(instance));
 
-                if (data == null) {
-                    return;
-                }
-                Model entity = (Model) instance.variables();
+            if (data == null) {
+                return;
+            }
+            Document item = toDocument(resolvedId, instance, data);
 
-                String variablesJson = marshallingStrategy.mapper().writeValueAsString(entity);
+            try {
+                collection().insertOne(item);
 
-                Document variables = Document.parse(variablesJson);
-                removeTransientVariables(variables, instance);
+                Supplier<AuditEntry> entry = () -> BaseAuditEntry.persitenceWrite(instance)
+                        .add("message", "Workflow instance created in the MongoDB based data store");
 
-                Collection<String> tags = new LinkedHashSet<>(instance.tags().values());
-                tags.add(resolvedId);
-                if (instance.businessKey() != null) {
-                    tags.add(instance.businessKey());
-                }
+                auditor.publish(entry);
+            } finally {
+                cachedInstances.remove(resolvedId);
+                cachedInstances.remove(id);
 
-                Document item = new Document(INSTANCE_ID_FIELD, resolvedId)
-                        .append(CONTENT_FIELD, data)
-                        .append(STATUS_FIELD, instance.status())
-                        .append(TAGS_FIELD, tags)
-                        .append(BUSINESS_KEY_FIELD, instance.businessKey())
-                        .append(INSTANCE_DESC_FIELD, instance.description())
-                        .append(VERSION_FIELD, ((AbstractProcessInstance<?>) instance).getVersionTracker())
-                        .append(VARIABLES_FIELD, variables)
-                        .append(START_DATE_FIELD, instance.startDate());
-
-                if (instance.endDate() != null) {
-
-                    item.append(END_DATE_FIELD, instance.endDate());
-                    if (instance.expiresAtDate() != null) {
-                        item.append(EXPIRED_AT_FIELD, instance.expiresAtDate());
-                    }
-                }
+                disconnect(instance);
+            }
+        } else if (isPending(instance)) {
+            if (cachedInstances.putIfAbsent(resolvedId, instance) != null) {
+                throw new ProcessInstanceDuplicatedException(id);
+            }
+        } else {
+            cachedInstances.remove(resolvedId);
+            cachedInstances.remove(id);
+        }
+    }
 
-                try {
-                    collection().insertOne(item);
+    @Override
+    public void createAll(Map instances) {
+        List<Document> items = new ArrayList<>();
+        List<ProcessInstance> inserted = new ArrayList<>();
+        for (Object element : instances.entrySet()) {
+            Map.Entry<String, ProcessInstance> entry = (Map.Entry<String, ProcessInstance>) element;
+            ProcessInstance instance = entry.getValue();
+            if (!isActive(instance)) {
+                // pending and finished instances do not reach the data store
+                create(entry.getKey(), instance);
+                continue;
+            }
+            String resolvedId = resolveId(entry.getKey(), instance);
+            byte[] data = codec.encode(marshaller.marhsallProcessInstance(instance));
+            if (data == null) {
+                continue;
+            }
+            items.add(toDocument(resolvedId, instance, data));
+            inserted.add(instance);
 
+            cachedInstances.remove(resolvedId);
+            cachedInstances.remove(entry.getKey());
+        }
+        if (items.isEmpty()) {
+            return;
+        }
+        Set<Integer> failed = new HashSet<>();
+        try {
+            // unordered so single failed document does not prevent others from being inserted
+            collection().insertMany(items, new InsertManyOptions().ordered(false));
+        } catch (MongoBulkWriteException e) {
+            e.getWriteErrors().forEach(error -> failed.add(error.getIndex()));
+            // same instance id already stored, reported the same way as single inserts
+            Optional<BulkWriteError> duplicate = e.getWriteErrors().stream()
+                    .filter(error -> ErrorCategory.fromErrorCode(error.getCode()) == ErrorCategory.DUPLICATE_KEY).findFirst();
+            if (duplicate.isPresent()) {
+                throw new ProcessInstanceDuplicatedException(
+                        items.get(duplicate.get().getIndex()).getString(INSTANCE_ID_FIELD), e);
+            }
+            throw e;
+        } finally {
+            for (int i = 0; i < inserted.size(); i++) {
+                ProcessInstance instance = inserted.get(i);
+                if (!failed.contains(i)) {
                     Supplier<AuditEntry> entry = () -> BaseAuditEntry.persitenceWrite(instance)
                             .add("message", "Workflow instance created in the MongoDB based data store");
 
                     auditor.publish(entry);
-                } finally {
-                    cachedInstances.remove(resolvedId);
-                    cachedInstances.remove(id);
-
-                    disconnect(instance);
                 }
-            } else if (isPending(instance)) {
-                if (cachedInstances.putIfAbsent(resolvedId, instance) != null) {
-                    throw new ProcessInstanceDuplicatedException(id);
-                }
-            } else {
-                cachedInstances.remove(resolvedId);
-                cachedInstances.remove(id);
+                disconnect(instance);
             }
-        } catch (IOException e) {
-            throw new UncheckedIOException(e);
         }
     }
 
-    @Override
-    public void update(String id, ProcessInstance instance) {
-        String resolvedId = resolveId(id, instance);
-        try {
-            if (isActive(instance)) {
+    protected Document toDocument(String resolvedId, ProcessInstance instance, byte[] data) {
+        Model entity = (Model) instance.variables();
 
-                byte[] data = codec.encode(marshaller.marhsallProcessInstance(instance));
+        Collection<String> tags = new LinkedHashSet<>(instance.tags().values());
+        tags.add(resolvedId);
+        if (instance.businessKey() != null) {
+            tags.add(instance.businessKey());
+        }
 
-                if (data == null) {
-                    return;
-                }
-                Model entity = (Model) instance.variables();
+        Document item = new Document(INSTANCE_ID_FIELD, resolvedId)
+                .append(CONTENT_FIELD, data)
+                .append(STATUS_FIELD, instance.status())
+                .append(TAGS_FIELD, tags)
+                .append(BUSINESS_KEY_FIELD, instance.businessKey())
+                .append(INSTANCE_DESC_FIELD, instance.description())
+                .append(VERSION_FIELD, ((AbstractProcessInstance<?>) instance).getVersionTracker())
+                .append(VARIABLES_FIELD, entity)
+                .append(START_DATE_FIELD, instance.startDate());
+
+        if (instance.endDate() != null) {
+
+            item.append(END_DATE_FIELD, instance.endDate());
+            if (instance.expiresAtDate() != null) {
+                item.append(EXPIRED_AT_FIELD, instance.expiresAtDate());
+            }
+        }
 
-                String variablesJson = marshallingStrategy.mapper().writeValueAsString(entity);
+        return item;
+    }
 
-                Document variables = Document.parse(variablesJson);
-                removeTransientVariables(variables, instance);
+    @Override
+    public void update(String id, ProcessInstance instance) {
+        String resolvedId = resolveId(id, instance);
+        if (isActive(instance)) {
 
-                Collection<String> tags = new LinkedHashSet<>(instance.tags().values());
-                tags.add(resolvedId);
-                if (instance.businessKey() != null) {
-                    tags.add(instance.businessKey());
-                }
+            byte[] data = codec.encode(marshaller.marhsallProcessInstance(instance));
 
-                Document item = new Document(INSTANCE_ID_FIELD, resolvedId)
-                        .append(CONTENT_FIELD, data)
-                        .append(STATUS_FIELD, instance.status())
-                        .append(TAGS_FIELD, tags)
-                        .append(BUSINESS_KEY_FIELD, instance.businessKey())
-                        .append(INSTANCE_DESC_FIELD, instance.description())
-                        .append(VERSION_FIELD, ((AbstractProcessInstance<?>) instance).getVersionTracker())
-                        .append(VARIABLES_FIELD, variables)
-                        .append(START_DATE_FIELD, instance.startDate());
-
-                if (instance.endDate() != null) {
-
-                    item.append(END_DATE_FIELD, instance.endDate());
-                    if (instance.expiresAtDate() != null) {
-                        item.append(EXPIRED_AT_FIELD, instance.expiresAtDate());
-                    }
-                }
+            if (data == null) {
+                return;
+            }
+            Document item = toDocument(resolvedId, instance, data);
+
+            try {
+                Document replaced = collection().findOneAndReplace(and(eq(INSTANCE_ID_FIELD, resolvedId),
+                        eq(VERSION_FIELD, ((AbstractProcessInstance<?>) instance).getVersionTracker())), item);
 
-                try {
-                    Document replaced = collection().findOneAndReplace(and(eq(INSTANCE_ID_FIELD, resolvedId),
-                            eq(VERSION_FIELD, ((AbstractProcessInstance<?>) instance).getVersionTracker())), item);
+                if (replaced == null) {
 
-                    if (replaced == null) {
+                    if (transactionLog.contains(process.id(), instance.id())) {
+                        collection().insertOne(item);
+                    } else {
+                        Document found = collection().find(eq(INSTANCE_ID_FIELD, resolvedId))
+                                .projection(Projections.fields(Projections.include(INSTANCE_ID_FIELD))).first();
 
-                        if (transactionLog.contains(process.id(), instance.id())) {
-                            collection().insertOne(item);
+                        if (found != null) {
+                            throw new ConflictingVersionException("Process instance with id '" + instance.id()
+                                    + "' has older version than the stored one");
                         } else {
-                            Document found = collection().find(eq(INSTANCE_ID_FIELD, resolvedId))
-                                    .projection(Projections.fields(Projections.include(INSTANCE_ID_FIELD))).first();
-
-                            if (found != null) {
-                                throw new ConflictingVersionException("Process instance with id '" + instance.id()
-                                        + "' has older version than the stored one");
-                            } else {
-                                collection().insertOne(item);
-                            }
+                            collection().insertOne(item);
                         }
                     }
-                    Supplier<AuditEntry> entry = () -> BaseAuditEntry.persitenceWrite(instance)
-                            .add("message", "Workflow instance updated in the MongoDB based data store");
-
-                    auditor.publish(entry);
-                } finally {
-                    cachedInstances.remove(resolvedId);
-                    cachedInstances.remove(id);
-
-                    disconnect(instance);
                 }
-            } else if (isPending(instance)) {
-                if (cachedInstances.putIfAbsent(resolvedId, instance) != null) {
-                    throw new ProcessInstanceDuplicatedException(id);
-                }
-            } else {
+                Supplier<AuditEntry> entry = () -> BaseAuditEntry.persitenceWrite(instance)
+                        .add("message", "Workflow instance updated in the MongoDB based data store");
+
+                auditor.publish(entry);
+            } finally {
                 cachedInstances.remove(resolvedId);
                 cachedInstances.remove(id);
+
+                disconnect(instance);
+            }
+        } else if (isPending(instance)) {
+            if (cachedInstances.putIfAbsent(resolvedId, instance) != null) {
+                throw new ProcessInstanceDuplicatedException(id);
             }
-        } catch (IOException e) {
-            throw new UncheckedIOException(e);
+        } else {
+            cachedInstances.remove(resolvedId);
+            cachedInstances.remove(id);
         }
-
     }
 
     @Override
@@ -525,93 +558,69 @@ public class MongodbProcessInstances implements MutableProcessInstances {
 
     protected MongoCollection<Document> collection() {
         MongoDatabase database = mongoClient.getDatabase(this.database.orElse("automatiko"));
-        return database.getCollection(tableName);
+        return database.getCollection(tableName).withCodecRegistry(codecRegistry);
     }
 
-    protected ProcessInstance unmarshallInstance(ProcessInstanceReadMode mode, Document entity) {
-        try {
-            ProcessInstance pi;
-            if (mode == MUTABLE || mode == MUTABLE_WITH_LOCK) {
-                WorkflowProcessInstance wpi = marshaller
-                        .unmarshallWorkflowProcessInstance(codec.decode(entity.get(CONTENT_FIELD, Binary.class).getData()),
-                                process);
-                String variablesJson = entity.get(VARIABLES_FIELD, Document.class).toJson();
-                Model model = process.createModel();
-
-                Map<String, Object> loaded = marshallingStrategy.mapper().readValue(variablesJson, model.getClass()).toMap();
-                model.fromMap(loaded);
-                loaded.forEach((k, v) -> {
-                    if (v != null) {
-                        v.toString();
-                        VariableScopeInstance variableScopeInstance = (VariableScopeInstance) ((ProcessInstanceImpl) wpi)
-                                .getContextInstance(VariableScope.VARIABLE_SCOPE);
-                        variableScopeInstance.internalSetVariable(k, v);
-                    }
-                });
-
-                pi = ((AbstractProcess) process).createInstance(wpi, model, entity.getLong(VERSION_FIELD));
-
-            } else {
-                WorkflowProcessInstance wpi = marshaller
-                        .unmarshallWorkflowProcessInstance(codec.decode(entity.get(CONTENT_FIELD, Binary.class).getData()),
-                                process);
-                String variablesJson = entity.get(VARIABLES_FIELD, Document.class).toJson();
-                Model model = process.createModel();
-
-                Map<String, Object> loaded = marshallingStrategy.mapper().readValue(variablesJson, model.getClass()).toMap();
-                model.fromMap(loaded);
-                loaded.forEach((k, v) -> {
-                    if (v != null) {
-                        v.toString();
-                        VariableScopeInstance variableScopeInstance = (VariableScopeInstance) ((ProcessInstanceImpl) wpi)
-                                .getContextInstance(VariableScope.VARIABLE_SCOPE);
-                        variableScopeInstance.internalSetVariable(k, v);
-                    }
-                });
-                pi = ((AbstractProcess) process).createReadOnlyInstance(wpi, model);
-            }
+    /**
+     * Collection used for reading instances, documents are not decoded up front so variables can be decoded
+     * directly into the model class
+     */
+    protected MongoCollection<RawBsonDocument> rawCollection() {
+        return collection().withDocumentClass(RawBsonDocument.class);
+    }
+
+    protected ProcessInstance unmarshallInstance(ProcessInstanceReadMode mode, RawBsonDocument entity) {
+        WorkflowProcessInstance wpi = marshaller
+                .unmarshallWorkflowProcessInstance(codec.decode(entity.getBinary(CONTENT_FIELD).getData()), process);
+        Model model = loadVariables(wpi, entity);
 
-            return pi;
-        } catch (IOException e) {
-            throw new UncheckedIOException(e);
+        if (mode == MUTABLE || mode == MUTABLE_WITH_LOCK) {
+            return ((AbstractProcess) process).createInstance(wpi, model, entity.getInt64(VERSION_FIELD).getValue());
+        } else {
+            return ((AbstractProcess) process).createReadOnlyInstance(wpi, model);
         }
     }
 
+    /**
+     * Decodes variables of given stored instance into the model and sets them on the workflow instance
+     */
+    protected Model loadVariables(WorkflowProcessInstance wpi, RawBsonDocument entity) {
+        Model model = process.createModel();
+        Map<String, Object> loaded = ((Model) ((RawBsonDocument) entity.getDocument(VARIABLES_FIELD)).decode(modelCodec)).toMap();
+        model.fromMap(loaded);
+
+        VariableScopeInstance variableScopeInstance = (VariableScopeInstance) ((ProcessInstanceImpl) wpi)
+                .getContextInstance(VariableScope.VARIABLE_SCOPE);
+        loaded.forEach((k, v) -> {
+            if (v != null) {
+                variableScopeInstance.internalSetVariable(k, v);
+            }
+        });
+        return model;
+    }
+
     protected void disconnect(ProcessInstance instance) {
         ((AbstractProcessInstance<?>) instance).internalRemoveProcessInstance(() -> {
 
             try {
                 String resolvedId = resolveId(instance.id(), instance);
 
-                Document returnedItem = collection().find(eq(INSTANCE_ID_FIELD, resolvedId))
+                RawBsonDocument returnedItem = rawCollection().find(eq(INSTANCE_ID_FIELD, resolvedId))
                         .projection(Projections
                                 .fields(Projections.include(INSTANCE_ID_FIELD, CONTENT_FIELD, VERSION_FIELD, VARIABLES_FIELD)))
                         .first();
 
                 if (returnedItem != null) {
-                    byte[] reloaded = returnedItem.get(CONTENT_FIELD, Binary.class).getData();
+                    byte[] reloaded = returnedItem.getBinary(CONTENT_FIELD).getData();
 
                     WorkflowProcessInstance wpi = marshaller
                             .unmarshallWorkflowProcessInstance(codec.decode(reloaded), process);
-                    String variablesJson = returnedItem.get(VARIABLES_FIELD, Document.class).toJson();
-                    Model model = process.createModel();
-
-                    Map<String, Object> loaded = marshallingStrategy.mapper().readValue(variablesJson, model.getClass())
-                            .toMap();
-                    model.fromMap(loaded);
-                    loaded.forEach((k, v) -> {
-                        if (v != null) {
-                            v.toString();
-                            VariableScopeInstance variableScopeInstance = (VariableScopeInstance) ((ProcessInstanceImpl) wpi)
-                                    .getContextInstance(VariableScope.VARIABLE_SCOPE);
-                            variableScopeInstance.internalSetVariable(k, v);
-                        }
-                    });
+                    loadVariables(wpi, returnedItem);
                     return wpi;
                 } else {
                     return null;
                 }
-            } catch (IOException e) {
+            } catch (UncheckedIOException e) {
                 LOGGER.error("Unexpected exception thrown when reloading process instance {}", instance.id(), e);
                 return null;
             }
@@ -619,16 +628,17 @@ public class MongodbProcessInstances implements MutableProcessInstances {
         });
     }
 
-    protected void removeTransientVariables(Document variables, ProcessInstance<?> instance) {
-
-        VariableScope variableScope = (VariableScope) ((WorkflowProcess) ((AbstractProcess<?>) instance.process())
+    protected Set<String> transientVariables() {
+        Set<String> transientVariables = new HashSet<>();
+        VariableScope variableScope = (VariableScope) ((WorkflowProcess) ((AbstractProcess<?>) process)
                 .process()).getDefaultContext(VariableScope.VARIABLE_SCOPE);
 
         for (Variable var : variableScope.getVariables()) {
             if (var.hasTag(Variable.TRANSIENT_TAG)) {
-                variables.remove(var.getName());
+                transientVariables.add(var.getName());
             }
         }
+        return transientVariables;
     }
 
     public ProcessInstance<?> audit(ProcessInstance<?> instance) {
@@ -640,12 +650,13 @@ public class MongodbProcessInstances implements MutableProcessInstances {
         return instance;
     }
 
-    protected Document findAndLock(String id) {
+    protected RawBsonDocument findAndLock(String id) {
         long value = System.currentTimeMillis() - configuredLockTimeout;
 
         Bson lockFilter = and(eq(INSTANCE_ID_FIELD, id), or(Filters.exists(LOCK_FIELD, false), Filters.lt(LOCK_FIELD, value)));
 
-        Document locked = collection().findOneAndUpdate(lockFilter, Updates.set(LOCK_FIELD, System.currentTimeMillis()));
+        RawBsonDocument locked = rawCollection().findOneAndUpdate(lockFilter,
+                Updates.set(LOCK_FIELD, System.currentTimeMillis()));
         int limit = 0;
         while (locked == null) {
             if (limit > configuredLockLimit) {
@@ -658,7 +669,7 @@ public class MongodbProcessInstances implements MutableProcessInstances {
             } catch (InterruptedException e) {
             }
 
-            locked = collection().findOneAndUpdate(lockFilter, Updates.set(LOCK_FIELD, System.currentTimeMillis()));
+            locked = rawCollection().findOneAndUpdate(lockFilter, Updates.set(LOCK_FIELD, System.currentTimeMillis()));
 
             limit += configuredLockWait;
         }
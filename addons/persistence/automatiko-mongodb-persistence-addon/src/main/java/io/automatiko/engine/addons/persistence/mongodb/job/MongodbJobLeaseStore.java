@@ -0,0 +1,55 @@
+package io.automatiko.engine.addons.persistence.mongodb.job;
+
+import static com.mongodb.client.model.Filters.eq;
+import static com.mongodb.client.model.Filters.gt;
+import static com.mongodb.client.model.Filters.lt;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.bson.Document;
+
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.ReplaceOptions;
+
+import io.automatiko.engine.addons.persistence.common.jobs.JobLeaseStore;
+
+public class MongodbJobLeaseStore implements JobLeaseStore {
+
+    private static final String NODE_ID_FIELD = "_id";
+    private static final String EXPIRES_AT_FIELD = "expiresAt";
+
+    private static final long EXPIRED_LEASE_RETENTION = TimeUnit.HOURS.toMillis(1);
+
+    private final MongoCollection<Document> collection;
+
+    public MongodbJobLeaseStore(MongoCollection<Document> collection) {
+        this.collection = collection;
+    }
+
+    @Override
+    public void renew(String nodeId, long expiresAt) {
+        collection.replaceOne(eq(NODE_ID_FIELD, nodeId),
+                new Document(NODE_ID_FIELD, nodeId).append(EXPIRES_AT_FIELD, expiresAt),
+                new ReplaceOptions().upsert(true));
+        // clean up leases of nodes that are long gone
+        collection.deleteMany(lt(EXPIRES_AT_FIELD, System.currentTimeMillis() - EXPIRED_LEASE_RETENTION));
+    }
+
+    @Override
+    public Collection<String> active(long now) {
+        List<String> nodes = new ArrayList<>();
+        for (Document lease : collection.find(gt(EXPIRES_AT_FIELD, now)).projection(Projections.include(NODE_ID_FIELD))) {
+            nodes.add(lease.getString(NODE_ID_FIELD));
+        }
+        return nodes;
+    }
+
+    @Override
+    public void release(String nodeId) {
+        collection.deleteOne(eq(NODE_ID_FIELD, nodeId));
+    }
+}
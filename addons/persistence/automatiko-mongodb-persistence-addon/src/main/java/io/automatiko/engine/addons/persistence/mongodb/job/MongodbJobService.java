@@ -2,7 +2,10 @@ package io.automatiko.engine.addons.persistence.mongodb.job;
 
 import static com.mongodb.client.model.Filters.and;
 import static com.mongodb.client.model.Filters.eq;
+import static com.mongodb.client.model.Filters.exists;
+import static com.mongodb.client.model.Filters.gte;
 import static com.mongodb.client.model.Filters.lt;
+import static com.mongodb.client.model.Filters.or;
 import static com.mongodb.client.model.Updates.set;
 
 import java.time.Duration;
@@ -37,10 +40,12 @@ import com.mongodb.client.model.Projections;
 import com.mongodb.client.result.UpdateResult;
 
 import org.bson.Document;
+import org.bson.conversions.Bson;
 import org.eclipse.microprofile.config.inject.ConfigProperty;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import io.automatiko.engine.addons.persistence.common.jobs.JobLeaseManager;
 import io.automatiko.engine.api.Application;
 import io.automatiko.engine.api.Model;
 import io.automatiko.engine.api.audit.AuditEntry;
@@ -80,6 +85,7 @@ public class MongodbJobService implements JobsService {
     private static final String FIRE_LIMIT_FIELD = "jobFireLimit";
     private static final String REPEAT_INTERVAL_FIELD = "jobRepeatInterval";
     private static final String EXPRESSION_FIELD = "jobExpression";
+    private static final String PARTITION_FIELD = "jobPartition";
 
     protected final MongoClient mongoClient;
 
@@ -91,11 +97,15 @@ public class MongodbJobService implements JobsService {
 
     protected final ScheduledThreadPoolExecutor loadScheduler;
 
+    protected final JobLeaseManager leases;
+
     protected Map<String, Process<? extends Model>> mappedProcesses = new HashMap<>();
     protected ConcurrentHashMap<String, ScheduledFuture<?>> scheduledJobs = new ConcurrentHashMap<>();
 
     protected final String tableName = "atk_jobs";
 
+    protected final String leaseTableName = "atk_job_leases";
+
     private Optional<String> database;
 
     private Optional<Long> interval;
@@ -107,7 +117,8 @@ public class MongodbJobService implements JobsService {
             Processes processes, Application application, Auditor auditor,
             @ConfigProperty(name = MongodbJobsConfig.DATABASE_KEY) Optional<String> database,
             @ConfigProperty(name = MongodbJobsConfig.INTERVAL_KEY) Optional<Long> interval,
-            @ConfigProperty(name = MongodbJobsConfig.THREADS_KEY) Optional<Integer> threads) {
+            @ConfigProperty(name = MongodbJobsConfig.THREADS_KEY) Optional<Integer> threads,
+            @ConfigProperty(name = MongodbJobsConfig.LEASE_DURATION_KEY) Optional<Long> leaseDuration) {
         this.mongoClient = mongoClient;
         this.database = database;
         this.interval = interval;
@@ -121,68 +132,96 @@ public class MongodbJobService implements JobsService {
         this.scheduler = new ScheduledThreadPoolExecutor(this.threads.orElse(1),
                 r -> new Thread(r, "automatiko-jobs-executor"));
         this.loadScheduler = new ScheduledThreadPoolExecutor(1, r -> new Thread(r, "automatiko-jobs-loader"));
+        this.leases = new JobLeaseManager(new MongodbJobLeaseStore(leaseCollection()),
+                TimeUnit.SECONDS.toMillis(leaseDuration.orElse(30L)));
     }
 
     public void start(@Observes @Priority(Interceptor.Priority.LIBRARY_AFTER) StartupEvent event) {
 
         collection().createIndex(Indexes.ascending(INSTANCE_ID_FIELD));
         collection().createIndex(Indexes.descending(FIRE_AT_FIELD));
+        collection().createIndex(Indexes.ascending(PARTITION_FIELD, FIRE_AT_FIELD));
 
-        loadScheduler.scheduleAtFixedRate(() -> {
-            try {
-                long next = LocalDateTime.now().plus(Duration.ofMinutes(interval.orElse(10L)))
-                        .atZone(ZoneId.systemDefault()).toInstant()
-                        .toEpochMilli();
-
-                FindIterable<Document> jobs = collection().find(lt(FIRE_AT_FIELD, next));
-
-                for (Document job : jobs) {
-
-                    if (job.getString(OWNER_INSTANCE_ID_FIELD) == null) {
-                        ProcessJobDescription description = ProcessJobDescription.of(build(job.getString(EXPRESSION_FIELD)),
-                                null,
-                                job.getString(OWNER_DEF_ID_FIELD));
-
-                        scheduledJobs.computeIfAbsent(job.getString(INSTANCE_ID_FIELD), k -> {
-                            return log(job.getString(INSTANCE_ID_FIELD),
-                                    scheduler.schedule(new StartProcessOnExpiredTimer(job.getString(INSTANCE_ID_FIELD),
-                                            job.getString(OWNER_DEF_ID_FIELD), -1, description),
-                                            Duration.between(LocalDateTime.now(),
-                                                    ZonedDateTime.ofInstant(
-                                                            Instant.ofEpochMilli(job.getLong(FIRE_AT_FIELD)),
-                                                            ZoneId.systemDefault()))
-                                                    .toMillis(),
-                                            TimeUnit.MILLISECONDS));
-                        });
-                    } else {
-                        ProcessInstanceJobDescription description = ProcessInstanceJobDescription.of(
-                                job.getString(INSTANCE_ID_FIELD),
-                                job.getString(TRIGGER_TYPE_FIELD),
-                                build(job.getString(EXPRESSION_FIELD)), job.getString(OWNER_INSTANCE_ID_FIELD),
-                                job.getString(OWNER_DEF_ID_FIELD), null);
-
-                        scheduledJobs.computeIfAbsent(job.getString(INSTANCE_ID_FIELD), k -> {
-                            return log(job.getString(INSTANCE_ID_FIELD), scheduler.schedule(
-                                    new SignalProcessInstanceOnExpiredTimer(job.getString(INSTANCE_ID_FIELD),
-                                            job.getString(TRIGGER_TYPE_FIELD),
-                                            job.getString(OWNER_DEF_ID_FIELD),
-                                            job.getString(OWNER_INSTANCE_ID_FIELD),
-                                            job.getInteger(FIRE_LIMIT_FIELD), description),
-                                    Duration.between(LocalDateTime.now(), ZonedDateTime.ofInstant(
-                                            Instant.ofEpochMilli(job.getLong(FIRE_AT_FIELD)),
-                                            ZoneId.systemDefault())).toMillis(),
-                                    TimeUnit.MILLISECONDS));
-                        });
-                    }
+        loadScheduler.scheduleAtFixedRate(this::renewLease, 0, leases.renewInterval(), TimeUnit.MILLISECONDS);
+        loadScheduler.scheduleAtFixedRate(this::loadJobs, 1, interval.orElse(10L) * 60, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Renews lease of this node, in case set of active nodes changed jobs are loaded right away to take over
+     * jobs of nodes that are gone
+     */
+    protected void renewLease() {
+        try {
+            if (leases.renew()) {
+                loadJobs();
+            }
+        } catch (Throwable e) {
+            LOGGER.error("Unexpected error while renewing jobs lease", e);
+        }
+    }
+
+    /**
+     * Loads jobs expiring within the configured interval that belong to partitions owned by this node
+     */
+    protected void loadJobs() {
+        try {
+            long next = LocalDateTime.now().plus(Duration.ofMinutes(interval.orElse(10L)))
+                    .atZone(ZoneId.systemDefault()).toInstant()
+                    .toEpochMilli();
+
+            int[] partitions = leases.ownedPartitions();
+            Bson owned = and(gte(PARTITION_FIELD, partitions[0]), lt(PARTITION_FIELD, partitions[1]));
+            if (leases.ownsUnpartitioned()) {
+                owned = or(owned, exists(PARTITION_FIELD, false));
+            }
+            FindIterable<Document> jobs = collection().find(and(owned, lt(FIRE_AT_FIELD, next)));
+
+            for (Document job : jobs) {
+                if (job.getString(OWNER_INSTANCE_ID_FIELD) == null) {
+                    ProcessJobDescription description = ProcessJobDescription.of(build(job.getString(EXPRESSION_FIELD)),
+                            null,
+                            job.getString(OWNER_DEF_ID_FIELD));
+
+                    scheduledJobs.computeIfAbsent(job.getString(INSTANCE_ID_FIELD), k -> {
+                        return log(job.getString(INSTANCE_ID_FIELD),
+                                scheduler.schedule(new StartProcessOnExpiredTimer(job.getString(INSTANCE_ID_FIELD),
+                                        job.getString(OWNER_DEF_ID_FIELD), -1, description),
+                                        Duration.between(LocalDateTime.now(),
+                                                ZonedDateTime.ofInstant(
+                                                        Instant.ofEpochMilli(job.getLong(FIRE_AT_FIELD)),
+                                                        ZoneId.systemDefault()))
+                                                .toMillis(),
+                                        TimeUnit.MILLISECONDS));
+                    });
+                } else {
+                    ProcessInstanceJobDescription description = ProcessInstanceJobDescription.of(
+                            job.getString(INSTANCE_ID_FIELD),
+                            job.getString(TRIGGER_TYPE_FIELD),
+                            build(job.getString(EXPRESSION_FIELD)), job.getString(OWNER_INSTANCE_ID_FIELD),
+                            job.getString(OWNER_DEF_ID_FIELD), null);
+
+                    scheduledJobs.computeIfAbsent(job.getString(INSTANCE_ID_FIELD), k -> {
+                        return log(job.getString(INSTANCE_ID_FIELD), scheduler.schedule(
+                                new SignalProcessInstanceOnExpiredTimer(job.getString(INSTANCE_ID_FIELD),
+                                        job.getString(TRIGGER_TYPE_FIELD),
+                                        job.getString(OWNER_DEF_ID_FIELD),
+                                        job.getString(OWNER_INSTANCE_ID_FIELD),
+                                        job.getInteger(FIRE_LIMIT_FIELD), description),
+                                Duration.between(LocalDateTime.now(), ZonedDateTime.ofInstant(
+                                        Instant.ofEpochMilli(job.getLong(FIRE_AT_FIELD)),
+                                        ZoneId.systemDefault())).toMillis(),
+                                TimeUnit.MILLISECONDS));
+                    });
                 }
-            } catch (Exception e) {
-                LOGGER.error("Error while loading jobs from cassandra", e);
             }
-        }, 1, interval.orElse(10L) * 60, TimeUnit.SECONDS);
+        } catch (Exception e) {
+            LOGGER.error("Error while loading jobs from mongodb", e);
+        }
     }
 
     public void shutdown(@Observes ShutdownEvent event) {
         this.loadScheduler.shutdownNow();
+        this.leases.release();
 
         this.scheduler.shutdown();
     }
@@ -222,8 +261,10 @@ public class MongodbJobService implements JobsService {
 
             auditor.publish(entry);
         }
+        job.append(PARTITION_FIELD, JobLeaseManager.partition(description.id()));
         collection().insertOne(job);
-        if (description.expirationTime().get().toLocalDateTime()
+        // all nodes register the same jobs of the processes, only the node owning its partition schedules it
+        if (leases.owns(description.id()) && description.expirationTime().get().toLocalDateTime()
                 .isBefore(LocalDateTime.now().plusMinutes(interval.orElse(10L)))) {
 
             scheduledJobs.computeIfAbsent(description.id(), k -> {
@@ -276,6 +317,7 @@ public class MongodbJobService implements JobsService {
             auditor.publish(entry);
         }
 
+        job.append(PARTITION_FIELD, JobLeaseManager.partition(description.id()));
         collection().insertOne(job);
 
         if (description.expirationTime().get().toLocalDateTime()
@@ -436,6 +478,11 @@ public class MongodbJobService implements JobsService {
         return database.getCollection(tableName);
     }
 
+    protected MongoCollection<Document> leaseCollection() {
+        MongoDatabase database = mongoClient.getDatabase(this.database.orElse("automatiko"));
+        return database.getCollection(leaseTableName);
+    }
+
     private class SignalProcessInstanceOnExpiredTimer implements Runnable {
 
         private final String id;
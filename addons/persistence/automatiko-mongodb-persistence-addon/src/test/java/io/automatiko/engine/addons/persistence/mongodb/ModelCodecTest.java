@@ -0,0 +1,197 @@
+package io.automatiko.engine.addons.persistence.mongodb;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.bson.BsonDocument;
+import org.bson.BsonDocumentReader;
+import org.bson.BsonDocumentWriter;
+import org.bson.BsonType;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+import io.automatiko.engine.api.Model;
+
+public class ModelCodecTest {
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    @Test
+    public void testRoundTrip() {
+        TestModel model = new TestModel();
+        model.name = "john";
+        model.age = 42;
+        model.counter = Long.MAX_VALUE;
+        model.amount = new BigDecimal("12345.6789");
+        model.huge = new BigDecimal("1E+7000");
+        model.ratio = 0.25;
+        model.active = true;
+        model.created = new Date();
+        model.data = new byte[] { 1, 2, 3 };
+        model.items = List.of("a", "b");
+        model.address = new Address("Main street", 10);
+
+        BsonDocument document = encode(new ModelCodec<>(mapper, TestModel.class), model);
+        assertEquals(BsonType.STRING, document.get("name").getBsonType());
+        assertEquals(BsonType.INT32, document.get("age").getBsonType());
+        assertEquals(BsonType.INT64, document.get("counter").getBsonType());
+        assertEquals(BsonType.DECIMAL128, document.get("amount").getBsonType());
+        // out of Decimal128 range
+        assertEquals(BsonType.STRING, document.get("huge").getBsonType());
+        assertEquals(BsonType.DOUBLE, document.get("ratio").getBsonType());
+        assertEquals(BsonType.BINARY, document.get("data").getBsonType());
+        assertEquals(BsonType.ARRAY, document.get("items").getBsonType());
+        assertEquals(BsonType.DOCUMENT, document.get("address").getBsonType());
+        assertEquals(BsonType.NULL, document.get("note").getBsonType());
+
+        TestModel decoded = decode(new ModelCodec<>(mapper, TestModel.class), document);
+        assertEquals(model.name, decoded.name);
+        assertEquals(model.age, decoded.age);
+        assertEquals(model.counter, decoded.counter);
+        assertEquals(0, model.amount.compareTo(decoded.amount));
+        assertEquals(0, model.huge.compareTo(decoded.huge));
+        assertEquals(model.ratio, decoded.ratio);
+        assertTrue(decoded.active);
+        assertEquals(model.created, decoded.created);
+        assertArrayEquals(model.data, decoded.data);
+        assertEquals(model.items, decoded.items);
+        assertEquals("Main street", decoded.address.street);
+        assertEquals(10, decoded.address.number);
+    }
+
+    @Test
+    public void testExcludedTopLevelFields() {
+        TestModel model = new TestModel();
+        model.name = "john";
+        model.address = new Address("Main street", 10);
+
+        BsonDocument document = encode(new ModelCodec<>(mapper, TestModel.class, Set.of("name", "street")), model);
+        assertFalse(document.containsKey("name"));
+        // only top level fields are excluded
+        assertEquals("Main street", document.getDocument("address").getString("street").getValue());
+    }
+
+    @Test
+    public void testEmbeddedObjectEncodedAsDocument() {
+        EmbeddingModel model = new EmbeddingModel();
+        model.holder = new Holder(new Address("Main street", 10));
+
+        BsonDocument document = encode(new ModelCodec<>(mapper, EmbeddingModel.class), model);
+        BsonDocument embedded = document.getDocument("holder");
+        assertEquals("Main street", embedded.getString("street").getValue());
+        assertEquals(10, embedded.getInt32("number").getValue());
+    }
+
+    @Test
+    public void testEmbeddedObjectWithoutJsonRepresentationFails() {
+        EmbeddingModel model = new EmbeddingModel();
+        model.holder = new Holder(new Object());
+
+        assertThrows(UncheckedIOException.class, () -> encode(new ModelCodec<>(mapper, EmbeddingModel.class), model));
+    }
+
+    private <T extends Model> BsonDocument encode(ModelCodec<T> codec, T value) {
+        BsonDocument document = new BsonDocument();
+        codec.encode(new BsonDocumentWriter(document), value, EncoderContext.builder().build());
+        return document;
+    }
+
+    private <T extends Model> T decode(ModelCodec<T> codec, BsonDocument document) {
+        return codec.decode(new BsonDocumentReader(document), DecoderContext.builder().build());
+    }
+
+    public static class TestModel implements Model {
+
+        public String name;
+        public int age;
+        public long counter;
+        public BigDecimal amount;
+        public BigDecimal huge;
+        public double ratio;
+        public boolean active;
+        public Date created;
+        public byte[] data;
+        public List<String> items;
+        public Address address;
+        public String note;
+
+        @Override
+        public Map<String, Object> toMap() {
+            return Map.of();
+        }
+
+        @Override
+        public void fromMap(Map<String, Object> params) {
+        }
+    }
+
+    public static class EmbeddingModel implements Model {
+
+        public Holder holder;
+
+        @Override
+        public Map<String, Object> toMap() {
+            return Map.of();
+        }
+
+        @Override
+        public void fromMap(Map<String, Object> params) {
+        }
+    }
+
+    public static class Address {
+
+        public String street;
+        public int number;
+
+        public Address() {
+        }
+
+        public Address(String street, int number) {
+            this.street = street;
+            this.number = number;
+        }
+    }
+
+    @JsonSerialize(using = HolderSerializer.class)
+    public static class Holder {
+
+        private final Object value;
+
+        public Holder(Object value) {
+            this.value = value;
+        }
+    }
+
+    public static class HolderSerializer extends StdSerializer<Holder> {
+
+        private static final long serialVersionUID = 1L;
+
+        public HolderSerializer() {
+            super(Holder.class);
+        }
+
+        @Override
+        public void serialize(Holder holder, JsonGenerator gen, SerializerProvider provider) throws IOException {
+            gen.writeEmbeddedObject(holder.value);
+        }
+    }
+}
@@ -187,13 +187,14 @@ public class ProcessInstanceManagementResource extends BaseProcessInstanceManage
             identitySupplier.buildIdentityProvider(user, groups);
             Process<?> process = processData.get(processId);
             return UnitOfWorkExecutor.executeInUnitOfWork(application.unitOfWorkManager(), () -> {
-                process.instances().values(ProcessInstanceReadMode.READ_ONLY, mapStatus(status), page, size)
+                // listing needs only metadata of the instances
+                process.instances().summaries(mapStatus(status), page, size)
                         .forEach(pi -> collected
                                 .add(new ProcessInstanceDTO(pi.id(), pi.parentProcessInstanceId(),
                                         pi.businessKey() == null ? "" : pi.businessKey(),
                                         pi.description(),
-                                        pi.tags().values(),
-                                        pi.errors().isPresent(), processId, pi.status())));
+                                        pi.tags(),
+                                        pi.failed(), processId, pi.status())));
 
                 return collected;
             });
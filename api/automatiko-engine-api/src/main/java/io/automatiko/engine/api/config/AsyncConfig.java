@@ -6,4 +6,8 @@ public class AsyncConfig {
         return new AsyncCallbackConfig();
     }
 
+    public AsyncExecutorConfig executor() {
+        return new AsyncExecutorConfig();
+    }
+
 }
@@ -0,0 +1,30 @@
+package io.automatiko.engine.api.config;
+
+import java.util.Optional;
+
+public class AsyncExecutorConfig {
+    public static final String THREADS_KEY = "quarkus.automatiko.async.executor.threads";
+    public static final String QUEUE_SIZE_KEY = "quarkus.automatiko.async.executor.queue-size";
+    public static final String VIRTUAL_THREADS_KEY = "quarkus.automatiko.async.executor.virtual-threads";
+
+    /**
+     * Determines maximum number of async executions running at the same time
+     */
+    public Optional<Integer> threads() {
+        return Optional.empty();
+    }
+
+    /**
+     * Determines maximum number of async executions waiting to be run, once reached requests are rejected
+     */
+    public Optional<Integer> queueSize() {
+        return Optional.empty();
+    }
+
+    /**
+     * Indicates if async executions should run on virtual threads (requires JDK 21 or newer)
+     */
+    public Optional<Boolean> virtualThreads() {
+        return Optional.empty();
+    }
+}
@@ -8,6 +8,7 @@ public class CassandraJobsConfig {
     public static final String KEYSPACE_KEY = "quarkus.automatiko.jobs.cassandra.keyspace";
     public static final String INTERVAL_KEY = "quarkus.automatiko.jobs.cassandra.interval";
     public static final String THREADS_KEY = "quarkus.automatiko.jobs.cassandra.threads";
+    public static final String LEASE_DURATION_KEY = "quarkus.automatiko.jobs.cassandra.lease-duration";
 
     /**
      * Indicates if keyspace should be created during startup.
@@ -43,4 +44,11 @@ public class CassandraJobsConfig {
     public Optional<Integer> threads() {
         return Optional.empty();
     }
+
+    /**
+     * Duration (in seconds) of the lease that node holds to get its share of jobs
+     */
+    public Optional<Long> leaseDuration() {
+        return Optional.empty();
+    }
 }
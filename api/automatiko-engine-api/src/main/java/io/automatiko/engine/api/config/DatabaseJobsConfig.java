@@ -17,4 +17,25 @@ public class DatabaseJobsConfig {
     public Optional<Integer> threads() {
         return Optional.empty();
     }
+
+    /**
+     * Number of jobs to be loaded in single batch
+     */
+    public Optional<Integer> batchSize() {
+        return Optional.empty();
+    }
+
+    /**
+     * Maximum number of jobs to be scheduled on single node at the same time
+     */
+    public Optional<Integer> maxBacklog() {
+        return Optional.empty();
+    }
+
+    /**
+     * Duration (in seconds) of the lease that node holds to get its share of jobs
+     */
+    public Optional<Long> leaseDuration() {
+        return Optional.empty();
+    }
 }
@@ -9,6 +9,7 @@ public class DynamoDBJobsConfig {
     public static final String WRITE_CAPACITY_KEY = "quarkus.automatiko.jobs.dynamodb.write-capacity";
     public static final String INTERVAL_KEY = "quarkus.automatiko.jobs.dynamodb.interval";
     public static final String THREADS_KEY = "quarkus.automatiko.jobs.dynamodb.threads";
+    public static final String LEASE_DURATION_KEY = "quarkus.automatiko.jobs.dynamodb.lease-duration";
 
     /**
      * Indicates if tables should be created during startup.
@@ -44,4 +45,11 @@ public class DynamoDBJobsConfig {
     public Optional<Integer> threads() {
         return Optional.empty();
     }
+
+    /**
+     * Duration (in seconds) of the lease that node holds to get its share of jobs
+     */
+    public Optional<Long> leaseDuration() {
+        return Optional.empty();
+    }
 }
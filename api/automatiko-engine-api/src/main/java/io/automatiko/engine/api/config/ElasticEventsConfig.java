@@ -7,6 +7,10 @@ public class ElasticEventsConfig {
     public static final String INSTANCE_KEY = "quarkus.automatiko.events.elastic.instance";
     public static final String TASKS_KEY = "quarkus.automatiko.events.elastic.tasks";
     public static final String AUDIT_INDEX_KEY = "quarkus.automatiko.events.elastic.audit-index";
+    public static final String BULK_SIZE_KEY = "quarkus.automatiko.events.elastic.bulk-size";
+    public static final String BULK_INTERVAL_KEY = "quarkus.automatiko.events.elastic.bulk-interval";
+    public static final String BULK_QUEUE_SIZE_KEY = "quarkus.automatiko.events.elastic.bulk-queue-size";
+    public static final String BULK_RETRIES_KEY = "quarkus.automatiko.events.elastic.bulk-retries";
 
     /**
      * Indicates if the audit log events are enabled
@@ -35,4 +39,33 @@ public class ElasticEventsConfig {
     public Optional<String> auditIndex() {
         return Optional.empty();
     }
+
+    /**
+     * Determines maximum number of documents sent in single bulk request, when not set every event is sent
+     * in a separate request
+     */
+    public Optional<Integer> bulkSize() {
+        return Optional.empty();
+    }
+
+    /**
+     * Determines maximum time in milliseconds documents wait before being sent in bulk request
+     */
+    public Optional<Long> bulkInterval() {
+        return Optional.empty();
+    }
+
+    /**
+     * Determines maximum number of documents waiting to be sent, publishing blocks when reached
+     */
+    public Optional<Integer> bulkQueueSize() {
+        return Optional.empty();
+    }
+
+    /**
+     * Determines how many times documents rejected by Elastic with recoverable error are resent
+     */
+    public Optional<Integer> bulkRetries() {
+        return Optional.empty();
+    }
 }
@@ -1,6 +1,33 @@
 package io.automatiko.engine.api.config;
 
+import java.util.Optional;
+
 public class EventsConfig {
+    public static final String PUBLISH_WORKERS_KEY = "quarkus.automatiko.events.publish-workers";
+    public static final String PUBLISH_QUEUE_SIZE_KEY = "quarkus.automatiko.events.publish-queue-size";
+    public static final String OUTBOX_PATH_KEY = "quarkus.automatiko.events.outbox-path";
+
+    /**
+     * Determines number of workers publishing events asynchronously, when not set events are published by the
+     * thread that completed the unit of work
+     */
+    public Optional<Integer> publishWorkers() {
+        return Optional.empty();
+    }
+
+    /**
+     * Determines maximum number of batches waiting to be published by single worker
+     */
+    public Optional<Integer> publishQueueSize() {
+        return Optional.empty();
+    }
+
+    /**
+     * Determines location on file system where events are stored until they are published
+     */
+    public Optional<String> outboxPath() {
+        return Optional.empty();
+    }
 
     public ElasticEventsConfig elastic() {
         return new ElasticEventsConfig() {
@@ -8,6 +8,7 @@ public class FileSystemPersistenceConfig {
     public static final String LOCK_TIMEOUT_KEY = "quarkus.automatiko.persistence.filesystem.lock-timeout";
     public static final String LOCK_LIMIT_KEY = "quarkus.automatiko.persistence.filesystem.lock-limit";
     public static final String LOCK_WAIT_KEY = "quarkus.automatiko.persistence.filesystem.lock-wait";
+    public static final String DELTA_SNAPSHOT_INTERVAL_KEY = "quarkus.automatiko.persistence.filesystem.delta-snapshot-interval";
 
     /**
      * File system path to be used as storage location
@@ -15,4 +16,12 @@ public class FileSystemPersistenceConfig {
     public Optional<String> path() {
         return Optional.empty();
     }
+
+    /**
+     * Number of deltas (changes only) written before complete snapshot of the instance is taken, deltas are disabled
+     * by default
+     */
+    public Optional<Integer> deltaSnapshotInterval() {
+        return Optional.empty();
+    }
 }
@@ -1,5 +1,7 @@
 package io.automatiko.engine.api.config;
 
+import java.util.Optional;
+
 public class MessagingBuildConfig {
 
     /**
@@ -15,4 +17,11 @@ public class MessagingBuildConfig {
     public boolean asCloudeventsBinary() {
         return true;
     }
+
+    /**
+     * Specifies number of partitions of a batch of messages (consumed in batch mode) that are processed at the same time
+     */
+    public Optional<Integer> batchConcurrency() {
+        return Optional.empty();
+    }
 }
@@ -0,0 +1,13 @@
+package io.automatiko.engine.api.config;
+
+import java.util.Optional;
+
+public class MetricsConfig {
+
+    /**
+     * Specifies ratio (0 - 1) of node executions, work items and persistence operations that are timed
+     */
+    public Optional<Double> samplingRate() {
+        return Optional.empty();
+    }
+}
@@ -7,6 +7,7 @@ public class MongodbJobsConfig {
     public static final String DATABASE_KEY = "quarkus.automatiko.jobs.mongodb.database";
     public static final String INTERVAL_KEY = "quarkus.automatiko.jobs.mongodb.interval";
     public static final String THREADS_KEY = "quarkus.automatiko.jobs.mongodb.threads";
+    public static final String LEASE_DURATION_KEY = "quarkus.automatiko.jobs.mongodb.lease-duration";
 
     /**
      * Name of the data base to be used to create collections for jobs
@@ -28,4 +29,11 @@ public class MongodbJobsConfig {
     public Optional<Integer> threads() {
         return Optional.empty();
     }
+
+    /**
+     * Duration (in seconds) of the lease that node holds to get its share of jobs
+     */
+    public Optional<Long> leaseDuration() {
+        return Optional.empty();
+    }
 }
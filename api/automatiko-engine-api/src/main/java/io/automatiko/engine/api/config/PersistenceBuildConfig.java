@@ -18,4 +18,11 @@ public class PersistenceBuildConfig {
         return new DatabasePersistenceBuildConfig();
     }
 
+    /**
+     * Configures transaction log
+     */
+    public TransactionLogBuildConfig transactionLog() {
+        return new TransactionLogBuildConfig();
+    }
+
 }
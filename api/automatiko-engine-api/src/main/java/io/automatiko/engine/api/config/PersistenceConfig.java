@@ -4,6 +4,8 @@ import java.util.Optional;
 
 public class PersistenceConfig {
 
+    public static final String COMPRESSION_KEY = "quarkus.automatiko.persistence.compression";
+
     /**
      * Determines the type of persistence to be used
      */
@@ -18,6 +20,13 @@ public class PersistenceConfig {
         return Optional.empty();
     }
 
+    /**
+     * Determines the type of compression to be applied on stored data (before encryption)
+     */
+    public Optional<String> compression() {
+        return Optional.empty();
+    }
+
     /**
      * Configures file system based persistence
      */
@@ -63,4 +72,11 @@ public class PersistenceConfig {
     public TransactionLogConfig transactionLog() {
         return new TransactionLogConfig();
     }
+
+    /**
+     * Configures caching of process instances
+     */
+    public ProcessInstanceCacheConfig cache() {
+        return new ProcessInstanceCacheConfig();
+    }
 }
@@ -0,0 +1,33 @@
+package io.automatiko.engine.api.config;
+
+import java.util.Optional;
+
+public class ProcessInstanceCacheConfig {
+
+    public static final String ENABLED_KEY = "quarkus.automatiko.persistence.cache.enabled";
+
+    public static final String MAX_SIZE_KEY = "quarkus.automatiko.persistence.cache.max-size";
+
+    public static final String EXPIRE_AFTER_KEY = "quarkus.automatiko.persistence.cache.expire-after";
+
+    /**
+     * Controls if recently used process instances should be cached, disabled by default
+     */
+    public Optional<Boolean> enabled() {
+        return Optional.empty();
+    }
+
+    /**
+     * Specifies maximum number of cached instances per workflow, defaults to 1000
+     */
+    public Optional<Integer> maxSize() {
+        return Optional.empty();
+    }
+
+    /**
+     * Specifies time (in seconds) after which not accessed instance is evicted from the cache, defaults to 300
+     */
+    public Optional<Integer> expireAfter() {
+        return Optional.empty();
+    }
+}
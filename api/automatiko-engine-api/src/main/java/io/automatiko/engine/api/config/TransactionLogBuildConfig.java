@@ -0,0 +1,13 @@
+package io.automatiko.engine.api.config;
+
+import java.util.Optional;
+
+public class TransactionLogBuildConfig {
+
+    /**
+     * Determines the type of transaction log store to be used
+     */
+    public Optional<String> type() {
+        return Optional.empty();
+    }
+}
@@ -17,4 +17,32 @@ public class TransactionLogConfig {
     public Optional<String> folder() {
         return Optional.empty();
     }
+
+    /**
+     * Specifies maximum size (in bytes) of single segment of segmented transaction log
+     */
+    public Optional<Long> segmentSize() {
+        return Optional.empty();
+    }
+
+    /**
+     * Number of threads used to recover instances found in transaction log, defaults to number of available processors
+     */
+    public Optional<Integer> recoveryThreads() {
+        return Optional.empty();
+    }
+
+    /**
+     * Maximum number of instances waiting for recovery at the same time, defaults to 1000
+     */
+    public Optional<Integer> recoveryQueueSize() {
+        return Optional.empty();
+    }
+
+    /**
+     * Controls if startup should wait for recovery to complete, defaults to true
+     */
+    public Optional<Boolean> recoveryBlocking() {
+        return Optional.empty();
+    }
 }
@@ -25,6 +25,75 @@ public interface EventManager {
 	 */
 	void publish(EventBatch batch);
 
+	/**
+	 * Prepares batch to be published before the work that produced the events
+	 * is performed, e.g. stores the events in the outbox. Returned batch should
+	 * be used for publishing or discarding.
+	 *
+	 * @param batch batch with all events appended
+	 * @return batch to be published
+	 */
+	default EventBatch prepare(EventBatch batch) {
+		return batch;
+	}
+
+	/**
+	 * Discards previously prepared batch as the work that produced the events
+	 * was not performed
+	 *
+	 * @param batch batch returned from prepare
+	 */
+	default void discard(EventBatch batch) {
+	}
+
+	/**
+	 * Sets the outbox that events are stored in until they are published.
+	 * Events that are found in the outbox are published right away.
+	 *
+	 * @param outbox outbox to be used
+	 */
+	default void setOutbox(EventOutbox outbox) {
+	}
+
+	/**
+	 * Configures publishing of events to be performed asynchronously by given
+	 * number of workers. Events of the same process instance are always
+	 * published in order by the same worker.
+	 *
+	 * @param workers number of workers, publishing is done by the caller when
+	 *        less than one
+	 * @param queueSize maximum number of batches waiting to be published by
+	 *        single worker, once reached publishing waits for the worker
+	 */
+	default void setPublishingWorkers(int workers, int queueSize) {
+	}
+
+	/**
+	 * Returns number of events waiting to be published asynchronously
+	 *
+	 * @return number of pending events
+	 */
+	default int pendingEvents() {
+		return 0;
+	}
+
+	/**
+	 * Returns how long (in milliseconds) the oldest event waits to be published
+	 * asynchronously
+	 *
+	 * @return delivery lag in milliseconds
+	 */
+	default long deliveryLag() {
+		return 0;
+	}
+
+	/**
+	 * Waits for events that are being published asynchronously and stops the
+	 * publishing workers
+	 */
+	default void close() {
+	}
+
 	/**
 	 * Adds given publisher to the event manager's list of publishers. Multiple
 	 * publishers can be added and each will be invoked with exact same events.
@@ -0,0 +1,36 @@
+package io.automatiko.engine.api.event;
+
+import java.util.Collection;
+
+/**
+ * Durable storage of events that were produced by a unit of work but not yet published.
+ *
+ * Events are stored before the work is performed and removed once all publishers received them so events
+ * that were not published due to crash of the service can be published again on startup.
+ */
+public interface EventOutbox {
+
+	/**
+	 * Stores given events so they are not lost until they are published, events
+	 * are produced by single unit of work and should be stored together
+	 *
+	 * @param events events to be stored
+	 */
+	void store(Collection<DataEvent<?>> events);
+
+	/**
+	 * Removes given events from the outbox, either because they have been
+	 * published or because the work that produced them was not completed
+	 *
+	 * @param events events to be removed
+	 */
+	void delete(Collection<DataEvent<?>> events);
+
+	/**
+	 * Returns all events that are stored in the outbox in the order they were
+	 * stored
+	 *
+	 * @return events waiting to be published
+	 */
+	Collection<DataEvent<?>> pending();
+}
@@ -0,0 +1,81 @@
+package io.automatiko.engine.api.workflow;
+
+import java.util.List;
+
+/**
+ * Thrown when some of the chunks of a bulk operation failed. Chunks that completed successfully remain in effect,
+ * outcome of every chunk - its results or its error - is available from {@link #getChunks()}.
+ */
+public class BulkOperationException extends RuntimeException {
+
+    private static final long serialVersionUID = -3402768517016473613L;
+
+    private final List<ChunkOutcome> chunks;
+
+    public BulkOperationException(List<ChunkOutcome> chunks) {
+        super(chunks.stream().filter(ChunkOutcome::isFailed).count() + " of " + chunks.size()
+                + " chunks of bulk operation failed",
+                chunks.stream().filter(ChunkOutcome::isFailed).map(ChunkOutcome::getError).findFirst().orElse(null));
+        this.chunks = chunks;
+    }
+
+    /**
+     * Returns outcome of every chunk in the order of the items of the bulk operation
+     */
+    public List<ChunkOutcome> getChunks() {
+        return chunks;
+    }
+
+    /**
+     * Outcome of single chunk of a bulk operation
+     */
+    public static class ChunkOutcome {
+
+        private final int offset;
+
+        private final int size;
+
+        private final List<?> results;
+
+        private final Throwable error;
+
+        public ChunkOutcome(int offset, int size, List<?> results, Throwable error) {
+            this.offset = offset;
+            this.size = size;
+            this.results = results;
+            this.error = error;
+        }
+
+        /**
+         * Returns position of the first item of the chunk among all items of the bulk operation
+         */
+        public int getOffset() {
+            return offset;
+        }
+
+        /**
+         * Returns number of items in the chunk
+         */
+        public int getSize() {
+            return size;
+        }
+
+        /**
+         * Returns results of the items of the chunk, empty when the chunk failed
+         */
+        public List<?> getResults() {
+            return results;
+        }
+
+        /**
+         * Returns error the chunk failed with, null when the chunk completed successfully
+         */
+        public Throwable getError() {
+            return error;
+        }
+
+        public boolean isFailed() {
+            return error != null;
+        }
+    }
+}
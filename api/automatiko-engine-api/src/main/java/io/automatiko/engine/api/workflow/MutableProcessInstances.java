@@ -1,6 +1,7 @@
 
 package io.automatiko.engine.api.workflow;
 
+import java.util.Map;
 import java.util.UUID;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
@@ -13,6 +14,32 @@ public interface MutableProcessInstances<T> extends ProcessInstances<T> {
 
     void create(String id, ProcessInstance<T> instance);
 
+    /**
+     * Creates all given instances. Data stores that support batched writes should override it to store all instances
+     * at once, by default instances are created one by one.
+     * <br/>
+     * Creation of all instances is attempted, in case any of them failed first failure is rethrown.
+     *
+     * @param instances instances to be created keyed by their ids
+     */
+    default void createAll(Map<String, ProcessInstance<T>> instances) {
+        RuntimeException failure = null;
+        for (Map.Entry<String, ProcessInstance<T>> entry : instances.entrySet()) {
+            try {
+                create(entry.getKey(), entry.getValue());
+            } catch (RuntimeException e) {
+                if (failure == null) {
+                    failure = e;
+                } else {
+                    failure.addSuppressed(e);
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
     void update(String id, ProcessInstance<T> instance);
 
     void remove(String id, ProcessInstance<T> instance);
@@ -3,7 +3,10 @@ package io.automatiko.engine.api.workflow;
 
 import java.util.Collection;
 import java.util.Collections;
+import java.util.List;
 import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import io.automatiko.engine.api.Model;
 import io.automatiko.engine.api.auth.AccessPolicy;
@@ -11,6 +14,11 @@ import io.automatiko.engine.api.auth.AccessPolicy;
 @SuppressWarnings("rawtypes")
 public interface Process<T> {
 
+    /**
+     * Default number of instances handled in single unit of work by bulk operations
+     */
+    public static final int DEFAULT_BULK_CHUNK_SIZE = 100;
+
     ProcessInstance<T> createInstance(T workingMemory);
 
     ProcessInstance<T> createInstance(String businessKey, T workingMemory);
@@ -25,6 +33,55 @@ public interface Process<T> {
 
     ProcessInstance<? extends Model> createInstance(String businessKey, Model m);
 
+    /**
+     * Creates and starts new instance for every given model. Models are split into chunks, each chunk is started in its
+     * own unit of work (so instances of the chunk are stored together) and chunks are executed in parallel.
+     *
+     * @param models models to start instances for
+     * @return identifiers of started instances in the order of the models
+     */
+    default List<String> createInstances(Stream<T> models) {
+        return createInstances(models, DEFAULT_BULK_CHUNK_SIZE);
+    }
+
+    /**
+     * Creates and starts new instance for every given model. Models are split into chunks, each chunk is started in its
+     * own unit of work (so instances of the chunk are stored together) and chunks are executed in parallel.
+     * <br/>
+     * In case any chunk fails remaining chunks are still executed and {@link BulkOperationException} is thrown with
+     * outcome of every chunk, instances of successfully completed chunks remain started.
+     * <br/>
+     * By default instances are created and started one by one as part of the caller's unit of work.
+     *
+     * @param models models to start instances for
+     * @param chunkSize number of instances started in single unit of work
+     * @return identifiers of started instances in the order of the models
+     */
+    default List<String> createInstances(Stream<T> models, int chunkSize) {
+        return models.map(model -> {
+            ProcessInstance<T> pi = createInstance(model);
+            pi.start();
+            return pi.id();
+        }).collect(Collectors.toList());
+    }
+
+    /**
+     * Sends given signal to all active instances that match given ids or tags. Matching instances are signaled in
+     * chunks, each in its own unit of work, and chunks are executed in parallel.
+     * <br/>
+     * By default all matching instances are signaled as part of the caller's unit of work.
+     *
+     * @param signal signal to be sent
+     * @param idsOrTags ids or tags of instances to be signaled
+     * @return number of signaled instances
+     */
+    default <S> int signalAll(Signal<S> signal, String... idsOrTags) {
+        Collection<? extends ProcessInstance<T>> found = instances().findByIdOrTag(ProcessInstanceReadMode.MUTABLE_WITH_LOCK,
+                ProcessInstance.STATE_ACTIVE, idsOrTags);
+        found.forEach(pi -> pi.send(signal));
+        return found.size();
+    }
+
     String id();
 
     String name();
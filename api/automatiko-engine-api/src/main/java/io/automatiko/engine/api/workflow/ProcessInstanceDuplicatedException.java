@@ -15,7 +15,7 @@ public class ProcessInstanceDuplicatedException extends RuntimeException {
 
 	public ProcessInstanceDuplicatedException(String processInstanceId, Throwable cause) {
 		super("Process instance with '" + processInstanceId
-				+ "' already exists, usually this means business key has been already used");
+				+ "' already exists, usually this means business key has been already used", cause);
 		this.processInstanceId = processInstanceId;
 	}
 
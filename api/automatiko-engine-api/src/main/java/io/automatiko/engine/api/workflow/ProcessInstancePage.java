@@ -0,0 +1,38 @@
+package io.automatiko.engine.api.workflow;
+
+import java.util.Collection;
+
+/**
+ * Single page of process instances together with cursor that allows to fetch the next page
+ *
+ * @param <T> type of the process instance variables
+ */
+public class ProcessInstancePage<T> {
+
+    private final Collection<? extends ProcessInstance<T>> instances;
+
+    private final String cursor;
+
+    public ProcessInstancePage(Collection<? extends ProcessInstance<T>> instances, String cursor) {
+        this.instances = instances;
+        this.cursor = cursor;
+    }
+
+    /**
+     * Returns instances of this page
+     */
+    public Collection<? extends ProcessInstance<T>> instances() {
+        return instances;
+    }
+
+    /**
+     * Returns opaque token that should be given to fetch the next page or null if there are no more instances
+     */
+    public String cursor() {
+        return cursor;
+    }
+
+    public boolean hasMore() {
+        return cursor != null;
+    }
+}
@@ -0,0 +1,97 @@
+package io.automatiko.engine.api.workflow;
+
+import java.util.Collection;
+import java.util.Date;
+
+/**
+ * Metadata of process instance (without its variables and execution state) used for listing of instances
+ */
+public class ProcessInstanceSummary {
+
+    private final String id;
+
+    private final String parentProcessInstanceId;
+
+    private final String businessKey;
+
+    private final String description;
+
+    private final int status;
+
+    private final boolean failed;
+
+    private final Collection<String> tags;
+
+    private final Date startDate;
+
+    private final Date endDate;
+
+    public ProcessInstanceSummary(String id, String parentProcessInstanceId, String businessKey, String description,
+            int status, boolean failed, Collection<String> tags, Date startDate, Date endDate) {
+        this.id = id;
+        this.parentProcessInstanceId = parentProcessInstanceId;
+        this.businessKey = businessKey;
+        this.description = description;
+        this.status = status;
+        this.failed = failed;
+        this.tags = tags;
+        this.startDate = startDate;
+        this.endDate = endDate;
+    }
+
+    /**
+     * Creates summary of given process instance
+     *
+     * @param instance process instance
+     * @return summary of the instance
+     */
+    public static ProcessInstanceSummary of(ProcessInstance<?> instance) {
+        return new ProcessInstanceSummary(instance.id(), instance.parentProcessInstanceId(), instance.businessKey(),
+                instance.description(), instance.status(), instance.errors().isPresent(), instance.tags().values(),
+                instance.startDate(), instance.endDate());
+    }
+
+    public String id() {
+        return id;
+    }
+
+    public String parentProcessInstanceId() {
+        return parentProcessInstanceId;
+    }
+
+    public String businessKey() {
+        return businessKey;
+    }
+
+    public String description() {
+        return description;
+    }
+
+    public int status() {
+        return status;
+    }
+
+    /**
+     * Determines if the instance has errors
+     */
+    public boolean failed() {
+        return failed;
+    }
+
+    public Collection<String> tags() {
+        return tags;
+    }
+
+    public Date startDate() {
+        return startDate;
+    }
+
+    public Date endDate() {
+        return endDate;
+    }
+
+    @Override
+    public String toString() {
+        return "ProcessInstanceSummary [id=" + id + ", businessKey=" + businessKey + ", status=" + status + "]";
+    }
+}
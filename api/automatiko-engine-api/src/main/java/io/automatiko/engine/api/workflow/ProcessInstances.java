@@ -3,6 +3,7 @@ package io.automatiko.engine.api.workflow;
 
 import java.util.Collection;
 import java.util.Optional;
+import java.util.stream.Collectors;
 
 import io.automatiko.engine.api.uow.TransactionLog;
 
@@ -46,6 +47,38 @@ public interface ProcessInstances<T> {
         return values(mode, status, page, size);
     }
 
+    /**
+     * Returns page of instances in given status that follows the one identified by given cursor. Data stores that
+     * support it page on the server side so the cursor is more efficient than page number for large number of instances.
+     *
+     * @param mode read mode of returned instances
+     * @param status status of instances
+     * @param cursor cursor returned with previous page or null to get the first page
+     * @param size maximum number of instances in the page
+     * @return page of instances with cursor of the next page
+     */
+    default ProcessInstancePage<T> values(ProcessInstanceReadMode mode, int status, String cursor, int size) {
+        int page = cursor == null ? 1 : Integer.parseInt(cursor);
+        Collection<? extends ProcessInstance<T>> instances = values(mode, status, page, size);
+
+        return new ProcessInstancePage<>(instances, instances.size() < size ? null : String.valueOf(page + 1));
+    }
+
+    /**
+     * Returns summaries of instances in given status for listings that do not need variables of the instances. Data
+     * stores that keep metadata of instances in dedicated columns read only those, by default summaries are created
+     * from read only instances.
+     *
+     * @param status status of instances
+     * @param page page to return, starting with 1
+     * @param size maximum number of instances in the page
+     * @return summaries of instances of given page
+     */
+    default Collection<ProcessInstanceSummary> summaries(int status, int page, int size) {
+        return values(ProcessInstanceReadMode.READ_ONLY, status, page, size).stream().map(ProcessInstanceSummary::of)
+                .collect(Collectors.toList());
+    }
+
     default Collection<? extends ProcessInstance<T>> findByIdOrTag(String... values) {
         return findByIdOrTag(ProcessInstanceReadMode.MUTABLE, values);
     }
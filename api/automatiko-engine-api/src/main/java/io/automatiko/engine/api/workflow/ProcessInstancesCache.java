@@ -0,0 +1,28 @@
+package io.automatiko.engine.api.workflow;
+
+/**
+ * Implemented by process instances that keep recently used instances in memory, exposes statistics of the cache so
+ * they can be monitored e.g. as metrics.
+ */
+public interface ProcessInstancesCache {
+
+    /**
+     * Returns number of look ups served from the cache
+     */
+    long hits();
+
+    /**
+     * Returns number of look ups that had to load instance from the data store
+     */
+    long misses();
+
+    /**
+     * Returns number of entries removed from the cache due to its size or expiration
+     */
+    long evictions();
+
+    /**
+     * Returns number of currently cached instances
+     */
+    int cached();
+}
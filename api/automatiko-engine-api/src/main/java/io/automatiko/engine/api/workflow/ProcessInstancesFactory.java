@@ -9,6 +9,17 @@ public interface ProcessInstancesFactory {
 
     MutableProcessInstances<?> createProcessInstances(Process<?> process);
 
+    /**
+     * Allows to wrap process instances created by this factory, e.g. with a caching layer
+     *
+     * @param process process the instances belong to
+     * @param instances instances created by this factory
+     * @return instances to be used by the process
+     */
+    default MutableProcessInstances<?> decorate(Process<?> process, MutableProcessInstances<?> instances) {
+        return instances;
+    }
+
     default StoredDataCodec codec() {
         return StoredDataCodec.NO_OP_CODEC;
     }
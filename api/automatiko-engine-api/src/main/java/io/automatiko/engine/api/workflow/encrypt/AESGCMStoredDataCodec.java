@@ -0,0 +1,379 @@
+package io.automatiko.engine.api.workflow.encrypt;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PushbackInputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.crypto.Cipher;
+import javax.crypto.CipherInputStream;
+import javax.crypto.CipherOutputStream;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * Codec that encrypts data with AES in GCM mode, which both encrypts and authenticates the data. Every record is
+ * encrypted with its own random initialization vector and starts with a header that carries identifier of the key
+ * used, so keys can be rotated - data is always encrypted with the current key while any of the known keys can be
+ * used to decrypt.
+ * <br/>
+ * Ciphers are not thread safe, so instead of sharing single cipher they are taken from a pool for the duration of a
+ * single operation (or stream) and returned afterwards. Data that does not start with the header is considered to be
+ * encrypted with AES in default (ECB) mode, that is how data was encrypted before. Such data is not authenticated - a
+ * wrong key might still produce valid padding and so return garbage - so it is only ever decrypted with a single key -
+ * the only known key, or the legacy key given explicitly which is required when there are more keys.
+ * <br/>
+ * Format of the encrypted record
+ *
+ * <pre>
+ * magic (3 bytes) | version (1 byte) | key id length (1 byte) | key id | IV (12 bytes) | cipher text with tag
+ * </pre>
+ */
+public class AESGCMStoredDataCodec implements StoredDataCodec {
+
+    private static final byte[] MAGIC = new byte[] { 'A', 'G', 'C' };
+
+    private static final byte VERSION = 1;
+
+    private static final int IV_LENGTH = 12;
+
+    private static final int TAG_LENGTH_BITS = 128;
+
+    private static final int TAG_LENGTH = TAG_LENGTH_BITS / 8;
+
+    private static final int MAX_HEADER_LENGTH = MAGIC.length + 2 + 255 + IV_LENGTH;
+
+    private static final ThreadLocal<SecureRandom> RANDOM = ThreadLocal.withInitial(SecureRandom::new);
+
+    private final String currentKeyId;
+
+    private final byte[] currentKeyIdBytes;
+
+    private final Map<String, SecretKey> keys;
+
+    private final String legacyKeyId;
+
+    private final CipherPool gcmCiphers;
+
+    private final CipherPool legacyCiphers;
+
+    /**
+     * Creates codec with single key
+     *
+     * @param keyId identifier of the key stored with encrypted data
+     * @param key AES key (16, 24 or 32 bytes)
+     */
+    public AESGCMStoredDataCodec(String keyId, byte[] key) {
+        this(keyId, Collections.singletonMap(keyId, key));
+    }
+
+    /**
+     * Creates codec with multiple keys, data is always encrypted with the current key. Data without header is
+     * decrypted with the current key, so this is only valid with a single key.
+     *
+     * @param currentKeyId identifier of the key used for encryption, must be one of given keys
+     * @param keys all known keys by their identifiers
+     */
+    public AESGCMStoredDataCodec(String currentKeyId, Map<String, byte[]> keys) {
+        this(currentKeyId, keys, null, Runtime.getRuntime().availableProcessors() * 2);
+    }
+
+    /**
+     * Creates codec with multiple keys, data is always encrypted with the current key
+     *
+     * @param currentKeyId identifier of the key used for encryption, must be one of given keys
+     * @param keys all known keys by their identifiers
+     * @param legacyKeyId identifier of the key that data without header was encrypted with, required when there is
+     *        more than one key
+     */
+    public AESGCMStoredDataCodec(String currentKeyId, Map<String, byte[]> keys, String legacyKeyId) {
+        this(currentKeyId, keys, legacyKeyId, Runtime.getRuntime().availableProcessors() * 2);
+    }
+
+    /**
+     * Creates codec with multiple keys, data is always encrypted with the current key
+     *
+     * @param currentKeyId identifier of the key used for encryption, must be one of given keys
+     * @param keys all known keys by their identifiers
+     * @param legacyKeyId identifier of the key that data without header was encrypted with, required when there is
+     *        more than one key
+     * @param poolSize maximum number of idle ciphers kept in the pool
+     */
+    public AESGCMStoredDataCodec(String currentKeyId, Map<String, byte[]> keys, String legacyKeyId, int poolSize) {
+        if (!keys.containsKey(currentKeyId)) {
+            throw new IllegalArgumentException("No key found for current key id '" + currentKeyId + "'");
+        }
+        if (legacyKeyId != null && !keys.containsKey(legacyKeyId)) {
+            throw new IllegalArgumentException("No key found for legacy key id '" + legacyKeyId + "'");
+        }
+        if (legacyKeyId == null && keys.size() > 1) {
+            throw new IllegalArgumentException(
+                    "Legacy key id must be given when there is more than one key, data encrypted without header "
+                            + "cannot tell which key it was encrypted with");
+        }
+        this.currentKeyId = currentKeyId;
+        this.currentKeyIdBytes = currentKeyId.getBytes(StandardCharsets.UTF_8);
+        if (currentKeyIdBytes.length > 255) {
+            throw new IllegalArgumentException("Key id '" + currentKeyId + "' is too long");
+        }
+        this.legacyKeyId = legacyKeyId == null ? currentKeyId : legacyKeyId;
+        this.keys = new HashMap<>();
+        keys.forEach((id, key) -> this.keys.put(id, new SecretKeySpec(key, "AES")));
+        this.gcmCiphers = new CipherPool("AES/GCM/NoPadding", poolSize);
+        this.legacyCiphers = new CipherPool("AES", poolSize);
+        // fail fast in case of invalid key
+        gcmCiphers.release(encryptingCipher(header()));
+    }
+
+    @Override
+    public byte[] encode(byte[] data) {
+        return StoredDataCodec.toArray(encode(ByteBuffer.wrap(data)));
+    }
+
+    @Override
+    public byte[] decode(byte[] data) {
+        return StoredDataCodec.toArray(decode(ByteBuffer.wrap(data)));
+    }
+
+    @Override
+    public ByteBuffer encode(ByteBuffer data) {
+        byte[] header = header();
+        Cipher cipher = encryptingCipher(header);
+        try {
+            ByteBuffer encoded = ByteBuffer.allocate(header.length + cipher.getOutputSize(data.remaining()));
+            encoded.put(header);
+            cipher.doFinal(data.duplicate(), encoded);
+            encoded.flip();
+            return encoded;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Unable to use AES encryption to encode data", e);
+        } finally {
+            gcmCiphers.release(cipher);
+        }
+    }
+
+    @Override
+    public ByteBuffer decode(ByteBuffer data) {
+        ByteBuffer input = data.duplicate();
+        byte[] header = readHeader(input);
+        if (header == null) {
+            return ByteBuffer.wrap(decodeLegacy(StoredDataCodec.toArray(data)));
+        }
+        Cipher cipher = decryptingCipher(header);
+        try {
+            ByteBuffer decoded = ByteBuffer.allocate(cipher.getOutputSize(input.remaining()));
+            cipher.doFinal(input, decoded);
+            decoded.flip();
+            return decoded;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Unable to use AES encryption to decode data", e);
+        } finally {
+            gcmCiphers.release(cipher);
+        }
+    }
+
+    @Override
+    public OutputStream encode(OutputStream out) {
+        byte[] header = header();
+        Cipher cipher = encryptingCipher(header);
+        try {
+            out.write(header);
+        } catch (IOException e) {
+            gcmCiphers.release(cipher);
+            throw new UncheckedIOException(e);
+        }
+        return new FilterOutputStream(new CipherOutputStream(out, cipher)) {
+
+            private boolean closed;
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                this.out.write(b, off, len);
+            }
+
+            @Override
+            public void close() throws IOException {
+                if (closed) {
+                    return;
+                }
+                closed = true;
+                try {
+                    super.close();
+                } finally {
+                    gcmCiphers.release(cipher);
+                }
+            }
+        };
+    }
+
+    @Override
+    public InputStream decode(InputStream in) throws IOException {
+        PushbackInputStream stream = new PushbackInputStream(in, MAX_HEADER_LENGTH);
+        byte[] prefix = new byte[MAX_HEADER_LENGTH];
+        int read = stream.readNBytes(prefix, 0, prefix.length);
+        ByteBuffer buffer = ByteBuffer.wrap(prefix, 0, read);
+        byte[] header = readHeader(buffer);
+        if (header == null) {
+            stream.unread(prefix, 0, read);
+            return StoredDataCodec.super.decode(stream);
+        }
+        stream.unread(prefix, buffer.position(), read - buffer.position());
+        Cipher cipher = decryptingCipher(header);
+        return new CipherInputStream(stream, cipher) {
+
+            private boolean closed;
+
+            @Override
+            public void close() throws IOException {
+                if (closed) {
+                    return;
+                }
+                closed = true;
+                try {
+                    super.close();
+                } finally {
+                    gcmCiphers.release(cipher);
+                }
+            }
+        };
+    }
+
+    /**
+     * Returns identifier of the key that data is encrypted with
+     */
+    public String currentKeyId() {
+        return currentKeyId;
+    }
+
+    protected byte[] header() {
+        byte[] header = new byte[MAGIC.length + 2 + currentKeyIdBytes.length + IV_LENGTH];
+        System.arraycopy(MAGIC, 0, header, 0, MAGIC.length);
+        header[MAGIC.length] = VERSION;
+        header[MAGIC.length + 1] = (byte) currentKeyIdBytes.length;
+        System.arraycopy(currentKeyIdBytes, 0, header, MAGIC.length + 2, currentKeyIdBytes.length);
+
+        byte[] iv = new byte[IV_LENGTH];
+        RANDOM.get().nextBytes(iv);
+        System.arraycopy(iv, 0, header, header.length - IV_LENGTH, IV_LENGTH);
+        return header;
+    }
+
+    /**
+     * Reads header from given buffer, moving its position after the header
+     *
+     * @return header or null if data does not start with a header
+     */
+    protected byte[] readHeader(ByteBuffer data) {
+        int start = data.position();
+        if (data.remaining() < MAGIC.length + 2 + IV_LENGTH + TAG_LENGTH) {
+            return null;
+        }
+        byte[] magic = new byte[MAGIC.length];
+        data.get(magic);
+        byte version = data.get();
+        int keyIdLength = Byte.toUnsignedInt(data.get());
+        if (!Arrays.equals(magic, MAGIC) || version != VERSION || data.remaining() < keyIdLength + IV_LENGTH + TAG_LENGTH) {
+            data.position(start);
+            return null;
+        }
+        byte[] header = new byte[MAGIC.length + 2 + keyIdLength + IV_LENGTH];
+        data.position(start);
+        data.get(header);
+        return header;
+    }
+
+    protected Cipher encryptingCipher(byte[] header) {
+        return gcmCipher(Cipher.ENCRYPT_MODE, currentKeyId, header);
+    }
+
+    protected Cipher decryptingCipher(byte[] header) {
+        int keyIdLength = Byte.toUnsignedInt(header[MAGIC.length + 1]);
+        String keyId = new String(header, MAGIC.length + 2, keyIdLength, StandardCharsets.UTF_8);
+        return gcmCipher(Cipher.DECRYPT_MODE, keyId, header);
+    }
+
+    protected Cipher gcmCipher(int mode, String keyId, byte[] header) {
+        SecretKey key = keys.get(keyId);
+        if (key == null) {
+            throw new IllegalStateException("Unable to decode data encrypted with unknown key '" + keyId + "'");
+        }
+        Cipher cipher = gcmCiphers.take();
+        try {
+            cipher.init(mode, key,
+                    new GCMParameterSpec(TAG_LENGTH_BITS, header, header.length - IV_LENGTH, IV_LENGTH));
+            // header is authenticated together with the data so key id cannot be tampered with
+            cipher.updateAAD(header);
+            return cipher;
+        } catch (GeneralSecurityException e) {
+            gcmCiphers.release(cipher);
+            throw new IllegalStateException("Unable to initialize AES cipher", e);
+        }
+    }
+
+    protected byte[] decodeLegacy(byte[] data) {
+        Cipher cipher = legacyCiphers.take();
+        try {
+            cipher.init(Cipher.DECRYPT_MODE, keys.get(legacyKeyId));
+            return cipher.doFinal(data);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Unable to use AES encryption to decode data", e);
+        } finally {
+            legacyCiphers.release(cipher);
+        }
+    }
+
+    /**
+     * Pool of ciphers of given transformation, ciphers are created when pool is empty and dropped when returned to
+     * already full pool
+     */
+    private static class CipherPool {
+
+        private final String transformation;
+
+        private final int size;
+
+        private final Queue<Cipher> ciphers = new ConcurrentLinkedQueue<>();
+
+        private final AtomicInteger idle = new AtomicInteger();
+
+        private CipherPool(String transformation, int size) {
+            this.transformation = transformation;
+            this.size = size;
+        }
+
+        Cipher take() {
+            Cipher cipher = ciphers.poll();
+            if (cipher != null) {
+                idle.decrementAndGet();
+                return cipher;
+            }
+            try {
+                return Cipher.getInstance(transformation);
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException("Unable to create cipher " + transformation, e);
+            }
+        }
+
+        void release(Cipher cipher) {
+            if (idle.incrementAndGet() <= size) {
+                ciphers.offer(cipher);
+            } else {
+                idle.decrementAndGet();
+            }
+        }
+    }
+}
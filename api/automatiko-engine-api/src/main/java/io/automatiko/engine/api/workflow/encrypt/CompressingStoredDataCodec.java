@@ -0,0 +1,253 @@
+package io.automatiko.engine.api.workflow.encrypt;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PushbackInputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Codec that compresses data before it is given to another codec (e.g. encryption) and decompresses it after it was
+ * decoded by that codec.
+ * <br/>
+ * Compressed data starts with a header (magic bytes, algorithm and length of uncompressed data) so data stored without
+ * compression (e.g. before compression was enabled or too small to be compressed) remains readable.
+ */
+public class CompressingStoredDataCodec implements StoredDataCodec {
+
+    public static final String DEFLATE = "deflate";
+
+    public static final String DEFLATE_FAST = "deflate-fast";
+
+    private static final byte[] MAGIC = new byte[] { (byte) 0xA7, 'A', 'T', 'K' };
+
+    private static final byte ALGORITHM_DEFLATE = 1;
+
+    private static final int HEADER_SIZE = MAGIC.length + 1 + Integer.BYTES;
+
+    private static final int DEFAULT_THRESHOLD = 256;
+
+    // data is never compressed, only data compressed before is decompressed
+    private static final int NO_COMPRESSION = Integer.MAX_VALUE;
+
+    private final StoredDataCodec delegate;
+
+    private final int level;
+
+    private final int threshold;
+
+    public CompressingStoredDataCodec(StoredDataCodec delegate) {
+        this(delegate, Deflater.DEFAULT_COMPRESSION, DEFAULT_THRESHOLD);
+    }
+
+    /**
+     * @param delegate codec applied on compressed data
+     * @param level deflate compression level
+     * @param threshold minimal size of data to be compressed, smaller data is stored as is
+     */
+    public CompressingStoredDataCodec(StoredDataCodec delegate, int level, int threshold) {
+        this.delegate = delegate;
+        this.level = level;
+        this.threshold = threshold;
+    }
+
+    /**
+     * Wraps given codec with compression of given type
+     *
+     * @param codec codec to be applied on compressed data
+     * @param compression type of compression - <code>deflate</code> or <code>deflate-fast</code>, no compression if
+     *        empty or <code>none</code>
+     * @return codec that compresses data, if compression is not enabled it only decompresses data stored while it was
+     */
+    public static StoredDataCodec wrap(StoredDataCodec codec, Optional<String> compression) {
+        String type = compression.orElse("none");
+        switch (type) {
+            case "none":
+                return new CompressingStoredDataCodec(codec, Deflater.DEFAULT_COMPRESSION, NO_COMPRESSION);
+            case DEFLATE:
+                return new CompressingStoredDataCodec(codec);
+            case DEFLATE_FAST:
+                return new CompressingStoredDataCodec(codec, Deflater.BEST_SPEED, DEFAULT_THRESHOLD);
+            default:
+                throw new IllegalArgumentException("Unsupported compression of stored data '" + type + "'");
+        }
+    }
+
+    @Override
+    public byte[] encode(byte[] data) {
+        if (data == null || data.length < threshold) {
+            return delegate.encode(data);
+        }
+        Deflater deflater = new Deflater(level);
+        try {
+            deflater.setInput(data);
+            deflater.finish();
+
+            ByteArrayOutputStream out = new ByteArrayOutputStream(HEADER_SIZE + data.length / 2);
+            writeHeader(out, data.length);
+            byte[] buffer = new byte[Math.min(data.length, 8192)];
+            while (!deflater.finished()) {
+                out.write(buffer, 0, deflater.deflate(buffer));
+            }
+            return delegate.encode(out.toByteArray());
+        } finally {
+            deflater.end();
+        }
+    }
+
+    @Override
+    public byte[] decode(byte[] data) {
+        byte[] decoded = delegate.decode(data);
+        if (!isCompressed(decoded, decoded == null ? 0 : decoded.length)) {
+            return decoded;
+        }
+        int length = ByteBuffer.wrap(decoded, MAGIC.length + 1, Integer.BYTES).getInt();
+        if (length < 0) {
+            // compressed as stream so length of the data is not known
+            try (InputStream in = decompress(new ByteArrayInputStream(decoded))) {
+                return in.readAllBytes();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(decoded, HEADER_SIZE, decoded.length - HEADER_SIZE);
+            byte[] result = new byte[length];
+            int read = 0;
+            while (read < length && !inflater.finished()) {
+                int count = inflater.inflate(result, read, length - read);
+                if (count == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                read += count;
+            }
+            if (read != length) {
+                throw new IllegalStateException("Compressed stored data is truncated");
+            }
+            return result;
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("Unable to decompress stored data", e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    @Override
+    public OutputStream encode(OutputStream out) {
+        OutputStream target = delegate.encode(out);
+        if (threshold == NO_COMPRESSION) {
+            // nothing is compressed so data goes directly to the delegate
+            return target;
+        }
+        // data is buffered up to the threshold to decide if it should be compressed at all
+        return new FilterOutputStream(new ByteArrayOutputStream(Math.min(threshold, 8192))) {
+
+            private DeflaterOutputStream compressed;
+
+            @Override
+            public void write(int b) throws IOException {
+                write(new byte[] { (byte) b }, 0, 1);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                if (compressed != null) {
+                    compressed.write(b, off, len);
+                    return;
+                }
+                this.out.write(b, off, len);
+                ByteArrayOutputStream buffer = (ByteArrayOutputStream) this.out;
+                if (buffer.size() >= threshold) {
+                    // length is not known up front when streaming
+                    writeHeader(target, -1);
+                    compressed = new DeflaterOutputStream(target, new Deflater(level), 8192) {
+                        @Override
+                        public void close() throws IOException {
+                            super.close();
+                            def.end();
+                        }
+                    };
+                    buffer.writeTo(compressed);
+                }
+            }
+
+            @Override
+            public void flush() throws IOException {
+                if (compressed != null) {
+                    compressed.flush();
+                }
+            }
+
+            @Override
+            public void close() throws IOException {
+                if (compressed != null) {
+                    compressed.close();
+                } else {
+                    ((ByteArrayOutputStream) this.out).writeTo(target);
+                    target.close();
+                }
+            }
+        };
+    }
+
+    @Override
+    public InputStream decode(InputStream in) throws IOException {
+        return decompress(delegate.decode(in));
+    }
+
+    protected InputStream decompress(InputStream in) throws IOException {
+        PushbackInputStream decoded = new PushbackInputStream(in, HEADER_SIZE);
+        byte[] header = new byte[HEADER_SIZE];
+        int read = decoded.readNBytes(header, 0, HEADER_SIZE);
+        if (!isCompressed(header, read)) {
+            decoded.unread(header, 0, read);
+            return decoded;
+        }
+        Inflater inflater = new Inflater();
+        return new InflaterInputStream(decoded, inflater, 8192) {
+            @Override
+            public void close() throws IOException {
+                super.close();
+                inflater.end();
+            }
+        };
+    }
+
+    protected boolean isCompressed(byte[] data, int length) {
+        if (data == null || length < HEADER_SIZE) {
+            return false;
+        }
+        if (!Arrays.equals(data, 0, MAGIC.length, MAGIC, 0, MAGIC.length)) {
+            return false;
+        }
+        if (data[MAGIC.length] != ALGORITHM_DEFLATE) {
+            throw new IllegalStateException("Unknown compression algorithm of stored data " + data[MAGIC.length]);
+        }
+        return true;
+    }
+
+    protected void writeHeader(OutputStream out, int length) {
+        try {
+            out.write(MAGIC);
+            out.write(ALGORITHM_DEFLATE);
+            out.write(length >>> 24);
+            out.write(length >>> 16);
+            out.write(length >>> 8);
+            out.write(length);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
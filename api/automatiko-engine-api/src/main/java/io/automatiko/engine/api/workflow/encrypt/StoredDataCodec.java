@@ -1,12 +1,21 @@
 package io.automatiko.engine.api.workflow.encrypt;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
 public interface StoredDataCodec {
 
     static final StoredDataCodec NO_OP_CODEC = new NoOpStoredDataCodec();
 
     /**
      * Performs encoding of given data
-     * 
+     *
      * @param data data to be encoded
      * @return returns data encoded based on internal implementation
      */
@@ -14,12 +23,89 @@ public interface StoredDataCodec {
 
     /**
      * Performs decoding of given data (that was previously encoded with this codec)
-     * 
+     *
      * @param data data to be decoded
      * @return returns data decoded based on internal implementation
      */
     byte[] decode(byte[] data);
 
+    /**
+     * Performs encoding of given data, by default it uses content of the buffer without copying when possible
+     *
+     * @param data data to be encoded
+     * @return returns data encoded based on internal implementation
+     */
+    default ByteBuffer encode(ByteBuffer data) {
+        return ByteBuffer.wrap(encode(toArray(data)));
+    }
+
+    /**
+     * Performs decoding of given data (that was previously encoded with this codec), by default it uses content of the
+     * buffer without copying when possible
+     *
+     * @param data data to be decoded
+     * @return returns data decoded based on internal implementation
+     */
+    default ByteBuffer decode(ByteBuffer data) {
+        return ByteBuffer.wrap(decode(toArray(data)));
+    }
+
+    /**
+     * Returns stream that encodes all data written to it and writes it into given stream once closed. Codecs that are
+     * able to encode data in chunks should override it to avoid buffering of complete data.
+     *
+     * @param out stream where encoded data should be written to
+     * @return returns stream that data to be encoded should be written to
+     */
+    default OutputStream encode(OutputStream out) {
+        OutputStream target = out;
+        return new FilterOutputStream(new ByteArrayOutputStream()) {
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                this.out.write(b, off, len);
+            }
+
+            @Override
+            public void close() throws IOException {
+                target.write(encode(((ByteArrayOutputStream) this.out).toByteArray()));
+                target.close();
+            }
+        };
+    }
+
+    /**
+     * Returns stream that provides decoded data read from given stream. Codecs that are able to decode data in chunks
+     * should override it to avoid buffering of complete data.
+     *
+     * @param in stream with encoded data
+     * @return returns stream with decoded data
+     * @throws IOException in case data cannot be read from given stream
+     */
+    default InputStream decode(InputStream in) throws IOException {
+        try (InputStream stream = in) {
+            return new ByteArrayInputStream(decode(stream.readAllBytes()));
+        }
+    }
+
+    /**
+     * Returns content of given buffer as array, backing array of the buffer is used directly if it represents exactly
+     * the content of the buffer
+     */
+    static byte[] toArray(ByteBuffer data) {
+        if (data.hasArray() && data.arrayOffset() == 0 && data.position() == 0
+                && data.remaining() == data.array().length) {
+            return data.array();
+        }
+        if (data.hasArray()) {
+            int start = data.arrayOffset() + data.position();
+            return Arrays.copyOfRange(data.array(), start, start + data.remaining());
+        }
+        byte[] content = new byte[data.remaining()];
+        data.duplicate().get(content);
+        return content;
+    }
+
     class NoOpStoredDataCodec implements StoredDataCodec {
 
         @Override
@@ -32,5 +118,25 @@ public interface StoredDataCodec {
             return data;
         }
 
+        @Override
+        public ByteBuffer encode(ByteBuffer data) {
+            return data;
+        }
+
+        @Override
+        public ByteBuffer decode(ByteBuffer data) {
+            return data;
+        }
+
+        @Override
+        public OutputStream encode(OutputStream out) {
+            return out;
+        }
+
+        @Override
+        public InputStream decode(InputStream in) {
+            return in;
+        }
+
     }
 }
@@ -0,0 +1,130 @@
+package io.automatiko.engine.api.workflow.encrypt;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.junit.jupiter.api.Test;
+
+public class AESGCMStoredDataCodecTest {
+
+    private static final byte[] OLD_KEY = "0123456789abcdef".getBytes(StandardCharsets.UTF_8);
+
+    private static final byte[] NEW_KEY = "fedcba9876543210".getBytes(StandardCharsets.UTF_8);
+
+    private static final byte[] DATA = "some data that is stored encrypted".getBytes(StandardCharsets.UTF_8);
+
+    @Test
+    public void testRoundTrip() throws IOException {
+        AESGCMStoredDataCodec codec = new AESGCMStoredDataCodec("old", OLD_KEY);
+
+        byte[] encoded = codec.encode(DATA);
+        assertFalse(Arrays.equals(DATA, Arrays.copyOfRange(encoded, encoded.length - DATA.length, encoded.length)));
+        assertArrayEquals(DATA, codec.decode(encoded));
+        // every record has its own initialization vector
+        assertFalse(Arrays.equals(encoded, codec.encode(DATA)));
+
+        ByteBuffer buffer = codec.encode(ByteBuffer.wrap(DATA));
+        assertEquals(ByteBuffer.wrap(DATA), codec.decode(buffer));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (OutputStream stream = codec.encode(out)) {
+            stream.write(DATA);
+        }
+        assertArrayEquals(DATA, codec.decode(out.toByteArray()));
+        try (InputStream stream = codec.decode(new ByteArrayInputStream(encoded))) {
+            assertArrayEquals(DATA, stream.readAllBytes());
+        }
+    }
+
+    @Test
+    public void testTamperedDataRejected() {
+        AESGCMStoredDataCodec codec = new AESGCMStoredDataCodec("old", OLD_KEY);
+
+        byte[] encoded = codec.encode(DATA);
+        encoded[encoded.length - 1] ^= 1;
+        assertThrows(IllegalStateException.class, () -> codec.decode(encoded));
+
+        // key id is authenticated as well
+        Map<String, byte[]> keys = new LinkedHashMap<>();
+        keys.put("old", OLD_KEY);
+        keys.put("olx", OLD_KEY);
+        AESGCMStoredDataCodec rotated = new AESGCMStoredDataCodec("old", keys, "old");
+        byte[] header = rotated.encode(DATA);
+        header[7] = 'x';
+        assertThrows(IllegalStateException.class, () -> rotated.decode(header));
+    }
+
+    @Test
+    public void testKeyRotation() {
+        byte[] encoded = new AESGCMStoredDataCodec("old", OLD_KEY).encode(DATA);
+
+        Map<String, byte[]> keys = new LinkedHashMap<>();
+        keys.put("old", OLD_KEY);
+        keys.put("new", NEW_KEY);
+        AESGCMStoredDataCodec codec = new AESGCMStoredDataCodec("new", keys, "old");
+        assertEquals("new", codec.currentKeyId());
+        assertArrayEquals(DATA, codec.decode(encoded));
+
+        // data is encrypted with the new key only
+        byte[] rotated = codec.encode(DATA);
+        assertArrayEquals(DATA, new AESGCMStoredDataCodec("new", NEW_KEY).decode(rotated));
+        assertThrows(IllegalStateException.class, () -> new AESGCMStoredDataCodec("old", OLD_KEY).decode(rotated));
+    }
+
+    @Test
+    public void testLegacyDataDecoded() throws Exception {
+        byte[] legacy = legacy(OLD_KEY, DATA);
+
+        Map<String, byte[]> keys = new LinkedHashMap<>();
+        keys.put("old", OLD_KEY);
+        keys.put("new", NEW_KEY);
+        // single key is the only one legacy data could have been encrypted with
+        assertArrayEquals(DATA, new AESGCMStoredDataCodec("old", OLD_KEY).decode(legacy));
+        // legacy key given explicitly
+        assertArrayEquals(DATA, new AESGCMStoredDataCodec("new", keys, "old").decode(legacy));
+        try (InputStream stream = new AESGCMStoredDataCodec("new", keys, "old")
+                .decode(new ByteArrayInputStream(legacy))) {
+            assertArrayEquals(DATA, stream.readAllBytes());
+        }
+
+        assertThrows(IllegalStateException.class, () -> new AESGCMStoredDataCodec("new", NEW_KEY).decode(legacy));
+        assertThrows(IllegalStateException.class, () -> new AESGCMStoredDataCodec("new", keys, "new").decode(legacy));
+        assertThrows(IllegalArgumentException.class, () -> new AESGCMStoredDataCodec("new", keys, "unknown"));
+    }
+
+    @Test
+    public void testRotatedKeyRequiresLegacyKeyId() throws Exception {
+        byte[] legacy = legacy(OLD_KEY, DATA);
+
+        Map<String, byte[]> keys = new LinkedHashMap<>();
+        keys.put("old", OLD_KEY);
+        keys.put("new", NEW_KEY);
+        // legacy data does not tell which key it was encrypted with so there is no guessing between keys
+        assertThrows(IllegalArgumentException.class, () -> new AESGCMStoredDataCodec("new", keys));
+        assertThrows(IllegalArgumentException.class, () -> new AESGCMStoredDataCodec("new", keys, null));
+        assertArrayEquals(DATA, new AESGCMStoredDataCodec("new", keys, "old").decode(legacy));
+    }
+
+    private byte[] legacy(byte[] key, byte[] data) throws Exception {
+        // format used by previous AES codec - provider default mode
+        Cipher cipher = Cipher.getInstance("AES");
+        cipher.init(Cipher.ENCRYPT_MODE, new SecretKeySpec(key, "AES"));
+        return cipher.doFinal(data);
+    }
+}
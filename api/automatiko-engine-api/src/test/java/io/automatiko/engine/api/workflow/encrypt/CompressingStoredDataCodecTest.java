@@ -0,0 +1,134 @@
+package io.automatiko.engine.api.workflow.encrypt;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Optional;
+
+import org.junit.jupiter.api.Test;
+
+public class CompressingStoredDataCodecTest {
+
+    private static final byte[] LARGE = String.join("", Collections.nCopies(4096, "data")).getBytes(StandardCharsets.UTF_8);
+
+    private static final byte[] SMALL = "small".getBytes(StandardCharsets.UTF_8);
+
+    private final StoredDataCodec codec = CompressingStoredDataCodec.wrap(StoredDataCodec.NO_OP_CODEC,
+            Optional.of(CompressingStoredDataCodec.DEFLATE));
+
+    @Test
+    public void testByteArrayRoundTrip() {
+        byte[] encoded = codec.encode(LARGE);
+        assertTrue(isCompressed(encoded));
+        assertTrue(encoded.length < LARGE.length);
+        assertArrayEquals(LARGE, codec.decode(encoded));
+
+        // data below threshold is stored as is
+        assertArrayEquals(SMALL, codec.encode(SMALL));
+        assertArrayEquals(SMALL, codec.decode(SMALL));
+    }
+
+    @Test
+    public void testStreamRoundTrip() throws IOException {
+        byte[] encoded = encodeStream(codec, LARGE);
+        assertTrue(isCompressed(encoded));
+        assertTrue(encoded.length < LARGE.length);
+
+        try (InputStream in = codec.decode(new ByteArrayInputStream(encoded))) {
+            assertArrayEquals(LARGE, in.readAllBytes());
+        }
+
+        byte[] small = encodeStream(codec, SMALL);
+        assertArrayEquals(SMALL, small);
+        try (InputStream in = codec.decode(new ByteArrayInputStream(small))) {
+            assertArrayEquals(SMALL, in.readAllBytes());
+        }
+    }
+
+    @Test
+    public void testStreamEncodedDecodedAsByteArray() throws IOException {
+        // streamed data has unknown length (-1) in the header
+        byte[] encoded = encodeStream(codec, LARGE);
+        assertEquals(-1, ByteBuffer.wrap(encoded, 5, Integer.BYTES).getInt());
+
+        assertArrayEquals(LARGE, codec.decode(encoded));
+        assertArrayEquals(LARGE, StoredDataCodec.toArray(codec.decode(ByteBuffer.wrap(encoded))));
+    }
+
+    @Test
+    public void testByteBufferRoundTrip() {
+        // buffer that is a slice of larger array
+        byte[] backing = new byte[LARGE.length + 20];
+        System.arraycopy(LARGE, 0, backing, 10, LARGE.length);
+        ByteBuffer data = ByteBuffer.wrap(backing, 10, LARGE.length);
+
+        ByteBuffer encoded = codec.encode(data);
+        assertTrue(isCompressed(StoredDataCodec.toArray(encoded)));
+        assertArrayEquals(LARGE, StoredDataCodec.toArray(codec.decode(encoded)));
+
+        ByteBuffer direct = ByteBuffer.allocateDirect(LARGE.length);
+        direct.put(LARGE).flip();
+        assertArrayEquals(LARGE, StoredDataCodec.toArray(codec.decode(codec.encode(direct))));
+    }
+
+    @Test
+    public void testCompressedDataReadableWithoutCompression() throws IOException {
+        StoredDataCodec none = CompressingStoredDataCodec.wrap(StoredDataCodec.NO_OP_CODEC, Optional.empty());
+        byte[] compressed = codec.encode(LARGE);
+        byte[] streamed = encodeStream(codec, LARGE);
+
+        // data is no longer compressed but data stored with compression remains readable
+        assertArrayEquals(LARGE, none.encode(LARGE));
+        assertArrayEquals(LARGE, encodeStream(none, LARGE));
+        // stream of the delegate is used as is, without any buffering
+        ByteArrayOutputStream target = new ByteArrayOutputStream();
+        assertSame(target, none.encode(target));
+        assertArrayEquals(LARGE, none.decode(compressed));
+        assertArrayEquals(LARGE, none.decode(streamed));
+        try (InputStream in = none.decode(new ByteArrayInputStream(streamed))) {
+            assertArrayEquals(LARGE, in.readAllBytes());
+        }
+        assertArrayEquals(LARGE, StoredDataCodec.toArray(none.decode(ByteBuffer.wrap(compressed))));
+    }
+
+    @Test
+    public void testTruncatedData() {
+        byte[] encoded = codec.encode(LARGE);
+        assertThrows(IllegalStateException.class, () -> codec.decode(Arrays.copyOf(encoded, encoded.length / 2)));
+        assertFalse(isCompressed(SMALL));
+    }
+
+    @Test
+    public void testUnsupportedCompression() {
+        assertThrows(IllegalArgumentException.class,
+                () -> CompressingStoredDataCodec.wrap(StoredDataCodec.NO_OP_CODEC, Optional.of("zip")));
+    }
+
+    private byte[] encodeStream(StoredDataCodec codec, byte[] data) throws IOException {
+        ByteArrayOutputStream target = new ByteArrayOutputStream();
+        try (OutputStream out = codec.encode(target)) {
+            // written in chunks smaller than the threshold
+            for (int i = 0; i < data.length; i += 100) {
+                out.write(data, i, Math.min(100, data.length - i));
+            }
+        }
+        return target.toByteArray();
+    }
+
+    private boolean isCompressed(byte[] data) {
+        return data.length > 4 && data[0] == (byte) 0xA7 && data[1] == 'A' && data[2] == 'T' && data[3] == 'K';
+    }
+}
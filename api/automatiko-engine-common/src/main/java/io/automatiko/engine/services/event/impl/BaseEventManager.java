@@ -1,27 +1,59 @@
-
 package io.automatiko.engine.services.event.impl;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
 import io.automatiko.engine.api.Addons;
 import io.automatiko.engine.api.event.DataEvent;
 import io.automatiko.engine.api.event.EventBatch;
 import io.automatiko.engine.api.event.EventManager;
+import io.automatiko.engine.api.event.EventOutbox;
 import io.automatiko.engine.api.event.EventPublisher;
 
 public class BaseEventManager implements EventManager {
 
+	private static final Logger LOGGER = LoggerFactory.getLogger(BaseEventManager.class);
+
 	private String service;
 	private Addons addons;
 	private Set<EventPublisher> publishers = new LinkedHashSet<>();
 
+	private EventOutbox outbox;
+	private OrderedEventDispatcher dispatcher;
+
 	@Override
 	public EventBatch newBatch() {
 		return new ProcessInstanceEventBatch(service, addons);
 	}
 
+	@Override
+	public EventBatch prepare(EventBatch batch) {
+		if (publishers.isEmpty() || outbox == null) {
+			return batch;
+		}
+		// events are created once so the same events are stored and published
+		PreparedEventBatch prepared = new PreparedEventBatch(batch.events());
+		if (!prepared.events().isEmpty()) {
+			outbox.store(prepared.events());
+		}
+		return prepared;
+	}
+
+	@Override
+	public void discard(EventBatch batch) {
+		if (outbox != null && batch instanceof PreparedEventBatch && !batch.events().isEmpty()) {
+			outbox.delete(batch.events());
+		}
+	}
+
 	@Override
 	public void publish(EventBatch batch) {
 		if (publishers.isEmpty()) {
@@ -29,8 +61,15 @@ public class BaseEventManager implements EventManager {
 			return;
 		}
 		Collection<DataEvent<?>> events = batch.events();
-
-		publishers.forEach(p -> p.publish(events));
+		if (dispatcher == null || events.isEmpty()) {
+			deliver(events);
+			return;
+		}
+		Map<String, List<DataEvent<?>>> byInstance = new LinkedHashMap<>();
+		for (DataEvent<?> event : events) {
+			byInstance.computeIfAbsent(instanceKey(event), key -> new ArrayList<>()).add(event);
+		}
+		byInstance.forEach(dispatcher::dispatch);
 	}
 
 	@Override
@@ -48,4 +87,101 @@ public class BaseEventManager implements EventManager {
 		this.addons = addons;
 	}
 
+	@Override
+	public void setOutbox(EventOutbox outbox) {
+		this.outbox = outbox;
+		if (outbox == null) {
+			return;
+		}
+		Collection<DataEvent<?>> pending = outbox.pending();
+		if (!pending.isEmpty()) {
+			LOGGER.info("Publishing {} events found in the outbox", pending.size());
+			try {
+				deliver(pending);
+			} catch (RuntimeException e) {
+				LOGGER.error("Unable to publish events found in the outbox", e);
+			}
+		}
+	}
+
+	@Override
+	public void setPublishingWorkers(int workers, int queueSize) {
+		OrderedEventDispatcher current = this.dispatcher;
+		this.dispatcher = workers > 0 ? new OrderedEventDispatcher(this::deliver, workers, queueSize) : null;
+		if (current != null) {
+			current.close();
+		}
+	}
+
+	@Override
+	public int pendingEvents() {
+		OrderedEventDispatcher current = this.dispatcher;
+		return current == null ? 0 : current.pending();
+	}
+
+	@Override
+	public long deliveryLag() {
+		OrderedEventDispatcher current = this.dispatcher;
+		return current == null ? 0 : current.lag();
+	}
+
+	@Override
+	public void close() {
+		OrderedEventDispatcher current = this.dispatcher;
+		this.dispatcher = null;
+		if (current != null) {
+			current.close();
+		}
+	}
+
+	protected void deliver(Collection<DataEvent<?>> events) {
+		publishers.forEach(p -> p.publish(events));
+		if (outbox != null && !events.isEmpty()) {
+			outbox.delete(events);
+		}
+	}
+
+	/**
+	 * Returns key that events are ordered by - the root process instance so
+	 * events of instance and its subprocesses are published in order
+	 */
+	protected String instanceKey(DataEvent<?> event) {
+		Object data = event.getData();
+		String key = null;
+		if (data instanceof ProcessInstanceEventBody) {
+			ProcessInstanceEventBody body = (ProcessInstanceEventBody) data;
+			key = body.getRootInstanceId() != null ? body.getRootInstanceId() : body.getId();
+		} else if (data instanceof UserTaskInstanceEventBody) {
+			UserTaskInstanceEventBody body = (UserTaskInstanceEventBody) data;
+			key = body.getRootProcessInstanceId() != null ? body.getRootProcessInstanceId()
+					: body.getProcessInstanceId();
+		} else if (data instanceof VariableInstanceEventBody) {
+			VariableInstanceEventBody body = (VariableInstanceEventBody) data;
+			key = body.getRootProcessInstanceId() != null ? body.getRootProcessInstanceId()
+					: body.getProcessInstanceId();
+		}
+		if (key == null) {
+			key = event.getSubject() != null ? event.getSubject() : String.valueOf(event.getId());
+		}
+		return key;
+	}
+
+	private static class PreparedEventBatch implements EventBatch {
+
+		private final Collection<DataEvent<?>> events;
+
+		private PreparedEventBatch(Collection<DataEvent<?>> events) {
+			this.events = events;
+		}
+
+		@Override
+		public void append(Object rawEvent) {
+			throw new IllegalStateException("Events cannot be appended to already prepared batch");
+		}
+
+		@Override
+		public Collection<DataEvent<?>> events() {
+			return events;
+		}
+	}
 }
@@ -0,0 +1,153 @@
+package io.automatiko.engine.services.event.impl;
+
+import java.util.Collection;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.automatiko.engine.api.event.DataEvent;
+
+/**
+ * Delivers events asynchronously by configured number of workers. Events are partitioned by a key (process instance
+ * id) among workers so that events of the same instance are always delivered in order by the same worker while
+ * events of different instances are delivered in parallel. Every worker has a bounded queue, when full the
+ * dispatching thread waits for the worker to catch up.
+ */
+public class OrderedEventDispatcher {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(OrderedEventDispatcher.class);
+
+    private static final long CLOSE_TIMEOUT_SECONDS = 30;
+
+    private final Consumer<Collection<DataEvent<?>>> delivery;
+
+    private final ThreadPoolExecutor[] workers;
+
+    private final Queue<Delivery>[] inflight;
+
+    private final AtomicInteger pending = new AtomicInteger();
+
+    /**
+     * @param delivery function that delivers events to publishers
+     * @param threads number of workers
+     * @param queueSize maximum number of batches waiting to be delivered by single worker
+     */
+    @SuppressWarnings("unchecked")
+    public OrderedEventDispatcher(Consumer<Collection<DataEvent<?>>> delivery, int threads, int queueSize) {
+        this.delivery = delivery;
+        this.workers = new ThreadPoolExecutor[threads];
+        this.inflight = new Queue[threads];
+        for (int i = 0; i < threads; i++) {
+            String name = "automatiko-event-publisher-" + i;
+            workers[i] = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(Math.max(1, queueSize)), r -> {
+                        Thread thread = new Thread(r, name);
+                        thread.setDaemon(true);
+                        return thread;
+                    }, (r, executor) -> {
+                        // back pressure, wait for the worker to catch up
+                        try {
+                            executor.getQueue().put(r);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                            throw new RejectedExecutionException(e);
+                        }
+                    });
+            inflight[i] = new ConcurrentLinkedQueue<>();
+        }
+    }
+
+    /**
+     * Schedules delivery of given events, events dispatched with the same key are delivered in the order they were
+     * dispatched
+     *
+     * @param key key that events are partitioned by
+     * @param events events to be delivered
+     */
+    public void dispatch(String key, Collection<DataEvent<?>> events) {
+        int worker = Math.floorMod(key.hashCode(), workers.length);
+        Delivery task = new Delivery(inflight[worker], events);
+        inflight[worker].add(task);
+        pending.addAndGet(events.size());
+        try {
+            workers[worker].execute(task);
+        } catch (RejectedExecutionException e) {
+            inflight[worker].remove(task);
+            pending.addAndGet(-events.size());
+            throw e;
+        }
+    }
+
+    /**
+     * Returns number of events that were dispatched but not yet delivered
+     */
+    public int pending() {
+        return pending.get();
+    }
+
+    /**
+     * Returns time in milliseconds the oldest not yet delivered events wait for delivery
+     */
+    public long lag() {
+        long now = System.currentTimeMillis();
+        long oldest = now;
+        for (Queue<Delivery> queue : inflight) {
+            Delivery first = queue.peek();
+            if (first != null) {
+                oldest = Math.min(oldest, first.created);
+            }
+        }
+        return now - oldest;
+    }
+
+    /**
+     * Stops accepting new events and waits for already dispatched events to be delivered
+     */
+    public void close() {
+        for (ThreadPoolExecutor worker : workers) {
+            worker.shutdown();
+        }
+        try {
+            for (ThreadPoolExecutor worker : workers) {
+                if (!worker.awaitTermination(CLOSE_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                    LOGGER.warn("Not all events were published before closing, {} events still pending", pending());
+                    return;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private class Delivery implements Runnable {
+
+        private final Queue<Delivery> queue;
+        private final Collection<DataEvent<?>> events;
+        private final long created = System.currentTimeMillis();
+
+        private Delivery(Queue<Delivery> queue, Collection<DataEvent<?>> events) {
+            this.queue = queue;
+            this.events = events;
+        }
+
+        @Override
+        public void run() {
+            try {
+                delivery.accept(events);
+            } catch (Throwable e) {
+                LOGGER.error("Unable to publish {} events", events.size(), e);
+            } finally {
+                queue.remove(this);
+                pending.addAndGet(-events.size());
+            }
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package io.automatiko.engine.services.execution;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.automatiko.engine.api.auth.IdentityProvider;
+
+/**
+ * Executor for workflow work that is performed outside of the caller's thread (e.g. async execution of REST calls).
+ * Work is expected to be blocking (persistence, service calls) so it runs on dedicated threads instead of the common
+ * fork join pool.
+ * <br/>
+ * Number of tasks is bounded - with platform threads by number of threads and size of the queue, with virtual threads
+ * (requires JDK 21 or newer) by number of concurrently running tasks and size of the queue. Tasks over the limit are
+ * rejected with {@link RejectedExecutionException} so callers can push back instead of piling up work.
+ * <br/>
+ * Identity of the caller is propagated to the thread running the task.
+ */
+public class BoundedWorkflowExecutor implements Executor, AutoCloseable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(BoundedWorkflowExecutor.class);
+
+    private final ExecutorService delegate;
+
+    private final ThreadPoolExecutor pool;
+
+    private final Semaphore permits;
+
+    private final int limit;
+
+    private final AtomicInteger running = new AtomicInteger();
+
+    private final AtomicLong rejected = new AtomicLong();
+
+    /**
+     * @param threads maximum number of tasks running at the same time
+     * @param queueSize maximum number of tasks waiting to be run
+     * @param virtualThreads indicates if tasks should run on virtual threads, ignored when not supported by the JVM
+     */
+    public BoundedWorkflowExecutor(int threads, int queueSize, boolean virtualThreads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Number of threads must be greater than zero");
+        }
+        this.limit = threads + Math.max(0, queueSize);
+        ExecutorService virtual = virtualThreads ? virtualThreadExecutor() : null;
+        if (virtual != null) {
+            this.delegate = virtual;
+            this.pool = null;
+            this.permits = new Semaphore(limit);
+        } else {
+            AtomicInteger counter = new AtomicInteger();
+            this.pool = new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS,
+                    queueSize > 0 ? new ArrayBlockingQueue<>(queueSize) : new SynchronousQueue<>(),
+                    r -> {
+                        Thread thread = new Thread(r, "automatiko-workflow-executor-" + counter.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+            this.pool.allowCoreThreadTimeOut(true);
+            this.delegate = pool;
+            this.permits = null;
+        }
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        IdentityProvider identity = IdentityProvider.isSet() ? IdentityProvider.get() : null;
+        Runnable task = () -> {
+            IdentityProvider current = IdentityProvider.isSet() ? IdentityProvider.get() : null;
+            IdentityProvider.set(identity);
+            running.incrementAndGet();
+            try {
+                command.run();
+            } finally {
+                running.decrementAndGet();
+                IdentityProvider.set(current);
+                if (permits != null) {
+                    permits.release();
+                }
+            }
+        };
+        if (permits != null && !permits.tryAcquire()) {
+            throw rejected();
+        }
+        try {
+            delegate.execute(task);
+        } catch (RejectedExecutionException e) {
+            if (permits != null) {
+                permits.release();
+            }
+            throw rejected();
+        }
+    }
+
+    /**
+     * Returns number of tasks currently running
+     */
+    public int running() {
+        return running.get();
+    }
+
+    /**
+     * Returns number of tasks waiting to be run
+     */
+    public int queued() {
+        if (pool != null) {
+            return pool.getQueue().size();
+        }
+        return Math.max(0, limit - permits.availablePermits() - running.get());
+    }
+
+    /**
+     * Returns ratio (0 - 1) of running and waiting tasks to the maximum number of tasks accepted
+     */
+    public double saturation() {
+        return (double) (running() + queued()) / limit;
+    }
+
+    /**
+     * Returns total number of rejected tasks
+     */
+    public long rejectedCount() {
+        return rejected.get();
+    }
+
+    /**
+     * Indicates if tasks run on virtual threads
+     */
+    public boolean isVirtual() {
+        return pool == null;
+    }
+
+    @Override
+    public void close() {
+        delegate.shutdown();
+        try {
+            if (!delegate.awaitTermination(30, TimeUnit.SECONDS)) {
+                LOGGER.warn("Workflow executor did not finish all tasks before shutdown");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    protected RejectedExecutionException rejected() {
+        rejected.incrementAndGet();
+        return new RejectedExecutionException("Workflow executor is saturated, maximum of " + limit + " tasks reached");
+    }
+
+    protected ExecutorService virtualThreadExecutor() {
+        try {
+            // looked up reflectively as virtual threads are only available on JDK 21+
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            LOGGER.warn("Virtual threads are not supported by the JVM ({}), platform threads will be used",
+                    System.getProperty("java.version"));
+            return null;
+        }
+    }
+}
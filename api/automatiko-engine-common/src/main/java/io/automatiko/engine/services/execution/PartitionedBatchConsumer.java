@@ -0,0 +1,91 @@
+package io.automatiko.engine.services.execution;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletionStage;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Consumes batch of messages split into partitions by {@link PartitionedBatchExecutor}. Each partition is consumed at
+ * once and all its messages are acknowledged when that succeeded. In case consuming of the partition failed, its
+ * messages are consumed again one by one so only the messages that fail on their own are rejected.
+ * <br/>
+ * Consumer of the messages is expected to be atomic (e.g. run in unit of work) so that a failed partition leaves no
+ * changes behind before it is consumed again.
+ *
+ * @param <T> type of the message
+ */
+public class PartitionedBatchConsumer<T> {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(PartitionedBatchConsumer.class);
+
+    private final PartitionedBatchExecutor executor;
+
+    private final Function<T, String> key;
+
+    private final Consumer<List<T>> consumer;
+
+    private final Function<T, CompletionStage<Void>> ack;
+
+    private final BiFunction<T, Exception, CompletionStage<Void>> nack;
+
+    /**
+     * @param executor executor that partitions and runs the batch
+     * @param key function returning key of the message, messages with the same key are consumed in order
+     * @param consumer consumer of the list of messages
+     * @param ack acknowledges successfully consumed message
+     * @param nack rejects message that failed to be consumed
+     */
+    public PartitionedBatchConsumer(PartitionedBatchExecutor executor, Function<T, String> key,
+            Consumer<List<T>> consumer, Function<T, CompletionStage<Void>> ack,
+            BiFunction<T, Exception, CompletionStage<Void>> nack) {
+        this.executor = executor;
+        this.key = key;
+        this.consumer = consumer;
+        this.ack = ack;
+        this.nack = nack;
+    }
+
+    /**
+     * Consumes given messages and returns acknowledgement of every one of them
+     *
+     * @param messages messages to be consumed
+     * @return completion stages of acknowledgement (or rejection) of each message
+     */
+    public List<CompletionStage<Void>> consume(List<T> messages) {
+        List<CompletionStage<Void>> completions = Collections.synchronizedList(new ArrayList<>());
+        if (!messages.isEmpty()) {
+            executor.execute(messages, key, partition -> completions.addAll(consumePartition(partition)));
+        }
+        return completions;
+    }
+
+    protected List<CompletionStage<Void>> consumePartition(List<T> partition) {
+        List<CompletionStage<Void>> completions = new ArrayList<>();
+        try {
+            consumer.accept(partition);
+            partition.forEach(message -> completions.add(ack.apply(message)));
+        } catch (Exception e) {
+            if (partition.size() == 1) {
+                completions.add(nack.apply(partition.get(0), e));
+                return completions;
+            }
+            LOGGER.warn("Error when consuming partition of {} messages, consuming them one by one", partition.size(), e);
+            for (T message : partition) {
+                try {
+                    consumer.accept(Collections.singletonList(message));
+                    completions.add(ack.apply(message));
+                } catch (Exception ex) {
+                    completions.add(nack.apply(message, ex));
+                }
+            }
+        }
+        return completions;
+    }
+}
@@ -0,0 +1,122 @@
+package io.automatiko.engine.services.execution;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Executes batch of items split into partitions by key of the item. All items with the same key end up in the same
+ * partition in the order they were given, partitions are handled concurrently - one partition by the calling thread
+ * and others by threads of the executor. Items without a key are always placed in the first partition.
+ * <br/>
+ * Execution returns once all partitions are handled, in case handling of any partition failed the first failure is
+ * rethrown with others attached as suppressed exceptions.
+ */
+public class PartitionedBatchExecutor implements AutoCloseable {
+
+    private final int partitions;
+
+    private final ThreadPoolExecutor pool;
+
+    /**
+     * @param name name used for threads of the executor
+     * @param partitions maximum number of partitions handled at the same time
+     */
+    public PartitionedBatchExecutor(String name, int partitions) {
+        if (partitions < 1) {
+            throw new IllegalArgumentException("Number of partitions must be greater than zero");
+        }
+        this.partitions = partitions;
+        if (partitions > 1) {
+            AtomicInteger counter = new AtomicInteger();
+            // calling thread handles one of the partitions
+            this.pool = new ThreadPoolExecutor(partitions - 1, partitions - 1, 60L, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<>(), r -> {
+                        Thread thread = new Thread(r, "automatiko-batch-" + name + "-" + counter.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+            this.pool.allowCoreThreadTimeOut(true);
+        } else {
+            this.pool = null;
+        }
+    }
+
+    /**
+     * Splits given items into partitions and invokes handler for each non empty partition
+     *
+     * @param items items to be handled
+     * @param key function returning key of the item, might return null
+     * @param handler handler of single partition
+     */
+    public <T> void execute(List<T> items, Function<T, String> key, Consumer<List<T>> handler) {
+        List<List<T>> split = partition(items, key);
+        if (split.size() == 1) {
+            handler.accept(split.get(0));
+            return;
+        }
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (List<T> partition : split.subList(1, split.size())) {
+            futures.add(CompletableFuture.runAsync(() -> handler.accept(partition), pool));
+        }
+        RuntimeException failure = null;
+        try {
+            handler.accept(split.get(0));
+        } catch (RuntimeException e) {
+            failure = e;
+        }
+        for (CompletableFuture<Void> future : futures) {
+            try {
+                future.join();
+            } catch (CompletionException e) {
+                RuntimeException cause = e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+                if (failure == null) {
+                    failure = cause;
+                } else {
+                    failure.addSuppressed(cause);
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Returns maximum number of partitions handled at the same time
+     */
+    public int partitions() {
+        return partitions;
+    }
+
+    @Override
+    public void close() {
+        if (pool != null) {
+            pool.shutdown();
+        }
+    }
+
+    protected <T> List<List<T>> partition(List<T> items, Function<T, String> key) {
+        List<List<T>> split = new ArrayList<>(partitions);
+        for (int i = 0; i < partitions; i++) {
+            split.add(new ArrayList<>());
+        }
+        for (T item : items) {
+            String itemKey = key.apply(item);
+            int index = itemKey == null ? 0 : Math.floorMod(itemKey.hashCode(), partitions);
+            split.get(index).add(item);
+        }
+        split.removeIf(List::isEmpty);
+        if (split.isEmpty()) {
+            split.add(new ArrayList<>());
+        }
+        return split;
+    }
+}
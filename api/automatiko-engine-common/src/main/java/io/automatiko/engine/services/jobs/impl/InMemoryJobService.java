@@ -31,6 +31,9 @@ public class InMemoryJobService implements JobsService {
     private static final Logger LOGGER = LoggerFactory.getLogger(InMemoryJobService.class);
     private static final String TRIGGER = "timer";
 
+    public static final String TYPE_PROPERTY = "automatiko.jobs.in-memory.type";
+    public static final String TIMING_WHEEL_TYPE = "timing-wheel";
+
     protected final ScheduledThreadPoolExecutor scheduler;
     protected final ProcessRuntime processRuntime;
     protected final UnitOfWorkManager unitOfWorkManager;
@@ -42,21 +45,44 @@ public class InMemoryJobService implements JobsService {
     }
 
     public InMemoryJobService(int threadPoolSize, ProcessRuntime processRuntime, UnitOfWorkManager unitOfWorkManager) {
-        this.scheduler = new ScheduledThreadPoolExecutor(threadPoolSize);
+        this(new ScheduledThreadPoolExecutor(threadPoolSize), processRuntime, unitOfWorkManager);
+    }
+
+    /**
+     * Creates jobs service with given scheduler, subclasses that override {@link #schedule(Runnable, long)} and
+     * {@link #scheduleAtFixedRate(Runnable, long, long)} might not need any
+     */
+    protected InMemoryJobService(ScheduledThreadPoolExecutor scheduler, ProcessRuntime processRuntime,
+            UnitOfWorkManager unitOfWorkManager) {
+        this.scheduler = scheduler;
         this.processRuntime = processRuntime;
         this.unitOfWorkManager = unitOfWorkManager;
     }
 
+    /**
+     * Creates in memory jobs service of the type given by <code>automatiko.jobs.in-memory.type</code> system
+     * property - <code>timing-wheel</code> for {@link TimingWheelJobService}, otherwise the default one
+     *
+     * @param processRuntime process runtime
+     * @param unitOfWorkManager unit of work manager
+     * @return in memory jobs service
+     */
+    public static InMemoryJobService create(ProcessRuntime processRuntime, UnitOfWorkManager unitOfWorkManager) {
+        if (TIMING_WHEEL_TYPE.equals(System.getProperty(TYPE_PROPERTY))) {
+            return new TimingWheelJobService(processRuntime, unitOfWorkManager);
+        }
+        return new InMemoryJobService(processRuntime, unitOfWorkManager);
+    }
+
     @Override
     public String scheduleProcessJob(ProcessJobDescription description) {
         LOGGER.debug("ScheduleProcessJob: {}", description);
         ScheduledFuture<?> future = null;
         if (description.expirationTime().repeatInterval() != null) {
-            future = scheduler.scheduleAtFixedRate(repeatableProcessJobByDescription(description),
-                    calculateDelay(description), description.expirationTime().repeatInterval(), TimeUnit.MILLISECONDS);
+            future = scheduleAtFixedRate(repeatableProcessJobByDescription(description),
+                    calculateDelay(description), description.expirationTime().repeatInterval());
         } else {
-            future = scheduler.schedule(processJobByDescription(description), calculateDelay(description),
-                    TimeUnit.MILLISECONDS);
+            future = schedule(processJobByDescription(description), calculateDelay(description));
         }
         scheduledJobs.put(description.id(), future);
         return description.id();
@@ -67,16 +93,15 @@ public class InMemoryJobService implements JobsService {
         ScheduledFuture<?> future = null;
 
         if (description.expirationTime().repeatInterval() != null) {
-            future = scheduler.scheduleAtFixedRate(
+            future = scheduleAtFixedRate(
                     new SignalProcessInstanceOnExpiredTimer(description.id(), description.triggerType(),
                             description.processInstanceId(), false,
                             description.expirationTime().repeatLimit(), description),
-                    calculateDelay(description), description.expirationTime().repeatInterval(), TimeUnit.MILLISECONDS);
+                    calculateDelay(description), description.expirationTime().repeatInterval());
         } else {
-            future = scheduler.schedule(new SignalProcessInstanceOnExpiredTimer(description.id(), description.triggerType(),
+            future = schedule(new SignalProcessInstanceOnExpiredTimer(description.id(), description.triggerType(),
                     description.processInstanceId(), true, description.expirationTime().repeatLimit(), description),
-                    calculateDelay(description),
-                    TimeUnit.MILLISECONDS);
+                    calculateDelay(description));
         }
         scheduledJobs.put(description.id(), future);
         return description.id();
@@ -108,6 +133,29 @@ public class InMemoryJobService implements JobsService {
         return null;
     }
 
+    /**
+     * Schedules given job to be executed once after given delay
+     *
+     * @param job job to be executed
+     * @param delay delay in milliseconds
+     * @return future representing scheduled job
+     */
+    protected ScheduledFuture<?> schedule(Runnable job, long delay) {
+        return scheduler.schedule(job, delay, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Schedules given job to be executed periodically after given initial delay
+     *
+     * @param job job to be executed
+     * @param delay initial delay in milliseconds
+     * @param period period between executions in milliseconds
+     * @return future representing scheduled job
+     */
+    protected ScheduledFuture<?> scheduleAtFixedRate(Runnable job, long delay, long period) {
+        return scheduler.scheduleAtFixedRate(job, delay, period, TimeUnit.MILLISECONDS);
+    }
+
     protected long calculateDelay(JobDescription description) {
         return log(description.expirationTime().get(),
                 Duration.between(ZonedDateTime.now(), description.expirationTime().get()).toMillis());
@@ -0,0 +1,303 @@
+package io.automatiko.engine.services.jobs.impl;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.automatiko.engine.api.runtime.process.ProcessRuntime;
+import io.automatiko.engine.api.uow.UnitOfWorkManager;
+
+/**
+ * In memory jobs service that keeps timers in a hashed timing wheel instead of a delay queue. Scheduling and
+ * cancelling is constant time regardless of number of timers. The wheel is advanced by a single thread that only
+ * hands expired jobs over to a separate worker pool, so a slow job does not delay expiration of other timers.
+ */
+public class TimingWheelJobService extends InMemoryJobService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(TimingWheelJobService.class);
+
+    private static final int MAX_TRANSFER_PER_TICK = 100000;
+
+    private final long tickDuration;
+    private final int mask;
+    private final Queue<WheelTimeout>[] wheel;
+    private final Queue<WheelTimeout> newTimeouts = new ConcurrentLinkedQueue<>();
+
+    private final ThreadPoolExecutor workers;
+    private final Thread wheelThread;
+    private final long startTime;
+    private volatile boolean running = true;
+    private long tick;
+
+    private final AtomicLong scheduled = new AtomicLong();
+    private final LongAdder fired = new LongAdder();
+    private final LongAdder cancelled = new LongAdder();
+    private final LongAdder lateness = new LongAdder();
+    private final AtomicLong maxLateness = new AtomicLong();
+
+    public static final String THREADS_PROPERTY = "automatiko.jobs.in-memory.threads";
+    public static final String TICK_PROPERTY = "automatiko.jobs.in-memory.tick";
+
+    /**
+     * Creates new timing wheel based jobs service with number of worker threads and tick duration (in milliseconds)
+     * taken from <code>automatiko.jobs.in-memory.threads</code> and <code>automatiko.jobs.in-memory.tick</code> system
+     * properties, defaulting to number of processors and 100ms
+     *
+     * @param processRuntime process runtime
+     * @param unitOfWorkManager unit of work manager
+     */
+    public TimingWheelJobService(ProcessRuntime processRuntime, UnitOfWorkManager unitOfWorkManager) {
+        this(Integer.parseInt(System.getProperty(THREADS_PROPERTY, String.valueOf(Runtime.getRuntime().availableProcessors()))),
+                Long.parseLong(System.getProperty(TICK_PROPERTY, "100")), 512, processRuntime, unitOfWorkManager);
+    }
+
+    /**
+     * Creates new timing wheel based jobs service
+     *
+     * @param workerPoolSize number of threads executing expired jobs
+     * @param tickDuration duration of single tick of the wheel in milliseconds
+     * @param ticksPerWheel number of buckets of the wheel, rounded up to the power of two
+     * @param processRuntime process runtime
+     * @param unitOfWorkManager unit of work manager
+     */
+    @SuppressWarnings("unchecked")
+    public TimingWheelJobService(int workerPoolSize, long tickDuration, int ticksPerWheel, ProcessRuntime processRuntime,
+            UnitOfWorkManager unitOfWorkManager) {
+        super((ScheduledThreadPoolExecutor) null, processRuntime, unitOfWorkManager);
+        if (workerPoolSize < 1) {
+            throw new IllegalArgumentException("Worker pool size must be greater than zero");
+        }
+        if (tickDuration < 1) {
+            throw new IllegalArgumentException("Tick duration must be greater than zero");
+        }
+        if (ticksPerWheel < 1 || ticksPerWheel > (1 << 30)) {
+            throw new IllegalArgumentException("Ticks per wheel must be between 1 and 2^30");
+        }
+        int size = Integer.highestOneBit(ticksPerWheel - 1) << 1;
+        if (size == 0) {
+            size = 1;
+        }
+        this.tickDuration = TimeUnit.MILLISECONDS.toNanos(tickDuration);
+        this.mask = size - 1;
+        this.wheel = new Queue[size];
+        for (int i = 0; i < size; i++) {
+            wheel[i] = new ArrayDeque<>();
+        }
+
+        AtomicInteger counter = new AtomicInteger();
+        this.workers = new ThreadPoolExecutor(workerPoolSize, workerPoolSize, 60L, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), r -> {
+                    Thread thread = new Thread(r, "automatiko-jobs-worker-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        // idle workers are released as there is a jobs service for every process runtime
+        this.workers.allowCoreThreadTimeOut(true);
+        this.startTime = System.nanoTime();
+        this.wheelThread = new Thread(this::advance, "automatiko-jobs-wheel");
+        this.wheelThread.setDaemon(true);
+        this.wheelThread.start();
+    }
+
+    @Override
+    protected ScheduledFuture<?> schedule(Runnable job, long delay) {
+        return add(new WheelTimeout(job, deadline(delay), 0));
+    }
+
+    @Override
+    protected ScheduledFuture<?> scheduleAtFixedRate(Runnable job, long delay, long period) {
+        return add(new WheelTimeout(job, deadline(delay), TimeUnit.MILLISECONDS.toNanos(period)));
+    }
+
+    /**
+     * Stops the wheel and the worker pool, jobs that did not expire yet are discarded
+     */
+    public void shutdown() {
+        running = false;
+        wheelThread.interrupt();
+        workers.shutdown();
+    }
+
+    /**
+     * Returns number of jobs waiting in the wheel for their expiration
+     */
+    public long scheduled() {
+        return scheduled.get();
+    }
+
+    /**
+     * Returns number of expired jobs waiting for a free worker thread
+     */
+    public long backlog() {
+        return workers.getQueue().size();
+    }
+
+    /**
+     * Returns number of jobs that expired and were handed over to the workers
+     */
+    public long fired() {
+        return fired.sum();
+    }
+
+    /**
+     * Returns number of cancelled jobs
+     */
+    public long cancelled() {
+        return cancelled.sum();
+    }
+
+    /**
+     * Returns average time between expiration time and the time job was handed over to the workers
+     *
+     * @param unit time unit of the returned value
+     */
+    public long averageLateness(TimeUnit unit) {
+        long count = fired.sum();
+        return count == 0 ? 0 : unit.convert(lateness.sum() / count, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Returns maximum time between expiration time and the time job was handed over to the workers
+     *
+     * @param unit time unit of the returned value
+     */
+    public long maxLateness(TimeUnit unit) {
+        return unit.convert(maxLateness.get(), TimeUnit.NANOSECONDS);
+    }
+
+    protected long deadline(long delay) {
+        return System.nanoTime() - startTime + TimeUnit.MILLISECONDS.toNanos(Math.max(delay, 0));
+    }
+
+    protected WheelTimeout add(WheelTimeout timeout) {
+        scheduled.incrementAndGet();
+        newTimeouts.add(timeout);
+        return timeout;
+    }
+
+    private void advance() {
+        while (running) {
+            long now = waitForNextTick();
+            if (now < 0) {
+                continue;
+            }
+            transferTimeouts();
+            expireTimeouts(wheel[(int) (tick & mask)], now);
+            tick++;
+        }
+    }
+
+    private long waitForNextTick() {
+        long deadline = tickDuration * (tick + 1);
+        while (true) {
+            long now = System.nanoTime() - startTime;
+            long sleepTime = TimeUnit.NANOSECONDS.toMillis(deadline - now + 999999);
+            if (sleepTime <= 0) {
+                return now;
+            }
+            try {
+                Thread.sleep(sleepTime);
+            } catch (InterruptedException e) {
+                if (!running) {
+                    return -1;
+                }
+            }
+        }
+    }
+
+    private void transferTimeouts() {
+        for (int i = 0; i < MAX_TRANSFER_PER_TICK; i++) {
+            WheelTimeout timeout = newTimeouts.poll();
+            if (timeout == null) {
+                break;
+            }
+            if (timeout.isCancelled()) {
+                scheduled.decrementAndGet();
+                continue;
+            }
+            long expirationTick = timeout.deadline / tickDuration;
+            timeout.rounds = (expirationTick - tick) / wheel.length;
+            wheel[(int) (Math.max(expirationTick, tick) & mask)].add(timeout);
+        }
+    }
+
+    private void expireTimeouts(Queue<WheelTimeout> bucket, long now) {
+        int size = bucket.size();
+        for (int i = 0; i < size; i++) {
+            WheelTimeout timeout = bucket.poll();
+            if (timeout.isCancelled()) {
+                scheduled.decrementAndGet();
+            } else if (timeout.rounds <= 0) {
+                scheduled.decrementAndGet();
+                long late = Math.max(now - timeout.deadline, 0);
+                lateness.add(late);
+                maxLateness.accumulateAndGet(late, Math::max);
+                fired.increment();
+                try {
+                    workers.execute(timeout);
+                } catch (RuntimeException e) {
+                    LOGGER.warn("Unable to execute expired job", e);
+                }
+            } else {
+                timeout.rounds--;
+                bucket.add(timeout);
+            }
+        }
+    }
+
+    protected class WheelTimeout extends FutureTask<Void> implements ScheduledFuture<Void> {
+
+        private final long period;
+        private volatile long deadline;
+        // accessed only by the wheel thread
+        private long rounds;
+
+        WheelTimeout(Runnable job, long deadline, long period) {
+            super(job, null);
+            this.deadline = deadline;
+            this.period = period;
+        }
+
+        @Override
+        public void run() {
+            if (period == 0) {
+                super.run();
+            } else if (runAndReset()) {
+                deadline += period;
+                add(this);
+            }
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            boolean result = super.cancel(mayInterruptIfRunning);
+            if (result) {
+                cancelled.increment();
+            }
+            return result;
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(deadline - (System.nanoTime() - startTime), TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            return Long.compare(getDelay(TimeUnit.NANOSECONDS), other.getDelay(TimeUnit.NANOSECONDS));
+        }
+    }
+}
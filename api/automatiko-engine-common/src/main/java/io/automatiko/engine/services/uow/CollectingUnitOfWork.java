@@ -4,6 +4,7 @@ package io.automatiko.engine.services.uow;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
@@ -24,13 +25,18 @@ import io.automatiko.engine.api.workflow.ExportedProcessInstance;
 import io.automatiko.engine.api.workflow.MutableProcessInstances;
 import io.automatiko.engine.api.workflow.Process;
 import io.automatiko.engine.api.workflow.ProcessInstance;
+import io.automatiko.engine.api.workflow.ProcessInstancePage;
 import io.automatiko.engine.api.workflow.ProcessInstanceReadMode;
+import io.automatiko.engine.api.workflow.ProcessInstanceSummary;
 import io.automatiko.engine.api.workflow.ProcessInstances;
 
 /**
  * Simple unit of work that collects work elements throughout the life of the
  * unit and invokes all of them at the end when end method is invoked. It does
  * not invoke the work when abort is invoked, only clears the collected items.
+ * <br/>
+ * Process instances created by consecutive process instance work units are
+ * stored together (as single batch) once all of these work units are performed.
  *
  */
 public class CollectingUnitOfWork implements UnitOfWork {
@@ -71,17 +77,23 @@ public class CollectingUnitOfWork implements UnitOfWork {
 
         EventBatch batch = eventManager.newBatch();
         batch.append(units);
+        batch = eventManager.prepare(batch);
 
         for (WorkUnit<?> work : units) {
+            if (!(work instanceof ProcessInstanceWorkUnit)) {
+                flush(batch);
+            }
             LOGGER.debug("Performing work unit {}", work);
             try {
                 work.perform();
             } catch (ConflictingVersionException e) {
+                eventManager.discard(batch);
                 throw e;
             } catch (Exception e) {
                 LOGGER.error("Error during performing work unit {} error message {}", work, e.getMessage(), e);
             }
         }
+        flush(batch);
         eventManager.publish(batch);
         done();
     }
@@ -118,6 +130,22 @@ public class CollectingUnitOfWork implements UnitOfWork {
                 pid -> new ManagedProcessInstances((MutableProcessInstances<?>) instances));
     }
 
+    /**
+     * Stores process instances created so far by process instance work units
+     */
+    protected void flush(EventBatch batch) {
+        for (ProcessInstances<?> managed : instances.values()) {
+            try {
+                ((ManagedProcessInstances) managed).flush();
+            } catch (ConflictingVersionException e) {
+                eventManager.discard(batch);
+                throw e;
+            } catch (Exception e) {
+                LOGGER.error("Error during creating process instances error message {}", e.getMessage(), e);
+            }
+        }
+    }
+
     protected Collection<WorkUnit<?>> sorted() {
         List<WorkUnit<?>> sortedCollectedWork = new ArrayList<>(collectedWork);
         sortedCollectedWork.sort((u1, u2) -> u1.priority().compareTo(u2.priority()));
@@ -150,6 +178,8 @@ public class CollectingUnitOfWork implements UnitOfWork {
 
         private Map<String, ProcessInstance<?>> local = new HashMap<String, ProcessInstance<?>>();
 
+        private Map<String, ProcessInstance<?>> pending = new LinkedHashMap<String, ProcessInstance<?>>();
+
         public ManagedProcessInstances(MutableProcessInstances<?> delegate) {
             this.delegate = delegate;
         }
@@ -190,6 +220,16 @@ public class CollectingUnitOfWork implements UnitOfWork {
             return delegate.values(mode, status, page, size);
         }
 
+        @Override
+        public ProcessInstancePage values(ProcessInstanceReadMode mode, int status, String cursor, int size) {
+            return delegate.values(mode, status, cursor, size);
+        }
+
+        @Override
+        public Collection<ProcessInstanceSummary> summaries(int status, int page, int size) {
+            return delegate.summaries(status, page, size);
+        }
+
         @Override
         public Long size() {
             return delegate.size();
@@ -200,10 +240,10 @@ public class CollectingUnitOfWork implements UnitOfWork {
             return local.containsKey(id) || delegate.exists(id);
         }
 
-        @SuppressWarnings("unchecked")
         @Override
         public void create(String id, ProcessInstance instance) {
-            delegate.create(id, instance);
+            // stored on flush together with other instances created by consecutive work units
+            pending.put(id, instance);
 
             local.put(id, instance);
         }
@@ -211,7 +251,11 @@ public class CollectingUnitOfWork implements UnitOfWork {
         @SuppressWarnings("unchecked")
         @Override
         public void update(String id, ProcessInstance instance) {
-            delegate.update(id, instance);
+            if (pending.containsKey(id)) {
+                pending.put(id, instance);
+            } else {
+                delegate.update(id, instance);
+            }
 
             local.put(id, instance);
         }
@@ -219,11 +263,36 @@ public class CollectingUnitOfWork implements UnitOfWork {
         @SuppressWarnings("unchecked")
         @Override
         public void remove(String id, ProcessInstance instance) {
-            delegate.remove(id, instance);
+            if (pending.remove(id) == null) {
+                delegate.remove(id, instance);
+            }
 
             local.remove(id);
         }
 
+        @SuppressWarnings("unchecked")
+        @Override
+        public void createAll(Map instances) {
+            pending.putAll(instances);
+
+            local.putAll(instances);
+        }
+
+        @SuppressWarnings("unchecked")
+        protected void flush() {
+            if (pending.isEmpty()) {
+                return;
+            }
+            Map<String, ProcessInstance<?>> created = new LinkedHashMap<>(pending);
+            pending.clear();
+            if (created.size() == 1) {
+                Map.Entry<String, ProcessInstance<?>> entry = created.entrySet().iterator().next();
+                ((MutableProcessInstances) delegate).create(entry.getKey(), entry.getValue());
+            } else {
+                ((MutableProcessInstances) delegate).createAll(created);
+            }
+        }
+
         @Override
         public Collection findByIdOrTag(ProcessInstanceReadMode mode, int status, String... values) {
             Collection<?> collected = delegate.findByIdOrTag(mode, status, values);
@@ -0,0 +1,173 @@
+package io.automatiko.engine.services.event.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import io.automatiko.engine.api.event.AbstractDataEvent;
+import io.automatiko.engine.api.event.DataEvent;
+import io.automatiko.engine.api.event.EventBatch;
+import io.automatiko.engine.api.event.EventOutbox;
+import io.automatiko.engine.api.event.EventPublisher;
+
+public class BaseEventManagerTest {
+
+	@Test
+	public void testAsyncPublishingKeepsOrderPerInstance() throws Exception {
+		RecordingPublisher publisher = new RecordingPublisher();
+		BaseEventManager eventManager = new BaseEventManager();
+		eventManager.addPublisher(publisher);
+		eventManager.setPublishingWorkers(4, 10);
+
+		for (int i = 0; i < 100; i++) {
+			eventManager.publish(batch(new TestEvent("instance" + (i % 5), i)));
+		}
+		eventManager.close();
+
+		assertThat(publisher.events).hasSize(100);
+		Map<String, List<Integer>> byInstance = new LinkedHashMap<>();
+		for (DataEvent<?> event : publisher.events) {
+			byInstance.computeIfAbsent(event.getSubject(), key -> new ArrayList<>()).add((Integer) event.getData());
+		}
+		assertThat(byInstance).hasSize(5);
+		byInstance.values().forEach(values -> assertThat(values).isSorted());
+		assertThat(eventManager.pendingEvents()).isZero();
+	}
+
+	@Test
+	public void testAsyncPublishingDoesNotBlockCaller() throws Exception {
+		CountDownLatch release = new CountDownLatch(1);
+		RecordingPublisher publisher = new RecordingPublisher() {
+			@Override
+			public void publish(Collection<DataEvent<?>> events) {
+				try {
+					release.await(10, TimeUnit.SECONDS);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				super.publish(events);
+			}
+		};
+		BaseEventManager eventManager = new BaseEventManager();
+		eventManager.addPublisher(publisher);
+		eventManager.setPublishingWorkers(1, 10);
+
+		eventManager.publish(batch(new TestEvent("instance", 1)));
+		eventManager.publish(batch(new TestEvent("instance", 2)));
+
+		assertThat(publisher.events).isEmpty();
+		assertThat(eventManager.pendingEvents()).isEqualTo(2);
+		Thread.sleep(20);
+		assertThat(eventManager.deliveryLag()).isPositive();
+
+		release.countDown();
+		eventManager.close();
+		assertThat(publisher.events).hasSize(2);
+		assertThat(eventManager.pendingEvents()).isZero();
+	}
+
+	@Test
+	public void testOutboxKeepsEventsUntilPublished() {
+		RecordingPublisher publisher = new RecordingPublisher();
+		InMemoryOutbox outbox = new InMemoryOutbox();
+		BaseEventManager eventManager = new BaseEventManager();
+		eventManager.addPublisher(publisher);
+		eventManager.setOutbox(outbox);
+
+		EventBatch batch = eventManager.prepare(batch(new TestEvent("instance", 1)));
+		assertThat(outbox.events).hasSize(1);
+		assertThat(publisher.events).isEmpty();
+
+		eventManager.publish(batch);
+		assertThat(outbox.events).isEmpty();
+		assertThat(publisher.events).hasSize(1);
+		// the very same event is stored and published
+		assertThat(publisher.events.get(0)).isSameAs(batch.events().iterator().next());
+
+		batch = eventManager.prepare(batch(new TestEvent("instance", 2)));
+		eventManager.discard(batch);
+		assertThat(outbox.events).isEmpty();
+		assertThat(publisher.events).hasSize(1);
+	}
+
+	@Test
+	public void testPendingEventsPublishedWhenOutboxSet() {
+		RecordingPublisher publisher = new RecordingPublisher();
+		InMemoryOutbox outbox = new InMemoryOutbox();
+		outbox.store(Collections.singletonList(new TestEvent("instance", 1)));
+
+		BaseEventManager eventManager = new BaseEventManager();
+		eventManager.addPublisher(publisher);
+		eventManager.setOutbox(outbox);
+
+		assertThat(publisher.events).hasSize(1);
+		assertThat(outbox.events).isEmpty();
+	}
+
+	private EventBatch batch(DataEvent<?> event) {
+		return new EventBatch() {
+
+			@Override
+			public void append(Object rawEvent) {
+			}
+
+			@Override
+			public Collection<DataEvent<?>> events() {
+				return Collections.singletonList(event);
+			}
+		};
+	}
+
+	private static class TestEvent extends AbstractDataEvent<Integer> {
+
+		TestEvent(String instance, Integer value) {
+			super("TestEvent", "test", value);
+			this.subject = instance;
+		}
+	}
+
+	private static class RecordingPublisher implements EventPublisher {
+
+		final List<DataEvent<?>> events = new CopyOnWriteArrayList<>();
+
+		@Override
+		public void publish(DataEvent<?> event) {
+			events.add(event);
+		}
+
+		@Override
+		public void publish(Collection<DataEvent<?>> events) {
+			this.events.addAll(events);
+		}
+	}
+
+	private static class InMemoryOutbox implements EventOutbox {
+
+		final List<DataEvent<?>> events = new CopyOnWriteArrayList<>();
+
+		@Override
+		public void store(Collection<DataEvent<?>> events) {
+			this.events.addAll(events);
+		}
+
+		@Override
+		public void delete(Collection<DataEvent<?>> events) {
+			this.events.removeAll(events);
+		}
+
+		@Override
+		public Collection<DataEvent<?>> pending() {
+			return new ArrayList<>(events);
+		}
+	}
+}
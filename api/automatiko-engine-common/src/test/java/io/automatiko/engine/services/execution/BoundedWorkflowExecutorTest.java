@@ -0,0 +1,126 @@
+package io.automatiko.engine.services.execution;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import io.automatiko.engine.api.auth.IdentityProvider;
+
+public class BoundedWorkflowExecutorTest {
+
+    private BoundedWorkflowExecutor executor;
+
+    @AfterEach
+    public void cleanup() {
+        IdentityProvider.set(null);
+        if (executor != null) {
+            executor.close();
+        }
+    }
+
+    @Test
+    public void testTasksOverLimitRejected() throws Exception {
+        executor = new BoundedWorkflowExecutor(1, 1, false);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        executor.execute(() -> {
+            started.countDown();
+            await(release);
+        });
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+        executor.execute(() -> await(release));
+
+        assertThat(executor.running()).isEqualTo(1);
+        assertThat(executor.queued()).isEqualTo(1);
+        assertThat(executor.saturation()).isEqualTo(1.0);
+
+        assertThatThrownBy(() -> executor.execute(() -> {
+        })).isInstanceOf(RejectedExecutionException.class);
+        assertThat(executor.rejectedCount()).isEqualTo(1);
+
+        release.countDown();
+        executor.close();
+        assertThat(executor.running()).isZero();
+        assertThat(executor.queued()).isZero();
+    }
+
+    @Test
+    public void testIdentityPropagated() throws Exception {
+        executor = new BoundedWorkflowExecutor(1, 10, false);
+        IdentityProvider identity = identity("john");
+        AtomicReference<String> name = new AtomicReference<>();
+        CountDownLatch done = new CountDownLatch(2);
+
+        IdentityProvider.set(identity);
+        executor.execute(() -> {
+            name.set(IdentityProvider.get().getName());
+            done.countDown();
+        });
+        IdentityProvider.set(null);
+        // identity of previous task does not leak to the next one
+        AtomicReference<Boolean> leaked = new AtomicReference<>();
+        executor.execute(() -> {
+            leaked.set(IdentityProvider.isSet());
+            done.countDown();
+        });
+
+        assertThat(done.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(name.get()).isEqualTo("john");
+        assertThat(leaked.get()).isFalse();
+    }
+
+    @Test
+    public void testVirtualThreadsFallBackWhenNotSupported() throws Exception {
+        executor = new BoundedWorkflowExecutor(2, 0, true);
+        CountDownLatch done = new CountDownLatch(1);
+
+        executor.execute(done::countDown);
+
+        assertThat(done.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(executor.isVirtual()).isEqualTo(Runtime.version().feature() >= 21);
+    }
+
+    private void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private IdentityProvider identity(String name) {
+        return new IdentityProvider() {
+
+            @Override
+            public boolean hasRole(String role) {
+                return false;
+            }
+
+            @Override
+            public List<String> getRoles() {
+                return Collections.emptyList();
+            }
+
+            @Override
+            public String getName() {
+                return name;
+            }
+
+            @Override
+            public Map<String, Object> properties() {
+                return Collections.emptyMap();
+            }
+        };
+    }
+}
@@ -0,0 +1,131 @@
+package io.automatiko.engine.services.execution;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+public class PartitionedBatchConsumerTest {
+
+    private PartitionedBatchExecutor executor;
+
+    private Map<String, String> outcomes = new ConcurrentHashMap<>();
+
+    private List<String> consumed = Collections.synchronizedList(new ArrayList<>());
+
+    @AfterEach
+    public void cleanup() {
+        if (executor != null) {
+            executor.close();
+        }
+    }
+
+    @Test
+    public void testMessagesWithSameKeyConsumedInOrder() {
+        executor = new PartitionedBatchExecutor("test", 4);
+        List<String> messages = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            messages.add("key" + (i % 10) + "-" + i);
+        }
+
+        List<CompletionStage<Void>> completions = consumer(Collections.emptyList()).consume(messages);
+
+        assertThat(completions).hasSize(100);
+        assertThat(outcomes).hasSize(100).containsOnlyKeys(messages);
+        assertThat(outcomes.values()).containsOnly("ack");
+        for (int k = 0; k < 10; k++) {
+            String key = "key" + k;
+            assertThat(consumed.stream().filter(m -> key(m).equals(key)).collect(Collectors.toList()))
+                    .isEqualTo(messages.stream().filter(m -> key(m).equals(key)).collect(Collectors.toList()));
+        }
+    }
+
+    @Test
+    public void testFailedPartitionConsumedOneByOne() {
+        executor = new PartitionedBatchExecutor("test", 1);
+        List<String> messages = Arrays.asList("a-1", "b-2", "a-3", "c-4");
+
+        List<CompletionStage<Void>> completions = consumer(Collections.singletonList("b-2")).consume(messages);
+
+        assertThat(completions).hasSize(4);
+        assertThat(completions.get(1).toCompletableFuture()).isCompletedExceptionally();
+        assertThat(outcomes).containsEntry("a-1", "ack").containsEntry("b-2", "nack").containsEntry("a-3", "ack")
+                .containsEntry("c-4", "ack");
+        // failed partition is rolled back so only the retried messages are consumed, in their original order
+        assertThat(consumed).containsExactly("a-1", "a-3", "c-4");
+    }
+
+    @Test
+    public void testOnlyFailedPartitionRetried() {
+        executor = new PartitionedBatchExecutor("test", 2);
+        List<String> messages = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            messages.add("key" + (i % 4) + "-" + i);
+        }
+        String failing = messages.get(5);
+
+        consumer(Collections.singletonList(failing)).consume(messages);
+
+        assertThat(outcomes).hasSize(20).containsEntry(failing, "nack");
+        assertThat(outcomes.entrySet().stream().filter(e -> e.getValue().equals("nack")).count()).isEqualTo(1);
+        // every message except the failing one is consumed exactly once
+        assertThat(consumed).hasSize(19).doesNotHaveDuplicates().doesNotContain(failing);
+    }
+
+    @Test
+    public void testSingleMessagePartitionNotRetried() {
+        executor = new PartitionedBatchExecutor("test", 1);
+        List<List<String>> attempts = new ArrayList<>();
+
+        List<CompletionStage<Void>> completions = new PartitionedBatchConsumer<String>(executor, this::key, partition -> {
+            attempts.add(partition);
+            throw new IllegalStateException("failed " + partition);
+        }, this::ack, this::nack).consume(Collections.singletonList("a-1"));
+
+        assertThat(completions).hasSize(1);
+        assertThat(outcomes).containsExactly(Map.entry("a-1", "nack"));
+        assertThat(attempts).hasSize(1);
+    }
+
+    @Test
+    public void testEmptyBatch() {
+        executor = new PartitionedBatchExecutor("test", 2);
+
+        assertThat(consumer(Collections.emptyList()).consume(Collections.emptyList())).isEmpty();
+        assertThat(consumed).isEmpty();
+    }
+
+    private PartitionedBatchConsumer<String> consumer(List<String> failing) {
+        return new PartitionedBatchConsumer<>(executor, this::key, partition -> {
+            // consumed messages are only recorded when the whole partition succeeds, same as unit of work
+            if (partition.stream().anyMatch(failing::contains)) {
+                throw new IllegalStateException("failed " + partition);
+            }
+            consumed.addAll(partition);
+        }, this::ack, this::nack);
+    }
+
+    private CompletionStage<Void> ack(String message) {
+        outcomes.put(message, "ack");
+        return CompletableFuture.completedFuture(null);
+    }
+
+    private CompletionStage<Void> nack(String message, Exception e) {
+        outcomes.put(message, "nack");
+        return CompletableFuture.failedFuture(e);
+    }
+
+    private String key(String message) {
+        return message.substring(0, message.indexOf('-'));
+    }
+}
@@ -0,0 +1,82 @@
+package io.automatiko.engine.services.execution;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+public class PartitionedBatchExecutorTest {
+
+    private PartitionedBatchExecutor executor;
+
+    @AfterEach
+    public void cleanup() {
+        if (executor != null) {
+            executor.close();
+        }
+    }
+
+    @Test
+    public void testOrderOfItemsWithSameKeyPreserved() {
+        executor = new PartitionedBatchExecutor("test", 4);
+        List<String> items = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            items.add("key" + (i % 10) + "-" + i);
+        }
+        List<List<String>> handled = Collections.synchronizedList(new ArrayList<>());
+        Set<String> threads = ConcurrentHashMap.newKeySet();
+
+        executor.execute(items, this::key, partition -> {
+            threads.add(Thread.currentThread().getName());
+            handled.add(partition);
+        });
+
+        assertThat(handled.stream().mapToInt(List::size).sum()).isEqualTo(100);
+        assertThat(handled.size()).isLessThanOrEqualTo(4);
+        assertThat(threads).hasSize(handled.size());
+        for (int k = 0; k < 10; k++) {
+            String key = "key" + k;
+            List<List<String>> withKey = handled.stream().filter(p -> p.stream().anyMatch(i -> key(i).equals(key)))
+                    .collect(Collectors.toList());
+            assertThat(withKey).hasSize(1);
+            assertThat(withKey.get(0).stream().filter(i -> key(i).equals(key)).collect(Collectors.toList()))
+                    .isEqualTo(items.stream().filter(i -> key(i).equals(key)).collect(Collectors.toList()));
+        }
+    }
+
+    @Test
+    public void testSinglePartitionHandledByCaller() {
+        executor = new PartitionedBatchExecutor("test", 1);
+        List<String> handled = new ArrayList<>();
+
+        executor.execute(Arrays.asList("a-1", "b-2", "c-3"), this::key, partition -> {
+            assertThat(Thread.currentThread().getName()).doesNotStartWith("automatiko-batch");
+            handled.addAll(partition);
+        });
+
+        assertThat(handled).containsExactly("a-1", "b-2", "c-3");
+    }
+
+    @Test
+    public void testFailureOfPartitionRethrown() {
+        executor = new PartitionedBatchExecutor("test", 2);
+        List<String> items = Arrays.asList("a-1", "b-2", "c-3", "d-4");
+
+        assertThatThrownBy(() -> executor.execute(items, this::key, partition -> {
+            throw new IllegalStateException("failed " + partition);
+        })).isInstanceOf(IllegalStateException.class);
+    }
+
+    private String key(String item) {
+        return item.substring(0, item.indexOf('-'));
+    }
+}
@@ -0,0 +1,83 @@
+package io.automatiko.engine.services.jobs.impl;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+public class TimingWheelJobServiceTest {
+
+    @Test
+    public void testJobsExpireAcrossWheelRounds() throws Exception {
+        // wheel of 4 ticks of 10ms, so 100ms delay requires several rounds
+        TimingWheelJobService service = new TimingWheelJobService(2, 10, 4, null, null);
+        try {
+            CountDownLatch latch = new CountDownLatch(2);
+            long start = System.nanoTime();
+            service.schedule(latch::countDown, 20);
+            service.schedule(latch::countDown, 100);
+
+            assertTrue(latch.await(5, TimeUnit.SECONDS));
+            assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= 100);
+            assertEquals(2, service.fired());
+        } finally {
+            service.shutdown();
+        }
+    }
+
+    @Test
+    public void testCancelledJobDoesNotFire() throws Exception {
+        TimingWheelJobService service = new TimingWheelJobService(1, 10, 8, null, null);
+        try {
+            AtomicInteger executed = new AtomicInteger();
+            CountDownLatch latch = new CountDownLatch(1);
+            ScheduledFuture<?> cancelled = service.schedule(executed::incrementAndGet, 50);
+            service.schedule(latch::countDown, 100);
+
+            assertTrue(cancelled.cancel(false));
+            assertTrue(latch.await(5, TimeUnit.SECONDS));
+
+            assertEquals(0, executed.get());
+            assertEquals(1, service.cancelled());
+            assertEquals(0, service.scheduled());
+        } finally {
+            service.shutdown();
+        }
+    }
+
+    @Test
+    public void testRepeatableJob() throws Exception {
+        TimingWheelJobService service = new TimingWheelJobService(1, 10, 8, null, null);
+        try {
+            CountDownLatch latch = new CountDownLatch(3);
+            ScheduledFuture<?> repeatable = service.scheduleAtFixedRate(latch::countDown, 10, 20);
+
+            assertTrue(latch.await(5, TimeUnit.SECONDS));
+            assertTrue(repeatable.cancel(false));
+            assertTrue(repeatable.isCancelled());
+        } finally {
+            service.shutdown();
+        }
+    }
+
+    @Test
+    public void testTypeSelectedBySystemProperty() {
+        InMemoryJobService service = InMemoryJobService.create(null, null);
+        assertFalse(service instanceof TimingWheelJobService);
+
+        System.setProperty(InMemoryJobService.TYPE_PROPERTY, InMemoryJobService.TIMING_WHEEL_TYPE);
+        try {
+            service = InMemoryJobService.create(null, null);
+            assertTrue(service instanceof TimingWheelJobService);
+            ((TimingWheelJobService) service).shutdown();
+        } finally {
+            System.clearProperty(InMemoryJobService.TYPE_PROPERTY);
+        }
+    }
+}
@@ -359,9 +359,10 @@ public abstract class AbstractResourceGenerator {
         // if triggers are not empty remove createResource method as there is another
         // trigger to start process instances
         if (!startable || !isPublic()) {
-            Optional<MethodDeclaration> createResourceMethod = template.findAll(MethodDeclaration.class).stream()
-                    .filter(md -> md.getNameAsString().equals("create_" + processName)).findFirst();
-            createResourceMethod.ifPresent(template::remove);
+            template.findAll(MethodDeclaration.class).stream()
+                    .filter(md -> md.getNameAsString().equals("create_" + processName)
+                            || md.getNameAsString().equals("createBulk_" + processName))
+                    .forEach(template::remove);
         } else {
             Collection<FaultNode> errors = ProcessNodeLocator.findFaultNodes(process);
             if (!errors.isEmpty()) {
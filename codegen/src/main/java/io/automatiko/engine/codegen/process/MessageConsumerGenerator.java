@@ -27,6 +27,7 @@ import com.github.javaparser.ast.body.VariableDeclarator;
 import com.github.javaparser.ast.expr.AnnotationExpr;
 import com.github.javaparser.ast.expr.BooleanLiteralExpr;
 import com.github.javaparser.ast.expr.CastExpr;
+import com.github.javaparser.ast.expr.IntegerLiteralExpr;
 import com.github.javaparser.ast.expr.MethodCallExpr;
 import com.github.javaparser.ast.expr.NameExpr;
 import com.github.javaparser.ast.expr.NormalAnnotationExpr;
@@ -192,6 +193,8 @@ public class MessageConsumerGenerator {
             context.addInstruction("\t'" + INCOMING_PROP_PREFIX + sanitizedName
                     + ".group.id' should be used to configure Kafka group id that defaults to '" + classPrefix
                     + "-consumer'");
+            context.addInstruction("\t'" + INCOMING_PROP_PREFIX + sanitizedName
+                    + ".batch' should be set to true to consume records in batches, records are grouped by key and processed concurrently");
         } else if (connector.equals(JMS_CONNECTOR)) {
 
             context.setApplicationProperty("quarkus.index-dependency.sjms.group-id", "io.smallrye.reactive");
@@ -258,6 +261,9 @@ public class MessageConsumerGenerator {
         } else if (connector.equals(CAMEL_CONNECTOR)) {
             return "/class-templates/CamelMessageConsumerTemplate.java";
         } else if (connector.equals(KAFKA_CONNECTOR)) {
+            if (isBatch()) {
+                return "/class-templates/KafkaBatchMessageConsumerTemplate.java";
+            }
             return "/class-templates/KafkaMessageConsumerTemplate.java";
         } else if (connector.equals(OPERATOR_CONNECTOR)) {
             return "/class-templates/OperatorMessageConsumerTemplate.java";
@@ -305,7 +311,7 @@ public class MessageConsumerGenerator {
                 .forEach(md -> md.addAnnotation("javax.annotation.PostConstruct"));
         template.findAll(MethodDeclaration.class).stream()
                 .filter(md -> md.getNameAsString().equals("consume") || md.getNameAsString().equals("cleanup")
-                        || md.getNameAsString().equals("reconcile"))
+                        || md.getNameAsString().equals("reconcile") || md.getNameAsString().equals("configure"))
                 .forEach(md -> {
                     md.findAll(StringLiteralExpr.class)
                             .forEach(str -> str.setString(str.asString().replace("$Trigger$", trigger.getName())));
@@ -357,7 +363,7 @@ public class MessageConsumerGenerator {
 
             template.findAll(MethodDeclaration.class).stream().filter(md -> md.getNameAsString().equals("consume"))
                     .forEach(md -> {
-                        if (persistence) {
+                        if (persistence || isBatch()) {
                             annotator.withBlocking(md);
                         }
                         annotator.withIncomingMessage(md, sanitizedName);
@@ -430,6 +436,11 @@ public class MessageConsumerGenerator {
                     });
         }
 
+        context.getBuildContext().config().messaging().batchConcurrency().ifPresent(concurrency -> template
+                .findAll(MethodDeclaration.class).stream().filter(md -> md.getNameAsString().equals("batchConcurrency"))
+                .forEach(md -> md.setBody(
+                        new BlockStmt().addStatement(new ReturnStmt(new IntegerLiteralExpr(concurrency.toString()))))));
+
         template.addMember(
                 new MethodDeclaration().setName("canStartInstance").setType(Boolean.class).setModifiers(Keyword.PROTECTED)
                         .setBody(new BlockStmt().addStatement(new ReturnStmt(new BooleanLiteralExpr(trigger.isStart())))));
@@ -514,6 +525,11 @@ public class MessageConsumerGenerator {
         return true;
     }
 
+    private boolean isBatch() {
+        String sanitizedName = CodegenUtils.triggerSanitizedName(trigger, process.getVersion());
+        return Boolean.parseBoolean(context.getApplicationProperty(INCOMING_PROP_PREFIX + sanitizedName + ".batch").orElse("false"));
+    }
+
     private boolean isServerlessProcess() {
         return (boolean) process.getMetaData().getOrDefault("IsServerlessWorkflow", false);
     }
@@ -41,7 +41,9 @@ import io.automatiko.engine.api.config.CassandraPersistenceConfig;
 import io.automatiko.engine.api.config.DynamoDBPersistenceConfig;
 import io.automatiko.engine.api.config.FileSystemPersistenceConfig;
 import io.automatiko.engine.api.config.MongodbPersistenceConfig;
+import io.automatiko.engine.api.config.PersistenceConfig;
 import io.automatiko.engine.api.uow.TransactionLogStore;
+import io.automatiko.engine.api.workflow.encrypt.CompressingStoredDataCodec;
 import io.automatiko.engine.api.workflow.encrypt.StoredDataCodec;
 import io.automatiko.engine.codegen.AbstractGenerator;
 import io.automatiko.engine.codegen.ApplicationSection;
@@ -63,6 +65,7 @@ public class PersistenceGenerator extends AbstractGenerator {
     private static final String PATH_NAME = "path";
 
     private static final String CODEC_NAME = "codec";
+    private static final String COMPRESSION_NAME = "compression";
 
     private static final String TRANSACTION_LOG_STORE_NAME = "transactionLogStore";
 
@@ -438,15 +441,26 @@ public class PersistenceGenerator extends AbstractGenerator {
                         new VariableDeclarator()
                                 .setType(new ClassOrInterfaceType(null, StoredDataCodec.class.getCanonicalName()))
                                 .setName(CODEC_NAME));
+        FieldDeclaration compressionField = new FieldDeclaration()
+                .addVariable(
+                        new VariableDeclarator()
+                                .setType(new ClassOrInterfaceType(null, new SimpleName(Optional.class.getCanonicalName()),
+                                        NodeList.nodeList(new ClassOrInterfaceType(null, String.class.getCanonicalName()))))
+                                .setName(COMPRESSION_NAME));
+        // compression (if configured) is applied before the injected codec
         BlockStmt codecMethodBody = new BlockStmt();
-        codecMethodBody.addStatement(new ReturnStmt(new NameExpr(CODEC_NAME)));
+        codecMethodBody.addStatement(new ReturnStmt(
+                new MethodCallExpr(new NameExpr(CompressingStoredDataCodec.class.getCanonicalName()), "wrap")
+                        .addArgument(new NameExpr(CODEC_NAME)).addArgument(new NameExpr(COMPRESSION_NAME))));
 
         MethodDeclaration codecMethod = new MethodDeclaration().addModifier(Keyword.PUBLIC).setName(CODEC_NAME)
                 .setType(StoredDataCodec.class.getCanonicalName()).setBody(codecMethodBody);
 
         annotator.withInjection(codecField);
+        annotator.withConfigInjection(compressionField, PersistenceConfig.COMPRESSION_KEY);
 
         persistenceProviderClazz.addMember(codecField);
+        persistenceProviderClazz.addMember(compressionField);
         persistenceProviderClazz.addMember(codecMethod);
     }
 
@@ -0,0 +1,294 @@
+package com.myspace.demo;
+
+import java.util.TimeZone;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+import io.automatiko.engine.api.Application;
+import io.automatiko.engine.api.auth.IdentityProvider;
+import io.automatiko.engine.api.auth.TrustedIdentityProvider;
+import io.automatiko.engine.api.event.DataEvent;
+import io.automatiko.engine.api.workflow.Process;
+import io.automatiko.engine.api.workflow.ProcessInstance;
+import io.automatiko.engine.api.workflow.ProcessInstanceDuplicatedException;
+import io.automatiko.engine.workflow.Sig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.StdDateFormat;
+
+import org.eclipse.microprofile.reactive.messaging.Message;
+
+@SuppressWarnings({ "rawtypes", "unchecked" })
+public class $Type$MessageConsumer {
+    
+    private static final Logger LOGGER = LoggerFactory.getLogger("MessageConsumer");
+
+    Process<$Type$> process;
+
+    Application application;
+    
+    Optional<Boolean> useCloudEvents = Optional.of(false);
+    
+    javax.enterprise.inject.Instance<io.automatiko.engine.api.io.InputConverter<$DataType$>> converter;
+    
+    @javax.inject.Inject
+    ObjectMapper json;
+
+    @javax.inject.Inject
+    io.automatiko.engine.service.metrics.ProcessMessagingMetrics metrics;
+    
+    io.automatiko.engine.services.execution.PartitionedBatchExecutor executor;
+    
+    io.automatiko.engine.services.execution.PartitionedBatchConsumer<Received> consumer;
+    
+    public void configure() {
+        executor = new io.automatiko.engine.services.execution.PartitionedBatchExecutor(MESSAGE, batchConcurrency());
+        // every record of the batch is acknowledged on its own once its partition (or the record alone) is stored
+        consumer = new io.automatiko.engine.services.execution.PartitionedBatchConsumer<>(executor, item -> item.correlation, 
+                items -> consumeInUnitOfWork(items, "$Trigger$"), item -> item.record.ack(), this::failed);
+    }
+    
+    @javax.annotation.PreDestroy
+    public void close() {
+        if (executor != null) {
+            executor.close();
+        }
+    }
+    
+    public CompletionStage<Void> consume(io.smallrye.reactive.messaging.kafka.KafkaRecordBatch<?, ?> batch) {
+        try {
+            List<CompletionStage<Void>> completions = new ArrayList<>();
+            List<Received> received = new ArrayList<>();
+            for (io.smallrye.reactive.messaging.kafka.KafkaRecord<?, ?> record : batch) {
+                metrics.messageReceived(CONNECTOR, MESSAGE, ((io.automatiko.engine.workflow.AbstractProcess<?>)process).process());
+                try {
+                    Received item = received(record);
+                    if (item != null) {
+                        received.add(item);
+                    } else {
+                        completions.add(record.ack());
+                    }
+                } catch (Exception e) {
+                    metrics.messageFailed(CONNECTOR, MESSAGE, ((io.automatiko.engine.workflow.AbstractProcess<?>)process).process());
+                    LOGGER.error("Error when reading message with key '{}' for process {}", record.getKey(), process.id(), e);
+                    completions.add(record.nack(e));
+                }
+            }
+            LOGGER.debug("Received batch of {} messages, {} accepted", batch.getRecords().size(), received.size());
+            completions.addAll(consumer.consume(received));
+            
+            return CompletableFuture.allOf(completions.stream().map(CompletionStage::toCompletableFuture).toArray(CompletableFuture[]::new));
+        } catch (Exception e) {
+            metrics.messageFailed(CONNECTOR, MESSAGE, ((io.automatiko.engine.workflow.AbstractProcess<?>)process).process());
+            LOGGER.error("Error when consuming batch of messages for process {}", process.id(), e);
+            return batch.nack(e);            
+        }                
+    }
+    
+    protected CompletionStage<Void> failed(Received item, Exception e) {
+        metrics.messageFailed(CONNECTOR, MESSAGE, ((io.automatiko.engine.workflow.AbstractProcess<?>)process).process());
+        LOGGER.error("Error when consuming message with key '{}' for process {}", item.record.getKey(), process.id(), e);
+        return item.record.nack(e);
+    }
+    
+    protected void consumeInUnitOfWork(List<Received> items, String trigger) {
+        IdentityProvider.set(new TrustedIdentityProvider("System<messaging>"));
+        io.automatiko.engine.services.uow.UnitOfWorkExecutor.executeInUnitOfWork(application.unitOfWorkManager(), () -> {
+            
+            // instances of all correlations of the partition are looked up at once and shared by all messages 
+            // with matching correlation, only those completed by previous messages of the batch are skipped
+            Map<String, List<ProcessInstance>> found = new HashMap<>();
+            String[] correlations = items.stream().map(item -> item.correlation).filter(Objects::nonNull).distinct().toArray(String[]::new);
+            if (correlations.length > 0) {
+                for (ProcessInstance pi : process.instances().findByIdOrTag(io.automatiko.engine.api.workflow.ProcessInstanceReadMode.MUTABLE_WITH_LOCK, correlations)) {
+                    for (String correlation : correlations) {
+                        if (correlation.equals(pi.id()) || correlation.equals(pi.businessKey()) || pi.tags().values().contains(correlation)) {
+                            found.computeIfAbsent(correlation, c -> new ArrayList<>()).add(pi);
+                        }
+                    }
+                }
+            }
+            for (Received item : items) {
+                List<ProcessInstance> matched = item.correlation == null ? Collections.emptyList() 
+                        : found.getOrDefault(item.correlation, Collections.emptyList()).stream().filter(pi -> pi.status() == ProcessInstance.STATE_ACTIVE).collect(Collectors.toList());
+                if (!matched.isEmpty()) {
+                    metrics.messageConsumed(CONNECTOR, MESSAGE, ((io.automatiko.engine.workflow.AbstractProcess<?>)process).process());
+                    matched.forEach(pInstance -> {
+                        LOGGER.debug("Found process instance {} matching correlation {}, signaling instead of starting new instance", pInstance.id(), item.correlation);
+                        pInstance.send(Sig.of(canStartInstance() ? trigger : "Message-" + trigger, item.eventData));
+                    });
+                } else if (canStartInstance()) {
+                    LOGGER.debug("Received message without reference id and no correlation is set/matched, staring new process instance with trigger '{}'", trigger);
+                    metrics.messageConsumed(CONNECTOR, MESSAGE, ((io.automatiko.engine.workflow.AbstractProcess<?>)process).process());
+                    ProcessInstance<$Type$> pi;
+                    try {
+                        pi = process.createInstance(item.correlation, item.model);
+                    
+                        pi.start(trigger, null, item.eventData);
+                    } catch (ProcessInstanceDuplicatedException e) {
+                        pi = process.instances().findById(item.correlation, io.automatiko.engine.api.workflow.ProcessInstanceReadMode.MUTABLE_WITH_LOCK).get();
+                        pi.send(Sig.of(trigger, item.eventData));
+                    }
+                    if (item.correlation != null) {
+                        // following messages of the batch with the same correlation are given to this instance
+                        found.computeIfAbsent(item.correlation, c -> new ArrayList<>()).add(pi);
+                    }
+                } else {
+                    metrics.messageMissed(CONNECTOR, MESSAGE, ((io.automatiko.engine.workflow.AbstractProcess<?>)process).process());
+                    LOGGER.warn("Received message without reference id and no correlation is set/matched, for trigger not capable of starting new instance '{}'", trigger);
+                }
+            }
+            
+            return null;
+        });
+    }
+    
+    protected Received received(io.smallrye.reactive.messaging.kafka.KafkaRecord<?, ?> record) throws Exception {
+        final $DataType$ eventData;
+        final $Type$ model;   
+        final String correlation;
+        LOGGER.debug("Received message with key '{}' and payload '{}'", record.getKey(), record.getPayload());
+        boolean accepted;
+        if (useCloudEvents.orElse(false)) {
+            $DataEventType$ event;
+            String contentType = header(record, "content-type");
+            model = new $Type$(); 
+            if (contentType != null && contentType.startsWith("application/cloudevents+json")) {
+                // structured
+                event = json.readValue(record.getPayload().toString(), $DataEventType$.class);
+                eventData = event.getData();
+                
+            } else {
+                // binary
+                eventData = convert(record, $DataType$.class);
+                event =  new $DataEventType$(header(record, "ce_specversion"), header(record, "ce_id"), header(record, "ce_source"), header(record, "ce_type"), header(record, "ce_subject"), header(record, "ce_time"), eventData);
+                cloudEventsExtensions(record, event);
+            }
+                            
+            correlation = correlation(event, record);  
+            accepted = acceptedEvent(event, record);
+        } else {
+            eventData = convert(record, $DataType$.class);
+            model = new $Type$();  
+            
+            correlation = correlation(eventData, record); 
+            accepted = acceptedPayload(eventData, record);
+        }   
+        if (!accepted) {
+            metrics.messageRejected(CONNECTOR, MESSAGE, ((io.automatiko.engine.workflow.AbstractProcess<?>)process).process());
+            LOGGER.debug("Message has been rejected by filter expression");
+            return null;
+        }
+        return new Received(record, model, eventData, correlation);
+    }
+    
+    protected int batchConcurrency() {
+        return Runtime.getRuntime().availableProcessors();
+    }
+	
+	protected String correlationPayload(Object eventData, Message<?> message) {
+	    
+		return null;
+	}
+	 
+	protected String correlationEvent(io.automatiko.engine.api.event.AbstractDataEvent<?> eventData, Message<?> message) {
+		
+		return null;
+	}
+	
+    protected boolean acceptedPayload(Object eventData, Message<?> message) {
+        return true;
+    }
+
+    protected boolean acceptedEvent(io.automatiko.engine.api.event.AbstractDataEvent<?> eventData, Message<?> message) {
+        return true;
+    }
+	
+	protected $DataType$ convert(Message<?> message, Class<?> clazz) throws Exception {
+	    Object payload = message.getPayload();
+	    
+	    if (converter != null && !converter.isUnsatisfied()) {
+	        payload = converter.get().convert(message);
+	    }
+	    	    
+	    if (payload instanceof String) {
+	        return ($DataType$) json.readValue(payload.toString(), $DataType$.class);
+	    }
+	    
+	    return ($DataType$) payload;
+	}
+	
+	private String correlation($DataType$ eventData, Message<?> msg) {
+	    String correlation = correlationPayload(eventData, msg);
+        if (correlation == null && ((io.smallrye.reactive.messaging.kafka.KafkaRecord<?, ?>) msg).getKey() != null) {
+            correlation = ((io.smallrye.reactive.messaging.kafka.KafkaRecord<?, ?>) msg).getKey().toString();
+        }
+        return correlation;
+	}
+	
+    private String correlation($DataEventType$ eventData, Message<?> msg) {
+        String correlation = correlationEvent(eventData, msg);
+        if (correlation == null && ((io.smallrye.reactive.messaging.kafka.KafkaRecord<?, ?>) msg).getKey() != null) {
+            correlation = ((io.smallrye.reactive.messaging.kafka.KafkaRecord<?, ?>) msg).getKey().toString();
+        }
+        return correlation;
+    }
+	
+    protected String header(Message<?> message, String name) {
+
+        io.smallrye.reactive.messaging.kafka.api.IncomingKafkaRecordMetadata<?, ?> metadata = message.getMetadata(io.smallrye.reactive.messaging.kafka.api.IncomingKafkaRecordMetadata.class).orElse(null);
+        if (metadata == null) {
+            return null;
+        }
+        org.apache.kafka.common.header.Headers headers = metadata.getHeaders();
+        
+        org.apache.kafka.common.header.Header header = headers.lastHeader(name);
+        
+        if (header == null) {
+            return null;
+        }
+        
+        return new String(header.value(), StandardCharsets.UTF_8);
+    }
+    
+    protected void cloudEventsExtensions(Message<?> message, $DataEventType$ event) {
+        io.smallrye.reactive.messaging.kafka.api.IncomingKafkaRecordMetadata<?, ?> metadata = message.getMetadata(io.smallrye.reactive.messaging.kafka.api.IncomingKafkaRecordMetadata.class).orElse(null);
+        if (metadata == null) {
+            return;
+        }
+        org.apache.kafka.common.header.Headers headers = metadata.getHeaders();
+        for (org.apache.kafka.common.header.Header header : headers.toArray()) {
+            if (header.key().startsWith("ce_"))
+                event.addExtension(header.key().replaceFirst("ce_", ""), new String(header.value(), StandardCharsets.UTF_8));
+        }
+    }
+    
+    /**
+     * Message of the batch that was accepted for processing
+     */
+    protected static class Received {
+        
+        final io.smallrye.reactive.messaging.kafka.KafkaRecord<?, ?> record;
+        final $Type$ model;
+        final $DataType$ eventData;
+        final String correlation;
+        
+        Received(io.smallrye.reactive.messaging.kafka.KafkaRecord<?, ?> record, $Type$ model, $DataType$ eventData, String correlation) {
+            this.record = record;
+            this.model = model;
+            this.eventData = eventData;
+            this.correlation = correlation;
+        }
+    }
+}
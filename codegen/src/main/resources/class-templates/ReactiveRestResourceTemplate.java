@@ -35,6 +35,9 @@ public class $Type$ReactiveResource {
     
     Application application;
 
+    @javax.inject.Inject
+    io.automatiko.engine.service.execution.WorkflowExecutor executor;
+
     @POST()
     @Produces(MediaType.APPLICATION_JSON)
     @Consumes(MediaType.APPLICATION_JSON)    
@@ -55,7 +58,7 @@ public class $Type$ReactiveResource {
                 }
                 return getModel(pi);
             });
-        });
+        }, executor);
     }
 
     @GET()
@@ -65,7 +68,7 @@ public class $Type$ReactiveResource {
             return process.instances().values(1, 10).stream()
                     .map(pi -> mapOutput(new $Type$Output(), pi.variables()))
                  .collect(Collectors.toList());
-        });   
+        }, executor);
     }
 
     @GET()
@@ -77,7 +80,7 @@ public class $Type$ReactiveResource {
                     .findById(id)
                     .map(pi -> mapOutput(new $Type$Output(), pi.variables()))
                     .orElse(null);
-        });
+        }, executor);
     }
     
     @DELETE()
@@ -96,7 +99,7 @@ public class $Type$ReactiveResource {
                     return getModel(pi);
                 }
             });
-        });
+        }, executor);
     }
     
     @POST()
@@ -116,7 +119,7 @@ public class $Type$ReactiveResource {
                     return mapOutput(new $Type$Output(), pi.variables());
                 }
             });
-        });
+        }, executor);
     }
     
     @GET()
@@ -129,7 +132,7 @@ public class $Type$ReactiveResource {
                     .map(pi -> pi.workItems(policies(user, groups)))
                     .map(l -> l.stream().collect(Collectors.toMap(WorkItem::getId, WorkItem::getName)))
                     .orElse(null);
-        });
+        }, executor);
     }
     
     protected $Type$Output getModel(ProcessInstance<$Type$> pi) {
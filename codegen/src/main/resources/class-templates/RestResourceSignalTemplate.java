@@ -4,7 +4,6 @@ package com.myspace.demo;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map.Entry;
-import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 
 import org.eclipse.microprofile.openapi.annotations.Operation;
@@ -62,7 +61,7 @@ public class $Type$Resource {
             IdentityProvider identity = identitySupplier.buildIdentityProvider(user, groups);
             IdentityProvider.set(null);
             
-            CompletableFuture.runAsync(() -> {
+            executor.execute(() -> {
                 IdentityProvider.set(identity);
                 io.automatiko.engine.services.uow.UnitOfWorkExecutor.executeInUnitOfWork(application.unitOfWorkManager(), () -> {
                     ProcessInstance<$Type$> pi = process.instances().findById(id, io.automatiko.engine.api.workflow.ProcessInstanceReadMode.MUTABLE_WITH_LOCK).orElseThrow(() -> new ProcessInstanceNotFoundException(id));
@@ -95,4 +94,68 @@ public class $Type$Resource {
         }
     }
 
+    @APIResponses(
+        value = {
+            @APIResponse(
+                responseCode = "400",
+                description = "In case no id or tag of instances to be signaled was given",
+                content = @Content(mediaType = "application/json")),
+            @APIResponse(
+                responseCode = "500",
+                description = "In case of processing errors",
+                content = @Content(mediaType = "application/json")),
+            @APIResponse(
+                responseCode = "207",
+                description = "In case some of the chunks of instances failed, returns number of signaled instances and errors of failed chunks",
+                content = @Content(mediaType = "application/json")),
+            @APIResponse(
+                responseCode = "200",
+                description = "Successfully signaled instances, returns number of signaled instances",
+                    content = @Content(mediaType = "application/json")) })
+    @Operation(
+        summary = "Signals '$signalName$' on all active instances with given ids or tags")
+    @POST
+    @Path("/bulk/$signalPath$")
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response signalAll(@Parameter(description = "Ids or tags of instances to be signaled", required = true) @QueryParam("tag") final List<String> tags,
+            @Parameter(description = "User identifier as alternative autroization info", required = false, hidden = true) @QueryParam("user") final String user,
+            @Parameter(description = "Groups as alternative autroization info", required = false, hidden = true) @QueryParam("group") final List<String> groups,
+            final $signalType$ data) {
+        if (tags == null || tags.isEmpty()) {
+            return Response.status(Status.BAD_REQUEST)
+                    .entity(Collections.singletonMap("message", "At least one id or tag of instances to be signaled is required"))
+                    .build();
+        }
+        identitySupplier.buildIdentityProvider(user, groups);
+        try {
+            int signaled = process.signalAll(Sig.of("$signalName$", data), tags.toArray(String[]::new));
+
+            return Response.ok().entity(Collections.singletonMap("signaled", signaled)).build();
+        } catch (io.automatiko.engine.api.workflow.BulkOperationException e) {
+            // instances of successful chunks remain signaled so outcome of every chunk is returned
+            int signaled = 0;
+            List<java.util.Map<String, Object>> errors = new java.util.ArrayList<>();
+            for (io.automatiko.engine.api.workflow.BulkOperationException.ChunkOutcome chunk : e.getChunks()) {
+                if (chunk.isFailed()) {
+                    java.util.Map<String, Object> error = new java.util.LinkedHashMap<>();
+                    error.put("offset", chunk.getOffset());
+                    error.put("size", chunk.getSize());
+                    error.put("message", chunk.getError().getMessage());
+                    errors.add(error);
+                } else {
+                    for (Object count : chunk.getResults()) {
+                        signaled += (Integer) count;
+                    }
+                }
+            }
+            java.util.Map<String, Object> body = new java.util.LinkedHashMap<>();
+            body.put("signaled", signaled);
+            body.put("errors", errors);
+            return Response.status(207).entity(body).build();
+        } finally {
+            IdentityProvider.set(null);
+        }
+    }
+
 }
@@ -8,7 +8,6 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
-import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 
 import javax.ws.rs.Consumes;
@@ -71,6 +70,9 @@ public class $Type$Resource {
     
     HttpAuthSupport httpAuth = new HttpAuthSupport();
     
+    @javax.inject.Inject
+    io.automatiko.engine.service.execution.WorkflowExecutor executor;
+    
     @javax.inject.Inject
     public $ResourceType$(Application application, @javax.inject.Named("$id$$version$") Process<$Type$> process, IdentitySupplier identitySupplier) {
         this.application = application;
@@ -137,7 +139,7 @@ public class $Type$Resource {
                     .collect(Collectors.toMap(Entry::getKey, e -> e.getValue().get(0)));
             IdentityProvider identity = identitySupplier.buildIdentityProvider(user, groups);
             IdentityProvider.set(null);
-            CompletableFuture.runAsync(() -> {
+            executor.execute(() -> {
                 IdentityProvider.set(identity);
                 io.automatiko.engine.services.uow.UnitOfWorkExecutor.executeInUnitOfWork(application.unitOfWorkManager(),
                         () -> {
@@ -180,6 +182,72 @@ public class $Type$Resource {
         }
     }
 
+    @APIResponses(
+        value = {
+            @APIResponse(
+                responseCode = "400",
+                description = "In case request given does not meet expectations",
+                content = @Content(mediaType = "application/json")),
+            @APIResponse(
+                responseCode = "500",
+                description = "In case of processing errors",
+                content = @Content(mediaType = "application/json")),
+            @APIResponse(
+                responseCode = "403",
+                description = "In case instances cannot be created due to access policy by the caller",
+                content = @Content(mediaType = "application/json")),
+            @APIResponse(
+                responseCode = "207",
+                description = "In case some of the chunks of instances failed, returns ids of created instances in the order of given inputs (null for inputs of failed chunks) and errors of failed chunks",
+                content = @Content(mediaType = "application/json")),
+            @APIResponse(
+                responseCode = "200",
+                description = "Successfully created instances, returns their ids in the order of given inputs",
+                    content = @Content(mediaType = "application/json")) })
+    @Operation(
+        summary = "Creates new instances of $name$, one for each given input")
+    @POST()
+    @Path("/bulk")
+    @Produces(MediaType.APPLICATION_JSON)
+    @Consumes(MediaType.APPLICATION_JSON)
+    public Response createBulk_$name$(
+            @Parameter(description = "User identifier as alternative autroization info", required = false, hidden = true) @QueryParam("user") final String user,
+            @Parameter(description = "Groups as alternative autroization info", required = false, hidden = true) @QueryParam("group") final List<String> groups,
+            List<$Type$Input> resources) {
+        if (resources == null || resources.isEmpty()) {
+            return Response.ok().entity(Collections.singletonMap("ids", Collections.emptyList())).build();
+        }
+        identitySupplier.buildIdentityProvider(user, groups);
+        try {
+            List<String> ids = process.createInstances(resources.stream()
+                    .map(resource -> mapInput(resource == null ? new $Type$Input() : resource, new $Type$())));
+
+            return Response.ok().entity(Collections.singletonMap("ids", ids)).build();
+        } catch (io.automatiko.engine.api.workflow.BulkOperationException e) {
+            // instances of successful chunks remain started so outcome of every chunk is returned
+            List<Object> ids = new java.util.ArrayList<>();
+            List<Map<String, Object>> errors = new java.util.ArrayList<>();
+            for (io.automatiko.engine.api.workflow.BulkOperationException.ChunkOutcome chunk : e.getChunks()) {
+                if (chunk.isFailed()) {
+                    ids.addAll(Collections.nCopies(chunk.getSize(), null));
+                    Map<String, Object> error = new java.util.LinkedHashMap<>();
+                    error.put("offset", chunk.getOffset());
+                    error.put("size", chunk.getSize());
+                    error.put("message", chunk.getError().getMessage());
+                    errors.add(error);
+                } else {
+                    ids.addAll(chunk.getResults());
+                }
+            }
+            Map<String, Object> body = new java.util.LinkedHashMap<>();
+            body.put("ids", ids);
+            body.put("errors", errors);
+            return Response.status(207).entity(body).build();
+        } finally {
+            IdentityProvider.set(null);
+        }
+    }
+
     @APIResponses(
         value = {
             @APIResponse(
@@ -188,18 +256,19 @@ public class $Type$Resource {
                 content = @Content(mediaType = "application/json")),              
             @APIResponse(
                 responseCode = "200",
-                description = "Successfully retrieved list of instances",
+                description = "Successfully retrieved list of instances, when paging with cursor X-ATK-Cursor header holds cursor of the next page",
                     content = @Content(mediaType = "application/json",
                             schema = @Schema(implementation = $Type$Output.class, type = SchemaType.ARRAY))) })
     @Operation(
         summary = "Retrieves instances of $name$")
     @GET()
     @Produces(MediaType.APPLICATION_JSON)
-    public List<$Type$Output> getAll_$name$(
+    public Response getAll_$name$(
             @Parameter(description = "Tags to filter when loading instances", required = false) @QueryParam("tags") final List<String> tags,
             @Parameter(description = "Status of the process instance", required = false, schema = @Schema(enumeration = {"active", "completed", "aborted", "error"})) @QueryParam("status") @DefaultValue("active") final String status,
             @Parameter(description = "Pagination - page to start on", required = false) @QueryParam(value = "page") @DefaultValue("1") int page,
             @Parameter(description = "Pagination - number of items to return", required = false) @QueryParam(value = "size") @DefaultValue("10") int size,
+            @Parameter(description = "Pagination - cursor of the page (from X-ATK-Cursor header of previous page, empty for first page), used instead of page when given", required = false) @QueryParam(value = "cursor") String cursor,
             @Parameter(description = "Sorting - name of the field to sort by (description, startDate, endDate, businessKey)", required = false) @QueryParam(value = "sortBy") String sortBy,
             @Parameter(description = "Sorting - direction of sorting ascending or descending", required = false) @QueryParam(value = "sortAsc") @DefaultValue("true") boolean sortAsc,
             @Parameter(description = "User identifier as alternative autroization info", required = false, hidden = true) @QueryParam("user") final String user, 
@@ -208,27 +277,32 @@ public class $Type$Resource {
         
             identitySupplier.buildIdentityProvider(user, groups);
             return io.automatiko.engine.services.uow.UnitOfWorkExecutor.executeInUnitOfWork(application.unitOfWorkManager(), () -> {
+            Collection<? extends ProcessInstance<$Type$>> instances;
+            String nextCursor = null;
             if (tags != null && !tags.isEmpty()) {
                 if (sortBy != null && !sortBy.trim().isEmpty()) {
-                    return process.instances().findByIdOrTag(io.automatiko.engine.api.workflow.ProcessInstanceReadMode.READ_ONLY, mapStatus(status), sortBy, sortAsc, tags.toArray(String[]::new)).stream()
-                            .map(pi -> mapOutput(new $Type$Output(), pi.variables(), pi.businessKey(), metadata ? pi.metadata() : null))
-                            .collect(Collectors.toList());
+                    instances = process.instances().findByIdOrTag(io.automatiko.engine.api.workflow.ProcessInstanceReadMode.READ_ONLY, mapStatus(status), sortBy, sortAsc, tags.toArray(String[]::new));
                 } else {
-                    return process.instances().findByIdOrTag(io.automatiko.engine.api.workflow.ProcessInstanceReadMode.READ_ONLY, mapStatus(status), tags.toArray(String[]::new)).stream()
-                        .map(pi -> mapOutput(new $Type$Output(), pi.variables(), pi.businessKey(), metadata ? pi.metadata() : null))
-                        .collect(Collectors.toList());
+                    instances = process.instances().findByIdOrTag(io.automatiko.engine.api.workflow.ProcessInstanceReadMode.READ_ONLY, mapStatus(status), tags.toArray(String[]::new));
                 }
             } else {
                 if (sortBy != null && !sortBy.trim().isEmpty()) {
-                    return process.instances().values(io.automatiko.engine.api.workflow.ProcessInstanceReadMode.READ_ONLY, mapStatus(status), page, size, sortBy, sortAsc).stream()
-                            .map(pi -> mapOutput(new $Type$Output(), pi.variables(), pi.businessKey(), metadata ? pi.metadata() : null))
-                            .collect(Collectors.toList());
+                    instances = process.instances().values(io.automatiko.engine.api.workflow.ProcessInstanceReadMode.READ_ONLY, mapStatus(status), page, size, sortBy, sortAsc);
+                } else if (cursor != null) {
+                    io.automatiko.engine.api.workflow.ProcessInstancePage<$Type$> found = process.instances().values(io.automatiko.engine.api.workflow.ProcessInstanceReadMode.READ_ONLY, mapStatus(status), cursor.isEmpty() ? null : cursor, size);
+                    instances = found.instances();
+                    nextCursor = found.cursor();
                 } else {
-                    return process.instances().values(io.automatiko.engine.api.workflow.ProcessInstanceReadMode.READ_ONLY, mapStatus(status), page, size).stream()
-                    .map(pi -> mapOutput(new $Type$Output(), pi.variables(), pi.businessKey(), metadata ? pi.metadata() : null))
-                    .collect(Collectors.toList());
+                    instances = process.instances().values(io.automatiko.engine.api.workflow.ProcessInstanceReadMode.READ_ONLY, mapStatus(status), page, size);
                 }
             }
+            ResponseBuilder builder = Response.ok(instances.stream()
+                    .map(pi -> mapOutput(new $Type$Output(), pi.variables(), pi.businessKey(), metadata ? pi.metadata() : null))
+                    .collect(Collectors.toList()));
+            if (nextCursor != null) {
+                builder.header("X-ATK-Cursor", nextCursor);
+            }
+            return builder.build();
         });
     }
 
@@ -429,7 +503,7 @@ public class $Type$Resource {
                     .collect(Collectors.toMap(Entry::getKey, e -> e.getValue().get(0)));
             IdentityProvider identity = identitySupplier.buildIdentityProvider(user, groups);
             IdentityProvider.set(null);
-            CompletableFuture.runAsync(() -> {
+            executor.execute(() -> {
                 IdentityProvider.set(identity);
                 io.automatiko.engine.services.uow.UnitOfWorkExecutor.executeInUnitOfWork(application.unitOfWorkManager(), () -> {
                     ProcessInstance<$Type$> pi = process.instances()
@@ -3,7 +3,6 @@ package com.myspace.demo;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map.Entry;
-import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 
 import org.eclipse.microprofile.openapi.annotations.Operation;
@@ -61,7 +60,7 @@ public class $Type$Resource {
             IdentityProvider identity = identitySupplier.buildIdentityProvider(user, groups);
             IdentityProvider.set(null);
             
-            CompletableFuture.runAsync(() -> {
+            executor.execute(() -> {
                 IdentityProvider.set(identity);
                 io.automatiko.engine.services.uow.UnitOfWorkExecutor.executeInUnitOfWork(application.unitOfWorkManager(), () -> {
                     ProcessInstance<$Type$> pi = process.instances().findById(id, io.automatiko.engine.api.workflow.ProcessInstanceReadMode.MUTABLE_WITH_LOCK).orElseThrow(() -> new ProcessInstanceNotFoundException(id));
@@ -139,7 +138,7 @@ public class $Type$Resource {
             Map<String, String> headers = httpHeaders.getRequestHeaders().entrySet().stream()
                     .collect(Collectors.toMap(Entry::getKey, e -> e.getValue().get(0)));
 
-            CompletableFuture.runAsync(() -> {
+            executor.execute(() -> {
                 IdentityProvider.set(identity);
                 io.automatiko.engine.services.uow.UnitOfWorkExecutor.executeInUnitOfWork(application.unitOfWorkManager(), () -> {
                     ProcessInstance<$Type$> pi = process.instances().findById(id, io.automatiko.engine.api.workflow.ProcessInstanceReadMode.MUTABLE_WITH_LOCK).orElseThrow(() -> new ProcessInstanceNotFoundException(id));
@@ -265,7 +264,7 @@ public class $Type$Resource {
             IdentityProvider identity = identitySupplier.buildIdentityProvider(user, groups);
             IdentityProvider.set(null);
             
-            CompletableFuture.runAsync(() -> {
+            executor.execute(() -> {
                 IdentityProvider.set(identity);
                 io.automatiko.engine.services.uow.UnitOfWorkExecutor.executeInUnitOfWork(application.unitOfWorkManager(), () -> {
                     ProcessInstance<$Type$> pi = process.instances().findById(id, io.automatiko.engine.api.workflow.ProcessInstanceReadMode.MUTABLE_WITH_LOCK).orElseThrow(() -> new ProcessInstanceNotFoundException(id));
@@ -4,7 +4,6 @@ package com.myspace.demo;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map.Entry;
-import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 
 import io.automatiko.engine.api.auth.IdentityProvider;
@@ -52,7 +51,7 @@ public class $Type$Resource {
             IdentityProvider identity = identitySupplier.buildIdentityProvider(user, groups);
             IdentityProvider.set(null);
             
-            CompletableFuture.runAsync(() -> {
+            executor.execute(() -> {
                 IdentityProvider.set(identity);
                 io.automatiko.engine.services.uow.UnitOfWorkExecutor.executeInUnitOfWork(application.unitOfWorkManager(), () -> {
                     ProcessInstance<$Type$> pi = subprocess_$name$.instances().findById($parentprocessid$ + ":" + id_$name$, io.automatiko.engine.api.workflow.ProcessInstanceReadMode.MUTABLE_WITH_LOCK).orElseThrow(() -> new ProcessInstanceNotFoundException(id));
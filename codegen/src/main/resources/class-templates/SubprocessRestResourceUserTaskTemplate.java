@@ -3,7 +3,6 @@ package com.myspace.demo;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map.Entry;
-import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 
 import io.automatiko.engine.api.auth.IdentityProvider;
@@ -51,7 +50,7 @@ public class $Type$Resource {
             IdentityProvider identity = identitySupplier.buildIdentityProvider(user, groups);
             IdentityProvider.set(null);
             
-            CompletableFuture.runAsync(() -> {
+            executor.execute(() -> {
                 IdentityProvider.set(identity);
                 io.automatiko.engine.services.uow.UnitOfWorkExecutor.executeInUnitOfWork(application.unitOfWorkManager(), () -> {
                     String combinedId;
@@ -135,7 +134,7 @@ public class $Type$Resource {
                 IdentityProvider identity = identitySupplier.buildIdentityProvider(user, groups);
                 IdentityProvider.set(null);
                 
-                CompletableFuture.runAsync(() -> {
+                executor.execute(() -> {
                     IdentityProvider.set(identity);
                     io.automatiko.engine.services.uow.UnitOfWorkExecutor.executeInUnitOfWork(application.unitOfWorkManager(), () -> {
                         String combinedId;
@@ -264,7 +263,7 @@ public class $Type$Resource {
                 IdentityProvider identity = identitySupplier.buildIdentityProvider(user, groups);
                 IdentityProvider.set(null);
                 
-                CompletableFuture.runAsync(() -> {
+                executor.execute(() -> {
                     IdentityProvider.set(identity);
                     io.automatiko.engine.services.uow.UnitOfWorkExecutor.executeInUnitOfWork(application.unitOfWorkManager(), () -> {
                         String combinedId;
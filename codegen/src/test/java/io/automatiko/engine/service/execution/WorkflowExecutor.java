@@ -0,0 +1,15 @@
+package io.automatiko.engine.service.execution;
+
+import java.util.concurrent.Executor;
+
+/**
+ * THIS IS JUST FOR THE TESTS, ACTUAL IMPL IS IN QUARKUS EXTENSION OF AUTOMATIKO
+ *
+ */
+public class WorkflowExecutor implements Executor {
+
+    @Override
+    public void execute(Runnable command) {
+        command.run();
+    }
+}
@@ -1,12 +1,16 @@
 package org.acme.travels;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.List;
 
 import javax.inject.Inject;
 import javax.inject.Named;
+import javax.persistence.EntityManager;
 import javax.transaction.Transactional;
 
 import org.junit.jupiter.api.Test;
@@ -24,6 +28,9 @@ public class ApiVerificationTest {
     @Named("omboarding_1")
     io.automatiko.engine.api.workflow.Process<?> process;
     
+    @Inject
+    EntityManager entityManager;
+    
     
     @Test
     @Transactional
@@ -57,5 +64,32 @@ public class ApiVerificationTest {
         assertEquals(ProcessInstance.STATE_ABORTED, processinstance.status());
     }
     
+    @Test
+    @Transactional
+    public void testTagsOfListedInstances() {
+        
+        List<ProcessInstance<?>> created = new ArrayList<>();
+        for (String name : new String[] {"anna", "mark", "mary"}) {
+            Model model = (Model) process.createModel();
+            model.fromMap(Collections.singletonMap("name", name));
+            ProcessInstance<? extends Model> processinstance = process.createInstance(model);
+            processinstance.start();
+            processinstance.tags().add("listed");
+            created.add(processinstance);
+        }
+        
+        Collection<? extends ProcessInstance<?>> instances = process.instances().values(ProcessInstanceReadMode.READ_ONLY, ProcessInstance.STATE_ACTIVE, 1, 10);
+        assertEquals(3, instances.size());
+        for (ProcessInstance<?> instance : instances) {
+            assertTrue(instance.tags().values().contains("listed"));
+        }
+        created.forEach(ProcessInstance::abort);
+        
+        Number indexed = (Number) entityManager.createNativeQuery("SELECT COUNT(*) FROM INFORMATION_SCHEMA.INDEX_COLUMNS WHERE TABLE_NAME = 'OMBOARDING__1_TAGS' AND COLUMN_NAME = 'TAGS'")
+                .getSingleResult();
+        assertEquals(1, indexed.intValue());
+        assertEquals("true", entityManager.getEntityManagerFactory().getProperties().get("hibernate.order_updates"));
+    }
+    
  // @formatter:on
 }
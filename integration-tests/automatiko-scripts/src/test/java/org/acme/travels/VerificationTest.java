@@ -8,6 +8,8 @@ import static org.hamcrest.CoreMatchers.nullValue;
 import static org.hamcrest.CoreMatchers.startsWith;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 
@@ -19,6 +21,8 @@ import org.junit.jupiter.api.Test;
 
 import io.quarkus.test.junit.QuarkusTest;
 import io.restassured.http.ContentType;
+import io.restassured.response.ExtractableResponse;
+import io.restassured.response.Response;
 
 @QuarkusTest
 public class VerificationTest {
@@ -158,6 +162,55 @@ public class VerificationTest {
             .body("$.size()", is(0));        
     }
     
+    @Test
+    public void testProcessInstancesPagedByCursor() {
+
+        List<String> created = new ArrayList<>();
+        for (String name : List.of("mary", "anna", "mark")) {
+            created.add(given()
+                .contentType(ContentType.JSON)
+                .accept(ContentType.JSON)
+                .body("{\"name\" : \"" + name + "\"}")
+            .when()
+                .post("/scripts?user=pager")
+            .then()
+                .statusCode(200)
+                .extract().path("id"));
+        }
+
+        List<String> listed = new ArrayList<>();
+        String cursor = "";
+        while (cursor != null) {
+            ExtractableResponse<Response> response = given()
+                .accept(ContentType.JSON)
+            .when()
+                .get("/scripts?user=pager&size=2&cursor=" + cursor)
+            .then().statusCode(200)
+                .extract();
+            listed.addAll(response.path("id"));
+            cursor = response.header("X-ATK-Cursor");
+        }
+        assertEquals(new HashSet<>(created), new HashSet<>(listed));
+        assertEquals(3, listed.size());
+
+        given()
+            .accept(ContentType.JSON)
+        .when()
+            .get("/management/processes/scripts/instances?user=pager&size=100")
+        .then().statusCode(200)
+            .body("$.size()", is(3),
+                    "[0].processId", equalTo("scripts"),
+                    "[0].failed", is(false));
+
+        for (String id : created) {
+            given()
+                .accept(ContentType.JSON)
+            .when()
+                .delete("/scripts/" + id + "?user=pager")
+            .then().statusCode(200);
+        }
+    }
+
     @SuppressWarnings("unchecked")
     @Test
     public void testProcessUserInfo() {
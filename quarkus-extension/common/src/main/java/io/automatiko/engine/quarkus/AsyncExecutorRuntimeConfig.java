@@ -0,0 +1,44 @@
+package io.automatiko.engine.quarkus;
+
+import java.util.Optional;
+
+import io.automatiko.engine.api.config.AsyncExecutorConfig;
+import io.quarkus.runtime.annotations.ConfigGroup;
+import io.quarkus.runtime.annotations.ConfigItem;
+
+@ConfigGroup
+public class AsyncExecutorRuntimeConfig extends AsyncExecutorConfig {
+
+    /**
+     * Determines maximum number of async executions running at the same time
+     */
+    @ConfigItem
+    public Optional<Integer> threads;
+
+    /**
+     * Determines maximum number of async executions waiting to be run, once reached requests are rejected
+     */
+    @ConfigItem
+    public Optional<Integer> queueSize;
+
+    /**
+     * Indicates if async executions should run on virtual threads (requires JDK 21 or newer)
+     */
+    @ConfigItem
+    public Optional<Boolean> virtualThreads;
+
+    @Override
+    public Optional<Integer> threads() {
+        return threads;
+    }
+
+    @Override
+    public Optional<Integer> queueSize() {
+        return queueSize;
+    }
+
+    @Override
+    public Optional<Boolean> virtualThreads() {
+        return virtualThreads;
+    }
+}
@@ -2,6 +2,7 @@ package io.automatiko.engine.quarkus;
 
 import io.automatiko.engine.api.config.AsyncCallbackConfig;
 import io.automatiko.engine.api.config.AsyncConfig;
+import io.automatiko.engine.api.config.AsyncExecutorConfig;
 import io.quarkus.runtime.annotations.ConfigGroup;
 import io.quarkus.runtime.annotations.ConfigItem;
 
@@ -14,8 +15,19 @@ public class AsyncRuntimeConfig extends AsyncConfig {
     @ConfigItem
     public AsyncCallbackRuntimeConfig callback;
 
+    /**
+     * Provides configuration of executor used for async execution
+     */
+    @ConfigItem
+    public AsyncExecutorRuntimeConfig executor;
+
     @Override
     public AsyncCallbackConfig callback() {
         return callback;
     }
+
+    @Override
+    public AsyncExecutorConfig executor() {
+        return executor;
+    }
 }
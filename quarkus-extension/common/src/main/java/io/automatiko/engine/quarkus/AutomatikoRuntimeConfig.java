@@ -8,6 +8,7 @@ import io.automatiko.engine.api.config.AutomatikoConfig;
 import io.automatiko.engine.api.config.ErrorRecoveryConfig;
 import io.automatiko.engine.api.config.FilesConfig;
 import io.automatiko.engine.api.config.JobsConfig;
+import io.automatiko.engine.api.config.MetricsConfig;
 import io.automatiko.engine.api.config.PersistenceConfig;
 import io.automatiko.engine.api.config.SecurityConfig;
 import io.quarkus.runtime.annotations.ConfigItem;
@@ -98,6 +99,12 @@ public class AutomatikoRuntimeConfig extends AutomatikoConfig {
     @ConfigItem
     public ErrorRecoveryRuntimeConfig errorRecovery;
 
+    /**
+     * Configures metrics
+     */
+    @ConfigItem
+    public MetricsRuntimeConfig metrics;
+
     @Override
     public Optional<String> serviceUrl() {
         return serviceUrl;
@@ -162,4 +169,9 @@ public class AutomatikoRuntimeConfig extends AutomatikoConfig {
     public ErrorRecoveryConfig errorRecovery() {
         return errorRecovery;
     }
+
+    @Override
+    public MetricsConfig metrics() {
+        return metrics;
+    }
 }
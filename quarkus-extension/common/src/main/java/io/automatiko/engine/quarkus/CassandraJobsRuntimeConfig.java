@@ -39,6 +39,12 @@ public class CassandraJobsRuntimeConfig extends CassandraJobsConfig {
     @ConfigItem
     public Optional<Integer> threads;
 
+    /**
+     * Duration (in seconds) of the lease that node holds to get its share of jobs
+     */
+    @ConfigItem
+    public Optional<Long> leaseDuration;
+
     @Override
     public Optional<Boolean> createKeyspace() {
         return createKeyspace;
@@ -63,4 +69,9 @@ public class CassandraJobsRuntimeConfig extends CassandraJobsConfig {
     public Optional<Integer> threads() {
         return threads;
     }
+
+    @Override
+    public Optional<Long> leaseDuration() {
+        return leaseDuration;
+    }
 }
@@ -21,6 +21,24 @@ public class DatabaseJobsRuntimeConfig extends DatabaseJobsConfig {
     @ConfigItem
     public Optional<Integer> threads;
 
+    /**
+     * Number of jobs to be loaded in single batch
+     */
+    @ConfigItem
+    public Optional<Integer> batchSize;
+
+    /**
+     * Maximum number of jobs to be scheduled on single node at the same time
+     */
+    @ConfigItem
+    public Optional<Integer> maxBacklog;
+
+    /**
+     * Duration (in seconds) of the lease that node holds to get its share of jobs
+     */
+    @ConfigItem
+    public Optional<Long> leaseDuration;
+
     @Override
     public Optional<Long> interval() {
         return interval;
@@ -30,4 +48,19 @@ public class DatabaseJobsRuntimeConfig extends DatabaseJobsConfig {
     public Optional<Integer> threads() {
         return threads;
     }
+
+    @Override
+    public Optional<Integer> batchSize() {
+        return batchSize;
+    }
+
+    @Override
+    public Optional<Integer> maxBacklog() {
+        return maxBacklog;
+    }
+
+    @Override
+    public Optional<Long> leaseDuration() {
+        return leaseDuration;
+    }
 }
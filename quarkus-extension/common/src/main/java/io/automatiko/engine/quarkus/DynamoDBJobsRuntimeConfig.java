@@ -39,6 +39,12 @@ public class DynamoDBJobsRuntimeConfig extends DynamoDBJobsConfig {
     @ConfigItem
     public Optional<Integer> threads;
 
+    /**
+     * Duration (in seconds) of the lease that node holds to get its share of jobs
+     */
+    @ConfigItem
+    public Optional<Long> leaseDuration;
+
     @Override
     public Optional<Boolean> createTables() {
         return createTables;
@@ -63,4 +69,9 @@ public class DynamoDBJobsRuntimeConfig extends DynamoDBJobsConfig {
     public Optional<Integer> threads() {
         return threads;
     }
+
+    @Override
+    public Optional<Long> leaseDuration() {
+        return leaseDuration;
+    }
 }
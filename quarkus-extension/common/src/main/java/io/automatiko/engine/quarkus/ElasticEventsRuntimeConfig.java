@@ -33,6 +33,31 @@ public class ElasticEventsRuntimeConfig extends ElasticEventsConfig {
     @ConfigItem
     public Optional<String> auditIndex;
 
+    /**
+     * Determines maximum number of documents sent in single bulk request, when not set every event is sent
+     * in a separate request
+     */
+    @ConfigItem
+    public Optional<Integer> bulkSize;
+
+    /**
+     * Determines maximum time in milliseconds documents wait before being sent in bulk request
+     */
+    @ConfigItem
+    public Optional<Long> bulkInterval;
+
+    /**
+     * Determines maximum number of documents waiting to be sent, publishing blocks when reached
+     */
+    @ConfigItem
+    public Optional<Integer> bulkQueueSize;
+
+    /**
+     * Determines how many times documents rejected by Elastic with recoverable error are resent
+     */
+    @ConfigItem
+    public Optional<Integer> bulkRetries;
+
     @Override
     public Optional<Boolean> audit() {
         return audit;
@@ -53,4 +78,24 @@ public class ElasticEventsRuntimeConfig extends ElasticEventsConfig {
         return auditIndex;
     }
 
+    @Override
+    public Optional<Integer> bulkSize() {
+        return bulkSize;
+    }
+
+    @Override
+    public Optional<Long> bulkInterval() {
+        return bulkInterval;
+    }
+
+    @Override
+    public Optional<Integer> bulkQueueSize() {
+        return bulkQueueSize;
+    }
+
+    @Override
+    public Optional<Integer> bulkRetries() {
+        return bulkRetries;
+    }
+
 }
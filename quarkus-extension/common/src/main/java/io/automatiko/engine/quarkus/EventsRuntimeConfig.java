@@ -1,5 +1,7 @@
 package io.automatiko.engine.quarkus;
 
+import java.util.Optional;
+
 import io.automatiko.engine.api.config.ElasticEventsConfig;
 import io.automatiko.engine.api.config.EventsConfig;
 import io.quarkus.runtime.annotations.ConfigGroup;
@@ -8,6 +10,25 @@ import io.quarkus.runtime.annotations.ConfigItem;
 @ConfigGroup
 public class EventsRuntimeConfig extends EventsConfig {
 
+    /**
+     * Determines number of workers publishing events asynchronously, when not set events are published by the
+     * thread that completed the unit of work
+     */
+    @ConfigItem
+    public Optional<Integer> publishWorkers;
+
+    /**
+     * Determines maximum number of batches waiting to be published by single worker
+     */
+    @ConfigItem
+    public Optional<Integer> publishQueueSize;
+
+    /**
+     * Determines location on file system where events are stored until they are published
+     */
+    @ConfigItem
+    public Optional<String> outboxPath;
+
     /**
      * Provides configuration of Elastic based events publisher
      */
@@ -20,6 +41,21 @@ public class EventsRuntimeConfig extends EventsConfig {
     @ConfigItem
     public WebsocketEventsRuntimeConfig websocket;
 
+    @Override
+    public Optional<Integer> publishWorkers() {
+        return publishWorkers;
+    }
+
+    @Override
+    public Optional<Integer> publishQueueSize() {
+        return publishQueueSize;
+    }
+
+    @Override
+    public Optional<String> outboxPath() {
+        return outboxPath;
+    }
+
     @Override
     public ElasticEventsConfig elastic() {
         return elastic;
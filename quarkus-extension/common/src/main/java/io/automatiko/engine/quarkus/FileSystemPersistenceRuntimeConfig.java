@@ -15,8 +15,20 @@ public class FileSystemPersistenceRuntimeConfig extends FileSystemPersistenceCon
 	@ConfigItem
 	public Optional<String> path;
 
+	/**
+	 * Number of deltas (changes only) written before complete snapshot of the instance is taken, deltas are disabled
+	 * by default
+	 */
+	@ConfigItem
+	public Optional<Integer> deltaSnapshotInterval;
+
 	@Override
 	public Optional<String> path() {
 		return path;
 	}
+
+	@Override
+	public Optional<Integer> deltaSnapshotInterval() {
+		return deltaSnapshotInterval;
+	}
 }
@@ -1,5 +1,7 @@
 package io.automatiko.engine.quarkus;
 
+import java.util.Optional;
+
 import io.automatiko.engine.api.config.MessagingBuildConfig;
 import io.quarkus.runtime.annotations.ConfigGroup;
 import io.quarkus.runtime.annotations.ConfigItem;
@@ -19,6 +21,12 @@ public class MessagingBuildTimeConfig extends MessagingBuildConfig {
     @ConfigItem
     public boolean asCloudeventsBinary;
 
+    /**
+     * Specifies number of partitions of a batch of messages (consumed in batch mode) that are processed at the same time
+     */
+    @ConfigItem
+    public Optional<Integer> batchConcurrency;
+
     @Override
     public boolean asCloudevents() {
         return asCloudevents;
@@ -29,4 +37,9 @@ public class MessagingBuildTimeConfig extends MessagingBuildConfig {
         return asCloudeventsBinary;
     }
 
+    @Override
+    public Optional<Integer> batchConcurrency() {
+        return batchConcurrency;
+    }
+
 }
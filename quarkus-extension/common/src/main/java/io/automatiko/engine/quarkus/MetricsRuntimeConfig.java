@@ -0,0 +1,22 @@
+package io.automatiko.engine.quarkus;
+
+import java.util.Optional;
+
+import io.automatiko.engine.api.config.MetricsConfig;
+import io.quarkus.runtime.annotations.ConfigGroup;
+import io.quarkus.runtime.annotations.ConfigItem;
+
+@ConfigGroup
+public class MetricsRuntimeConfig extends MetricsConfig {
+
+    /**
+     * Specifies ratio (0 - 1) of node executions, work items and persistence operations that are timed, defaults to 1.0
+     */
+    @ConfigItem
+    public Optional<Double> samplingRate;
+
+    @Override
+    public Optional<Double> samplingRate() {
+        return samplingRate;
+    }
+}
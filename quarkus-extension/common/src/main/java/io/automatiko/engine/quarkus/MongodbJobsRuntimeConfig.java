@@ -27,6 +27,12 @@ public class MongodbJobsRuntimeConfig extends MongodbJobsConfig {
     @ConfigItem
     public Optional<Integer> threads;
 
+    /**
+     * Duration (in seconds) of the lease that node holds to get its share of jobs
+     */
+    @ConfigItem
+    public Optional<Long> leaseDuration;
+
     @Override
     public Optional<String> database() {
         return database;
@@ -41,4 +47,9 @@ public class MongodbJobsRuntimeConfig extends MongodbJobsConfig {
     public Optional<Integer> threads() {
         return threads;
     }
+
+    @Override
+    public Optional<Long> leaseDuration() {
+        return leaseDuration;
+    }
 }
@@ -4,6 +4,7 @@ import java.util.Optional;
 
 import io.automatiko.engine.api.config.DatabasePersistenceBuildConfig;
 import io.automatiko.engine.api.config.PersistenceBuildConfig;
+import io.automatiko.engine.api.config.TransactionLogBuildConfig;
 import io.quarkus.runtime.annotations.ConfigGroup;
 import io.quarkus.runtime.annotations.ConfigItem;
 
@@ -22,6 +23,12 @@ public class PersistenceBuildTimeConfig extends PersistenceBuildConfig {
     @ConfigItem
     public DatabasePersistenceBuildTimeConfig database;
 
+    /**
+     * Configures transaction log
+     */
+    @ConfigItem
+    public TransactionLogBuildTimeConfig transactionLog;
+
     @Override
     public Optional<String> type() {
         return type;
@@ -32,4 +39,9 @@ public class PersistenceBuildTimeConfig extends PersistenceBuildConfig {
         return database;
     }
 
+    @Override
+    public TransactionLogBuildConfig transactionLog() {
+        return transactionLog;
+    }
+
 }
@@ -3,6 +3,7 @@ package io.automatiko.engine.quarkus;
 import java.util.Optional;
 
 import io.automatiko.engine.api.config.PersistenceConfig;
+import io.automatiko.engine.api.config.ProcessInstanceCacheConfig;
 import io.automatiko.engine.api.config.TransactionLogConfig;
 import io.quarkus.runtime.annotations.ConfigGroup;
 import io.quarkus.runtime.annotations.ConfigItem;
@@ -22,6 +23,12 @@ public class PersistenceRuntimeConfig extends PersistenceConfig {
     @ConfigItem
     public Optional<String> encryption;
 
+    /**
+     * Determines the type of compression to be applied on stored data (before encryption)
+     */
+    @ConfigItem
+    public Optional<String> compression;
+
     /**
      * Configures file system based persistence
      */
@@ -58,6 +65,12 @@ public class PersistenceRuntimeConfig extends PersistenceConfig {
     @ConfigItem
     public TransactionLogRuntimeConfig transactionLog;
 
+    /**
+     * Configures caching of process instances
+     */
+    @ConfigItem
+    public ProcessInstanceCacheRuntimeConfig cache;
+
     @Override
     public Optional<String> type() {
         return type;
@@ -68,6 +81,11 @@ public class PersistenceRuntimeConfig extends PersistenceConfig {
         return encryption;
     }
 
+    @Override
+    public Optional<String> compression() {
+        return compression;
+    }
+
     @Override
     public FileSystemPersistenceRuntimeConfig filesystem() {
 
@@ -99,4 +117,8 @@ public class PersistenceRuntimeConfig extends PersistenceConfig {
         return transactionLog;
     }
 
+    @Override
+    public ProcessInstanceCacheConfig cache() {
+        return cache;
+    }
 }
@@ -0,0 +1,44 @@
+package io.automatiko.engine.quarkus;
+
+import java.util.Optional;
+
+import io.automatiko.engine.api.config.ProcessInstanceCacheConfig;
+import io.quarkus.runtime.annotations.ConfigGroup;
+import io.quarkus.runtime.annotations.ConfigItem;
+
+@ConfigGroup
+public class ProcessInstanceCacheRuntimeConfig extends ProcessInstanceCacheConfig {
+
+    /**
+     * Controls if recently used process instances should be cached, disabled by default
+     */
+    @ConfigItem
+    public Optional<Boolean> enabled;
+
+    /**
+     * Specifies maximum number of cached instances per workflow, defaults to 1000
+     */
+    @ConfigItem
+    public Optional<Integer> maxSize;
+
+    /**
+     * Specifies time (in seconds) after which not accessed instance is evicted from the cache, defaults to 300
+     */
+    @ConfigItem
+    public Optional<Integer> expireAfter;
+
+    @Override
+    public Optional<Boolean> enabled() {
+        return enabled;
+    }
+
+    @Override
+    public Optional<Integer> maxSize() {
+        return maxSize;
+    }
+
+    @Override
+    public Optional<Integer> expireAfter() {
+        return expireAfter;
+    }
+}
@@ -0,0 +1,22 @@
+package io.automatiko.engine.quarkus;
+
+import java.util.Optional;
+
+import io.automatiko.engine.api.config.TransactionLogBuildConfig;
+import io.quarkus.runtime.annotations.ConfigGroup;
+import io.quarkus.runtime.annotations.ConfigItem;
+
+@ConfigGroup
+public class TransactionLogBuildTimeConfig extends TransactionLogBuildConfig {
+
+    /**
+     * Determines the type of transaction log store to be used
+     */
+    @ConfigItem
+    public Optional<String> type;
+
+    @Override
+    public Optional<String> type() {
+        return type;
+    }
+}
@@ -21,6 +21,30 @@ public class TransactionLogRuntimeConfig extends TransactionLogConfig {
     @ConfigItem
     public Optional<String> folder;
 
+    /**
+     * Specifies maximum size (in bytes) of single segment of segmented transaction log
+     */
+    @ConfigItem
+    public Optional<Long> segmentSize;
+
+    /**
+     * Number of threads used to recover instances found in transaction log, defaults to number of available processors
+     */
+    @ConfigItem
+    public Optional<Integer> recoveryThreads;
+
+    /**
+     * Maximum number of instances waiting for recovery at the same time, defaults to 1000
+     */
+    @ConfigItem
+    public Optional<Integer> recoveryQueueSize;
+
+    /**
+     * Controls if startup should wait for recovery to complete, defaults to true
+     */
+    @ConfigItem
+    public Optional<Boolean> recoveryBlocking;
+
     @Override
     public Optional<String> folder() {
         return folder;
@@ -31,4 +55,23 @@ public class TransactionLogRuntimeConfig extends TransactionLogConfig {
         return enabled;
     }
 
+    @Override
+    public Optional<Long> segmentSize() {
+        return segmentSize;
+    }
+
+    @Override
+    public Optional<Integer> recoveryThreads() {
+        return recoveryThreads;
+    }
+
+    @Override
+    public Optional<Integer> recoveryQueueSize() {
+        return recoveryQueueSize;
+    }
+
+    @Override
+    public Optional<Boolean> recoveryBlocking() {
+        return recoveryBlocking;
+    }
 }
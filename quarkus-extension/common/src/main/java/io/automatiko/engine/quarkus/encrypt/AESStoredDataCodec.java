@@ -1,35 +1,49 @@
 package io.automatiko.engine.quarkus.encrypt;
 
-import java.security.Key;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
 
-import javax.crypto.BadPaddingException;
-import javax.crypto.Cipher;
-import javax.crypto.IllegalBlockSizeException;
-import javax.crypto.spec.SecretKeySpec;
 import javax.enterprise.context.ApplicationScoped;
 
+import org.eclipse.microprofile.config.Config;
 import org.eclipse.microprofile.config.inject.ConfigProperty;
 
+import io.automatiko.engine.api.workflow.encrypt.AESGCMStoredDataCodec;
 import io.automatiko.engine.api.workflow.encrypt.StoredDataCodec;
 import io.quarkus.arc.properties.IfBuildProperty;
 
+/**
+ * AES codec that encrypts data in GCM mode with the configured key, previous keys can be given as
+ * <code>automatiko.encryption.aes.keys.[key id]</code> to be able to read data stored before the key was rotated.
+ * Data stored before GCM mode was used is read with the key given by <code>automatiko.encryption.aes.legacy-key-id</code>,
+ * which is required when there is more than one key.
+ */
 @IfBuildProperty(name = "quarkus.automatiko.persistence.encryption", stringValue = "aes")
 @ApplicationScoped
 public class AESStoredDataCodec implements StoredDataCodec {
 
-    private final Cipher encodeCipher;
+    private static final String KEYS_PREFIX = "automatiko.encryption.aes.keys.";
 
-    private final Cipher decodeCipher;
+    private final AESGCMStoredDataCodec delegate;
 
-    public AESStoredDataCodec(@ConfigProperty(name = "automatiko.encryption.aes.key") String key) {
+    public AESStoredDataCodec(@ConfigProperty(name = "automatiko.encryption.aes.key") String key,
+            @ConfigProperty(name = "automatiko.encryption.aes.key-id", defaultValue = "default") String keyId,
+            @ConfigProperty(name = "automatiko.encryption.aes.legacy-key-id") Optional<String> legacyKeyId,
+            Config config) {
+        Map<String, byte[]> keys = new HashMap<>();
+        for (String name : config.getPropertyNames()) {
+            if (name.startsWith(KEYS_PREFIX)) {
+                keys.put(name.substring(KEYS_PREFIX.length()), config.getValue(name, String.class).getBytes());
+            }
+        }
+        keys.put(keyId, key.getBytes());
         try {
-            Key aesKey = new SecretKeySpec(key.getBytes(), "AES");
-
-            encodeCipher = Cipher.getInstance("AES");
-            decodeCipher = Cipher.getInstance("AES");
-
-            encodeCipher.init(Cipher.ENCRYPT_MODE, aesKey);
-            decodeCipher.init(Cipher.DECRYPT_MODE, aesKey);
+            this.delegate = new AESGCMStoredDataCodec(keyId, keys, legacyKeyId.orElse(null));
         } catch (Exception e) {
             throw new RuntimeException("Unable to intialize ciphers", e);
         }
@@ -37,22 +51,32 @@ public class AESStoredDataCodec implements StoredDataCodec {
 
     @Override
     public byte[] encode(byte[] data) {
-        try {
-            return encodeCipher.doFinal(data);
-
-        } catch (IllegalBlockSizeException | BadPaddingException e) {
-            throw new RuntimeException("Unable to use AES encryption to encode data", e);
-        }
+        return delegate.encode(data);
     }
 
     @Override
     public byte[] decode(byte[] data) {
-        try {
-            return decodeCipher.doFinal(data);
+        return delegate.decode(data);
+    }
 
-        } catch (IllegalBlockSizeException | BadPaddingException e) {
-            throw new RuntimeException("Unable to use AES encryption to decode data", e);
-        }
+    @Override
+    public ByteBuffer encode(ByteBuffer data) {
+        return delegate.encode(data);
+    }
+
+    @Override
+    public ByteBuffer decode(ByteBuffer data) {
+        return delegate.decode(data);
+    }
+
+    @Override
+    public OutputStream encode(OutputStream out) {
+        return delegate.encode(out);
+    }
+
+    @Override
+    public InputStream decode(InputStream in) throws IOException {
+        return delegate.decode(in);
     }
 
 }
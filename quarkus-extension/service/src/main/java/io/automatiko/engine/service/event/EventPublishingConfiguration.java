@@ -0,0 +1,100 @@
+package io.automatiko.engine.service.event;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Priority;
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Observes;
+import javax.enterprise.inject.Instance;
+import javax.inject.Inject;
+import javax.interceptor.Interceptor;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.automatiko.engine.api.Application;
+import io.automatiko.engine.api.event.EventManager;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.TimeGauge;
+import io.quarkus.runtime.ShutdownEvent;
+import io.quarkus.runtime.StartupEvent;
+
+/**
+ * Configures publishing of events on startup - asynchronous publishing workers and outbox that keeps events until
+ * they are published. When metrics are enabled number of pending events and delivery lag are reported.
+ */
+@ApplicationScoped
+public class EventPublishingConfiguration {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(EventPublishingConfiguration.class);
+
+    @Inject
+    Instance<Application> application;
+
+    @Inject
+    Instance<MeterRegistry> registry;
+
+    @ConfigProperty(name = "quarkus.application.name", defaultValue = "")
+    Optional<String> applicationName;
+
+    @ConfigProperty(name = "quarkus.application.version", defaultValue = "")
+    Optional<String> version;
+
+    @ConfigProperty(name = "quarkus.automatiko.metrics.enabled")
+    Optional<Boolean> metrics;
+
+    @ConfigProperty(name = "quarkus.automatiko.events.publish-workers")
+    Optional<Integer> workers;
+
+    @ConfigProperty(name = "quarkus.automatiko.events.publish-queue-size")
+    Optional<Integer> queueSize;
+
+    @ConfigProperty(name = "quarkus.automatiko.events.outbox-path")
+    Optional<String> outboxPath;
+
+    public void configure(@Observes @Priority(Interceptor.Priority.PLATFORM_AFTER) StartupEvent event) {
+        EventManager eventManager = eventManager();
+        if (eventManager == null) {
+            return;
+        }
+        if (workers.orElse(0) > 0) {
+            LOGGER.info("Events are published asynchronously by {} worker(s)", workers.get());
+            eventManager.setPublishingWorkers(workers.get(), queueSize.orElse(1000));
+
+            if (metrics.orElse(false) && registry.isResolvable()) {
+                List<Tag> tags = Arrays.asList(Tag.of("application", applicationName.orElse("")),
+                        Tag.of("version", version.orElse("")));
+                Gauge.builder("automatiko.events.publish.pending", eventManager, EventManager::pendingEvents)
+                        .description("Number of events waiting to be published").tags(tags)
+                        .register(registry.get());
+                TimeGauge.builder("automatiko.events.publish.lag", eventManager, TimeUnit.MILLISECONDS,
+                        EventManager::deliveryLag)
+                        .description("Time the oldest event waiting to be published has been waiting").tags(tags)
+                        .register(registry.get());
+            }
+        }
+        if (outboxPath.isPresent()) {
+            eventManager.setOutbox(new FileSystemEventOutbox(outboxPath.get()));
+        }
+    }
+
+    public void shutdown(@Observes ShutdownEvent event) {
+        EventManager eventManager = eventManager();
+        if (eventManager != null) {
+            eventManager.close();
+        }
+    }
+
+    protected EventManager eventManager() {
+        if (!application.isResolvable() || application.get().config().process() == null) {
+            return null;
+        }
+        return application.get().unitOfWorkManager().eventManager();
+    }
+}
@@ -0,0 +1,299 @@
+package io.automatiko.engine.service.event;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Constructor;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.annotation.JsonAutoDetect.Visibility;
+import com.fasterxml.jackson.annotation.PropertyAccessor;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import io.automatiko.engine.api.event.AbstractDataEvent;
+import io.automatiko.engine.api.event.DataEvent;
+import io.automatiko.engine.api.event.EventOutbox;
+
+/**
+ * Outbox that keeps events of every unit of work as single JSON file in given directory until they are published.
+ * Files are synced to disk before they become visible and are named by the time they were stored so pending events
+ * are returned in the order they were produced.
+ * <br/>
+ * Type of every event and its data is stored next to the event so events read back from the outbox (after restart of
+ * the service) are rebuilt as the original events. Events that cannot be rebuilt (e.g. their classes are no longer
+ * available) carry their data as JSON and thus are only published by publishers that do not depend on concrete type of
+ * the event. Rebuilt events are not connected to process instances that produced them.
+ */
+public class FileSystemEventOutbox implements EventOutbox {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(FileSystemEventOutbox.class);
+
+    private static final String SUFFIX = ".json";
+
+    private static final String EVENT_TYPE = "eventType";
+
+    private static final String DATA_TYPE = "dataType";
+
+    private static final String EVENT = "event";
+
+    private final Path location;
+
+    private final ObjectMapper mapper;
+
+    private final ObjectMapper reader;
+
+    private final AtomicLong sequence = new AtomicLong();
+
+    private final Map<String, Batch> stored = new ConcurrentHashMap<>();
+
+    public FileSystemEventOutbox(String location) {
+        this.location = Paths.get(location);
+        this.mapper = new ObjectMapper().findAndRegisterModules()
+                .disable(SerializationFeature.FAIL_ON_EMPTY_BEANS);
+        // event classes are immutable so they are rebuilt from their fields
+        this.reader = new ObjectMapper().findAndRegisterModules()
+                .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+                .setVisibility(PropertyAccessor.ALL, Visibility.NONE)
+                .setVisibility(PropertyAccessor.FIELD, Visibility.ANY)
+                .setVisibility(PropertyAccessor.CREATOR, Visibility.ANY);
+        try {
+            Files.createDirectories(this.location);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to create events outbox at " + location, e);
+        }
+    }
+
+    @Override
+    public void store(Collection<DataEvent<?>> events) {
+        if (events.isEmpty()) {
+            return;
+        }
+        ArrayNode entries = mapper.createArrayNode();
+        Set<String> ids = new HashSet<>();
+        for (DataEvent<?> event : events) {
+            ObjectNode entry = entries.addObject();
+            entry.put(EVENT_TYPE, event.getClass().getName());
+            if (event.getData() != null) {
+                entry.put(DATA_TYPE, event.getData().getClass().getName());
+            }
+            entry.set(EVENT, mapper.valueToTree(event));
+            ids.add(event.getId());
+        }
+        String name = String.format("%013d-%09d-%s", System.currentTimeMillis(),
+                sequence.incrementAndGet() % 1_000_000_000, events.iterator().next().getId());
+        Path file = location.resolve(name + SUFFIX);
+        Path temp = location.resolve(name + ".tmp");
+        try {
+            write(temp, mapper.writeValueAsBytes(entries));
+            Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE);
+            sync(location);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to store events " + ids + " in the outbox", e);
+        }
+        Batch batch = new Batch(file, ids);
+        for (String id : ids) {
+            stored.put(id, batch);
+        }
+    }
+
+    @Override
+    public void delete(Collection<DataEvent<?>> events) {
+        Set<Batch> completed = new HashSet<>();
+        for (DataEvent<?> event : events) {
+            Batch batch = stored.remove(event.getId());
+            if (batch != null && batch.published(event.getId())) {
+                completed.add(batch);
+            }
+        }
+        for (Batch batch : completed) {
+            try {
+                Files.deleteIfExists(batch.file);
+            } catch (IOException e) {
+                LOGGER.warn("Unable to remove events {} from the outbox", batch.file.getFileName(), e);
+            }
+        }
+    }
+
+    @Override
+    public Collection<DataEvent<?>> pending() {
+        List<Path> files;
+        try (Stream<Path> stream = Files.list(location)) {
+            files = stream.filter(file -> file.getFileName().toString().endsWith(SUFFIX)).sorted()
+                    .collect(Collectors.toList());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to read events outbox at " + location, e);
+        }
+        List<DataEvent<?>> events = new ArrayList<>();
+        for (Path file : files) {
+            List<DataEvent<?>> batchEvents = new ArrayList<>();
+            try {
+                JsonNode json = mapper.readTree(file.toFile());
+                if (json.isArray()) {
+                    for (JsonNode entry : json) {
+                        batchEvents.add(read(entry));
+                    }
+                } else {
+                    // single event stored without its type
+                    batchEvents.add(readJson(json));
+                }
+            } catch (IOException e) {
+                LOGGER.warn("Unable to read events from outbox file {}, skipping it", file, e);
+                continue;
+            }
+            Set<String> ids = new HashSet<>();
+            batchEvents.forEach(event -> ids.add(event.getId()));
+            Batch batch = new Batch(file, ids);
+            for (String id : ids) {
+                stored.put(id, batch);
+            }
+            events.addAll(batchEvents);
+        }
+        return events;
+    }
+
+    protected DataEvent<?> read(JsonNode entry) {
+        JsonNode json = entry.path(EVENT);
+        String eventType = entry.path(EVENT_TYPE).asText(null);
+        String dataType = entry.path(DATA_TYPE).asText(null);
+        if (eventType != null) {
+            try {
+                return rebuild(json, eventType, dataType);
+            } catch (Exception | LinkageError e) {
+                LOGGER.warn("Unable to rebuild event {} of type {} from the outbox, it will carry its data as JSON",
+                        json.path("id").asText(), eventType, e);
+            }
+        }
+        return readJson(json);
+    }
+
+    /**
+     * Rebuilds event of given type - it is created with the constructor that accepts its data and then all its
+     * fields are restored from the stored event
+     */
+    protected DataEvent<?> rebuild(JsonNode json, String eventType, String dataType) throws Exception {
+        ClassLoader cl = Thread.currentThread().getContextClassLoader();
+        if (cl == null) {
+            cl = getClass().getClassLoader();
+        }
+        Class<?> eventClass = Class.forName(eventType, false, cl);
+        Object data = null;
+        if (dataType != null && json.hasNonNull("data")) {
+            data = reader.treeToValue(json.get("data"), Class.forName(dataType, false, cl));
+        }
+        Constructor<?> constructor = dataConstructor(eventClass, data);
+        Class<?>[] parameterTypes = constructor.getParameterTypes();
+        Object[] parameters = new Object[parameterTypes.length];
+        parameters[parameters.length - 1] = data;
+        for (int i = 0; i < parameters.length - 1; i++) {
+            parameters[i] = Map.class.equals(parameterTypes[i]) ? Collections.emptyMap() : null;
+        }
+        DataEvent<?> event = (DataEvent<?>) constructor.newInstance(parameters);
+
+        ObjectNode fields = ((ObjectNode) json).deepCopy();
+        fields.remove("data");
+        reader.readerForUpdating(event).readValue(fields);
+        return event;
+    }
+
+    protected Constructor<?> dataConstructor(Class<?> eventClass, Object data) throws NoSuchMethodException {
+        for (Constructor<?> constructor : eventClass.getConstructors()) {
+            Class<?>[] parameterTypes = constructor.getParameterTypes();
+            if (parameterTypes.length == 0) {
+                continue;
+            }
+            Class<?> dataParameter = parameterTypes[parameterTypes.length - 1];
+            if (data == null || dataParameter.isInstance(data)) {
+                return constructor;
+            }
+        }
+        throw new NoSuchMethodException("No constructor of " + eventClass.getName() + " accepts its data");
+    }
+
+    protected OutboxDataEvent readJson(JsonNode json) {
+        OutboxDataEvent event = new OutboxDataEvent(text(json, "specversion"), text(json, "id"), text(json, "source"),
+                text(json, "type"), text(json, "subject"), text(json, "time"), json.get("data"));
+        Iterator<Map.Entry<String, JsonNode>> extensions = json.path("extensions").fields();
+        while (extensions.hasNext()) {
+            Map.Entry<String, JsonNode> extension = extensions.next();
+            event.addExtension(extension.getKey(), mapper.convertValue(extension.getValue(), Object.class));
+        }
+        return event;
+    }
+
+    protected void write(Path file, byte[] content) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.wrap(content);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(true);
+        }
+    }
+
+    protected void sync(Path directory) {
+        // makes the rename durable, not supported on all platforms
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            LOGGER.debug("Unable to sync events outbox directory {}", directory, e);
+        }
+    }
+
+    private String text(JsonNode json, String field) {
+        JsonNode value = json.get(field);
+        return value == null || value.isNull() ? null : value.asText();
+    }
+
+    /**
+     * Events stored together in single file, file is removed once all of them are published
+     */
+    private static class Batch {
+
+        private final Path file;
+
+        private final Set<String> remaining;
+
+        private Batch(Path file, Set<String> remaining) {
+            this.file = file;
+            this.remaining = remaining;
+        }
+
+        private synchronized boolean published(String id) {
+            return remaining.remove(id) && remaining.isEmpty();
+        }
+    }
+
+    public static class OutboxDataEvent extends AbstractDataEvent<JsonNode> {
+
+        public OutboxDataEvent(String specversion, String id, String source, String type, String subject, String time,
+                JsonNode data) {
+            super(specversion, id, source, type, subject, time, data);
+        }
+    }
+}
@@ -39,4 +39,9 @@ public abstract class BaseExceptionMapper<E extends Throwable> {
         return Response.status(Response.Status.FORBIDDEN).header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON)
                 .entity(body).build();
     }
+
+    protected <R> Response tooManyRequests(R body) {
+        return Response.status(Response.Status.TOO_MANY_REQUESTS).header(HttpHeaders.RETRY_AFTER, 1)
+                .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON).entity(body).build();
+    }
 }
@@ -0,0 +1,18 @@
+package io.automatiko.engine.service.exception;
+
+import java.util.Collections;
+import java.util.concurrent.RejectedExecutionException;
+
+import javax.ws.rs.core.Response;
+import javax.ws.rs.ext.ExceptionMapper;
+import javax.ws.rs.ext.Provider;
+
+@Provider
+public class RejectedExecutionExceptionMapper extends BaseExceptionMapper<RejectedExecutionException>
+        implements ExceptionMapper<RejectedExecutionException> {
+
+    @Override
+    public Response toResponse(RejectedExecutionException exception) {
+        return tooManyRequests(Collections.singletonMap(MESSAGE, exception.getMessage()));
+    }
+}
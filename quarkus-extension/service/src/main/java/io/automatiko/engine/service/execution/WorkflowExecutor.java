@@ -0,0 +1,85 @@
+package io.automatiko.engine.service.execution;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Executor;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.inject.Instance;
+import javax.inject.Inject;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import io.automatiko.engine.services.execution.BoundedWorkflowExecutor;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tag;
+
+/**
+ * Executor used by generated resources for async execution mode (<code>X-ATK-Mode: async</code>). Work runs on
+ * dedicated bounded pool (or virtual threads), when saturated the request is rejected and responds with
+ * <code>429 Too Many Requests</code>. When metrics are enabled saturation of the executor is reported.
+ */
+@ApplicationScoped
+public class WorkflowExecutor implements Executor {
+
+    @ConfigProperty(name = "quarkus.application.name", defaultValue = "")
+    Optional<String> application;
+
+    @ConfigProperty(name = "quarkus.application.version", defaultValue = "")
+    Optional<String> version;
+
+    @ConfigProperty(name = "quarkus.automatiko.metrics.enabled")
+    Optional<Boolean> metrics;
+
+    @ConfigProperty(name = "quarkus.automatiko.async.executor.threads")
+    Optional<Integer> threads;
+
+    @ConfigProperty(name = "quarkus.automatiko.async.executor.queue-size")
+    Optional<Integer> queueSize;
+
+    @ConfigProperty(name = "quarkus.automatiko.async.executor.virtual-threads")
+    Optional<Boolean> virtualThreads;
+
+    @Inject
+    Instance<MeterRegistry> registry;
+
+    private BoundedWorkflowExecutor executor;
+
+    @PostConstruct
+    public void init() {
+        executor = new BoundedWorkflowExecutor(threads.orElse(Math.max(16, Runtime.getRuntime().availableProcessors() * 8)),
+                queueSize.orElse(1000), virtualThreads.orElse(false));
+
+        if (metrics.orElse(false) && registry.isResolvable()) {
+            List<Tag> tags = Arrays.asList(Tag.of("application", application.orElse("")),
+                    Tag.of("version", version.orElse("")));
+            MeterRegistry meterRegistry = registry.get();
+            Gauge.builder("automatiko.async.executor.running", executor, BoundedWorkflowExecutor::running)
+                    .description("Number of async executions currently running").tags(tags).register(meterRegistry);
+            Gauge.builder("automatiko.async.executor.queued", executor, BoundedWorkflowExecutor::queued)
+                    .description("Number of async executions waiting to be run").tags(tags).register(meterRegistry);
+            Gauge.builder("automatiko.async.executor.saturation", executor, BoundedWorkflowExecutor::saturation)
+                    .description("Ratio of running and waiting async executions to the maximum accepted").tags(tags)
+                    .register(meterRegistry);
+            FunctionCounter.builder("automatiko.async.executor.rejected.count", executor,
+                    BoundedWorkflowExecutor::rejectedCount)
+                    .description("Total count of async executions rejected as the executor was saturated").tags(tags)
+                    .register(meterRegistry);
+        }
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        executor.execute(command);
+    }
+
+    @PreDestroy
+    public void close() {
+        executor.close();
+    }
+}
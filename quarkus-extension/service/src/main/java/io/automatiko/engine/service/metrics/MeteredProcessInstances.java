@@ -0,0 +1,217 @@
+package io.automatiko.engine.service.metrics;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import io.automatiko.engine.api.uow.TransactionLog;
+import io.automatiko.engine.api.workflow.ExportedProcessInstance;
+import io.automatiko.engine.api.workflow.MutableProcessInstances;
+import io.automatiko.engine.api.workflow.Process;
+import io.automatiko.engine.api.workflow.ProcessInstance;
+import io.automatiko.engine.api.workflow.ProcessInstancePage;
+import io.automatiko.engine.api.workflow.ProcessInstanceReadMode;
+import io.automatiko.engine.api.workflow.ProcessInstanceSummary;
+import io.automatiko.engine.api.workflow.ProcessInstancesCache;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Process instances decorator that times reads and writes of the data store. Timers are registered once per process
+ * and operations are timed only for a sample of calls as given by sampling rate. Statistics of decorated instances
+ * that are cached are registered as well.
+ */
+public class MeteredProcessInstances<T> implements MutableProcessInstances<T> {
+
+    private final MutableProcessInstances<T> delegate;
+
+    private final double samplingRate;
+
+    private final Timer read;
+
+    private final Timer create;
+
+    private final Timer update;
+
+    private final Timer remove;
+
+    public MeteredProcessInstances(Process<T> process, MutableProcessInstances<T> delegate, MeterRegistry registry,
+            List<Tag> tags, double samplingRate) {
+        this.delegate = delegate;
+        this.samplingRate = samplingRate;
+
+        List<Tag> processTags = new ArrayList<>(tags);
+        processTags.add(Tag.of("processId", process.id()));
+        processTags.add(Tag.of("processVersion", process.version() == null ? "unknown" : process.version()));
+
+        this.read = timer(registry, "automatiko.process.persistence.read", processTags, null,
+                "Duration of reads of process instances from the data store");
+        this.create = timer(registry, "automatiko.process.persistence.write", processTags, "create",
+                "Duration of writes of process instances to the data store");
+        this.update = timer(registry, "automatiko.process.persistence.write", processTags, "update",
+                "Duration of writes of process instances to the data store");
+        this.remove = timer(registry, "automatiko.process.persistence.write", processTags, "remove",
+                "Duration of writes of process instances to the data store");
+
+        if (delegate instanceof ProcessInstancesCache) {
+            ProcessInstancesCache cache = (ProcessInstancesCache) delegate;
+            FunctionCounter.builder("automatiko.process.persistence.cache", cache, ProcessInstancesCache::hits)
+                    .description("Look ups of process instances by the cache").tags(processTags).tag("result", "hit")
+                    .register(registry);
+            FunctionCounter.builder("automatiko.process.persistence.cache", cache, ProcessInstancesCache::misses)
+                    .description("Look ups of process instances by the cache").tags(processTags).tag("result", "miss")
+                    .register(registry);
+            FunctionCounter.builder("automatiko.process.persistence.cache.evictions", cache,
+                    ProcessInstancesCache::evictions)
+                    .description("Process instances removed from the cache due to its size or expiration")
+                    .tags(processTags).register(registry);
+            Gauge.builder("automatiko.process.persistence.cache.size", cache, ProcessInstancesCache::cached)
+                    .description("Number of currently cached process instances").tags(processTags)
+                    .register(registry);
+        }
+    }
+
+    @Override
+    public TransactionLog transactionLog() {
+        return delegate.transactionLog();
+    }
+
+    @Override
+    public Optional<? extends ProcessInstance<T>> findById(String id, int status, ProcessInstanceReadMode mode) {
+        return timed(read, () -> delegate.findById(id, status, mode));
+    }
+
+    @Override
+    public Collection<? extends ProcessInstance<T>> values(ProcessInstanceReadMode mode, int status, int page, int size) {
+        return timed(read, () -> delegate.values(mode, status, page, size));
+    }
+
+    @Override
+    public Collection<? extends ProcessInstance<T>> values(ProcessInstanceReadMode mode, int status, int page, int size,
+            String sortBy, boolean sortAsc) {
+        return timed(read, () -> delegate.values(mode, status, page, size, sortBy, sortAsc));
+    }
+
+    @Override
+    public ProcessInstancePage<T> values(ProcessInstanceReadMode mode, int status, String cursor, int size) {
+        return timed(read, () -> delegate.values(mode, status, cursor, size));
+    }
+
+    @Override
+    public Collection<ProcessInstanceSummary> summaries(int status, int page, int size) {
+        return timed(read, () -> delegate.summaries(status, page, size));
+    }
+
+    @Override
+    public Collection<? extends ProcessInstance<T>> findByIdOrTag(ProcessInstanceReadMode mode, int status,
+            String... values) {
+        return timed(read, () -> delegate.findByIdOrTag(mode, status, values));
+    }
+
+    @Override
+    public Collection<? extends ProcessInstance<T>> findByIdOrTag(ProcessInstanceReadMode mode, int status, String sortBy,
+            boolean sortAsc, String... values) {
+        return timed(read, () -> delegate.findByIdOrTag(mode, status, sortBy, sortAsc, values));
+    }
+
+    @Override
+    public Collection<String> locateByIdOrTag(int status, String... values) {
+        return delegate.locateByIdOrTag(status, values);
+    }
+
+    @Override
+    public Long size() {
+        return delegate.size();
+    }
+
+    @Override
+    public boolean exists(String id) {
+        return delegate.exists(id);
+    }
+
+    @Override
+    public void create(String id, ProcessInstance<T> instance) {
+        timed(create, () -> {
+            delegate.create(id, instance);
+            return null;
+        });
+    }
+
+    @Override
+    public void createAll(Map<String, ProcessInstance<T>> instances) {
+        timed(create, () -> {
+            delegate.createAll(instances);
+            return null;
+        });
+    }
+
+    @Override
+    public void update(String id, ProcessInstance<T> instance) {
+        timed(update, () -> {
+            delegate.update(id, instance);
+            return null;
+        });
+    }
+
+    @Override
+    public void remove(String id, ProcessInstance<T> instance) {
+        timed(remove, () -> {
+            delegate.remove(id, instance);
+            return null;
+        });
+    }
+
+    @Override
+    public void release(String id, ProcessInstance<T> pi) {
+        delegate.release(id, pi);
+    }
+
+    @Override
+    public boolean useCompositeIdForSubprocess() {
+        return delegate.useCompositeIdForSubprocess();
+    }
+
+    @Override
+    public ExportedProcessInstance exportInstance(ProcessInstance<?> instance, boolean abort) {
+        return delegate.exportInstance(instance, abort);
+    }
+
+    @Override
+    public ProcessInstance<T> importInstance(ExportedProcessInstance instance, Process<T> process) {
+        return delegate.importInstance(instance, process);
+    }
+
+    /**
+     * Returns decorated process instances
+     */
+    public MutableProcessInstances<T> delegate() {
+        return delegate;
+    }
+
+    protected <R> R timed(Timer timer, Supplier<R> operation) {
+        if (!MetricsSampler.sampled(samplingRate)) {
+            return operation.get();
+        }
+        long start = System.nanoTime();
+        try {
+            return operation.get();
+        } finally {
+            timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private static Timer timer(MeterRegistry registry, String name, List<Tag> tags, String operation, String description) {
+        Timer.Builder builder = Timer.builder(name).description(description).tags(tags);
+        if (operation != null) {
+            builder.tag("operation", operation);
+        }
+        return builder.register(registry);
+    }
+}
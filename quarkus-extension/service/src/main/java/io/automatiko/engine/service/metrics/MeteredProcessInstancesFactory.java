@@ -0,0 +1,65 @@
+package io.automatiko.engine.service.metrics;
+
+import java.util.List;
+
+import io.automatiko.engine.api.audit.Auditor;
+import io.automatiko.engine.api.uow.TransactionLogStore;
+import io.automatiko.engine.api.workflow.MutableProcessInstances;
+import io.automatiko.engine.api.workflow.Process;
+import io.automatiko.engine.api.workflow.ProcessInstancesFactory;
+import io.automatiko.engine.api.workflow.encrypt.StoredDataCodec;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tag;
+
+/**
+ * Wraps process instances factory (of any persistence add-on) so process instances it creates are timed
+ */
+@SuppressWarnings({ "rawtypes", "unchecked" })
+public class MeteredProcessInstancesFactory implements ProcessInstancesFactory {
+
+    private final ProcessInstancesFactory delegate;
+
+    private final MeterRegistry registry;
+
+    private final List<Tag> tags;
+
+    private final double samplingRate;
+
+    public MeteredProcessInstancesFactory(ProcessInstancesFactory delegate, MeterRegistry registry, List<Tag> tags,
+            double samplingRate) {
+        this.delegate = delegate;
+        this.registry = registry;
+        this.tags = tags;
+        this.samplingRate = samplingRate;
+    }
+
+    @Override
+    public MutableProcessInstances<?> createProcessInstances(Process<?> process) {
+        return delegate.createProcessInstances(process);
+    }
+
+    @Override
+    public MutableProcessInstances<?> decorate(Process<?> process, MutableProcessInstances<?> instances) {
+        return new MeteredProcessInstances(process, delegate.decorate(process, instances), registry, tags,
+                samplingRate);
+    }
+
+    @Override
+    public StoredDataCodec codec() {
+        return delegate.codec();
+    }
+
+    @Override
+    public TransactionLogStore transactionLogStore() {
+        return delegate.transactionLogStore();
+    }
+
+    @Override
+    public Auditor auditor() {
+        return delegate.auditor();
+    }
+
+    public ProcessInstancesFactory delegate() {
+        return delegate;
+    }
+}
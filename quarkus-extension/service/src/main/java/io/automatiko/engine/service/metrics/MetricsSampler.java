@@ -0,0 +1,29 @@
+package io.automatiko.engine.service.metrics;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Decides if fine grained metrics (that are recorded often, e.g. for every node execution) should be recorded for
+ * given event based on configured sampling rate
+ */
+public class MetricsSampler {
+
+    private MetricsSampler() {
+
+    }
+
+    /**
+     * Returns true if event should be recorded
+     *
+     * @param rate ratio (0 - 1) of events that should be recorded
+     */
+    public static boolean sampled(double rate) {
+        if (rate >= 1.0) {
+            return true;
+        }
+        if (rate <= 0.0) {
+            return false;
+        }
+        return ThreadLocalRandom.current().nextDouble() < rate;
+    }
+}
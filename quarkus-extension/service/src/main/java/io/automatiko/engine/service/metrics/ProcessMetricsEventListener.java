@@ -1,128 +1,250 @@
 package io.automatiko.engine.service.metrics;
 
 import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
+import javax.annotation.Priority;
 import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Observes;
+import javax.enterprise.inject.Instance;
 import javax.inject.Inject;
+import javax.interceptor.Interceptor;
 
 import org.eclipse.microprofile.config.inject.ConfigProperty;
 
+import io.automatiko.engine.api.Application;
 import io.automatiko.engine.api.event.process.DefaultProcessEventListener;
 import io.automatiko.engine.api.event.process.ProcessCompletedEvent;
 import io.automatiko.engine.api.event.process.ProcessNodeInstanceFailedEvent;
+import io.automatiko.engine.api.event.process.ProcessNodeLeftEvent;
 import io.automatiko.engine.api.event.process.ProcessSignaledEvent;
 import io.automatiko.engine.api.event.process.ProcessStartedEvent;
+import io.automatiko.engine.api.event.process.ProcessWorkItemTransitionEvent;
+import io.automatiko.engine.api.runtime.process.NodeInstance;
+import io.automatiko.engine.api.runtime.process.WorkItem;
+import io.automatiko.engine.api.workflow.Process;
 import io.automatiko.engine.api.workflow.ProcessInstance;
+import io.automatiko.engine.api.workflow.ProcessInstancesFactory;
+import io.automatiko.engine.workflow.AbstractProcess;
 import io.automatiko.engine.workflow.process.instance.impl.WorkflowProcessInstanceImpl;
 import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
 import io.micrometer.core.instrument.MeterRegistry;
 import io.micrometer.core.instrument.Tag;
 import io.micrometer.core.instrument.Timer;
 import io.quarkus.arc.properties.IfBuildProperty;
-
+import io.quarkus.runtime.StartupEvent;
+
+/**
+ * Records metrics of process instances. Meters are registered once per process id and version and then reused so
+ * events do not pay for meter look up in the registry. Node executions and work items are timed only for a sample
+ * of events as configured by <code>quarkus.automatiko.metrics.sampling-rate</code>, same applies to reads and writes of
+ * process instances from/to the data store.
+ */
 @IfBuildProperty(name = "quarkus.automatiko.metrics.enabled", stringValue = "true")
 @ApplicationScoped
 public class ProcessMetricsEventListener extends DefaultProcessEventListener {
 
     @ConfigProperty(name = "quarkus.application.name", defaultValue = "")
-    Optional<String> application;
+    Optional<String> applicationName;
 
     @ConfigProperty(name = "quarkus.application.version", defaultValue = "")
     Optional<String> version;
 
+    @ConfigProperty(name = "quarkus.automatiko.metrics.sampling-rate", defaultValue = "1.0")
+    double samplingRate;
+
     @Inject
     MeterRegistry registry;
 
+    @Inject
+    Instance<Application> application;
+
+    @Inject
+    Instance<Process<?>> processes;
+
+    private final Map<String, ProcessMeters> meters = new ConcurrentHashMap<>();
+
+    /**
+     * Wraps process instances factory of the processes before they are activated so access to the data store is timed
+     */
+    public void meterPersistence(@Observes @Priority(Interceptor.Priority.LIBRARY_BEFORE) StartupEvent event) {
+        if (samplingRate <= 0 || !application.isResolvable() || application.get().config().process() == null) {
+            return;
+        }
+        ProcessInstancesFactory factory = application.get().config().process().processInstancesFactory();
+        if (factory == null) {
+            return;
+        }
+        ProcessInstancesFactory metered = new MeteredProcessInstancesFactory(factory, registry,
+                Arrays.asList(Tag.of("application", applicationName.orElse("")), Tag.of("version", version.orElse(""))),
+                samplingRate);
+        for (Process<?> process : processes) {
+            if (process instanceof AbstractProcess) {
+                ((AbstractProcess<?>) process).setProcessInstancesFactory(metered);
+            }
+        }
+    }
+
     @Override
     public void afterProcessStarted(ProcessStartedEvent event) {
         final WorkflowProcessInstanceImpl processInstance = (WorkflowProcessInstanceImpl) event.getProcessInstance();
-        //"Total count of started process instances"
-        Counter counter = registry.counter("automatiko.process.started.count",
-                Arrays.asList(Tag.of("application", application.orElse("")), Tag.of("version", version.orElse("")),
-                        Tag.of("processId", processInstance.getProcessId()),
-                        Tag.of("processVersion",
-                                processInstance.getProcess().getVersion() == null ? "unknown"
-                                        : processInstance.getProcess().getVersion())));
-        counter.increment();
+        ProcessMeters processMeters = meters(processInstance);
+        processMeters.started.increment();
+        processMeters.inflight.incrementAndGet();
     }
 
     @Override
     public void afterProcessCompleted(ProcessCompletedEvent event) {
 
         final WorkflowProcessInstanceImpl processInstance = (WorkflowProcessInstanceImpl) event.getProcessInstance();
+        ProcessMeters processMeters = meters(processInstance);
 
-        Counter counter;
         if (processInstance.getState() == ProcessInstance.STATE_COMPLETED) {
-            //Displays total count of completed process instances
-            counter = registry.counter("automatiko.process.completed.count", Arrays.asList(
-                    Tag.of("application", application.orElse("")), Tag.of("version", version.orElse("")),
-                    Tag.of("processId", processInstance.getProcessId()),
-                    Tag.of("processVersion",
-                            processInstance.getProcess().getVersion() == null ? "unknown"
-                                    : processInstance.getProcess().getVersion())));
+            processMeters.completed.increment();
         } else {
-            //Displays total count of aborted process instances
-            counter = registry.counter("automatiko.process.aborted.count", Arrays.asList(
-                    Tag.of("application", application.orElse("")), Tag.of("version", version.orElse("")),
-                    Tag.of("processId", processInstance.getProcessId()),
-                    Tag.of("processVersion",
-                            processInstance.getProcess().getVersion() == null ? "unknown"
-                                    : processInstance.getProcess().getVersion())));
+            processMeters.aborted.increment();
         }
-
-        counter.increment();
+        processMeters.inflight.decrementAndGet();
 
         if (processInstance.getStartDate() != null) {
-            //Displays duration of process instances - from start to completion
-            Timer instanceDuration = registry.timer(
-                    "automatiko.process.instances.duration", Arrays.asList(Tag.of("application", application.orElse("")),
-                            Tag.of("version", version.orElse("")),
-                            Tag.of("processId", processInstance.getProcessId()),
-                            Tag.of("processVersion",
-                                    processInstance.getProcess().getVersion() == null ? "unknown"
-                                            : processInstance.getProcess().getVersion())));
-
             final long duration = millisToSeconds(
                     processInstance.getEndDate().getTime() - processInstance.getStartDate().getTime());
-            instanceDuration.record(Duration.ofSeconds(duration));
-
+            processMeters.duration.record(Duration.ofSeconds(duration));
         }
-
     }
 
     @Override
     public void afterNodeInstanceFailed(ProcessNodeInstanceFailedEvent event) {
 
         final WorkflowProcessInstanceImpl processInstance = (WorkflowProcessInstanceImpl) event.getProcessInstance();
+        ProcessMeters processMeters = meters(processInstance);
 
-        //Displays total count of process instances that failed during execution - failure of given node
-        Counter counter = registry.counter("automatiko.process.errored.count", Arrays.asList(
-                Tag.of("application", application.orElse("")), Tag.of("version", version.orElse("")),
-                Tag.of("processId", processInstance.getProcessId()),
-                Tag.of("processVersion",
-                        processInstance.getProcess().getVersion() == null ? "unknown"
-                                : processInstance.getProcess().getVersion()),
-                Tag.of("nodeName", event.getNodeInstance().getNodeName())));
-        counter.increment();
+        String nodeName = nonNull(event.getNodeInstance().getNodeName());
+        processMeters.errors.computeIfAbsent(nodeName,
+                name -> registry.counter("automatiko.process.errored.count", processMeters.tags("nodeName", name)))
+                .increment();
     }
 
     @Override
     public void afterProcessSignaled(ProcessSignaledEvent event) {
         final WorkflowProcessInstanceImpl processInstance = (WorkflowProcessInstanceImpl) event.getProcessInstance();
-        //Displays total count of process instance's signals
-        Counter counter = registry.counter("automatiko.process.signals.count", Arrays.asList(
-                Tag.of("application", application.orElse("")), Tag.of("version", version.orElse("")),
-                Tag.of("processId", processInstance.getProcessId()),
-                Tag.of("processVersion",
-                        processInstance.getProcess().getVersion() == null ? "unknown"
-                                : processInstance.getProcess().getVersion()),
-                Tag.of("signal", event.getSignal())));
-        counter.increment();
+        ProcessMeters processMeters = meters(processInstance);
+
+        processMeters.signals.computeIfAbsent(event.getSignal(),
+                signal -> registry.counter("automatiko.process.signals.count", processMeters.tags("signal", signal)))
+                .increment();
+    }
+
+    @Override
+    public void afterNodeLeft(ProcessNodeLeftEvent event) {
+        NodeInstance nodeInstance = event.getNodeInstance();
+        if (nodeInstance.getTriggerTime() == null || !sampled()) {
+            return;
+        }
+        final WorkflowProcessInstanceImpl processInstance = (WorkflowProcessInstanceImpl) event.getProcessInstance();
+        ProcessMeters processMeters = meters(processInstance);
+
+        String nodeName = nonNull(nodeInstance.getNodeName());
+        processMeters.nodes.computeIfAbsent(nodeName,
+                name -> Timer.builder("automatiko.process.node.duration")
+                        .description("Duration of node executions - from node being triggered until it is left")
+                        .tags(processMeters.tags("nodeName", name))
+                        .register(registry))
+                .record(System.currentTimeMillis() - nodeInstance.getTriggerTime().getTime(), TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void afterWorkItemTransition(ProcessWorkItemTransitionEvent event) {
+        WorkItem workItem = event.getWorkItem();
+        if (workItem == null || workItem.getStartDate() == null
+                || (workItem.getState() != WorkItem.COMPLETED && workItem.getState() != WorkItem.ABORTED) || !sampled()) {
+            return;
+        }
+        final WorkflowProcessInstanceImpl processInstance = (WorkflowProcessInstanceImpl) event.getProcessInstance();
+        ProcessMeters processMeters = meters(processInstance);
+
+        long end = workItem.getCompleteDate() == null ? System.currentTimeMillis() : workItem.getCompleteDate().getTime();
+        String name = nonNull(workItem.getName());
+        processMeters.workItems.computeIfAbsent(name,
+                n -> Timer.builder("automatiko.process.workitem.duration")
+                        .description("Duration of work items - from work item being created until it is completed or aborted")
+                        .tags(processMeters.tags("workItem", n))
+                        .publishPercentileHistogram()
+                        .register(registry))
+                .record(end - workItem.getStartDate().getTime(), TimeUnit.MILLISECONDS);
+    }
+
+    protected ProcessMeters meters(WorkflowProcessInstanceImpl processInstance) {
+        String processVersion = processInstance.getProcess().getVersion() == null ? "unknown"
+                : processInstance.getProcess().getVersion();
+        return meters.computeIfAbsent(processInstance.getProcessId() + ":" + processVersion,
+                key -> new ProcessMeters(processInstance.getProcessId(), processVersion));
+    }
+
+    protected boolean sampled() {
+        return MetricsSampler.sampled(samplingRate);
     }
 
     protected static long millisToSeconds(long millis) {
         return millis / 1000;
     }
+
+    protected static String nonNull(String value) {
+        return value == null ? "unknown" : value;
+    }
+
+    /**
+     * Meters of single process (id and version)
+     */
+    protected class ProcessMeters {
+
+        private final List<Tag> tags;
+
+        private final Counter started;
+        private final Counter completed;
+        private final Counter aborted;
+        private final Timer duration;
+        private final AtomicLong inflight = new AtomicLong();
+
+        private final Map<String, Counter> errors = new ConcurrentHashMap<>();
+        private final Map<String, Counter> signals = new ConcurrentHashMap<>();
+        private final Map<String, Timer> nodes = new ConcurrentHashMap<>();
+        private final Map<String, Timer> workItems = new ConcurrentHashMap<>();
+
+        ProcessMeters(String processId, String processVersion) {
+            this.tags = Arrays.asList(Tag.of("application", applicationName.orElse("")), Tag.of("version", version.orElse("")),
+                    Tag.of("processId", processId),
+                    Tag.of("processVersion", processVersion));
+
+            //"Total count of started process instances"
+            this.started = registry.counter("automatiko.process.started.count", tags);
+            //Displays total count of completed process instances
+            this.completed = registry.counter("automatiko.process.completed.count", tags);
+            //Displays total count of aborted process instances
+            this.aborted = registry.counter("automatiko.process.aborted.count", tags);
+            //Displays duration of process instances - from start to completion
+            this.duration = registry.timer("automatiko.process.instances.duration", tags);
+            //Displays number of process instances started and not yet completed or aborted as seen by this service
+            //instance (node) since it started, it is not derived from the data store so it is not shared across nodes
+            Gauge.builder("automatiko.process.instances.local.inflight", inflight, AtomicLong::get)
+                    .description("Process instances started and not yet completed or aborted on this service instance "
+                            + "since it started, not aggregated across service instances")
+                    .tags(tags)
+                    .register(registry);
+        }
+
+        List<Tag> tags(String name, String value) {
+            List<Tag> extended = new ArrayList<>(tags);
+            extended.add(Tag.of(name, value));
+            return extended;
+        }
+    }
 }
@@ -0,0 +1,107 @@
+package io.automatiko.engine.service.event;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.fasterxml.jackson.annotation.JsonAutoDetect.Visibility;
+import com.fasterxml.jackson.annotation.PropertyAccessor;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.automatiko.engine.api.event.DataEvent;
+import io.automatiko.engine.service.event.FileSystemEventOutbox.OutboxDataEvent;
+import io.automatiko.engine.services.event.ProcessInstanceDataEvent;
+import io.automatiko.engine.services.event.impl.ProcessInstanceEventBody;
+
+public class FileSystemEventOutboxTest {
+
+    @TempDir
+    Path location;
+
+    @Test
+    public void testEventsOfUnitOfWorkStoredTogether() throws IOException {
+        FileSystemEventOutbox outbox = new FileSystemEventOutbox(location.toString());
+        ProcessInstanceDataEvent first = event("first");
+        ProcessInstanceDataEvent second = event("second");
+
+        outbox.store(List.of(first, second));
+        assertEquals(1, files().size());
+
+        outbox.delete(List.of(first));
+        assertEquals(1, files().size());
+
+        outbox.delete(List.of(second));
+        assertTrue(files().isEmpty());
+    }
+
+    @Test
+    public void testPendingEventsRebuiltWithTheirType() throws IOException {
+        ProcessInstanceDataEvent event = event("first");
+        event.addExtension("atkprocessid", "orders");
+        new FileSystemEventOutbox(location.toString()).store(List.of(event));
+
+        FileSystemEventOutbox outbox = new FileSystemEventOutbox(location.toString());
+        List<DataEvent<?>> pending = (List<DataEvent<?>>) outbox.pending();
+        assertEquals(1, pending.size());
+        assertTrue(pending.get(0) instanceof ProcessInstanceDataEvent);
+
+        ProcessInstanceDataEvent rebuilt = (ProcessInstanceDataEvent) pending.get(0);
+        assertEquals(event.getId(), rebuilt.getId());
+        assertEquals(event.getTime(), rebuilt.getTime());
+        assertEquals(event.getSource(), rebuilt.getSource());
+        assertEquals(event.getType(), rebuilt.getType());
+        assertEquals("orders", rebuilt.getExtension("atkprocessid"));
+        assertEquals("first", rebuilt.getData().getId());
+        assertEquals("orders", rebuilt.getData().getProcessId());
+        assertEquals(1, rebuilt.getData().getNodeInstances().size());
+        assertEquals("start", rebuilt.getData().getNodeInstances().iterator().next().getNodeName());
+        assertEquals("value", rebuilt.getData().getVariables().get("name"));
+
+        outbox.delete(pending);
+        assertTrue(files().isEmpty());
+    }
+
+    @Test
+    public void testEventOfUnknownTypeKeptAsJson() throws IOException {
+        Files.write(location.resolve("0000000000000-000000001-test.json"),
+                ("[{\"eventType\":\"org.acme.MissingEvent\",\"event\":{\"id\":\"test\",\"type\":\"MissingEvent\","
+                        + "\"data\":{\"value\":1}}}]").getBytes(StandardCharsets.UTF_8));
+
+        FileSystemEventOutbox outbox = new FileSystemEventOutbox(location.toString());
+        List<DataEvent<?>> pending = (List<DataEvent<?>>) outbox.pending();
+        assertEquals(1, pending.size());
+        assertTrue(pending.get(0) instanceof OutboxDataEvent);
+        assertEquals("test", pending.get(0).getId());
+        assertEquals(1, ((OutboxDataEvent) pending.get(0)).getData().path("value").asInt());
+
+        outbox.delete(pending);
+        assertFalse(Files.exists(location.resolve("0000000000000-000000001-test.json")));
+    }
+
+    private ProcessInstanceDataEvent event(String id) throws IOException {
+        // builders of event bodies are not accessible outside of their package
+        ObjectMapper mapper = new ObjectMapper().setVisibility(PropertyAccessor.FIELD, Visibility.ANY);
+        ProcessInstanceEventBody body = mapper.readValue("{\"id\":\"" + id + "\",\"processId\":\"orders\",\"state\":1,"
+                + "\"nodeInstances\":[{\"id\":\"1\",\"nodeId\":\"1\",\"nodeName\":\"start\"}],"
+                + "\"variables\":{\"name\":\"value\"}}", ProcessInstanceEventBody.class);
+        return new ProcessInstanceDataEvent("http://localhost/orders", null, Collections.emptyMap(), body);
+    }
+
+    private List<Path> files() throws IOException {
+        try (Stream<Path> stream = Files.list(location)) {
+            return stream.collect(Collectors.toList());
+        }
+    }
+}
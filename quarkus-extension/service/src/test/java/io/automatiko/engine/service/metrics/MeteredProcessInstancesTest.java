@@ -0,0 +1,63 @@
+package io.automatiko.engine.service.metrics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+import java.util.Collections;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import io.automatiko.engine.api.workflow.MutableProcessInstances;
+import io.automatiko.engine.api.workflow.Process;
+import io.automatiko.engine.api.workflow.ProcessInstancesCache;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+@SuppressWarnings("unchecked")
+public class MeteredProcessInstancesTest {
+
+    private MeterRegistry registry;
+
+    private Process<Object> process;
+
+    @BeforeEach
+    public void setup() {
+        registry = new SimpleMeterRegistry();
+        process = mock(Process.class);
+        when(process.id()).thenReturn("orders");
+        when(process.version()).thenReturn("1");
+    }
+
+    @Test
+    public void testCacheStatisticsRegistered() {
+        MutableProcessInstances<Object> instances = mock(MutableProcessInstances.class,
+                withSettings().extraInterfaces(ProcessInstancesCache.class));
+        ProcessInstancesCache cache = (ProcessInstancesCache) instances;
+        when(cache.hits()).thenReturn(7L);
+        when(cache.misses()).thenReturn(3L);
+        when(cache.evictions()).thenReturn(2L);
+        when(cache.cached()).thenReturn(5);
+
+        new MeteredProcessInstances<>(process, instances, registry, Collections.emptyList(), 1.0);
+
+        assertEquals(7.0, registry.get("automatiko.process.persistence.cache").tag("processId", "orders")
+                .tag("result", "hit").functionCounter().count());
+        assertEquals(3.0, registry.get("automatiko.process.persistence.cache").tag("result", "miss")
+                .functionCounter().count());
+        assertEquals(2.0, registry.get("automatiko.process.persistence.cache.evictions").functionCounter().count());
+        assertEquals(5.0, registry.get("automatiko.process.persistence.cache.size").gauge().value());
+    }
+
+    @Test
+    public void testCacheStatisticsNotRegisteredWithoutCache() {
+        new MeteredProcessInstances<>(process, mock(MutableProcessInstances.class), registry, Collections.emptyList(),
+                1.0);
+
+        assertNull(registry.find("automatiko.process.persistence.cache").functionCounter());
+        assertNull(registry.find("automatiko.process.persistence.cache.size").gauge());
+    }
+}
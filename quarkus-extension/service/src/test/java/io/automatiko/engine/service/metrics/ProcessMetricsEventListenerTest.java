@@ -0,0 +1,113 @@
+package io.automatiko.engine.service.metrics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.Date;
+import java.util.Optional;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import io.automatiko.engine.api.runtime.process.NodeInstance;
+import io.automatiko.engine.api.workflow.ProcessInstance;
+import io.automatiko.engine.workflow.base.core.event.ProcessCompletedEventImpl;
+import io.automatiko.engine.workflow.base.core.event.ProcessNodeLeftEventImpl;
+import io.automatiko.engine.workflow.base.core.event.ProcessSignaledEventImpl;
+import io.automatiko.engine.workflow.base.core.event.ProcessStartedEventImpl;
+import io.automatiko.engine.workflow.process.executable.core.ExecutableProcess;
+import io.automatiko.engine.workflow.process.executable.instance.ExecutableProcessInstance;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class ProcessMetricsEventListenerTest {
+
+    private MeterRegistry registry;
+
+    private ProcessMetricsEventListener listener;
+
+    @BeforeEach
+    public void setUp() {
+        registry = new SimpleMeterRegistry();
+        listener = new ProcessMetricsEventListener();
+        listener.registry = registry;
+        listener.applicationName = Optional.of("orders-service");
+        listener.version = Optional.of("1.0");
+        listener.samplingRate = 1.0;
+    }
+
+    @Test
+    public void testInstancesCountedPerProcessVersion() {
+        ExecutableProcessInstance first = instance("1", "1.0");
+        ExecutableProcessInstance second = instance("2", "1.0");
+        ExecutableProcessInstance other = instance("3", "2.0");
+
+        listener.afterProcessStarted(new ProcessStartedEventImpl(first, null));
+        listener.afterProcessStarted(new ProcessStartedEventImpl(second, null));
+        listener.afterProcessStarted(new ProcessStartedEventImpl(other, null));
+
+        assertEquals(2, registry.get("automatiko.process.started.count").tag("processVersion", "1.0").counter().count());
+        assertEquals(1, registry.get("automatiko.process.started.count").tag("processVersion", "2.0").counter().count());
+        assertEquals(2, registry.get("automatiko.process.instances.local.inflight").tag("processVersion", "1.0").gauge()
+                .value());
+
+        first.internalSetState(ProcessInstance.STATE_COMPLETED);
+        first.setEndDate(new Date());
+        listener.afterProcessCompleted(new ProcessCompletedEventImpl(first, null));
+        second.internalSetState(ProcessInstance.STATE_ABORTED);
+        second.setEndDate(new Date());
+        listener.afterProcessCompleted(new ProcessCompletedEventImpl(second, null));
+
+        assertEquals(1, registry.get("automatiko.process.completed.count").tag("processVersion", "1.0").counter().count());
+        assertEquals(1, registry.get("automatiko.process.aborted.count").tag("processVersion", "1.0").counter().count());
+        assertEquals(2, registry.get("automatiko.process.instances.duration").tag("processVersion", "1.0").timer().count());
+        assertEquals(0, registry.get("automatiko.process.instances.local.inflight").tag("processVersion", "1.0").gauge()
+                .value());
+        assertEquals(1, registry.get("automatiko.process.instances.local.inflight").tag("processVersion", "2.0").gauge()
+                .value());
+    }
+
+    @Test
+    public void testMetersReused() {
+        ExecutableProcessInstance instance = instance("1", "1.0");
+
+        listener.afterProcessSignaled(new ProcessSignaledEventImpl("approve", null, instance, null));
+        listener.afterProcessSignaled(new ProcessSignaledEventImpl("approve", null, instance, null));
+
+        assertSame(listener.meters(instance), listener.meters(instance));
+        assertEquals(1, registry.find("automatiko.process.signals.count").counters().size());
+        assertEquals(2, registry.get("automatiko.process.signals.count").tag("signal", "approve").counter().count());
+    }
+
+    @Test
+    public void testNodesTimedOnlyWhenSampled() {
+        ExecutableProcessInstance instance = instance("1", "1.0");
+        NodeInstance nodeInstance = mock(NodeInstance.class);
+        when(nodeInstance.getProcessInstance()).thenReturn(instance);
+        when(nodeInstance.getNodeName()).thenReturn("review");
+        when(nodeInstance.getTriggerTime()).thenReturn(new Date(System.currentTimeMillis() - 1000));
+
+        listener.samplingRate = 0.0;
+        listener.afterNodeLeft(new ProcessNodeLeftEventImpl(nodeInstance, null));
+        assertNull(registry.find("automatiko.process.node.duration").timer());
+
+        listener.samplingRate = 1.0;
+        listener.afterNodeLeft(new ProcessNodeLeftEventImpl(nodeInstance, null));
+        assertEquals(1, registry.get("automatiko.process.node.duration").tag("nodeName", "review").timer().count());
+    }
+
+    private ExecutableProcessInstance instance(String id, String version) {
+        ExecutableProcess process = new ExecutableProcess();
+        process.setId("orders");
+        process.setVersion(version);
+
+        ExecutableProcessInstance instance = new ExecutableProcessInstance();
+        instance.setId(id);
+        instance.setProcess(process);
+        instance.setStartDate(new Date());
+        return instance;
+    }
+}
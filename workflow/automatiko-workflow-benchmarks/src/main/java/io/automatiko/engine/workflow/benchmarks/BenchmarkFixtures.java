@@ -0,0 +1,115 @@
+package io.automatiko.engine.workflow.benchmarks;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.automatiko.engine.services.io.ClassPathResource;
+import io.automatiko.engine.workflow.bpmn2.BpmnProcess;
+import io.automatiko.engine.workflow.serverless.ServerlessProcess;
+
+/**
+ * Workflow definitions and data used by benchmarks, all of them are located in <code>benchmarks</code> folder
+ * on class path.
+ */
+public final class BenchmarkFixtures {
+
+    /**
+     * Sequence of script tasks without any wait states
+     */
+    public static final String STRAIGHT_THROUGH = "straight-through";
+    /**
+     * Two sets of nested parallel gateways (split and join)
+     */
+    public static final String PARALLEL_GATEWAYS = "parallel-gateways";
+    /**
+     * Multi instance subprocess iterating over <code>items</code> process variable
+     */
+    public static final String FOR_EACH = "for-each";
+    /**
+     * Six levels of embedded subprocesses
+     */
+    public static final String DEEP_SUBPROCESS = "deep-subprocess";
+    /**
+     * Waits on intermediate catch event for signal named <code>go</code>
+     */
+    public static final String SIGNAL = "signal";
+    /**
+     * Serverless workflow using inject and switch states with jq expressions
+     */
+    public static final String ORDER_ROUTING = "order-routing";
+
+    /**
+     * Number of iterations of the for each fixture
+     */
+    public static final int FOR_EACH_ITERATIONS = 50;
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private BenchmarkFixtures() {
+
+    }
+
+    public static BpmnProcess bpmn(String name) {
+        BpmnProcess process = BpmnProcess.from(new ClassPathResource("benchmarks/" + name + ".bpmn2")).get(0);
+        process.activate();
+        return process;
+    }
+
+    public static ServerlessProcess serverless(String name) {
+        ServerlessProcess process = ServerlessProcess.from(new ClassPathResource("benchmarks/" + name + ".json")).get(0);
+        process.activate();
+        return process;
+    }
+
+    public static JsonNode json(String name) {
+        try (InputStream data = BenchmarkFixtures.class.getClassLoader()
+                .getResourceAsStream("benchmarks/" + name + ".json")) {
+            return MAPPER.readTree(data);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Unable to read json fixture " + name, e);
+        }
+    }
+
+    /**
+     * Builds input variables for given BPMN fixture
+     * 
+     * @param name name of the fixture
+     * @param items number of elements of the <code>items</code> variable (for fixtures that define it)
+     * @return map of variables to start instance with
+     */
+    public static Map<String, Object> variables(String name, int items) {
+        Map<String, Object> variables = new HashMap<>();
+        switch (name) {
+            case STRAIGHT_THROUGH:
+                variables.put("name", "john");
+                variables.put("amount", 100);
+                break;
+            case FOR_EACH:
+                variables.put("items", items(items));
+                break;
+            case SIGNAL:
+                variables.put("name", "john");
+                variables.put("items", items(items));
+                break;
+            default:
+                variables.put("name", "john");
+                break;
+        }
+        return variables;
+    }
+
+    public static List<String> items(int count) {
+        List<String> items = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            items.add("item-" + i);
+        }
+        return items;
+    }
+}
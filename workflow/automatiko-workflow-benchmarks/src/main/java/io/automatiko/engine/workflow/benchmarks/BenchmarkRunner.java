@@ -0,0 +1,29 @@
+package io.automatiko.engine.workflow.benchmarks;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Entry point for running workflow engine benchmarks. Accepts the same arguments as JMH command line
+ * (e.g. benchmark name patterns, <code>-prof gc</code>) and unless given explicitly writes results in JSON format
+ * to the location given by <code>benchmark.result</code> system property so they can be compared between releases.
+ */
+public class BenchmarkRunner {
+
+    public static void main(String[] args) throws Exception {
+        CommandLineOptions commandLine = new CommandLineOptions(args);
+
+        ChainedOptionsBuilder options = new OptionsBuilder().parent(commandLine);
+        if (!commandLine.getResultFormat().hasValue()) {
+            options.resultFormat(ResultFormatType.JSON);
+        }
+        if (!commandLine.getResult().hasValue()) {
+            options.result(System.getProperty("benchmark.result", "jmh-result.json"));
+        }
+
+        new Runner(options.build()).run();
+    }
+}
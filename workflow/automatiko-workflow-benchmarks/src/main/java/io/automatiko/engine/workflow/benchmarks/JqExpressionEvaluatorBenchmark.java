@@ -0,0 +1,60 @@
+package io.automatiko.engine.workflow.benchmarks;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import io.automatiko.engine.workflow.expression.JqExpressionEvaluator;
+import io.automatiko.engine.workflow.serverless.ServerlessProcess;
+
+/**
+ * Measures evaluation of jq expressions used by serverless workflows (conditions, data filters, arguments)
+ * against order fixture as workflow data.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = "-Dmvel2.disable.jit=true")
+@State(Scope.Benchmark)
+public class JqExpressionEvaluatorBenchmark {
+
+    @Param({ ".customer.name",
+            ".order.total > 1000 and .customer.tier == \"gold\"",
+            "[.order.lines[] | .quantity * .price] | add",
+            "{order: .order.id, city: .customer.address.city, skus: [.order.lines[].sku]}" })
+    public String expression;
+
+    private JqExpressionEvaluator evaluator;
+    private Map<String, Object> variables;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        ServerlessProcess process = BenchmarkFixtures.serverless(BenchmarkFixtures.ORDER_ROUTING);
+        evaluator = new JqExpressionEvaluator(process.process());
+
+        JsonNode data = BenchmarkFixtures.json("order");
+        variables = new HashMap<>();
+        variables.put("workflowdata", data);
+    }
+
+    @Benchmark
+    public Object evaluate() {
+        return evaluator.evaluate(expression, variables);
+    }
+}
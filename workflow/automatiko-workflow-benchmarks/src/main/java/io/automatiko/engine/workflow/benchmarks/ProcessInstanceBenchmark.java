@@ -0,0 +1,115 @@
+package io.automatiko.engine.workflow.benchmarks;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import io.automatiko.engine.api.workflow.ProcessInstance;
+import io.automatiko.engine.api.workflow.Signal;
+import io.automatiko.engine.workflow.Sig;
+import io.automatiko.engine.workflow.bpmn2.BpmnProcess;
+import io.automatiko.engine.workflow.bpmn2.BpmnVariables;
+import io.automatiko.engine.workflow.serverless.ServerlessModel;
+import io.automatiko.engine.workflow.serverless.ServerlessProcess;
+
+/**
+ * Measures public process instance API - <code>AbstractProcessInstance.start()</code> and
+ * <code>AbstractProcessInstance.send(Signal)</code> including locking, unit of work and in memory storage.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = "-Dmvel2.disable.jit=true")
+public class ProcessInstanceBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class BpmnStart {
+
+        @Param({ BenchmarkFixtures.STRAIGHT_THROUGH, BenchmarkFixtures.PARALLEL_GATEWAYS, BenchmarkFixtures.FOR_EACH,
+                BenchmarkFixtures.DEEP_SUBPROCESS })
+        public String fixture;
+
+        BpmnProcess process;
+        Map<String, Object> variables;
+
+        @Setup(Level.Trial)
+        public void setup() {
+            process = BenchmarkFixtures.bpmn(fixture);
+            variables = BenchmarkFixtures.variables(fixture, BenchmarkFixtures.FOR_EACH_ITERATIONS);
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class ServerlessStart {
+
+        ServerlessProcess process;
+        JsonNode data;
+
+        @Setup(Level.Trial)
+        public void setup() {
+            process = BenchmarkFixtures.serverless(BenchmarkFixtures.ORDER_ROUTING);
+            data = BenchmarkFixtures.json("order");
+        }
+    }
+
+    /**
+     * Each invocation needs a fresh instance waiting for the signal, the instance is created and started
+     * outside of the measured code.
+     */
+    @State(Scope.Thread)
+    public static class WaitingInstance {
+
+        BpmnProcess process;
+        Map<String, Object> variables;
+        Signal<String> signal = Sig.of("go", "payload");
+
+        ProcessInstance<BpmnVariables> instance;
+
+        @Setup(Level.Trial)
+        public void setup() {
+            process = BenchmarkFixtures.bpmn(BenchmarkFixtures.SIGNAL);
+            variables = BenchmarkFixtures.variables(BenchmarkFixtures.SIGNAL, 10);
+        }
+
+        @Setup(Level.Invocation)
+        public void startInstance() {
+            instance = process.createInstance(BpmnVariables.create(variables));
+            instance.start();
+        }
+    }
+
+    @Benchmark
+    public ProcessInstance<BpmnVariables> startBpmn(BpmnStart state) {
+        ProcessInstance<BpmnVariables> instance = state.process.createInstance(BpmnVariables.create(state.variables));
+        instance.start();
+        return instance;
+    }
+
+    @Benchmark
+    public ProcessInstance<ServerlessModel> startServerless(ServerlessStart state) {
+        ProcessInstance<ServerlessModel> instance = state.process.createInstance(ServerlessModel.from(state.data));
+        instance.start();
+        return instance;
+    }
+
+    @Benchmark
+    public ProcessInstance<BpmnVariables> send(WaitingInstance state) {
+        state.instance.send(state.signal);
+        return state.instance;
+    }
+}
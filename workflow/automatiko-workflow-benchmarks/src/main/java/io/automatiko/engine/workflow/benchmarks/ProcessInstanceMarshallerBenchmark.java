@@ -0,0 +1,78 @@
+package io.automatiko.engine.workflow.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import io.automatiko.engine.api.runtime.process.WorkflowProcessInstance;
+import io.automatiko.engine.api.workflow.ProcessInstance;
+import io.automatiko.engine.workflow.AbstractProcessInstance;
+import io.automatiko.engine.workflow.bpmn2.BpmnProcess;
+import io.automatiko.engine.workflow.bpmn2.BpmnVariables;
+import io.automatiko.engine.workflow.marshalling.ProcessInstanceMarshaller;
+
+/**
+ * Measures serialization of active process instance to its stored form and back, payload size is controlled by
+ * number of elements in the <code>items</code> variable. Run with <code>-prof gc</code> to see allocation per
+ * operation.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = "-Dmvel2.disable.jit=true")
+@State(Scope.Benchmark)
+public class ProcessInstanceMarshallerBenchmark {
+
+    @Param({ "1", "50", "500" })
+    public int items;
+
+    private BpmnProcess process;
+    private ProcessInstanceMarshaller marshaller;
+
+    private ProcessInstance<BpmnVariables> instance;
+    private WorkflowProcessInstance processInstance;
+    private byte[] marshalled;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        process = BenchmarkFixtures.bpmn(BenchmarkFixtures.SIGNAL);
+        marshaller = new ProcessInstanceMarshaller();
+
+        instance = process
+                .createInstance(BpmnVariables.create(BenchmarkFixtures.variables(BenchmarkFixtures.SIGNAL, items)));
+        instance.start();
+
+        processInstance = (WorkflowProcessInstance) ((AbstractProcessInstance<?>) instance).internalGetProcessInstance();
+        marshalled = marshaller.marhsallProcessInstance(processInstance);
+    }
+
+    @Benchmark
+    public byte[] marshall() {
+        return marshaller.marhsallProcessInstance(processInstance);
+    }
+
+    @Benchmark
+    public ProcessInstance<?> unmarshall() {
+        return marshaller.unmarshallReadOnlyProcessInstance(marshalled, process);
+    }
+
+    @Benchmark
+    public ProcessInstance<?> unmarshallMutable() {
+        ProcessInstance<?> instance = marshaller.unmarshallProcessInstance(marshalled, process, 1);
+        // release the runtime resources the same way persistence stores do once unit of work is done
+        ((AbstractProcessInstance<?>) instance).internalRemoveProcessInstance(() -> null);
+        return instance;
+    }
+}
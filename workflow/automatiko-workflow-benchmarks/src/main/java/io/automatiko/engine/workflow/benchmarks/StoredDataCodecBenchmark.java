@@ -0,0 +1,65 @@
+package io.automatiko.engine.workflow.benchmarks;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import io.automatiko.engine.api.workflow.encrypt.AESGCMStoredDataCodec;
+
+/**
+ * Measures throughput of encryption of stored data with AES GCM codec that is shared by all benchmark threads, run
+ * with different number of threads (e.g. <code>-t 1</code> and <code>-t 8</code>) to see how it scales across cores.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2)
+@State(Scope.Benchmark)
+public class StoredDataCodecBenchmark {
+
+    @Param({ "1024", "65536" })
+    public int size;
+
+    private AESGCMStoredDataCodec codec;
+
+    private byte[] data;
+    private byte[] encoded;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        codec = new AESGCMStoredDataCodec("benchmark", "0123456789abcdef".getBytes());
+
+        data = new byte[size];
+        new Random(0).nextBytes(data);
+        encoded = codec.encode(data);
+    }
+
+    @Benchmark
+    public byte[] encode() {
+        return codec.encode(data);
+    }
+
+    @Benchmark
+    public ByteBuffer encodeBuffer() {
+        return codec.encode(ByteBuffer.wrap(data));
+    }
+
+    @Benchmark
+    public byte[] decode() {
+        return codec.decode(encoded);
+    }
+}
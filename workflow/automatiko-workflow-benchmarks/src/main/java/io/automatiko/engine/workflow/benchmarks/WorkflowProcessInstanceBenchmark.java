@@ -0,0 +1,74 @@
+package io.automatiko.engine.workflow.benchmarks;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import io.automatiko.engine.api.workflow.ProcessInstance;
+import io.automatiko.engine.workflow.AbstractProcessInstance;
+import io.automatiko.engine.workflow.bpmn2.BpmnProcess;
+import io.automatiko.engine.workflow.bpmn2.BpmnVariables;
+import io.automatiko.engine.workflow.process.core.Node;
+import io.automatiko.engine.workflow.process.instance.impl.NodeInstanceImpl;
+import io.automatiko.engine.workflow.process.instance.impl.WorkflowProcessInstanceImpl;
+
+/**
+ * Measures engine internals without the process instance API on top of it - signal delivery via
+ * <code>WorkflowProcessInstanceImpl.signalEvent</code> and continuation of the flow via
+ * <code>NodeInstanceImpl.triggerCompleted</code>.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = "-Dmvel2.disable.jit=true")
+public class WorkflowProcessInstanceBenchmark {
+
+    @State(Scope.Thread)
+    public static class WaitingInstance {
+
+        BpmnProcess process;
+        Map<String, Object> variables;
+
+        WorkflowProcessInstanceImpl processInstance;
+        NodeInstanceImpl waitingNodeInstance;
+
+        @Setup(Level.Trial)
+        public void setup() {
+            process = BenchmarkFixtures.bpmn(BenchmarkFixtures.SIGNAL);
+            variables = BenchmarkFixtures.variables(BenchmarkFixtures.SIGNAL, 10);
+        }
+
+        @Setup(Level.Invocation)
+        public void startInstance() {
+            ProcessInstance<BpmnVariables> instance = process.createInstance(BpmnVariables.create(variables));
+            instance.start();
+
+            processInstance = (WorkflowProcessInstanceImpl) ((AbstractProcessInstance<?>) instance).internalGetProcessInstance();
+            waitingNodeInstance = (NodeInstanceImpl) processInstance.getNodeInstances().iterator().next();
+        }
+    }
+
+    @Benchmark
+    public WorkflowProcessInstanceImpl signalEvent(WaitingInstance state) {
+        state.processInstance.signalEvent("go", "payload");
+        return state.processInstance;
+    }
+
+    @Benchmark
+    public WorkflowProcessInstanceImpl triggerCompleted(WaitingInstance state) {
+        state.waitingNodeInstance.triggerCompleted(Node.CONNECTION_DEFAULT_TYPE, true);
+        return state.processInstance;
+    }
+}
@@ -178,6 +178,8 @@ public class ModelMetaData {
             modelClass.addAnnotation(new NormalAnnotationExpr(new Name("javax.persistence.Entity"),
                     NodeList.nodeList(new MemberValuePair("name",
                             new StringLiteralExpr(camelToSnake(processId.toUpperCase() + version(version).toUpperCase()))))));
+            // variables are mapped to columns so update only those that have changed together with instance content
+            modelClass.addAnnotation("org.hibernate.annotations.DynamicUpdate");
 
             modelClass.findAll(FieldDeclaration.class, fd -> fd.getVariable(0).getNameAsString().equals("metadata"))
                     .forEach(fd -> fd.addAnnotation("javax.persistence.Transient"));
@@ -3,14 +3,20 @@ package io.automatiko.engine.workflow;
 
 import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import io.automatiko.engine.api.Model;
 import io.automatiko.engine.api.auth.AccessPolicy;
+import io.automatiko.engine.api.auth.IdentityProvider;
 import io.automatiko.engine.api.jobs.DurationExpirationTime;
 import io.automatiko.engine.api.jobs.ExactExpirationTime;
 import io.automatiko.engine.api.jobs.ExpirationTime;
@@ -21,6 +27,7 @@ import io.automatiko.engine.api.runtime.process.WorkflowProcessInstance;
 import io.automatiko.engine.api.uow.UnitOfWork;
 import io.automatiko.engine.api.workflow.ArchiveBuilder;
 import io.automatiko.engine.api.workflow.ArchivedProcessInstance;
+import io.automatiko.engine.api.workflow.BulkOperationException;
 import io.automatiko.engine.api.workflow.EndOfInstanceStrategy;
 import io.automatiko.engine.api.workflow.ExportedProcessInstance;
 import io.automatiko.engine.api.workflow.MutableProcessInstances;
@@ -32,8 +39,11 @@ import io.automatiko.engine.api.workflow.ProcessInstances;
 import io.automatiko.engine.api.workflow.ProcessInstancesFactory;
 import io.automatiko.engine.api.workflow.Signal;
 import io.automatiko.engine.api.workflow.workitem.WorkItemExecutionError;
+import io.automatiko.engine.services.execution.PartitionedBatchExecutor;
 import io.automatiko.engine.services.signal.EventListenerResolver;
 import io.automatiko.engine.services.signal.LightSignalManager;
+import io.automatiko.engine.services.uow.DefaultUnitOfWorkManager;
+import io.automatiko.engine.services.uow.UnitOfWorkExecutor;
 import io.automatiko.engine.workflow.auth.AccessPolicyFactory;
 import io.automatiko.engine.workflow.auth.AllowAllAccessPolicy;
 import io.automatiko.engine.workflow.base.core.timer.CronExpirationTime;
@@ -68,6 +78,8 @@ public abstract class AbstractProcess<T extends Model> implements Process<T> {
 
     protected EndOfInstanceStrategy endOfInstanceStrategy = new RemoveEndOfInstanceStrategy();
 
+    protected PartitionedBatchExecutor bulkExecutor;
+
     protected AbstractProcess() {
         this(new LightProcessRuntimeServiceProvider());
     }
@@ -146,6 +158,114 @@ public abstract class AbstractProcess<T extends Model> implements Process<T> {
         instances().values(ProcessInstanceReadMode.MUTABLE, 1, 10).forEach(pi -> pi.send(signal));
     }
 
+    @Override
+    public List<String> createInstances(Stream<T> models, int chunkSize) {
+        return bulk(models, chunkSize, chunk -> {
+            List<String> ids = new ArrayList<>(chunk.size());
+            for (T model : chunk) {
+                ProcessInstance<T> pi = createInstance(model);
+                pi.start();
+                ids.add(pi.id());
+            }
+            return ids;
+        });
+    }
+
+    @Override
+    public <S> int signalAll(Signal<S> signal, String... idsOrTags) {
+        Collection<String> ids = instances().locateByIdOrTag(ProcessInstance.STATE_ACTIVE, idsOrTags);
+
+        return bulk(ids.stream(), DEFAULT_BULK_CHUNK_SIZE, chunk -> {
+            // single look up of all instances of the chunk
+            Collection<? extends ProcessInstance<T>> found = instances().findByIdOrTag(
+                    ProcessInstanceReadMode.MUTABLE_WITH_LOCK, ProcessInstance.STATE_ACTIVE,
+                    chunk.toArray(String[]::new));
+            found.forEach(pi -> pi.send(signal));
+            return Collections.singletonList(found.size());
+        }).stream().mapToInt(Integer::intValue).sum();
+    }
+
+    /**
+     * Splits given items into chunks and handles every chunk in its own unit of work, chunks are handled in parallel
+     * by bulk executor. Items are read in windows (of as many chunks as the executor handles at the same time) so the
+     * stream of items is never fully loaded in memory. Failure of a chunk does not stop the others, once all chunks
+     * are handled {@link BulkOperationException} with outcome of every chunk is thrown.
+     *
+     * @param items items to be handled
+     * @param chunkSize maximum number of items in single chunk
+     * @param handler handler of single chunk that returns results of its items
+     * @return results of all chunks in the order of the items
+     */
+    protected <I, R> List<R> bulk(Stream<I> items, int chunkSize, Function<List<I>, List<R>> handler) {
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("Chunk size must be greater than zero");
+        }
+        PartitionedBatchExecutor executor = bulkExecutor();
+        IdentityProvider identity = IdentityProvider.isSet() ? IdentityProvider.get() : null;
+        UnitOfWork current = DefaultUnitOfWorkManager.getUnitOfWork();
+        Thread caller = Thread.currentThread();
+
+        List<BulkChunk<I, R>> chunks = new ArrayList<>();
+        Iterator<I> iterator = items.iterator();
+        int offset = 0;
+        try {
+            while (iterator.hasNext()) {
+                List<BulkChunk<I, R>> window = new ArrayList<>();
+                while (iterator.hasNext() && window.size() < executor.partitions()) {
+                    List<I> chunk = new ArrayList<>(chunkSize);
+                    while (iterator.hasNext() && chunk.size() < chunkSize) {
+                        chunk.add(iterator.next());
+                    }
+                    window.add(new BulkChunk<>(window.size(), offset, chunk));
+                    offset += chunk.size();
+                }
+
+                executor.execute(window, chunk -> String.valueOf(chunk.index), partition -> {
+                    for (BulkChunk<I, R> chunk : partition) {
+                        // each chunk runs in its own unit of work, regardless of the one caller is running in
+                        DefaultUnitOfWorkManager.setUnitOfWork(null);
+                        IdentityProvider.set(identity);
+                        try {
+                            chunk.results = UnitOfWorkExecutor.executeInUnitOfWork(services.getUnitOfWorkManager(),
+                                    () -> handler.apply(chunk.items));
+                        } catch (RuntimeException e) {
+                            chunk.error = e;
+                        } finally {
+                            if (Thread.currentThread() == caller) {
+                                DefaultUnitOfWorkManager.setUnitOfWork(current);
+                                IdentityProvider.set(identity);
+                            } else {
+                                // threads of the executor are reused so they must not keep state of this operation
+                                DefaultUnitOfWorkManager.setUnitOfWork(null);
+                                IdentityProvider.set(null);
+                            }
+                        }
+                    }
+                });
+                chunks.addAll(window);
+            }
+        } finally {
+            DefaultUnitOfWorkManager.setUnitOfWork(current);
+            IdentityProvider.set(identity);
+        }
+        if (chunks.stream().anyMatch(chunk -> chunk.error != null)) {
+            throw new BulkOperationException(chunks.stream()
+                    .map(chunk -> new BulkOperationException.ChunkOutcome(chunk.offset, chunk.items.size(), chunk.results,
+                            chunk.error))
+                    .collect(Collectors.toList()));
+        }
+        List<R> results = new ArrayList<>();
+        chunks.forEach(chunk -> results.addAll(chunk.results));
+        return results;
+    }
+
+    protected synchronized PartitionedBatchExecutor bulkExecutor() {
+        if (bulkExecutor == null) {
+            bulkExecutor = new PartitionedBatchExecutor(id(), Runtime.getRuntime().availableProcessors());
+        }
+        return bulkExecutor;
+    }
+
     public Process<T> configure() {
         if (this.services.getSignalManager() instanceof LightSignalManager) {
             ((LightSignalManager) this.services.getSignalManager()).setInstanceResolver(new ProcessEventListenerResolver());
@@ -153,7 +273,8 @@ public abstract class AbstractProcess<T extends Model> implements Process<T> {
         this.accessPolicy = AccessPolicyFactory.newPolicy((String) process().getMetaData().get("accessPolicy"));
         registerListeners();
         if (isProcessFactorySet()) {
-            this.instances = (MutableProcessInstances<T>) processInstancesFactory.createProcessInstances(this);
+            this.instances = (MutableProcessInstances<T>) processInstancesFactory.decorate(this,
+                    processInstancesFactory.createProcessInstances(this));
         }
 
         return this;
@@ -190,6 +311,12 @@ public abstract class AbstractProcess<T extends Model> implements Process<T> {
         for (String startTimerId : startTimerInstances) {
             this.processRuntime.getJobsService().cancelJob(startTimerId);
         }
+        synchronized (this) {
+            if (bulkExecutor != null) {
+                bulkExecutor.close();
+                bulkExecutor = null;
+            }
+        }
         this.activated = false;
     }
 
@@ -340,4 +467,23 @@ public abstract class AbstractProcess<T extends Model> implements Process<T> {
         }
 
     }
+
+    private static class BulkChunk<I, R> {
+
+        private final int index;
+
+        private final int offset;
+
+        private final List<I> items;
+
+        private List<R> results = Collections.emptyList();
+
+        private RuntimeException error;
+
+        BulkChunk(int index, int offset, List<I> items) {
+            this.index = index;
+            this.offset = offset;
+            this.items = items;
+        }
+    }
 }
@@ -59,6 +59,7 @@ import io.automatiko.engine.services.correlation.StringCorrelationKey;
 import io.automatiko.engine.services.uow.ProcessInstanceWorkUnit;
 import io.automatiko.engine.workflow.base.core.timer.DateTimeUtils;
 import io.automatiko.engine.workflow.base.instance.InternalProcessRuntime;
+import io.automatiko.engine.workflow.lock.InstanceLock;
 import io.automatiko.engine.workflow.lock.UnlockWorkUnit;
 import io.automatiko.engine.workflow.process.core.node.EventSubProcessNode;
 import io.automatiko.engine.workflow.process.core.node.SubProcessNode;
@@ -1204,7 +1205,11 @@ public abstract class AbstractProcessInstance<T extends Model> implements Proces
         }
         LOGGER.debug("Locking instance {}  ({}) on thread {} lock {}", id, businessKey(), Thread.currentThread().getName(),
                 lock);
-        lock.lock();
+        if (lock instanceof InstanceLock) {
+            lock = process.locks().acquire(((InstanceLock) lock).id());
+        } else {
+            lock.lock();
+        }
         LOGGER.debug("Locked instance {} ({}) on thread {} lock {}", id(), businessKey(), Thread.currentThread().getName(),
                 lock);
     }
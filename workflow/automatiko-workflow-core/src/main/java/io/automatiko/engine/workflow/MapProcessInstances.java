@@ -3,10 +3,15 @@ package io.automatiko.engine.workflow;
 
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.List;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.Optional;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import io.automatiko.engine.api.auth.IdentityProvider;
 import io.automatiko.engine.api.uow.TransactionLog;
@@ -23,6 +28,14 @@ public class MapProcessInstances implements MutableProcessInstances {
 
     private final ConcurrentHashMap<String, ProcessInstance> instances = new ConcurrentHashMap<>();
 
+    // secondary indexes pointing to keys of the instances map, refreshed from the stored instance on create, update
+    // and remove. Stored instances are live objects that change their status and tags in place before they are
+    // updated so indexes only provide candidates that are always verified against the live instance
+    private final ConcurrentHashMap<String, IndexedValues> indexed = new ConcurrentHashMap<>();
+    private final Index<String> ids = new Index<>();
+    private final Index<String> tags = new Index<>();
+    private final Index<Integer> statuses = new Index<>();
+
     private final ProcessInstanceMarshaller marshaller = new ProcessInstanceMarshaller();
 
     @Override
@@ -45,12 +58,10 @@ public class MapProcessInstances implements MutableProcessInstances {
                 return Optional.ofNullable(instance);
             }
         }
-        if (resolvedId.contains(":")) {
-            if (instances.containsKey(resolvedId.split(":")[1])) {
-                ProcessInstance pi = instances.get(resolvedId.split(":")[1]);
-                if (pi.status() == status) {
-                    return Optional.of(pi);
-                }
+        if (resolvedId.contains(SEPARATOR)) {
+            ProcessInstance pi = instances.get(resolvedId.split(SEPARATOR)[1]);
+            if (pi != null && pi.status() == status) {
+                return Optional.of(pi);
             }
         }
         return Optional.empty();
@@ -58,8 +69,13 @@ public class MapProcessInstances implements MutableProcessInstances {
 
     @Override
     public Collection<ProcessInstance> values(ProcessInstanceReadMode mode, int status, int page, int size) {
-        return instances.values().stream()
-                .filter(pi -> pi.status() == status)
+        // instances indexed with requested status come first, others are checked only when the page is not filled
+        // from the index as their live status might have changed since they were stored
+        Set<String> indexedWithStatus = statuses.get(status);
+        return Stream.concat(indexedWithStatus.stream(),
+                instances.keySet().stream().filter(key -> !indexedWithStatus.contains(key)))
+                .map(instances::get)
+                .filter(pi -> pi != null && pi.status() == status)
                 .filter(pi -> pi.process().accessPolicy().canReadInstance(IdentityProvider.get(), pi))
                 .skip(calculatePage(page, size))
                 .limit(size)
@@ -69,24 +85,32 @@ public class MapProcessInstances implements MutableProcessInstances {
     @Override
     public void create(String id, ProcessInstance instance) {
         if (isActive(instance)) {
-            ProcessInstance existing = instances.putIfAbsent(resolveId(id, instance), instance);
-            if (existing != null) {
-                throw new ProcessInstanceDuplicatedException(id);
-            }
+            instances.compute(resolveId(id, instance), (key, existing) -> {
+                if (existing != null) {
+                    throw new ProcessInstanceDuplicatedException(id);
+                }
+                index(key, instance);
+                return instance;
+            });
         }
     }
 
     @Override
     public void update(String id, ProcessInstance instance) {
-        String resolvedId = resolveId(id, instance);
-        if (isActive(instance) && instances.containsKey(resolvedId)) {
-            instances.put(resolvedId, instance);
+        if (isActive(instance)) {
+            instances.computeIfPresent(resolveId(id, instance), (key, pi) -> {
+                index(key, instance);
+                return instance;
+            });
         }
     }
 
     @Override
     public void remove(String id, ProcessInstance instance) {
-        instances.remove(resolveId(id, instance));
+        instances.computeIfPresent(resolveId(id, instance), (key, pi) -> {
+            unindex(key);
+            return null;
+        });
     }
 
     @Override
@@ -96,16 +120,13 @@ public class MapProcessInstances implements MutableProcessInstances {
 
     @Override
     public Collection<? extends ProcessInstance> findByIdOrTag(ProcessInstanceReadMode mode, int status, String... values) {
-        List<ProcessInstance> collected = new ArrayList<>();
+        Set<ProcessInstance> collected = new LinkedHashSet<>();
         for (String idOrTag : values) {
-
-            instances.values().stream()
-                    .filter(pi -> pi.id().equals(resolveId(idOrTag)) || pi.tags().values().contains(idOrTag))
-                    .filter(pi -> pi.status() == status)
-                    .filter(pi -> pi.process().accessPolicy().canReadInstance(IdentityProvider.get(), pi))
-                    .forEach(pi -> collected.add(pi));
+            String resolvedId = resolveId(idOrTag);
+            collect(ids.get(resolvedId), status, pi -> pi.id().equals(resolvedId), collected);
+            collect(tags.get(idOrTag), status, pi -> pi.tags().values().contains(idOrTag), collected);
         }
-        return collected;
+        return new ArrayList<>(collected);
     }
 
     @Override
@@ -140,4 +161,83 @@ public class MapProcessInstances implements MutableProcessInstances {
                 .collect(Collectors.toSet());
     }
 
+    protected void collect(Collection<String> keys, int status, Predicate<ProcessInstance> matches,
+            Collection<ProcessInstance> collected) {
+        for (String key : keys) {
+            ProcessInstance pi = instances.get(key);
+            if (pi != null && pi.status() == status && matches.test(pi)
+                    && pi.process().accessPolicy().canReadInstance(IdentityProvider.get(), pi)) {
+                collected.add(pi);
+            }
+        }
+    }
+
+    protected void index(String key, ProcessInstance instance) {
+        IndexedValues values = new IndexedValues(instance);
+        IndexedValues previous = indexed.put(key, values);
+        if (previous != null) {
+            previous.removeFrom(this, key);
+        }
+        values.addTo(this, key);
+    }
+
+    protected void unindex(String key) {
+        IndexedValues previous = indexed.remove(key);
+        if (previous != null) {
+            previous.removeFrom(this, key);
+        }
+    }
+
+    /**
+     * Snapshot of indexed values of an instance at the time it was stored, used to clean up the indexes
+     * as instances change between updates.
+     */
+    private static class IndexedValues {
+
+        private final String id;
+        private final int status;
+        private final Set<String> tags;
+
+        IndexedValues(ProcessInstance instance) {
+            this.id = instance.id();
+            this.status = instance.status();
+            this.tags = new HashSet<>(instance.tags().values());
+        }
+
+        void addTo(MapProcessInstances store, String key) {
+            store.ids.add(id, key);
+            store.statuses.add(status, key);
+            tags.forEach(tag -> store.tags.add(tag, key));
+        }
+
+        void removeFrom(MapProcessInstances store, String key) {
+            store.ids.remove(id, key);
+            store.statuses.remove(status, key);
+            tags.forEach(tag -> store.tags.remove(tag, key));
+        }
+    }
+
+    private static class Index<K> {
+
+        private final ConcurrentHashMap<K, Set<String>> entries = new ConcurrentHashMap<>();
+
+        void add(K value, String key) {
+            if (value != null) {
+                entries.computeIfAbsent(value, v -> ConcurrentHashMap.newKeySet()).add(key);
+            }
+        }
+
+        void remove(K value, String key) {
+            if (value != null) {
+                entries.computeIfPresent(value, (v, keys) -> {
+                    keys.remove(key);
+                    return keys.isEmpty() ? null : keys;
+                });
+            }
+        }
+
+        Set<String> get(K value) {
+            return entries.getOrDefault(value, Collections.emptySet());
+        }
+    }
 }
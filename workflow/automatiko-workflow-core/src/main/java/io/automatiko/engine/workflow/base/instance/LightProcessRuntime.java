@@ -73,7 +73,7 @@ public class LightProcessRuntime implements InternalProcessRuntime {
         this.variableInitializer = services.getVariableInitializer();
         this.processInstanceManager = new DefaultProcessInstanceManager();
         this.signalManager = services.getSignalManager();
-        this.jobService = services.getJobsService() == null ? new InMemoryJobService(this, this.unitOfWorkManager)
+        this.jobService = services.getJobsService() == null ? InMemoryJobService.create(this, this.unitOfWorkManager)
                 : services.getJobsService();
         this.processEventSupport = services.getEventSupport();
         this.workItemManager = services.getWorkItemManager();
@@ -59,7 +59,7 @@ public class ProcessRuntimeImpl implements InternalProcessRuntime {
         initProcessInstanceManager();
         initSignalManager();
         unitOfWorkManager = new DefaultUnitOfWorkManager(new CollectingUnitOfWorkFactory());
-        jobService = new InMemoryJobService(this, unitOfWorkManager);
+        jobService = InMemoryJobService.create(this, unitOfWorkManager);
         processEventSupport = new ProcessEventSupport(unitOfWorkManager);
         workItemManager = new DefaultWorkItemManager(this);
         initProcessEventListeners();
@@ -32,6 +32,7 @@ public class VariableScopeInstance extends AbstractContextInstance {
     private Map<String, Object> variables = new HashMap<String, Object>();
     private transient String variableIdPrefix = null;
     private transient String variableInstanceIdPrefix = null;
+    private transient Map<String, byte[]> storedVariableDigests = null;
 
     public String getContextType() {
         return VariableScope.VARIABLE_SCOPE;
@@ -205,6 +206,18 @@ public class VariableScopeInstance extends AbstractContextInstance {
         return this.variables.get(name);
     }
 
+    /**
+     * Returns digests of variables as they were last read from the data store, used to find out which variables
+     * have changed since then. Returns <code>null</code> when changes are not tracked.
+     */
+    public Map<String, byte[]> internalGetStoredVariableDigests() {
+        return storedVariableDigests;
+    }
+
+    public void internalSetStoredVariableDigests(Map<String, byte[]> storedVariableDigests) {
+        this.storedVariableDigests = storedVariableDigests;
+    }
+
     public VariableScope getVariableScope() {
         return (VariableScope) getContext();
     }
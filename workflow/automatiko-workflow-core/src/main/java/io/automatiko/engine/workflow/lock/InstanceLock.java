@@ -0,0 +1,31 @@
+package io.automatiko.engine.workflow.lock;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Reentrant lock handed out by {@link LockManager} for given business key. Keeps track of number of
+ * threads that are holding or waiting for it so it can be evicted from the manager once it becomes idle.
+ */
+public class InstanceLock extends ReentrantLock {
+
+    private static final long serialVersionUID = 5369451393431416214L;
+
+    private final String id;
+
+    // guarded by the lock manager's map entry for the id
+    int references;
+
+    InstanceLock(String id, boolean fair) {
+        super(fair);
+        this.id = id;
+    }
+
+    public String id() {
+        return id;
+    }
+
+    @Override
+    public String toString() {
+        return super.toString() + "[id=" + id + "]";
+    }
+}
@@ -1,21 +1,184 @@
 package io.automatiko.engine.workflow.lock;
 
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
 
+/**
+ * Manages process instance level locks identified by business key. Locks are only kept in the manager
+ * as long as there is at least one thread holding or waiting for them, so idle entries are evicted
+ * as soon as they are released.
+ *
+ * Fair locking and acquire timeout (in milliseconds) can be configured with system properties
+ * <code>automatiko.instance-locking.fair</code> and <code>automatiko.instance-locking.timeout</code>.
+ */
 public class LockManager {
 
-    private ConcurrentHashMap<String, ReentrantLock> locks = new ConcurrentHashMap<String, ReentrantLock>();
+    public static final String FAIR_PROPERTY = "automatiko.instance-locking.fair";
+    public static final String TIMEOUT_PROPERTY = "automatiko.instance-locking.timeout";
 
-    public synchronized ReentrantLock lock(String id) {
+    private final ConcurrentHashMap<String, InstanceLock> locks = new ConcurrentHashMap<>();
 
-        return locks.computeIfAbsent(id, key -> new ReentrantLock());
+    private final boolean fair;
+    private final long timeout;
+
+    private final LongAdder acquired = new LongAdder();
+    private final LongAdder contended = new LongAdder();
+    private final LongAdder timedOut = new LongAdder();
+    private final LongAdder waitTime = new LongAdder();
+    private final LongAdder held = new LongAdder();
+
+    public LockManager() {
+        this(Boolean.parseBoolean(System.getProperty(FAIR_PROPERTY, Boolean.FALSE.toString())),
+                Long.parseLong(System.getProperty(TIMEOUT_PROPERTY, "-1")));
+    }
+
+    /**
+     * Creates new lock manager
+     *
+     * @param fair determines if locks should use fair ordering policy
+     * @param timeout maximum time in milliseconds to wait for a lock, zero or negative to wait without limit
+     */
+    public LockManager(boolean fair, long timeout) {
+        this.fair = fair;
+        this.timeout = timeout;
+    }
+
+    /**
+     * Returns lock for given id without acquiring it. In case there is no lock in use for the id
+     * a new one is returned that gets registered once it is acquired via {@link #acquire(String)}
+     *
+     * @param id identifier of the lock (usually business key of the instance)
+     * @return lock for given id
+     */
+    public InstanceLock lock(String id) {
+        InstanceLock lock = locks.get(id);
+        if (lock == null) {
+            lock = new InstanceLock(id, fair);
+        }
+        return lock;
+    }
+
+    /**
+     * Acquires lock for given id, blocking until it is available or configured timeout elapses.
+     * Every acquire that is not reentrant must be followed by {@link #release(InstanceLock)} once
+     * the lock is fully unlocked.
+     *
+     * @param id identifier of the lock
+     * @return acquired lock
+     * @throws LockTimeoutException in case lock was not acquired within configured timeout
+     */
+    public InstanceLock acquire(String id) {
+        InstanceLock current = locks.get(id);
+        if (current != null && current.isHeldByCurrentThread()) {
+            current.lock();
+            return current;
+        }
+
+        InstanceLock lock = locks.compute(id, (key, existing) -> {
+            InstanceLock l = existing == null ? new InstanceLock(key, fair) : existing;
+            l.references++;
+            return l;
+        });
+        acquired.increment();
+
+        if (lock.hasQueuedThreads() || !lock.tryLock()) {
+            contended.increment();
+            long start = System.nanoTime();
+            try {
+                if (timeout > 0) {
+                    if (!lock.tryLock(timeout, TimeUnit.MILLISECONDS)) {
+                        timedOut.increment();
+                        dereference(lock);
+                        throw new LockTimeoutException(id, timeout);
+                    }
+                } else {
+                    lock.lock();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                dereference(lock);
+                throw new IllegalStateException("Interrupted while waiting for lock of instance " + id, e);
+            } finally {
+                waitTime.add(System.nanoTime() - start);
+            }
+        }
+        held.increment();
+        return lock;
+    }
+
+    /**
+     * Releases reference to the lock that was previously acquired and is no longer held by the current thread.
+     * Lock is evicted from the manager when there is no one else holding or waiting for it.
+     *
+     * @param lock lock to be released
+     */
+    public void release(InstanceLock lock) {
+        held.decrement();
+        dereference(lock);
     }
 
+    /**
+     * Removes lock for given id if it is not in use
+     *
+     * @param id identifier of the lock
+     */
     public void remove(String id) {
         if (id != null) {
-            locks.remove(id);
+            locks.computeIfPresent(id, (key, existing) -> existing.references > 0 ? existing : null);
         }
     }
 
+    /**
+     * Returns number of locks currently in use
+     */
+    public int size() {
+        return locks.size();
+    }
+
+    /**
+     * Returns number of locks currently held
+     */
+    public long held() {
+        return held.sum();
+    }
+
+    /**
+     * Returns total number of (non reentrant) lock acquisitions
+     */
+    public long acquired() {
+        return acquired.sum();
+    }
+
+    /**
+     * Returns number of acquisitions that had to wait for the lock
+     */
+    public long contended() {
+        return contended.sum();
+    }
+
+    /**
+     * Returns number of acquisitions that failed due to timeout
+     */
+    public long timedOut() {
+        return timedOut.sum();
+    }
+
+    /**
+     * Returns total time spent waiting for locks
+     *
+     * @param unit time unit of the returned value
+     */
+    public long waitTime(TimeUnit unit) {
+        return unit.convert(waitTime.sum(), TimeUnit.NANOSECONDS);
+    }
+
+    private void dereference(InstanceLock lock) {
+        locks.computeIfPresent(lock.id(), (key, existing) -> {
+            if (existing != lock) {
+                return existing;
+            }
+            return --existing.references > 0 ? existing : null;
+        });
+    }
 }
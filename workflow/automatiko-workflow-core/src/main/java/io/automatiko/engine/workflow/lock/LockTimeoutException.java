@@ -0,0 +1,20 @@
+package io.automatiko.engine.workflow.lock;
+
+/**
+ * Thrown when instance lock could not be acquired within configured timeout.
+ */
+public class LockTimeoutException extends RuntimeException {
+
+    private static final long serialVersionUID = -2858620180467264312L;
+
+    private final String id;
+
+    public LockTimeoutException(String id, long timeout) {
+        super("Unable to acquire lock for instance " + id + " within " + timeout + " ms");
+        this.id = id;
+    }
+
+    public String getId() {
+        return id;
+    }
+}
@@ -57,6 +57,9 @@ public class UnlockWorkUnit implements WorkUnit<ReentrantLock> {
             while (lock.getHoldCount() > 0) {
                 lock.unlock();
             }
+            if (lock instanceof InstanceLock) {
+                ((AbstractProcess<?>) instance.process()).locks().release((InstanceLock) lock);
+            }
             LOGGER.debug("Unlocked instance {} ({}) on thread {} lock {}", instance.id(), instance.businessKey(),
                     Thread.currentThread().getName(), lock);
         }
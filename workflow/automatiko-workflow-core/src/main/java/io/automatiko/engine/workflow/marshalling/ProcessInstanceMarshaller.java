@@ -3,8 +3,11 @@ package io.automatiko.engine.workflow.marshalling;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.IOException;
 import java.io.ObjectInputStream;
+import java.io.OutputStream;
 import java.io.StreamCorruptedException;
 import java.time.ZonedDateTime;
 import java.util.Arrays;
@@ -14,7 +17,11 @@ import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.TreeSet;
 
+import com.google.protobuf.ExtensionRegistry;
 import com.google.protobuf.MessageOrBuilder;
 import com.google.protobuf.util.JsonFormat;
 
@@ -23,6 +30,7 @@ import io.automatiko.engine.api.jobs.ExpirationTime;
 import io.automatiko.engine.api.jobs.JobsService;
 import io.automatiko.engine.api.jobs.ProcessInstanceJobDescription;
 import io.automatiko.engine.api.marshalling.ObjectMarshallingStrategy;
+import io.automatiko.engine.api.marshalling.ObjectMarshallingStrategyStore;
 import io.automatiko.engine.api.runtime.EnvironmentName;
 import io.automatiko.engine.api.runtime.process.NodeInstance;
 import io.automatiko.engine.api.runtime.process.WorkflowProcessInstance;
@@ -32,13 +40,18 @@ import io.automatiko.engine.api.workflow.ProcessInstance;
 import io.automatiko.engine.workflow.AbstractProcess;
 import io.automatiko.engine.workflow.AbstractProcessInstance;
 import io.automatiko.engine.workflow.StringExportedProcessInstance;
+import io.automatiko.engine.workflow.base.core.context.variable.Variable;
+import io.automatiko.engine.workflow.base.core.context.variable.VariableScope;
 import io.automatiko.engine.workflow.base.core.timer.Timer;
+import io.automatiko.engine.workflow.base.instance.context.variable.VariableScopeInstance;
 import io.automatiko.engine.workflow.marshalling.impl.AutomatikoMessages;
 import io.automatiko.engine.workflow.marshalling.impl.ClassObjectMarshallingStrategyAcceptor;
 import io.automatiko.engine.workflow.marshalling.impl.MarshallerReaderContext;
 import io.automatiko.engine.workflow.marshalling.impl.PersisterHelper;
 import io.automatiko.engine.workflow.marshalling.impl.ProcessMarshallerRegistry;
+import io.automatiko.engine.workflow.marshalling.impl.ProtobufProcessMarshaller;
 import io.automatiko.engine.workflow.marshalling.impl.ProtobufRuleFlowProcessInstanceMarshaller;
+import io.automatiko.engine.workflow.marshalling.impl.strategies.ObjectMarshallingStrategyStoreImpl;
 import io.automatiko.engine.workflow.marshalling.impl.strategies.SerializablePlaceholderResolverStrategy;
 import io.automatiko.engine.workflow.process.instance.impl.NodeInstanceImpl;
 import io.automatiko.engine.workflow.process.instance.impl.WorkflowProcessInstanceImpl;
@@ -47,8 +60,15 @@ import io.automatiko.engine.workflow.process.instance.node.TimerNodeInstance;
 
 public class ProcessInstanceMarshaller {
 
+    // buffers that grew above this size are not kept for reuse to not hold on to memory of large instances
+    private static final int MAX_REUSED_BUFFER_SIZE = 1024 * 1024;
+
+    private static final ThreadLocal<MarshallingBuffer> BUFFERS = ThreadLocal.withInitial(MarshallingBuffer::new);
+
     private Map<String, Object> env = new HashMap<String, Object>();
 
+    private ObjectMarshallingStrategyStore strategyStore;
+
     public ProcessInstanceMarshaller(ObjectMarshallingStrategy... strategies) {
         ObjectMarshallingStrategy[] strats = null;
         if (strategies == null) {
@@ -65,11 +85,14 @@ public class ProcessInstanceMarshaller {
         }
 
         env.put(EnvironmentName.OBJECT_MARSHALLING_STRATEGIES, strats);
+        this.strategyStore = new ObjectMarshallingStrategyStoreImpl(strats);
     }
 
     public void addToEnvironment(String name, Object value) {
         env.put(name, value);
-
+        if (EnvironmentName.OBJECT_MARSHALLING_STRATEGIES.equals(name)) {
+            this.strategyStore = new ObjectMarshallingStrategyStoreImpl((ObjectMarshallingStrategy[]) value);
+        }
     }
 
     public byte[] marhsallProcessInstance(ProcessInstance<?> processInstance) {
@@ -91,25 +114,115 @@ public class ProcessInstanceMarshaller {
     public byte[] marhsallProcessInstance(io.automatiko.engine.api.runtime.process.ProcessInstance pi,
             NodeInstance... nodeInstances) {
 
+        return marhsallProcessInstance(pi, env, nodeInstances);
+    }
+
+    /**
+     * Marshalls only changes of given process instance since it was read from the data store. Delta consists of the
+     * complete state of the instance without variables, variables that were added or modified and names of variables
+     * that were removed. Requires variables to be tracked when reading instances (<code>_track_vars_</code> environment
+     * entry).
+     *
+     * @param processInstance instance to be marshalled
+     * @return marshalled delta or <code>null</code> when changes of given instance are not tracked
+     */
+    public byte[] marhsallProcessInstanceDelta(ProcessInstance<?> processInstance) {
+        io.automatiko.engine.api.runtime.process.ProcessInstance pi = ((AbstractProcessInstance<?>) processInstance)
+                .internalGetProcessInstance();
+
         if (pi == null) {
             return null;
         }
+        VariableScopeInstance variableScopeInstance = (VariableScopeInstance) ((WorkflowProcessInstanceImpl) pi)
+                .getContextInstance(VariableScope.VARIABLE_SCOPE);
+        Map<String, byte[]> storedDigests = variableScopeInstance.internalGetStoredVariableDigests();
+        if (storedDigests == null) {
+            return null;
+        }
 
-        try (ByteArrayOutputStream baos = new ByteArrayOutputStream()) {
+        ((WorkflowProcessInstanceImpl) pi).internalSetRecoveryItem(null);
+        Map<String, Object> localEnv = new HashMap<String, Object>(env);
+        localEnv.put("_ignore_vars_", true);
+        byte[] state = marhsallProcessInstance(pi, localEnv);
+
+        try (ByteArrayOutputStream baos = new ByteArrayOutputStream();
+                ByteArrayOutputStream variables = new ByteArrayOutputStream();
+                DataOutputStream out = new DataOutputStream(baos)) {
+            ProcessMarshallerWriteContext context = new ProcessMarshallerWriteContext(variables,
+                    ((io.automatiko.engine.workflow.base.instance.ProcessInstance) pi).getProcessRuntime(), strategyStore,
+                    env);
+
+            AutomatikoMessages.VariableContainer.Builder changed = AutomatikoMessages.VariableContainer.newBuilder();
+            Set<String> removed = new TreeSet<>(storedDigests.keySet());
+            Map<String, byte[]> writtenDigests = new HashMap<>();
+            for (Entry<String, Object> variable : variableScopeInstance.getVariables().entrySet()) {
+                if (variable.getValue() == null) {
+                    continue;
+                }
+                Variable v = variableScopeInstance.getVariableScope().findVariable(variable.getKey());
+                if (v != null && v.hasTag(Variable.TRANSIENT_TAG)) {
+                    continue;
+                }
+                removed.remove(variable.getKey());
+
+                AutomatikoMessages.Variable _variable = ProtobufProcessMarshaller.marshallVariable(context,
+                        variable.getKey(), variable.getValue(), true);
+                byte[] digest = PersisterHelper.digest(_variable.getValue());
+                writtenDigests.put(variable.getKey(), digest);
+                if (!Arrays.equals(storedDigests.get(variable.getKey()), digest)) {
+                    changed.addVariable(_variable);
+                }
+            }
+            PersisterHelper.writeToStreamWithHeader(context, changed.build());
+            context.close();
 
-            ProcessMarshallerWriteContext context = new ProcessMarshallerWriteContext(baos,
-                    ((io.automatiko.engine.workflow.base.instance.ProcessInstance) pi).getProcessRuntime(), null,
-                    new HashMap<>(env));
+            out.writeInt(state.length);
+            out.write(state);
+            out.writeInt(variables.size());
+            variables.writeTo(out);
+            out.writeInt(removed.size());
+            for (String name : removed) {
+                out.writeUTF(name);
+            }
+            out.flush();
+            // following deltas are relative to this one, also when the instance is not reloaded in between
+            variableScopeInstance.internalSetStoredVariableDigests(writtenDigests);
+
+            ((WorkflowProcessInstanceImpl) pi).disconnect();
+
+            return baos.toByteArray();
+        } catch (Exception e) {
+            throw new RuntimeException("Error while marshalling process instance delta", e);
+        }
+    }
+
+    protected byte[] marhsallProcessInstance(io.automatiko.engine.api.runtime.process.ProcessInstance pi,
+            Map<String, Object> localEnv, NodeInstance... nodeInstances) {
+        MarshallingBuffer buffer = MarshallingBuffer.acquire();
+        try {
+            writeProcessInstance(buffer, pi, localEnv, nodeInstances);
+            return buffer.toByteArray();
+        } finally {
+            buffer.release();
+        }
+    }
+
+    protected void writeProcessInstance(OutputStream out, io.automatiko.engine.api.runtime.process.ProcessInstance pi,
+            Map<String, Object> localEnv, NodeInstance... nodeInstances) {
+        if (nodeInstances != null && nodeInstances.length > 0) {
+            localEnv = new HashMap<>(localEnv);
+            localEnv.put("nodeInstances", Arrays.asList(nodeInstances));
+        }
+        try {
+            ProcessMarshallerWriteContext context = new ProcessMarshallerWriteContext(out,
+                    ((io.automatiko.engine.workflow.base.instance.ProcessInstance) pi).getProcessRuntime(), strategyStore,
+                    localEnv);
             context.setProcessInstanceId(pi.getId());
             context.setState(pi.getState());
 
             String processType = pi.getProcess().getType();
             context.stream.writeUTF(processType);
 
-            if (nodeInstances != null && nodeInstances.length > 0) {
-                context.env.put("nodeInstances", Arrays.asList(nodeInstances));
-            }
-
             io.automatiko.engine.workflow.marshalling.impl.ProcessInstanceMarshaller marshaller = ProcessMarshallerRegistry.INSTANCE
                     .getMarshaller(processType);
 
@@ -119,8 +232,6 @@ public class ProcessInstanceMarshaller {
                 PersisterHelper.writeToStreamWithHeader(context, _instance);
             }
             context.close();
-
-            return baos.toByteArray();
         } catch (Exception e) {
             throw new RuntimeException("Error while marshalling process instance", e);
         }
@@ -249,7 +360,9 @@ public class ProcessInstanceMarshaller {
         processes.put(process.id(), p);// this can include version number in the id
         processes.put(p.getId(), p);// this is raw process id as defined in bpmn or so
         try (ByteArrayInputStream bais = new ByteArrayInputStream(data)) {
-            MarshallerReaderContext context = new MarshallerReaderContext(bais, null, processes, this.env);
+            MarshallerReaderContext context = new MarshallerReaderContext(bais, null, strategyStore, true, true,
+                    this.env);
+            context.processes = processes;
             ObjectInputStream stream = context.stream;
             String processInstanceType = stream.readUTF();
 
@@ -266,9 +379,84 @@ public class ProcessInstanceMarshaller {
         }
     }
 
+    /**
+     * Unmarshalls process instance from given snapshot (complete marshalled instance) and deltas created
+     * by {@link #marhsallProcessInstanceDelta(ProcessInstance)} since the snapshot was taken, in the order they were
+     * created.
+     */
+    public WorkflowProcessInstance unmarshallWorkflowProcessInstance(byte[] snapshot, List<byte[]> deltas,
+            Process<?> process) {
+        WorkflowProcessInstance pi = unmarshallWorkflowProcessInstance(snapshot, process);
+        if (deltas == null || deltas.isEmpty()) {
+            return pi;
+        }
+        VariableScopeInstance variableScopeInstance = (VariableScopeInstance) ((WorkflowProcessInstanceImpl) pi)
+                .getContextInstance(VariableScope.VARIABLE_SCOPE);
+        Map<String, Object> variables = new HashMap<>(variableScopeInstance.getVariables());
+        Map<String, byte[]> digests = variableScopeInstance.internalGetStoredVariableDigests() == null ? null
+                : new HashMap<>(variableScopeInstance.internalGetStoredVariableDigests());
+
+        Map<String, io.automatiko.engine.api.definition.process.Process> processes = new HashMap<String, io.automatiko.engine.api.definition.process.Process>();
+        io.automatiko.engine.api.definition.process.Process p = ((AbstractProcess<?>) process).process();
+        processes.put(process.id(), p);
+        processes.put(p.getId(), p);
+
+        byte[] state = null;
+        for (byte[] delta : deltas) {
+            try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(delta))) {
+                state = new byte[in.readInt()];
+                in.readFully(state);
+                byte[] changed = new byte[in.readInt()];
+                in.readFully(changed);
+
+                MarshallerReaderContext context = new MarshallerReaderContext(new ByteArrayInputStream(changed), null,
+                        processes, this.env);
+                ExtensionRegistry registry = PersisterHelper.buildRegistry(context, null);
+                AutomatikoMessages.Header _header = PersisterHelper.readFromStreamWithHeaderPreloaded(context, registry);
+                AutomatikoMessages.VariableContainer _container = AutomatikoMessages.VariableContainer
+                        .parseFrom(_header.getPayload(), registry);
+                for (AutomatikoMessages.Variable _variable : _container.getVariableList()) {
+                    variables.put(_variable.getName(), ProtobufProcessMarshaller.unmarshallVariableValue(context, _variable));
+                    if (digests != null) {
+                        digests.put(_variable.getName(), PersisterHelper.digest(_variable.getValue()));
+                    }
+                }
+                context.close();
+
+                int removed = in.readInt();
+                for (int i = 0; i < removed; i++) {
+                    String name = in.readUTF();
+                    variables.remove(name);
+                    if (digests != null) {
+                        digests.remove(name);
+                    }
+                }
+            } catch (Exception e) {
+                throw new RuntimeException("Error while unmarshalling process instance delta", e);
+            }
+        }
+        // latest delta carries complete state of the instance except variables
+        pi = unmarshallWorkflowProcessInstance(state, process);
+        variableScopeInstance = (VariableScopeInstance) ((WorkflowProcessInstanceImpl) pi)
+                .getContextInstance(VariableScope.VARIABLE_SCOPE);
+        for (Entry<String, Object> variable : variables.entrySet()) {
+            variableScopeInstance.internalSetVariable(variable.getKey(), variable.getValue());
+        }
+        variableScopeInstance.internalSetStoredVariableDigests(digests);
+
+        return pi;
+    }
+
     @SuppressWarnings({ "rawtypes", "unchecked" })
     public ProcessInstance unmarshallProcessInstance(byte[] data, Process process, long versionracker) {
-        WorkflowProcessInstance wpi = unmarshallWorkflowProcessInstance(data, process);
+        return createProcessInstance(unmarshallWorkflowProcessInstance(data, process), process, versionracker);
+    }
+
+    /**
+     * Creates process instance from already unmarshalled workflow process instance
+     */
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    public ProcessInstance createProcessInstance(WorkflowProcessInstance wpi, Process process, long versionracker) {
         Model model = ((AbstractProcess) process).createModel();
 
         model.fromMap(wpi.getVariables());
@@ -281,7 +469,14 @@ public class ProcessInstanceMarshaller {
 
     @SuppressWarnings({ "rawtypes", "unchecked" })
     public ProcessInstance unmarshallReadOnlyProcessInstance(byte[] data, Process process) {
-        WorkflowProcessInstance wpi = unmarshallWorkflowProcessInstance(data, process);
+        return createReadOnlyProcessInstance(unmarshallWorkflowProcessInstance(data, process), process);
+    }
+
+    /**
+     * Creates read only process instance from already unmarshalled workflow process instance
+     */
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    public ProcessInstance createReadOnlyProcessInstance(WorkflowProcessInstance wpi, Process process) {
         Model model = ((AbstractProcess) process).createModel();
 
         model.fromMap(wpi.getVariables());
@@ -368,4 +563,35 @@ public class ProcessInstanceMarshaller {
 
         return processInstance;
     }
+
+    /**
+     * Output buffer reused by a thread for marshalling of process instances
+     */
+    private static class MarshallingBuffer extends ByteArrayOutputStream {
+
+        private boolean inUse;
+
+        MarshallingBuffer() {
+            super(4096);
+        }
+
+        static MarshallingBuffer acquire() {
+            MarshallingBuffer buffer = BUFFERS.get();
+            if (buffer.inUse) {
+                // marshalling of another instance while this one is being marshalled
+                return new MarshallingBuffer();
+            }
+            if (buffer.buf.length > MAX_REUSED_BUFFER_SIZE) {
+                buffer = new MarshallingBuffer();
+                BUFFERS.set(buffer);
+            }
+            buffer.reset();
+            buffer.inUse = true;
+            return buffer;
+        }
+
+        void release() {
+            inUse = false;
+        }
+    }
 }
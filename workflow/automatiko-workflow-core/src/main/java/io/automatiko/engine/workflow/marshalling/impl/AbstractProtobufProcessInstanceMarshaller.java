@@ -880,6 +880,8 @@ public abstract class AbstractProtobufProcessInstanceMarshaller implements Proce
     protected void readVariableScope(MarshallerReaderContext context, Process process,
             WorkflowProcessInstanceImpl processInstance, AutomatikoMessages.ProcessInstance _instance) throws IOException {
 
+        // when enabled keep digests of read variables so changed ones can be found when storing the instance
+        Map<String, byte[]> digests = (boolean) context.env.getOrDefault("_track_vars_", false) ? new HashMap<>() : null;
         if (_instance.getVariableCount() > 0) {
             VariableScope variableScope = (VariableScope) ((io.automatiko.engine.workflow.base.core.Process) process)
                     .getDefaultContext(VariableScope.VARIABLE_SCOPE);
@@ -905,12 +907,18 @@ public abstract class AbstractProtobufProcessInstanceMarshaller implements Proce
                     }
 
                     variableScopeInstance.internalSetVariable(_variable.getName(), _value);
+                    if (digests != null) {
+                        digests.put(_variable.getName(), PersisterHelper.digest(_variable.getValue()));
+                    }
                 } catch (ClassNotFoundException e) {
                     throw new IllegalArgumentException("Could not reload variable " + _variable.getName());
                 }
             }
         }
-
+        if (digests != null) {
+            ((VariableScopeInstance) processInstance.getContextInstance(VariableScope.VARIABLE_SCOPE))
+                    .internalSetStoredVariableDigests(digests);
+        }
     }
 
     protected abstract WorkflowProcessInstanceImpl createProcessInstance();
@@ -1205,6 +1213,9 @@ public abstract class AbstractProtobufProcessInstanceMarshaller implements Proce
                     }
                 });
 
+        // when enabled refresh digests of stored variables so next changes are compared with what was just written
+        Map<String, byte[]> digests = (boolean) context.env.getOrDefault("_track_vars_", false)
+                && !context.env.containsKey("_export_") ? new HashMap<>() : null;
         for (Map.Entry<String, Object> variable : variables) {
             if (variable.getValue() != null) {
 
@@ -1212,10 +1223,17 @@ public abstract class AbstractProtobufProcessInstanceMarshaller implements Proce
                 if (v != null && v.hasTag(Variable.TRANSIENT_TAG)) {
                     continue;
                 }
-                _instance.addVariable(
-                        ProtobufProcessMarshaller.marshallVariable(context, variable.getKey(), variable.getValue(), true));
+                AutomatikoMessages.Variable _variable = ProtobufProcessMarshaller.marshallVariable(context,
+                        variable.getKey(), variable.getValue(), true);
+                _instance.addVariable(_variable);
+                if (digests != null) {
+                    digests.put(_variable.getName(), PersisterHelper.digest(_variable.getValue()));
+                }
             }
         }
+        if (digests != null) {
+            variableScopeInstance.internalSetStoredVariableDigests(digests);
+        }
     }
 
 }
@@ -1,10 +1,11 @@
 package io.automatiko.engine.workflow.marshalling.impl;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.Map.Entry;
 
 import com.google.protobuf.ByteString;
@@ -25,11 +26,9 @@ public class PersisterHelper {
 
         writeStrategiesIndex(context, _header);
 
-        byte[] buff = payload.toByteArray();
+        _header.setPayload(payload.toByteString());
 
-        _header.setPayload(ByteString.copyFrom(buff));
-
-        context.stream.write(_header.build().toByteArray());
+        _header.build().writeTo(context.stream);
     }
 
     public static void writeStrategiesIndex(MarshallerWriteContext context, AutomatikoMessages.Header.Builder _header)
@@ -71,15 +70,7 @@ public class PersisterHelper {
     }
 
     private static byte[] preload(InputStream stream) throws IOException {
-        byte[] buf = new byte[4096];
-        ByteArrayOutputStream preloaded = new ByteArrayOutputStream();
-
-        int read;
-        while ((read = stream.read(buf)) != -1) {
-            preloaded.write(buf, 0, read);
-        }
-
-        return preloaded.toByteArray();
+        return stream.readAllBytes();
     }
 
     public static void loadStrategiesIndex(MarshallerReaderContext context, AutomatikoMessages.Header _header)
@@ -103,6 +94,19 @@ public class PersisterHelper {
         }
     }
 
+    /**
+     * Computes digest of given marshalled value, used to detect changes of values between reads and writes
+     */
+    public static byte[] digest(ByteString value) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(value.asReadOnlyByteBuffer());
+            return digest.digest();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
     public static ExtensionRegistry buildRegistry(MarshallerReaderContext context,
             ProcessMarshaller processMarshaller) {
         ExtensionRegistry registry = ExtensionRegistry.newInstance();
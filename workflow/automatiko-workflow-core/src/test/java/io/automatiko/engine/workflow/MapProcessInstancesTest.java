@@ -0,0 +1,163 @@
+package io.automatiko.engine.workflow;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+
+import io.automatiko.engine.api.workflow.Process;
+import io.automatiko.engine.api.workflow.ProcessInstance;
+import io.automatiko.engine.api.workflow.ProcessInstancePage;
+import io.automatiko.engine.api.workflow.ProcessInstanceReadMode;
+import io.automatiko.engine.api.workflow.ProcessInstanceSummary;
+import io.automatiko.engine.api.workflow.Tag;
+import io.automatiko.engine.api.workflow.Tags;
+import io.automatiko.engine.workflow.auth.AllowAllAccessPolicy;
+import io.automatiko.engine.workflow.base.instance.impl.end.RemoveEndOfInstanceStrategy;
+
+@SuppressWarnings({ "rawtypes", "unchecked" })
+public class MapProcessInstancesTest {
+
+    private final Process process = mock(Process.class);
+
+    private final MapProcessInstances instances = new MapProcessInstances();
+
+    @Test
+    public void testFindByTagVerifiedAgainstLiveInstance() {
+        ProcessInstance pi = instance(UUID.randomUUID().toString(), ProcessInstance.STATE_ACTIVE, "first");
+        instances.create(pi.id(), pi);
+
+        assertThat(instances.findByIdOrTag(ProcessInstanceReadMode.READ_ONLY, "first")).containsExactly(pi);
+
+        // tag changes on the live instance before it is updated
+        pi.tags().remove("first");
+        pi.tags().add("second");
+        assertThat(instances.findByIdOrTag(ProcessInstanceReadMode.READ_ONLY, "first")).isEmpty();
+
+        instances.update(pi.id(), pi);
+        assertThat(instances.findByIdOrTag(ProcessInstanceReadMode.READ_ONLY, "first")).isEmpty();
+        assertThat(instances.findByIdOrTag(ProcessInstanceReadMode.READ_ONLY, "second")).containsExactly(pi);
+        assertThat(instances.findByIdOrTag(ProcessInstanceReadMode.READ_ONLY, pi.id(), "second")).containsExactly(pi);
+        assertThat(instances.locateByIdOrTag("second")).containsExactly(pi.id());
+    }
+
+    @Test
+    public void testValuesByStatus() {
+        List<ProcessInstance> created = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            ProcessInstance pi = instance(UUID.randomUUID().toString(), ProcessInstance.STATE_ACTIVE);
+            instances.create(pi.id(), pi);
+            created.add(pi);
+        }
+        assertThat(instances.values(1, 10)).hasSize(5);
+        assertThat(instances.values(1, 2)).hasSize(2);
+        assertThat(instances.values(3, 2)).hasSize(1);
+
+        ProcessInstance failed = created.get(0);
+        when(failed.status()).thenReturn(ProcessInstance.STATE_ERROR);
+        // not yet updated, instance is no longer returned as active
+        assertThat(instances.values(1, 10)).hasSize(4).doesNotContain(failed);
+        assertThat(instances.values(ProcessInstanceReadMode.READ_ONLY, ProcessInstance.STATE_ERROR, 1, 10))
+                .containsExactly(failed);
+
+        instances.update(failed.id(), failed);
+        assertThat(instances.values(ProcessInstanceReadMode.READ_ONLY, ProcessInstance.STATE_ERROR, 1, 10))
+                .containsExactly(failed);
+
+        instances.remove(failed.id(), failed);
+        assertThat(instances.values(ProcessInstanceReadMode.READ_ONLY, ProcessInstance.STATE_ERROR, 1, 10)).isEmpty();
+        assertThat(instances.findByIdOrTag(ProcessInstanceReadMode.READ_ONLY, ProcessInstance.STATE_ERROR, failed.id()))
+                .isEmpty();
+        assertThat(instances.size()).isEqualTo(4);
+    }
+
+    @Test
+    public void testValuesByCursor() {
+        for (int i = 0; i < 5; i++) {
+            ProcessInstance pi = instance(UUID.randomUUID().toString(), ProcessInstance.STATE_ACTIVE);
+            instances.create(pi.id(), pi);
+        }
+        List<ProcessInstance> listed = new ArrayList<>();
+        String cursor = null;
+        int pages = 0;
+        do {
+            ProcessInstancePage page = instances.values(ProcessInstanceReadMode.READ_ONLY, ProcessInstance.STATE_ACTIVE,
+                    cursor, 2);
+            listed.addAll(page.instances());
+            cursor = page.cursor();
+            pages++;
+        } while (cursor != null);
+
+        assertThat(pages).isEqualTo(3);
+        assertThat(listed).hasSize(5).doesNotHaveDuplicates();
+    }
+
+    @Test
+    public void testSummaries() {
+        ProcessInstance pi = instance(UUID.randomUUID().toString(), ProcessInstance.STATE_ACTIVE, "first");
+        when(pi.businessKey()).thenReturn("key");
+        when(pi.errors()).thenReturn(Optional.empty());
+        instances.create(pi.id(), pi);
+
+        Collection<ProcessInstanceSummary> summaries = instances.summaries(ProcessInstance.STATE_ACTIVE, 1, 10);
+        assertThat(summaries).hasSize(1);
+        ProcessInstanceSummary summary = summaries.iterator().next();
+        assertThat(summary.id()).isEqualTo(pi.id());
+        assertThat(summary.businessKey()).isEqualTo("key");
+        assertThat(summary.tags()).containsExactly("first");
+        assertThat(summary.failed()).isFalse();
+        assertThat(instances.summaries(ProcessInstance.STATE_ERROR, 1, 10)).isEmpty();
+    }
+
+    private ProcessInstance instance(String id, int status, String... tags) {
+        ProcessInstance pi = mock(ProcessInstance.class);
+        when(process.accessPolicy()).thenReturn(new AllowAllAccessPolicy());
+        when(process.endOfInstanceStrategy()).thenReturn(new RemoveEndOfInstanceStrategy());
+        when(pi.process()).thenReturn(process);
+        when(pi.id()).thenReturn(id);
+        when(pi.status()).thenReturn(status);
+        TestTags instanceTags = new TestTags();
+        for (String tag : tags) {
+            instanceTags.add(tag);
+        }
+        when(pi.tags()).thenReturn(instanceTags);
+        return pi;
+    }
+
+    private static class TestTags implements Tags {
+
+        private final List<String> values = new ArrayList<>();
+
+        @Override
+        public Collection<String> values() {
+            return values;
+        }
+
+        @Override
+        public void add(String value) {
+            values.add(value);
+        }
+
+        @Override
+        public Collection<Tag> get() {
+            return null;
+        }
+
+        @Override
+        public Tag get(String id) {
+            return null;
+        }
+
+        @Override
+        public boolean remove(String id) {
+            return values.remove(id);
+        }
+    }
+}
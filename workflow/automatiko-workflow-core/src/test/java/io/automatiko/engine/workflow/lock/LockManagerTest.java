@@ -0,0 +1,95 @@
+package io.automatiko.engine.workflow.lock;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+public class LockManagerTest {
+
+    @Test
+    public void testLockEvictedWhenReleased() {
+        LockManager manager = new LockManager(false, -1);
+
+        InstanceLock lock = manager.acquire("key");
+        assertTrue(lock.isHeldByCurrentThread());
+        assertEquals(1, manager.size());
+        assertEquals(1, manager.held());
+
+        // reentrant acquire returns the same lock and does not count as new acquisition
+        assertSame(lock, manager.acquire("key"));
+        assertEquals(2, lock.getHoldCount());
+        assertEquals(1, manager.acquired());
+
+        while (lock.getHoldCount() > 0) {
+            lock.unlock();
+        }
+        manager.release(lock);
+
+        assertEquals(0, manager.size());
+        assertEquals(0, manager.held());
+    }
+
+    @Test
+    public void testLockNotEvictedWhileAwaited() throws Exception {
+        LockManager manager = new LockManager(false, -1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            InstanceLock lock = manager.acquire("key");
+
+            CountDownLatch acquired = new CountDownLatch(1);
+            Future<InstanceLock> other = executor.submit(() -> {
+                InstanceLock l = manager.acquire("key");
+                acquired.countDown();
+                l.unlock();
+                manager.release(l);
+                return l;
+            });
+
+            while (!lock.hasQueuedThreads()) {
+                Thread.sleep(5);
+            }
+            lock.unlock();
+            manager.release(lock);
+            assertTrue(acquired.await(5, TimeUnit.SECONDS));
+
+            assertSame(lock, other.get(5, TimeUnit.SECONDS));
+            assertEquals(1, manager.contended());
+            assertEquals(0, manager.size());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testLockTimeout() throws Exception {
+        LockManager manager = new LockManager(true, 50);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            InstanceLock lock = manager.acquire("key");
+            assertTrue(lock.isFair());
+
+            Future<?> other = executor.submit(() -> assertThrows(LockTimeoutException.class, () -> manager.acquire("key")));
+            other.get(5, TimeUnit.SECONDS);
+
+            assertEquals(1, manager.timedOut());
+            assertEquals(1, manager.size());
+
+            lock.unlock();
+            manager.release(lock);
+            assertEquals(0, manager.size());
+            assertFalse(lock.isLocked());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}